@@ -0,0 +1,146 @@
+package com.github.onsdigital.thetrain.benchmarks;
+
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.request.Manifest;
+import com.github.onsdigital.thetrain.storage.Publisher;
+import com.github.onsdigital.thetrain.storage.Transactions;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipInputStream;
+
+/**
+ * The commit side of a publish: {@link Publisher#commit} of a transaction holding uploaded files, and of a
+ * transaction holding only the copies recorded from a manifest by {@link Publisher#copyFilesIntoTransaction}, which
+ * are made from the website at commit time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommitBenchmark {
+
+    static final String COPY_SOURCE = "source";
+
+    @Param({Fixtures.SMALL, Fixtures.MIXED})
+    public String mix;
+
+    @Param({"200"})
+    public int files;
+
+    private Path transactionStore;
+    private Path website;
+    private byte[] zip;
+    private Manifest manifest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        transactionStore = Fixtures.initTrain();
+        website = Fixtures.tempDir("benchmark-website");
+        zip = Fixtures.zip(mix, files);
+        Fixtures.writeFiles(website, COPY_SOURCE, files, mix);
+        manifest = manifest(files);
+    }
+
+    @Benchmark
+    public boolean commit(Uploads uploads) throws IOException {
+        return Publisher.getInstance().commit(uploads.transaction, website);
+    }
+
+    @Benchmark
+    public boolean commitManifestCopies(ManifestCopies copies) throws IOException {
+        return Publisher.getInstance().commit(copies.transaction, website);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Fixtures.delete(transactionStore);
+        Fixtures.delete(website);
+    }
+
+    private static Manifest manifest(int files) {
+        List<Map<String, String>> copies = new ArrayList<>();
+        for (int i = 0; i < files; i++) {
+            String path = "/" + (i / 100) + "/" + i + ".json";
+            Map<String, String> copy = new HashMap<>();
+            copy.put("source", "/" + COPY_SOURCE + path);
+            copy.put("target", "/copy" + path);
+            copies.add(copy);
+        }
+
+        // Built from Json, as the manifest sent to /CommitManifest is.
+        Map<String, Object> manifest = new HashMap<>();
+        manifest.put("filesToCopy", copies);
+        Gson gson = new Gson();
+        return gson.fromJson(gson.toJson(manifest), Manifest.class);
+    }
+
+    /**
+     * Each commit needs a transaction full of uploaded files. Committing overwrites the same website files every
+     * time, so the website does not grow between invocations.
+     */
+    @State(Scope.Thread)
+    public static class Uploads {
+
+        Transaction transaction;
+
+        @Setup(Level.Invocation)
+        public void createTransaction(CommitBenchmark benchmark) throws IOException {
+            transaction = Transactions.create();
+            try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(benchmark.zip))) {
+                Publisher.getInstance().addFiles(transaction, "/commit", input, benchmark.website);
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void endTransaction(CommitBenchmark benchmark) {
+            Transactions.end(transaction);
+            Fixtures.delete(benchmark.transactionStore.resolve(transaction.id()));
+        }
+    }
+
+    /**
+     * Each commit needs a transaction with every copy in the manifest pending. Copies to targets already on the
+     * website are dropped when they are recorded, so the targets are deleted after every commit.
+     */
+    @State(Scope.Thread)
+    public static class ManifestCopies {
+
+        Transaction transaction;
+
+        @Setup(Level.Invocation)
+        public void createTransaction(CommitBenchmark benchmark) throws IOException {
+            transaction = Transactions.create();
+            Publisher.getInstance().copyFilesIntoTransaction(transaction, benchmark.manifest, benchmark.website);
+        }
+
+        @TearDown(Level.Invocation)
+        public void endTransaction(CommitBenchmark benchmark) {
+            Transactions.end(transaction);
+            Fixtures.delete(benchmark.transactionStore.resolve(transaction.id()));
+            Fixtures.delete(benchmark.website.resolve("copy"));
+        }
+    }
+}
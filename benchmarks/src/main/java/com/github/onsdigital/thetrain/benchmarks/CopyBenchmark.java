@@ -0,0 +1,107 @@
+package com.github.onsdigital.thetrain.benchmarks;
+
+import com.github.onsdigital.thetrain.storage.CopyStrategies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each {@link CopyStrategies copy strategy} copying files and writing uploaded content, so the fastest one for a mount
+ * can be chosen for <code>PUBLISHING_COPY_STRATEGY</code>. Point <code>dir</code> at a directory on the mount the
+ * website or transaction store is on; by default a temporary directory is used.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CopyBenchmark {
+
+    @Param({"transfer_from", "transfer_to", "files_copy", "direct_buffer", "async"})
+    public String strategy;
+
+    @Param({Fixtures.SMALL, Fixtures.LARGE})
+    public String mix;
+
+    @Param({"100"})
+    public int files;
+
+    /**
+     * The directory to copy in, or empty for a temporary directory.
+     */
+    @Param({""})
+    public String dir;
+
+    private CopyStrategies copyStrategy;
+    private Path directory;
+    private Path[] sources;
+    private Path[] targets;
+    private byte[][] contents;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        copyStrategy = CopyStrategies.parse(strategy);
+        directory = dir.isEmpty()
+                ? Fixtures.tempDir("benchmark-copy")
+                : Files.createTempDirectory(Paths.get(dir), "benchmark-copy");
+
+        Random random = new Random(Fixtures.SEED);
+        sources = new Path[files];
+        targets = new Path[files];
+        contents = new byte[files][];
+        for (int i = 0; i < files; i++) {
+            int min = Fixtures.LARGE.equals(mix) ? Fixtures.LARGE_MIN : Fixtures.SMALL_MIN;
+            int max = Fixtures.LARGE.equals(mix) ? Fixtures.LARGE_MAX : Fixtures.SMALL_MAX;
+            contents[i] = new byte[min + random.nextInt(max - min)];
+            random.nextBytes(contents[i]);
+            sources[i] = Files.write(directory.resolve(i + ".source"), contents[i]);
+            targets[i] = directory.resolve(i + ".target");
+        }
+    }
+
+    /**
+     * Copying existing files, as commits, backups and manifest copies do.
+     */
+    @Benchmark
+    public int copy() throws IOException {
+        for (int i = 0; i < files; i++) {
+            copyStrategy.copy(sources[i], targets[i]);
+        }
+        return files;
+    }
+
+    /**
+     * Writing content from a stream, as uploads do.
+     */
+    @Benchmark
+    public int write() throws IOException {
+        for (int i = 0; i < files; i++) {
+            copyStrategy.write(new ByteArrayInputStream(contents[i]), targets[i]);
+        }
+        return files;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Fixtures.delete(directory);
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.onsdigital.thetrain.benchmarks;
+
+import com.github.onsdigital.thetrain.logging.HotPathLog;
+import com.github.onsdigital.thetrain.logging.LogMode;
+import com.github.onsdigital.thetrain.storage.Publisher;
+import com.github.onsdigital.thetrain.storage.Transactions;
+import org.apache.commons.io.FileUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Shared set up for the benchmarks: temporary website and transaction store directories, and synthetic content.
+ * Content is generated from a fixed seed so every run publishes the same bytes.
+ */
+final class Fixtures {
+
+    /**
+     * The mixes of zip entry sizes. Small entries fit in the {@link Publisher} buffer and are written asynchronously,
+     * large ones do not and are streamed on the calling thread.
+     */
+    static final String SMALL = "small";
+    static final String MIXED = "mixed";
+    static final String LARGE = "large";
+
+    static final int SMALL_MIN = 2 * 1024;
+    static final int SMALL_MAX = 20 * 1024;
+    static final int LARGE_MIN = 200 * 1024;
+    static final int LARGE_MAX = 1024 * 1024;
+
+    /**
+     * One in this many entries of a {@link #MIXED} zip is large.
+     */
+    static final int MIXED_LARGE_EVERY = 20;
+
+    static final int PUBLISHER_THREADS = 100;
+    static final long SEED = 42;
+
+    /**
+     * System property selecting the hot path {@link LogMode}. Defaults to summary so per-file logging does not swamp
+     * the benchmark output; set it to full to measure the cost of logging.
+     */
+    static final String LOG_MODE_PROPERTY = "thetrain.logMode";
+
+    private static boolean publisherStarted;
+
+    private Fixtures() {
+        // static helpers only
+    }
+
+    /**
+     * Initialise the transaction store in a new temporary directory and start the publisher.
+     *
+     * @return the transaction store directory.
+     */
+    static Path initTrain() throws IOException {
+        HotPathLog.setMode(LogMode.parse(System.getProperty(LOG_MODE_PROPERTY, LogMode.SUMMARY.name())));
+
+        Path transactionStore = Files.createTempDirectory("benchmark-transactions");
+        Transactions.init(transactionStore);
+
+        synchronized (Fixtures.class) {
+            if (!publisherStarted) {
+                Publisher.init(PUBLISHER_THREADS);
+                publisherStarted = true;
+            }
+        }
+        return transactionStore;
+    }
+
+    static Path tempDir(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix);
+    }
+
+    static void delete(Path dir) {
+        if (dir != null) {
+            FileUtils.deleteQuietly(dir.toFile());
+        }
+    }
+
+    /**
+     * Build a zip of synthetic files.
+     *
+     * @param mix     one of {@link #SMALL}, {@link #MIXED} or {@link #LARGE}.
+     * @param entries the number of files.
+     * @return the zip bytes.
+     */
+    static byte[] zip(String mix, int entries) throws IOException {
+        Random random = new Random(SEED);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < entries; i++) {
+                zip.putNextEntry(new ZipEntry("timeseries/" + (i / 100) + "/" + i + "/data.json"));
+                zip.write(content(random, size(mix, i, random)));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Write synthetic files under a directory.
+     *
+     * @param root   the directory.
+     * @param prefix the URI prefix to write the files under.
+     * @param files  the number of files, written 100 to a directory.
+     * @param mix    one of {@link #SMALL}, {@link #MIXED} or {@link #LARGE}.
+     */
+    static void writeFiles(Path root, String prefix, int files, String mix) throws IOException {
+        Random random = new Random(SEED);
+        for (int i = 0; i < files; i++) {
+            Path file = root.resolve(prefix).resolve(Integer.toString(i / 100)).resolve(i + ".json");
+            Files.createDirectories(file.getParent());
+            Files.write(file, content(random, size(mix, i, random)));
+        }
+    }
+
+    static byte[] content(Random random, int size) {
+        // Printable characters compress in the zip roughly as real Json does.
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) ('a' + random.nextInt(26));
+        }
+        return content;
+    }
+
+    private static int size(String mix, int index, Random random) {
+        boolean large;
+        switch (mix) {
+            case SMALL:
+                large = false;
+                break;
+            case LARGE:
+                large = true;
+                break;
+            case MIXED:
+                large = index % MIXED_LARGE_EVERY == 0;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown mix: " + mix);
+        }
+        return large ? between(random, LARGE_MIN, LARGE_MAX) : between(random, SMALL_MIN, SMALL_MAX);
+    }
+
+    private static int between(Random random, int min, int max) {
+        return min + random.nextInt(max - min);
+    }
+}
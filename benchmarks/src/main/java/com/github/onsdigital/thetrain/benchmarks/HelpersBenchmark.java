@@ -0,0 +1,103 @@
+package com.github.onsdigital.thetrain.benchmarks;
+
+import com.github.onsdigital.thetrain.helpers.PathUtils;
+import com.github.onsdigital.thetrain.helpers.ShaInputStream;
+import com.github.onsdigital.thetrain.helpers.UnionInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The helpers on the publishing path: {@link PathUtils#listUris} walking a transaction's content, and the
+ * throughput of {@link UnionInputStream} (used for large zip entries) and {@link ShaInputStream} (used to hash every
+ * file written).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HelpersBenchmark {
+
+    static final int BUFFER_SIZE = 8192;
+    static final int PREFIX_SIZE = 100 * 1024;
+
+    @Param({"1000", "10000"})
+    public int files;
+
+    @Param({"10485760"})
+    public int streamBytes;
+
+    private Path content;
+    private byte[] prefix;
+    private byte[] data;
+    private byte[] buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        content = Fixtures.tempDir("benchmark-content");
+        Fixtures.writeFiles(content, "timeseries", files, Fixtures.SMALL);
+
+        Random random = new Random(Fixtures.SEED);
+        prefix = Fixtures.content(random, PREFIX_SIZE);
+        data = Fixtures.content(random, streamBytes);
+        buffer = new byte[BUFFER_SIZE];
+    }
+
+    @Benchmark
+    public List<String> listUris() throws IOException {
+        return PathUtils.listUris(content);
+    }
+
+    /**
+     * Mirrors a large zip entry: the buffered first chunk followed by the rest of the stream.
+     */
+    @Benchmark
+    public long unionInputStream() throws IOException {
+        try (InputStream input = new UnionInputStream(new ByteArrayInputStream(prefix),
+                new ByteArrayInputStream(data))) {
+            return drain(input);
+        }
+    }
+
+    @Benchmark
+    public String shaInputStream() throws IOException {
+        try (ShaInputStream input = new ShaInputStream(new ByteArrayInputStream(data))) {
+            drain(input);
+            return input.sha();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Fixtures.delete(content);
+    }
+
+    private long drain(InputStream input) throws IOException {
+        long total = 0;
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            total += read;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.onsdigital.thetrain.benchmarks;
+
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.storage.Publisher;
+import com.github.onsdigital.thetrain.storage.Transactions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipInputStream;
+
+/**
+ * {@link Publisher#addFiles} unzipping an upload into a new transaction, for zips of small, large and mixed entries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PublisherBenchmark {
+
+    @Param({Fixtures.SMALL, Fixtures.MIXED, Fixtures.LARGE})
+    public String mix;
+
+    @Param({"200"})
+    public int entries;
+
+    private Path transactionStore;
+    private Path website;
+    private byte[] zip;
+    private Transaction transaction;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        transactionStore = Fixtures.initTrain();
+        website = Fixtures.tempDir("benchmark-website");
+        zip = Fixtures.zip(mix, entries);
+    }
+
+    @Setup(Level.Invocation)
+    public void createTransaction() throws IOException {
+        transaction = Transactions.create();
+    }
+
+    @Benchmark
+    public boolean addFiles() throws IOException {
+        try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            return Publisher.getInstance().addFiles(transaction, "/", input, website);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void endTransaction() {
+        Transactions.end(transaction);
+        Fixtures.delete(transactionStore.resolve(transaction.id()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Fixtures.delete(transactionStore);
+        Fixtures.delete(website);
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.onsdigital.thetrain.benchmarks;
+
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.UriInfo;
+import com.github.onsdigital.thetrain.storage.Transactions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How the cost of recording a transaction grows with its size: {@link Transactions#update} writing the transaction
+ * Json, and {@link Transaction#addUri} adding one more URI.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionsBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int uris;
+
+    private Path transactionStore;
+    private Transaction transaction;
+    private List<UriInfo> uriInfos;
+    private UriInfo added;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        transactionStore = Fixtures.initTrain();
+        uriInfos = new ArrayList<>();
+        for (int i = 0; i < uris; i++) {
+            uriInfos.add(uriInfo("/timeseries/" + i + "/data.json"));
+        }
+        transaction = transaction();
+    }
+
+    /**
+     * {@link Transaction#addUri} grows the transaction, so each invocation starts from a transaction of exactly
+     * the parameter size.
+     */
+    @Setup(Level.Invocation)
+    public void prepareAdd() throws IOException {
+        if (transaction.uris().size() != uris) {
+            Transactions.end(transaction);
+            transaction = transaction();
+        }
+        added = uriInfo("/added/" + next++ + "/data.json");
+    }
+
+    @Benchmark
+    public Transaction update() throws IOException {
+        Transactions.update(transaction);
+        return transaction;
+    }
+
+    @Benchmark
+    public Transaction addUri() {
+        transaction.addUri(added);
+        return transaction;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Transactions.end(transaction);
+        Fixtures.delete(transactionStore);
+    }
+
+    private Transaction transaction() throws IOException {
+        Transaction created = Transactions.create();
+        created.addUris(uriInfos);
+        return created;
+    }
+
+    private static UriInfo uriInfo(String uri) {
+        UriInfo uriInfo = new UriInfo(uri, new Date());
+        uriInfo.setAction(UriInfo.CREATE);
+        uriInfo.setSize(10 * 1024);
+        uriInfo.stop();
+        return uriInfo;
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.onsdigital.thetrain.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Synthetic content. Files are made of Json-like text so zips compress them about as well as real timeseries.
+ */
+final class Content {
+
+    private static final byte[] ALPHABET = "0123456789.,:{}[]\"abcdefghijklmnopqrstuvwxyz ".getBytes();
+
+    private Content() {
+        // static helpers only
+    }
+
+    /**
+     * @return a file of a size between the given bounds.
+     */
+    static byte[] file(Random random, int minSize, int maxSize) {
+        int size = minSize + (maxSize > minSize ? random.nextInt(maxSize - minSize) : 0);
+        return file(random, size);
+    }
+
+    /**
+     * @return a file of exactly the given size.
+     */
+    static byte[] file(Random random, int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        return content;
+    }
+
+    /**
+     * @param files the zip entries, keyed by entry name.
+     * @return the zip.
+     */
+    static byte[] zip(Map<String, byte[]> files) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                zip.putNextEntry(new ZipEntry(file.getKey()));
+                zip.write(file.getValue());
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
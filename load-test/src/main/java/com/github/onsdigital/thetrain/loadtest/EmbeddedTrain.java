@@ -0,0 +1,89 @@
+package com.github.onsdigital.thetrain.loadtest;
+
+import com.github.onsdigital.thetrain.App;
+import org.apache.commons.io.FileUtils;
+import spark.Spark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.github.onsdigital.thetrain.configuration.AppConfiguration.FILE_THRESHOLD_SIZE_MB_ENV_KEY;
+import static com.github.onsdigital.thetrain.configuration.AppConfiguration.HOT_PATH_LOG_MODE_ENV_KEY;
+import static com.github.onsdigital.thetrain.configuration.AppConfiguration.MAX_FILE_UPLOAD_SIZE_MB_ENV_KEY;
+import static com.github.onsdigital.thetrain.configuration.AppConfiguration.MAX_REQUEST_SIZE_MB_ENV_KEY;
+import static com.github.onsdigital.thetrain.configuration.AppConfiguration.PORT_ENV_KEY;
+import static com.github.onsdigital.thetrain.configuration.AppConfiguration.THREAD_POOL_SIZE_ENV_KEY;
+import static com.github.onsdigital.thetrain.configuration.AppConfiguration.TRANSACTION_STORE_ENV_KEY;
+import static com.github.onsdigital.thetrain.configuration.AppConfiguration.WEBSITE_ENV_KEY;
+
+/**
+ * Runs the train in this JVM on an ephemeral port, with a temporary website and transaction store. Configuration
+ * is passed as system properties, which the train reads when the environment variable is not set. Other settings
+ * given with <code>-D</code> or in the environment are left as they are.
+ */
+class EmbeddedTrain {
+
+    private Path website;
+    private Path transactionStore;
+    private int port;
+
+    /**
+     * Start the train and wait for it to accept requests.
+     */
+    void start() throws IOException {
+        for (String key : new String[]{WEBSITE_ENV_KEY, TRANSACTION_STORE_ENV_KEY, PORT_ENV_KEY}) {
+            if (System.getenv(key) != null) {
+                throw new IllegalStateException(key + " is set in the environment and would override the embedded "
+                        + "train's temporary configuration: unset it, or use --url to test a running train");
+            }
+        }
+
+        website = Files.createTempDirectory("load-test-website");
+        transactionStore = Files.createTempDirectory("load-test-transactions");
+
+        System.setProperty(WEBSITE_ENV_KEY, website.toString());
+        System.setProperty(TRANSACTION_STORE_ENV_KEY, transactionStore.toString());
+        System.setProperty(PORT_ENV_KEY, "0");
+        setDefault(THREAD_POOL_SIZE_ENV_KEY, "100");
+        setDefault(MAX_FILE_UPLOAD_SIZE_MB_ENV_KEY, "-1");
+        setDefault(MAX_REQUEST_SIZE_MB_ENV_KEY, "-1");
+        setDefault(FILE_THRESHOLD_SIZE_MB_ENV_KEY, "10");
+        setDefault(HOT_PATH_LOG_MODE_ENV_KEY, "summary");
+
+        App.main(new String[0]);
+        Spark.awaitInitialization();
+        port = Spark.port();
+    }
+
+    /**
+     * @return the url of the running train.
+     */
+    String url() {
+        return "http://localhost:" + port;
+    }
+
+    Path website() {
+        return website;
+    }
+
+    Path transactionStore() {
+        return transactionStore;
+    }
+
+    /**
+     * Stop the train and delete its directories.
+     */
+    void stop() {
+        Spark.stop();
+        Spark.awaitStop();
+        FileUtils.deleteQuietly(website.toFile());
+        FileUtils.deleteQuietly(transactionStore.toFile());
+    }
+
+    private static void setDefault(String key, String value) {
+        if (System.getenv(key) == null && System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.onsdigital.thetrain.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples heap use and totals garbage collection over a run. When the train is embedded this is the train's own
+ * heap; when testing a running train with <code>--url</code> it is only the load test client's.
+ */
+class JvmSampler {
+
+    static final long SAMPLE_INTERVAL_MS = 100;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "load-test-jvm-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long startGcCount;
+    private long startGcTimeMs;
+    private long samples;
+    private long heapTotal;
+    private long heapPeak;
+
+    void start() {
+        startGcCount = gcCount();
+        startGcTimeMs = gcTimeMs();
+        scheduler.scheduleAtFixedRate(this::sample, 0, SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the heap and garbage collection statistics since {@link #start()}.
+     */
+    Report.Jvm stop() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(1, TimeUnit.SECONDS);
+
+        Report.Jvm jvm = new Report.Jvm();
+        synchronized (this) {
+            jvm.heapPeakMb = toMb(heapPeak);
+            jvm.heapMeanMb = samples == 0 ? 0 : toMb(heapTotal / samples);
+        }
+        jvm.heapMaxMb = toMb(memory.getHeapMemoryUsage().getMax());
+        jvm.gcCount = gcCount() - startGcCount;
+        jvm.gcTimeMs = gcTimeMs() - startGcTimeMs;
+        jvm.javaVersion = System.getProperty("java.version");
+        jvm.processors = Runtime.getRuntime().availableProcessors();
+        return jvm;
+    }
+
+    private synchronized void sample() {
+        long used = memory.getHeapMemoryUsage().getUsed();
+        heapPeak = Math.max(heapPeak, used);
+        heapTotal += used;
+        samples++;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTimeMs() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    private static double toMb(long bytes) {
+        return bytes / (1024d * 1024d);
+    }
+}
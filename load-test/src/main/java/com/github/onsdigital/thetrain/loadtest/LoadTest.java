@@ -0,0 +1,241 @@
+package com.github.onsdigital.thetrain.loadtest;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point of <code>load-test.jar</code>. Starts the train in-process (or uses the one given with
+ * <code>--url</code>), sets up the website content the run copies and deletes, then sends concurrent transactions
+ * in the configured mix, or replays a {@link Replay publish trace}. Reports throughput, latency percentiles and
+ * heap/GC, writes the report as Json and optionally compares it against a baseline report.
+ */
+public class LoadTest {
+
+    static final int EXIT_ERROR = 1;
+    static final int EXIT_REGRESSION = 2;
+
+    /**
+     * The number of seed files uploaded in each zip, and zips in each seed transaction.
+     */
+    static final int SEED_ZIP_ENTRIES = 1000;
+    static final int SEED_ZIPS_PER_TRANSACTION = 10;
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(Options.USAGE);
+            System.exit(EXIT_ERROR);
+            return;
+        }
+        if (options.help) {
+            System.out.println(Options.USAGE);
+            return;
+        }
+
+        System.exit(run(options));
+    }
+
+    static int run(Options options) throws Exception {
+        EmbeddedTrain train = null;
+        String url = options.url;
+        if (url == null) {
+            train = new EmbeddedTrain();
+            train.start();
+            url = train.url();
+        }
+
+        try (TrainClient client = new TrainClient(url, options.concurrency)) {
+            Report report = options.replay == null
+                    ? run(options, client, url, train != null)
+                    : replay(options, client, url, train != null);
+            report.write(options.out);
+            System.out.println(report.summary());
+            System.out.println("report written to " + options.out.toAbsolutePath());
+
+            if (options.baseline != null) {
+                Report.Comparison comparison = report.compare(Report.read(options.baseline), options.threshold);
+                System.out.println(comparison);
+                if (options.failOnRegression && comparison.regressions() > 0) {
+                    return EXIT_REGRESSION;
+                }
+            }
+            return 0;
+        } finally {
+            if (train != null) {
+                train.stop();
+            }
+        }
+    }
+
+    private static Report run(Options options, TrainClient client, String url, boolean embedded) throws Exception {
+        String started = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        String root = "/loadtest/" + started;
+
+        Random random = new Random(options.seed);
+        List<Publish> warmup = plan(options, random, root, 0, options.warmup);
+        List<Publish> measured = plan(options, random, root, options.warmup, options.transactions);
+
+        Set<String> seedFiles = new LinkedHashSet<>();
+        for (Publish publish : warmup) {
+            seedFiles.addAll(publish.seedFiles());
+        }
+        for (Publish publish : measured) {
+            seedFiles.addAll(publish.seedFiles());
+        }
+        seed(client, root, seedFiles, random);
+
+        if (!warmup.isEmpty()) {
+            System.out.println("warming up with " + warmup.size() + " transactions");
+            send(options, client, warmup, new Recorder(), false);
+        }
+
+        System.out.println("sending " + measured.size() + " transactions of " + options.mixLabel());
+        Recorder recorder = new Recorder();
+        JvmSampler jvmSampler = new JvmSampler();
+        jvmSampler.start();
+        long start = System.nanoTime();
+        send(options, client, measured, recorder, true);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+        Report.Jvm jvm = jvmSampler.stop();
+
+        Report report = report(options, started, url, recorder, seconds);
+        report.mix = options.mixLabel();
+        report.concurrency = options.concurrency;
+        report.scale = options.scale;
+        report.jvm = embedded ? jvm : null;
+        return report;
+    }
+
+    private static Report replay(Options options, TrainClient client, String url, boolean embedded)
+            throws Exception {
+        String started = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        String root = "/replay/" + started;
+
+        Replay replay = new Replay(options.replay, root, options.speed, options.seed);
+        if (replay.skipped() > 0) {
+            System.out.println("skipping " + replay.skipped() + " trace entries that failed or whose transaction "
+                    + "began before the trace started");
+        }
+        seed(client, root, replay.seedFiles(), new Random(options.seed));
+
+        System.out.println("replaying " + replay.transactions() + " transactions from " + options.replay);
+        Recorder recorder = new Recorder();
+        Recorder original = new Recorder();
+        JvmSampler jvmSampler = new JvmSampler();
+        jvmSampler.start();
+        long start = System.nanoTime();
+        replay.run(client, recorder, original);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+        Report.Jvm jvm = jvmSampler.stop();
+
+        Report report = report(options, started, url, recorder, seconds);
+        report.trace = options.replay.toString();
+        report.speed = options.speed;
+        report.tracedLatencies = original.latencies();
+        report.jvm = embedded ? jvm : null;
+        return report;
+    }
+
+    private static Report report(Options options, String started, String url, Recorder recorder, double seconds) {
+        Report report = new Report();
+        report.started = started;
+        report.url = url;
+        report.seed = options.seed;
+        report.transactions = recorder.transactions();
+        report.durationSeconds = seconds;
+        report.failures = recorder.failures();
+        report.transactionsPerSecond = recorder.transactions() / seconds;
+        report.filesPerSecond = recorder.files() / seconds;
+        report.megabytesPerSecond = recorder.bytes() / (1024d * 1024d) / seconds;
+        report.latencies = recorder.latencies();
+        return report;
+    }
+
+    private static List<Publish> plan(Options options, Random random, String root, int first, int count) {
+        List<Publish> plan = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            plan.add(new Publish(root, i, options.pick(random), options.scale, random.nextLong()));
+        }
+        return plan;
+    }
+
+    /**
+     * Publish the website content the transactions copy and delete, through the train, before the run starts.
+     *
+     * @param files the URIs of the files, all under the seed directory of the root.
+     */
+    private static void seed(TrainClient client, String root, Set<String> files, Random random)
+            throws IOException {
+        if (files.isEmpty()) {
+            return;
+        }
+
+        System.out.println("seeding " + files.size() + " website files");
+        String seedRoot = root + "/" + Publish.SEED_DIR;
+        List<String> uris = new ArrayList<>(files);
+        String transactionId = null;
+        for (int chunk = 0; chunk * SEED_ZIP_ENTRIES < uris.size(); chunk++) {
+            if (chunk % SEED_ZIPS_PER_TRANSACTION == 0) {
+                if (transactionId != null) {
+                    client.commit(transactionId);
+                }
+                transactionId = client.begin();
+            }
+
+            Map<String, byte[]> entries = new LinkedHashMap<>();
+            for (String uri : uris.subList(chunk * SEED_ZIP_ENTRIES,
+                    Math.min(uris.size(), (chunk + 1) * SEED_ZIP_ENTRIES))) {
+                entries.put(uri.substring(seedRoot.length() + 1), Content.file(random, 1024, 8 * 1024));
+            }
+            client.publish(transactionId, seedRoot, Content.zip(entries), true);
+        }
+        client.commit(transactionId);
+    }
+
+    private static void send(Options options, TrainClient client, List<Publish> publishes, Recorder recorder,
+                             boolean measured) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(options.concurrency);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (Publish publish : publishes) {
+                results.add(pool.submit(() -> {
+                    publish.run(client, recorder, measured);
+                    return null;
+                }));
+            }
+
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                    if (measured) {
+                        recorder.completed();
+                    }
+                } catch (ExecutionException e) {
+                    if (measured) {
+                        recorder.failed();
+                    }
+                    System.err.println("transaction failed: " + e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+}
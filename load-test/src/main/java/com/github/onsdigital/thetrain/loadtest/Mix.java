@@ -0,0 +1,102 @@
+package com.github.onsdigital.thetrain.loadtest;
+
+/**
+ * The shapes of publish the load test can send. Each transaction uploads its files, and first sends a manifest if
+ * it copies or deletes anything, in the order zebedee does.
+ */
+enum Mix {
+
+    /**
+     * A zip of small timeseries files, extracted by the train.
+     */
+    TIMESERIES("timeseries", 500, 1024, 8 * 1024, true, 0, 0),
+
+    /**
+     * Many small files uploaded one at a time.
+     */
+    SMALL_FILES("small-files", 200, 2 * 1024, 20 * 1024, false, 0, 0),
+
+    /**
+     * A few large files, such as datasets and PDFs.
+     */
+    LARGE_FILES("large-files", 4, 5 * 1024 * 1024, 25 * 1024 * 1024, false, 0, 0),
+
+    /**
+     * A few files and a manifest deleting many directories.
+     */
+    DELETES("deletes", 20, 2 * 1024, 20 * 1024, false, 0, 200),
+
+    /**
+     * A few files and a manifest copying many existing website files, as for a new version of a dataset.
+     */
+    COPIES("copies", 20, 2 * 1024, 20 * 1024, false, 200, 0);
+
+    /**
+     * The number of entries in each zip uploaded by {@link #TIMESERIES}.
+     */
+    static final int ZIP_ENTRIES = 500;
+
+    private final String name;
+    private final int files;
+    private final int minSize;
+    private final int maxSize;
+    private final boolean zipped;
+    private final int copies;
+    private final int deletes;
+
+    Mix(String name, int files, int minSize, int maxSize, boolean zipped, int copies, int deletes) {
+        this.name = name;
+        this.files = files;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.zipped = zipped;
+        this.copies = copies;
+        this.deletes = deletes;
+    }
+
+    /**
+     * @param name the name of a mix, as given on the command line.
+     * @return the mix.
+     * @throws IllegalArgumentException if there is no mix with the given name.
+     */
+    static Mix parse(String name) {
+        for (Mix mix : values()) {
+            if (mix.name.equalsIgnoreCase(name)) {
+                return mix;
+            }
+        }
+        throw new IllegalArgumentException("unknown mix: " + name);
+    }
+
+    String label() {
+        return name;
+    }
+
+    int files(double scale) {
+        return scaled(files, scale);
+    }
+
+    int minSize() {
+        return minSize;
+    }
+
+    int maxSize() {
+        return maxSize;
+    }
+
+    boolean zipped() {
+        return zipped;
+    }
+
+    int copies(double scale) {
+        return copies == 0 ? 0 : scaled(copies, scale);
+    }
+
+    int deletes(double scale) {
+        return deletes == 0 ? 0 : scaled(deletes, scale);
+    }
+
+    private static int scaled(int count, double scale) {
+        return Math.max(1, (int) Math.round(count * scale));
+    }
+}
@@ -0,0 +1,168 @@
+package com.github.onsdigital.thetrain.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Command line options for the load test.
+ */
+class Options {
+
+    static final String USAGE = String.join(System.lineSeparator(),
+            "usage: java -jar load-test.jar [options]",
+            "  --mix <mix:weight,...>    mixes of publish to send, by weight (default timeseries:3,small-files:3,"
+                    + "large-files:1,deletes:1,copies:2)",
+            "                            mixes: timeseries, small-files, large-files, deletes, copies",
+            "  --transactions <n>        transactions to measure (default 50)",
+            "  --warmup <n>              transactions to send before measuring (default 10)",
+            "  --concurrency <n>         transactions in flight at once (default 4)",
+            "  --scale <factor>          multiply the files, copies and deletes in each transaction (default 1)",
+            "  --seed <n>                random seed for the mix and content (default 42)",
+            "  --url <url>               test a running train rather than starting one in-process",
+            "  --replay <trace.jsonl>    replay a publish trace instead of sending the mix",
+            "  --speed <factor>          replay speed relative to the trace, 0 for as fast as possible (default 1)",
+            "  --out <file>              where to write the Json report (default load-test-result.json)",
+            "  --baseline <file>         compare against the report of an earlier run",
+            "  --threshold <percent>     how much worse a metric can be before it is a regression (default 10)",
+            "  --fail-on-regression      exit with status 2 if any metric regressed",
+            "  --help                    show this message");
+
+    static final String DEFAULT_MIX = "timeseries:3,small-files:3,large-files:1,deletes:1,copies:2";
+
+    Map<Mix, Integer> mix;
+    int transactions = 50;
+    int warmup = 10;
+    int concurrency = 4;
+    double scale = 1;
+    long seed = 42;
+    String url;
+    Path replay;
+    double speed = 1;
+    Path out = Paths.get("load-test-result.json");
+    Path baseline;
+    double threshold = 10;
+    boolean failOnRegression;
+    boolean help;
+
+    /**
+     * @throws IllegalArgumentException if an option is unknown or its value is invalid.
+     */
+    static Options parse(String[] args) {
+        Options options = new Options();
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--help":
+                    options.help = true;
+                    break;
+                case "--fail-on-regression":
+                    options.failOnRegression = true;
+                    break;
+                default:
+                    if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                        throw new IllegalArgumentException("invalid option: " + args[i]);
+                    }
+                    values.put(args[i], args[++i]);
+            }
+        }
+
+        options.mix = parseMix(values.getOrDefault("--mix", DEFAULT_MIX));
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            String option = value.getKey();
+            String arg = value.getValue();
+            switch (option) {
+                case "--mix":
+                    break;
+                case "--transactions":
+                    options.transactions = positive(option, arg);
+                    break;
+                case "--warmup":
+                    options.warmup = Integer.parseInt(arg);
+                    break;
+                case "--concurrency":
+                    options.concurrency = positive(option, arg);
+                    break;
+                case "--scale":
+                    options.scale = Double.parseDouble(arg);
+                    break;
+                case "--seed":
+                    options.seed = Long.parseLong(arg);
+                    break;
+                case "--url":
+                    options.url = arg.endsWith("/") ? arg.substring(0, arg.length() - 1) : arg;
+                    break;
+                case "--replay":
+                    options.replay = Paths.get(arg);
+                    break;
+                case "--speed":
+                    options.speed = Double.parseDouble(arg);
+                    if (options.speed < 0) {
+                        throw new IllegalArgumentException("--speed cannot be negative: " + arg);
+                    }
+                    break;
+                case "--out":
+                    options.out = Paths.get(arg);
+                    break;
+                case "--baseline":
+                    options.baseline = Paths.get(arg);
+                    break;
+                case "--threshold":
+                    options.threshold = Double.parseDouble(arg);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option: " + option);
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Choose the mix of a transaction at random, in proportion to the weights.
+     */
+    Mix pick(Random random) {
+        int total = 0;
+        for (int weight : mix.values()) {
+            total += weight;
+        }
+
+        int choice = random.nextInt(total);
+        for (Map.Entry<Mix, Integer> entry : mix.entrySet()) {
+            choice -= entry.getValue();
+            if (choice < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("unreachable");
+    }
+
+    String mixLabel() {
+        StringBuilder label = new StringBuilder();
+        for (Map.Entry<Mix, Integer> entry : mix.entrySet()) {
+            label.append(label.length() == 0 ? "" : ",").append(entry.getKey().label()).append(":")
+                    .append(entry.getValue());
+        }
+        return label.toString();
+    }
+
+    private static Map<Mix, Integer> parseMix(String value) {
+        Map<Mix, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] nameWeight = part.trim().split(":");
+            int weight = nameWeight.length > 1 ? positive("--mix", nameWeight[1]) : 1;
+            mix.put(Mix.parse(nameWeight[0]), weight);
+        }
+        return mix;
+    }
+
+    private static int positive(String option, String value) {
+        int parsed = Integer.parseInt(value);
+        if (parsed < 1) {
+            throw new IllegalArgumentException(option + " must be at least 1: " + value);
+        }
+        return parsed;
+    }
+}
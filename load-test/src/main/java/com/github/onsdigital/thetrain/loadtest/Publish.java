@@ -0,0 +1,172 @@
+package com.github.onsdigital.thetrain.loadtest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * One transaction of the load test: begin, send the manifest if there is one, upload the files, then commit. Content
+ * is generated before each request is timed, so only the train's work is measured.
+ */
+class Publish {
+
+    static final String SEED_DIR = "seed";
+    static final String DATA_JSON = "data.json";
+
+    private final String root;
+    private final int index;
+    private final Mix mix;
+    private final double scale;
+    private final long seed;
+
+    /**
+     * @param root  the directory the run publishes under.
+     * @param index the number of this transaction in the run.
+     * @param mix   the shape of this transaction.
+     * @param scale the multiplier for the files, copies and deletes in the mix.
+     * @param seed  the random seed for this transaction's content.
+     */
+    Publish(String root, int index, Mix mix, double scale, long seed) {
+        this.root = root;
+        this.index = index;
+        this.mix = mix;
+        this.scale = scale;
+        this.seed = seed;
+    }
+
+    Mix mix() {
+        return mix;
+    }
+
+    /**
+     * @return the existing website files this transaction copies. These are shared by every transaction.
+     */
+    List<String> copySources() {
+        List<String> sources = new ArrayList<>();
+        for (int i = 0; i < mix.copies(scale); i++) {
+            sources.add(copySource(i));
+        }
+        return sources;
+    }
+
+    /**
+     * @return the existing website directories this transaction deletes. Each transaction deletes its own.
+     */
+    List<String> deleteDirectories() {
+        List<String> directories = new ArrayList<>();
+        for (int i = 0; i < mix.deletes(scale); i++) {
+            directories.add(root + "/" + SEED_DIR + "/deletes/" + index + "/" + i);
+        }
+        return directories;
+    }
+
+    /**
+     * @return the website files this transaction copies and deletes, which must exist before it is sent.
+     */
+    Set<String> seedFiles() {
+        Set<String> files = new LinkedHashSet<>(copySources());
+        for (String directory : deleteDirectories()) {
+            files.add(directory + "/" + DATA_JSON);
+        }
+        return files;
+    }
+
+    /**
+     * Send the transaction, recording the latency of each request.
+     *
+     * @param measured false during warm up, when nothing is recorded.
+     */
+    void run(TrainClient client, Recorder recorder, boolean measured) throws IOException {
+        Random random = new Random(seed);
+        long transactionStart = System.nanoTime();
+
+        long start = System.nanoTime();
+        String transactionId = client.begin();
+        record(recorder, measured, Recorder.BEGIN, start);
+
+        try {
+            if (mix.copies(scale) > 0 || mix.deletes(scale) > 0) {
+                Map<String, String> copies = new LinkedHashMap<>();
+                List<String> sources = copySources();
+                for (int i = 0; i < sources.size(); i++) {
+                    copies.put(sources.get(i), root + "/copies/" + index + "/" + i + "/" + DATA_JSON);
+                }
+
+                start = System.nanoTime();
+                client.manifest(transactionId, copies, deleteDirectories());
+                record(recorder, measured, Recorder.MANIFEST, start);
+            }
+
+            String directory = root + "/" + mix.label() + "/" + index;
+            if (mix.zipped()) {
+                uploadZips(client, recorder, measured, random, transactionId, directory);
+            } else {
+                uploadFiles(client, recorder, measured, random, transactionId, directory);
+            }
+
+            start = System.nanoTime();
+            client.commit(transactionId);
+            record(recorder, measured, Recorder.COMMIT, start);
+        } catch (IOException | RuntimeException e) {
+            try {
+                client.rollback(transactionId);
+            } catch (IOException rollbackError) {
+                e.addSuppressed(rollbackError);
+            }
+            throw e;
+        }
+
+        record(recorder, measured, Recorder.TRANSACTION, transactionStart);
+    }
+
+    private void uploadFiles(TrainClient client, Recorder recorder, boolean measured, Random random,
+                             String transactionId, String directory) throws IOException {
+        for (int i = 0; i < mix.files(scale); i++) {
+            byte[] content = Content.file(random, mix.minSize(), mix.maxSize());
+
+            long start = System.nanoTime();
+            client.publish(transactionId, directory + "/" + i + "/" + DATA_JSON, content, false);
+            record(recorder, measured, Recorder.PUBLISH, start);
+            if (measured) {
+                recorder.sent(1, content.length);
+            }
+        }
+    }
+
+    private void uploadZips(TrainClient client, Recorder recorder, boolean measured, Random random,
+                            String transactionId, String directory) throws IOException {
+        int files = mix.files(scale);
+        for (int first = 0; first < files; first += Mix.ZIP_ENTRIES) {
+            Map<String, byte[]> entries = new LinkedHashMap<>();
+            long bytes = 0;
+            for (int i = first; i < Math.min(files, first + Mix.ZIP_ENTRIES); i++) {
+                byte[] content = Content.file(random, mix.minSize(), mix.maxSize());
+                entries.put(i + "/" + DATA_JSON, content);
+                bytes += content.length;
+            }
+            byte[] zip = Content.zip(entries);
+
+            long start = System.nanoTime();
+            client.publish(transactionId, directory, zip, true);
+            record(recorder, measured, Recorder.PUBLISH, start);
+            if (measured) {
+                recorder.sent(entries.size(), bytes);
+            }
+        }
+    }
+
+    private String copySource(int i) {
+        return root + "/" + SEED_DIR + "/copies/" + i + "/" + DATA_JSON;
+    }
+
+    private static void record(Recorder recorder, boolean measured, String operation, long start) {
+        if (measured) {
+            recorder.record(operation, start);
+        }
+    }
+}
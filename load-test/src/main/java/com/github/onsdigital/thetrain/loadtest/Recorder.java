@@ -0,0 +1,87 @@
+package com.github.onsdigital.thetrain.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the latency of every request made during a run, by operation, along with the files and bytes sent.
+ * Every sample is kept so percentiles are exact.
+ */
+class Recorder {
+
+    static final String BEGIN = "begin";
+    static final String PUBLISH = "publish";
+    static final String MANIFEST = "manifest";
+    static final String COMMIT = "commit";
+    static final String TRANSACTION = "transaction";
+
+    private final Map<String, Queue<Long>> samples = new ConcurrentHashMap<>();
+    private final AtomicInteger transactions = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicLong files = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    /**
+     * Record a request that started at the given {@link System#nanoTime()}.
+     */
+    void record(String operation, long startNanos) {
+        recordDuration(operation, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Record a request that took the given time.
+     */
+    void recordDuration(String operation, long nanos) {
+        samples.computeIfAbsent(operation, key -> new ConcurrentLinkedQueue<>()).add(nanos);
+    }
+
+    void sent(int fileCount, long byteCount) {
+        files.addAndGet(fileCount);
+        bytes.addAndGet(byteCount);
+    }
+
+    void completed() {
+        transactions.incrementAndGet();
+    }
+
+    void failed() {
+        failures.incrementAndGet();
+    }
+
+    int transactions() {
+        return transactions.get();
+    }
+
+    int failures() {
+        return failures.get();
+    }
+
+    long files() {
+        return files.get();
+    }
+
+    long bytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return latency statistics for each operation, by operation name.
+     */
+    Map<String, Report.Latency> latencies() {
+        Map<String, Report.Latency> latencies = new TreeMap<>();
+        for (Map.Entry<String, Queue<Long>> entry : samples.entrySet()) {
+            List<Long> sorted = new ArrayList<>(entry.getValue());
+            Collections.sort(sorted);
+            latencies.put(entry.getKey(), Report.Latency.of(sorted));
+        }
+        return latencies;
+    }
+}
@@ -0,0 +1,291 @@
+package com.github.onsdigital.thetrain.loadtest;
+
+import com.github.onsdigital.thetrain.json.TraceEntry;
+import com.github.onsdigital.thetrain.profiling.PublishTrace;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a {@link PublishTrace} captured from another train, with synthetic content of the same shape: the same
+ * routes, upload sizes and zip entry counts, and manifest copy and delete counts.
+ * <p>
+ * Each request is sent at the same offset from the start of the trace as the original, divided by the speed (a speed
+ * of 0 sends every request as soon as it can). A request also waits for the requests of the same transaction that had
+ * completed before it started in the original, so the ordering within each transaction is kept even when the train
+ * being tested is slower than the one traced, while requests that overlapped in the original overlap again.
+ * <p>
+ * Only successful requests of transactions that began during the trace are replayed.
+ */
+class Replay {
+
+    private final List<Step> steps = new ArrayList<>();
+    private final String root;
+    private final double speed;
+    private final long seed;
+    private int skipped;
+
+    /**
+     * @param trace the trace file.
+     * @param root  the directory the replay publishes under.
+     * @param speed the replay speed relative to the original, or 0 for as fast as possible.
+     * @param seed  the random seed for the content.
+     */
+    Replay(Path trace, String root, double speed, long seed) throws IOException {
+        this.root = root;
+        this.speed = speed;
+        this.seed = seed;
+
+        List<TraceEntry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(trace, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    entries.add(PublishTrace.parse(line));
+                }
+            }
+        }
+        entries.sort(Comparator.comparingLong(TraceEntry::start));
+
+        Set<String> begun = new LinkedHashSet<>();
+        Map<String, List<Step>> byTransaction = new HashMap<>();
+        for (TraceEntry entry : entries) {
+            if (entry.status() != 200 || entry.transactionId() == null) {
+                skipped++;
+                continue;
+            }
+            if ("/begin".equals(entry.route())) {
+                begun.add(entry.transactionId());
+            } else if (!begun.contains(entry.transactionId())) {
+                skipped++;
+                continue;
+            }
+
+            Step step = new Step(steps.size(), entry);
+            List<Step> earlier = byTransaction.computeIfAbsent(entry.transactionId(), id -> new ArrayList<>());
+            for (Step previous : earlier) {
+                if (previous.entry.end() <= entry.start()) {
+                    step.dependencies.add(previous.done);
+                }
+            }
+            earlier.add(step);
+            steps.add(step);
+        }
+    }
+
+    /**
+     * @return the number of transactions in the replay.
+     */
+    int transactions() {
+        int transactions = 0;
+        for (Step step : steps) {
+            if ("/begin".equals(step.entry.route())) {
+                transactions++;
+            }
+        }
+        return transactions;
+    }
+
+    /**
+     * @return the number of trace entries that will not be replayed.
+     */
+    int skipped() {
+        return skipped;
+    }
+
+    /**
+     * @return the website files the replayed manifests copy and delete, which must exist before the replay starts.
+     */
+    Set<String> seedFiles() {
+        Set<String> files = new LinkedHashSet<>();
+        for (Step step : steps) {
+            files.addAll(step.copySources().keySet());
+            for (String directory : step.deleteDirectories()) {
+                files.add(directory + "/" + Publish.DATA_JSON);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Replay the trace, recording the latency of each request and, in the original recorder, the latency the traced
+     * train reported for the same request.
+     */
+    void run(TrainClient client, Recorder recorder, Recorder original) throws InterruptedException {
+        Map<String, CompletableFuture<String>> transactionIds = new ConcurrentHashMap<>();
+        Map<String, Long> transactionStarts = new ConcurrentHashMap<>();
+        Set<String> failed = ConcurrentHashMap.newKeySet();
+        for (Step step : steps) {
+            transactionIds.putIfAbsent(step.entry.transactionId(), new CompletableFuture<>());
+        }
+
+        ExecutorService pool = Executors.newCachedThreadPool();
+        try {
+            long replayStart = System.nanoTime();
+            long traceStart = steps.isEmpty() ? 0 : steps.get(0).entry.start();
+            for (Step step : steps) {
+                if (speed > 0) {
+                    long due = replayStart + TimeUnit.MILLISECONDS.toNanos(
+                            (long) ((step.entry.start() - traceStart) / speed));
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                }
+
+                pool.execute(() -> {
+                    String tracedId = step.entry.transactionId();
+                    try {
+                        CompletableFuture.allOf(step.dependencies.toArray(new CompletableFuture[0])).join();
+                        CompletableFuture<String> transactionId = transactionIds.get(tracedId);
+                        if ("/begin".equals(step.entry.route())) {
+                            transactionStarts.put(tracedId, System.nanoTime());
+                            transactionId.complete(step.send(client, null, recorder));
+                        } else {
+                            step.send(client, transactionId.join(), recorder);
+                        }
+                        original.recordDuration(operation(step.entry.route()),
+                                TimeUnit.MILLISECONDS.toNanos(step.entry.durationMs()));
+
+                        if ("/commit".equals(step.entry.route())) {
+                            recorder.record(Recorder.TRANSACTION, transactionStarts.get(tracedId));
+                            recorder.completed();
+                        }
+                        step.done.complete(null);
+                    } catch (Exception e) {
+                        transactionIds.get(tracedId).completeExceptionally(e);
+                        step.done.completeExceptionally(e);
+                        if (failed.add(tracedId)) {
+                            recorder.failed();
+                            System.err.println("replayed transaction " + tracedId + " failed: " + e);
+                        }
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.HOURS);
+        }
+    }
+
+    private static String operation(String route) {
+        switch (route) {
+            case "/begin":
+                return Recorder.BEGIN;
+            case "/publish":
+                return Recorder.PUBLISH;
+            case "/CommitManifest":
+                return Recorder.MANIFEST;
+            case "/commit":
+                return Recorder.COMMIT;
+            default:
+                return route.substring(1);
+        }
+    }
+
+    /**
+     * A request from the trace, completed when it has been replayed.
+     */
+    private class Step {
+
+        private final int index;
+        private final TraceEntry entry;
+        private final List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Step(int index, TraceEntry entry) {
+            this.index = index;
+            this.entry = entry;
+        }
+
+        /**
+         * @return the source and target of each copy in this step's manifest. Sources are shared by every manifest.
+         */
+        Map<String, String> copySources() {
+            Map<String, String> copies = new LinkedHashMap<>();
+            for (int i = 0; i < entry.copies(); i++) {
+                copies.put(root + "/" + Publish.SEED_DIR + "/copies/" + i + "/" + Publish.DATA_JSON,
+                        root + "/copies/" + index + "/" + i + "/" + Publish.DATA_JSON);
+            }
+            return copies;
+        }
+
+        List<String> deleteDirectories() {
+            List<String> directories = new ArrayList<>();
+            for (int i = 0; i < entry.deletes(); i++) {
+                directories.add(root + "/" + Publish.SEED_DIR + "/deletes/" + index + "/" + i);
+            }
+            return directories;
+        }
+
+        /**
+         * @return the new transaction ID, for /begin.
+         */
+        String send(TrainClient client, String transactionId, Recorder recorder) throws IOException {
+            String operation = operation(entry.route());
+            Random random = new Random(seed + index);
+            byte[] content = null;
+            if ("/publish".equals(entry.route())) {
+                content = content(random);
+            }
+
+            long start = System.nanoTime();
+            String result = null;
+            switch (entry.route()) {
+                case "/begin":
+                    result = client.begin();
+                    break;
+                case "/publish":
+                    client.publish(transactionId, root + entry.uri(), content, entry.zip());
+                    recorder.sent(Math.max(1, entry.files()), entry.bytes());
+                    break;
+                case "/CommitManifest":
+                    client.manifest(transactionId, copySources(), deleteDirectories());
+                    break;
+                case "/prepare":
+                    client.prepare(transactionId);
+                    break;
+                case "/commit":
+                    client.commit(transactionId);
+                    break;
+                case "/rollback":
+                    client.rollback(transactionId);
+                    break;
+                default:
+                    throw new IOException("cannot replay " + entry.route());
+            }
+            recorder.record(operation, start);
+            return result;
+        }
+
+        private byte[] content(Random random) throws IOException {
+            if (!entry.zip()) {
+                return Content.file(random, (int) entry.bytes());
+            }
+
+            int files = Math.max(1, entry.files());
+            Map<String, byte[]> entries = new LinkedHashMap<>();
+            for (int i = 0; i < files; i++) {
+                entries.put(i + "/" + Publish.DATA_JSON, Content.file(random, (int) (entry.bytes() / files)));
+            }
+            return Content.zip(entries);
+        }
+    }
+}
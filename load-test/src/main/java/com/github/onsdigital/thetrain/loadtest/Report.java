@@ -0,0 +1,244 @@
+package com.github.onsdigital.thetrain.loadtest;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * The results of a run. Saved as Json so a later run can be compared against it as a baseline.
+ */
+class Report {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    String started;
+    String url;
+    String mix;
+    String trace;
+    double speed;
+    int transactions;
+    int concurrency;
+    double scale;
+    long seed;
+
+    double durationSeconds;
+    int failures;
+    double transactionsPerSecond;
+    double filesPerSecond;
+    double megabytesPerSecond;
+
+    /**
+     * Latency statistics by operation. {@value Recorder#TRANSACTION} is the whole transaction, begin to commit.
+     */
+    Map<String, Latency> latencies;
+
+    /**
+     * When replaying a trace, the latencies the traced train reported for the same requests.
+     */
+    Map<String, Latency> tracedLatencies;
+
+    /**
+     * Null when the train is not embedded.
+     */
+    Jvm jvm;
+
+    static Report read(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return GSON.fromJson(reader, Report.class);
+        }
+    }
+
+    void write(Path path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            GSON.toJson(this, writer);
+        }
+    }
+
+    /**
+     * @return a human readable summary of this report.
+     */
+    String summary() {
+        StringBuilder summary = new StringBuilder();
+        if (trace != null) {
+            summary.append(format("%d transactions (%d failed) replayed from %s at speed %s in %.1fs%n",
+                    transactions, failures, trace, speed == 0 ? "unlimited" : speed + "x", durationSeconds));
+        } else {
+            summary.append(format("%d transactions (%d failed) of %s in %.1fs with concurrency %d%n",
+                    transactions, failures, mix, durationSeconds, concurrency));
+        }
+        summary.append(format("throughput: %.2f transactions/s, %.1f files/s, %.2f MB/s%n",
+                transactionsPerSecond, filesPerSecond, megabytesPerSecond));
+        appendLatencies(summary, latencies);
+        if (tracedLatencies != null) {
+            summary.append(format("as traced:%n"));
+            appendLatencies(summary, tracedLatencies);
+        }
+        if (jvm != null) {
+            summary.append(format("heap: peak %.0f MB, mean %.0f MB of %.0f MB; gc: %d collections, %d ms%n",
+                    jvm.heapPeakMb, jvm.heapMeanMb, jvm.heapMaxMb, jvm.gcCount, jvm.gcTimeMs));
+        }
+        return summary.toString();
+    }
+
+    private static void appendLatencies(StringBuilder summary, Map<String, Latency> latencies) {
+        summary.append(format("%-12s %8s %10s %10s %10s %10s %10s%n",
+                "latency", "count", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        for (Map.Entry<String, Latency> entry : latencies.entrySet()) {
+            Latency latency = entry.getValue();
+            summary.append(format("%-12s %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n", entry.getKey(), latency.count,
+                    latency.meanMs, latency.p50Ms, latency.p90Ms, latency.p99Ms, latency.maxMs));
+        }
+    }
+
+    /**
+     * Compare this report against a baseline.
+     *
+     * @param baseline         an earlier report.
+     * @param thresholdPercent how much worse a metric can be before it is a regression.
+     * @return the comparison.
+     */
+    Comparison compare(Report baseline, double thresholdPercent) {
+        Comparison comparison = new Comparison(thresholdPercent);
+        comparison.higherIsBetter("transactions/s", baseline.transactionsPerSecond, transactionsPerSecond);
+        comparison.higherIsBetter("files/s", baseline.filesPerSecond, filesPerSecond);
+        comparison.higherIsBetter("MB/s", baseline.megabytesPerSecond, megabytesPerSecond);
+
+        for (Map.Entry<String, Latency> entry : latencies.entrySet()) {
+            Latency before = baseline.latencies == null ? null : baseline.latencies.get(entry.getKey());
+            if (before != null) {
+                comparison.lowerIsBetter(entry.getKey() + " p50 ms", before.p50Ms, entry.getValue().p50Ms);
+                comparison.lowerIsBetter(entry.getKey() + " p99 ms", before.p99Ms, entry.getValue().p99Ms);
+            }
+        }
+
+        if (jvm != null && baseline.jvm != null) {
+            comparison.lowerIsBetter("heap peak MB", baseline.jvm.heapPeakMb, jvm.heapPeakMb);
+            comparison.lowerIsBetter("gc ms", baseline.jvm.gcTimeMs, jvm.gcTimeMs);
+        }
+        return comparison;
+    }
+
+    /**
+     * Latency statistics for one operation.
+     */
+    static class Latency {
+        long count;
+        double meanMs;
+        double p50Ms;
+        double p90Ms;
+        double p99Ms;
+        double maxMs;
+
+        /**
+         * @param sortedNanos the samples, in ascending order.
+         */
+        static Latency of(List<Long> sortedNanos) {
+            Latency latency = new Latency();
+            latency.count = sortedNanos.size();
+            if (sortedNanos.isEmpty()) {
+                return latency;
+            }
+
+            long total = 0;
+            for (long sample : sortedNanos) {
+                total += sample;
+            }
+            latency.meanMs = toMs(total / sortedNanos.size());
+            latency.p50Ms = toMs(percentile(sortedNanos, 0.5));
+            latency.p90Ms = toMs(percentile(sortedNanos, 0.9));
+            latency.p99Ms = toMs(percentile(sortedNanos, 0.99));
+            latency.maxMs = toMs(sortedNanos.get(sortedNanos.size() - 1));
+            return latency;
+        }
+
+        private static long percentile(List<Long> sorted, double quantile) {
+            int index = (int) Math.ceil(quantile * sorted.size()) - 1;
+            return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+        }
+
+        private static double toMs(long nanos) {
+            return nanos / 1_000_000d;
+        }
+    }
+
+    /**
+     * Heap and garbage collection over the run.
+     */
+    static class Jvm {
+        double heapPeakMb;
+        double heapMeanMb;
+        double heapMaxMb;
+        long gcCount;
+        long gcTimeMs;
+        String javaVersion;
+        int processors;
+    }
+
+    /**
+     * The change in each metric between a baseline and the current run.
+     */
+    static class Comparison {
+
+        private final double thresholdPercent;
+        private final List<String> lines = new ArrayList<>();
+        private int regressions;
+
+        Comparison(double thresholdPercent) {
+            this.thresholdPercent = thresholdPercent;
+            lines.add(format("%-24s %12s %12s %9s", "metric", "baseline", "current", "change"));
+        }
+
+        void higherIsBetter(String metric, double baseline, double current) {
+            add(metric, baseline, current, -change(baseline, current));
+        }
+
+        void lowerIsBetter(String metric, double baseline, double current) {
+            add(metric, baseline, current, change(baseline, current));
+        }
+
+        /**
+         * @return the number of metrics that got worse by more than the threshold.
+         */
+        int regressions() {
+            return regressions;
+        }
+
+        @Override
+        public String toString() {
+            return String.join(System.lineSeparator(), lines);
+        }
+
+        /**
+         * @param worsePercent how much worse the current value is, as a percentage of the baseline.
+         */
+        private void add(String metric, double baseline, double current, double worsePercent) {
+            String flag = "";
+            if (worsePercent > thresholdPercent) {
+                flag = "  REGRESSION";
+                regressions++;
+            } else if (worsePercent < -thresholdPercent) {
+                flag = "  improved";
+            }
+            lines.add(format("%-24s %12.2f %12.2f %+8.1f%%%s", metric, baseline, current,
+                    change(baseline, current), flag));
+        }
+
+        private static double change(double baseline, double current) {
+            if (baseline == 0) {
+                return 0;
+            }
+            return (current - baseline) / baseline * 100;
+        }
+    }
+}
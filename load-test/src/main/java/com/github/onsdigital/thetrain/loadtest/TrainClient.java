@@ -0,0 +1,153 @@
+package com.github.onsdigital.thetrain.loadtest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.onsdigital.thetrain.routes.BaseHandler.TRANSACTION_ID_KEY;
+import static com.github.onsdigital.thetrain.routes.BaseHandler.URI_KEY;
+import static com.github.onsdigital.thetrain.routes.BaseHandler.ZIP_KEY;
+
+/**
+ * The train's publishing API, as called by zebedee. Every call throws an {@link IOException} if the train does not
+ * respond with a 200.
+ */
+class TrainClient implements Closeable {
+
+    private final String url;
+    private final CloseableHttpClient http;
+    private final Gson gson = new Gson();
+
+    /**
+     * @param url            the train url.
+     * @param maxConnections the number of requests that can be made concurrently.
+     */
+    TrainClient(String url, int maxConnections) {
+        this.url = url;
+
+        PoolingHttpClientConnectionManager connections = new PoolingHttpClientConnectionManager();
+        connections.setMaxTotal(maxConnections);
+        connections.setDefaultMaxPerRoute(maxConnections);
+        this.http = HttpClients.custom().setConnectionManager(connections).build();
+    }
+
+    /**
+     * @return the ID of the new transaction.
+     */
+    String begin() throws IOException {
+        HttpPost post = new HttpPost(uri("/begin", null));
+        JsonObject result = gson.fromJson(execute(post), JsonObject.class);
+        return result.getAsJsonObject("transaction").get("id").getAsString();
+    }
+
+    /**
+     * Upload a single file, or a zip of files to be extracted under the given URI.
+     */
+    void publish(String transactionId, String uri, byte[] content, boolean zip) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(URI_KEY, uri);
+        if (zip) {
+            parameters.put(ZIP_KEY, "true");
+        }
+
+        HttpPost post = new HttpPost(uri("/publish", transactionId, parameters));
+        post.setEntity(MultipartEntityBuilder.create()
+                .addBinaryBody("file", content, ContentType.APPLICATION_OCTET_STREAM, filename(uri))
+                .build());
+        execute(post);
+    }
+
+    /**
+     * Send a manifest of website files to copy into the transaction and directories to delete.
+     *
+     * @param copies a map of source URI to target URI.
+     */
+    void manifest(String transactionId, Map<String, String> copies, List<String> deletes) throws IOException {
+        List<Map<String, String>> filesToCopy = new ArrayList<>();
+        for (Map.Entry<String, String> copy : copies.entrySet()) {
+            Map<String, String> fileCopy = new HashMap<>();
+            fileCopy.put("source", copy.getKey());
+            fileCopy.put("target", copy.getValue());
+            filesToCopy.add(fileCopy);
+        }
+
+        Map<String, Object> manifest = new HashMap<>();
+        manifest.put("filesToCopy", filesToCopy);
+        manifest.put("urisToDelete", deletes);
+
+        HttpPost post = new HttpPost(uri("/CommitManifest", transactionId));
+        post.setEntity(new StringEntity(gson.toJson(manifest), ContentType.APPLICATION_JSON));
+        execute(post);
+    }
+
+    void prepare(String transactionId) throws IOException {
+        execute(new HttpPost(uri("/prepare", transactionId)));
+    }
+
+    void commit(String transactionId) throws IOException {
+        execute(new HttpPost(uri("/commit", transactionId)));
+    }
+
+    void rollback(String transactionId) throws IOException {
+        execute(new HttpPost(uri("/rollback", transactionId)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        http.close();
+    }
+
+    private String execute(HttpPost post) throws IOException {
+        try (CloseableHttpResponse response = http.execute(post)) {
+            HttpEntity entity = response.getEntity();
+            String body = entity == null ? "" : EntityUtils.toString(entity);
+            int status = response.getStatusLine().getStatusCode();
+            if (status != 200) {
+                throw new IOException(post.getURI().getPath() + " returned " + status + ": " + body);
+            }
+            return body;
+        }
+    }
+
+    private URI uri(String path, String transactionId) throws IOException {
+        return uri(path, transactionId, new HashMap<>());
+    }
+
+    private URI uri(String path, String transactionId, Map<String, String> parameters) throws IOException {
+        try {
+            URIBuilder builder = new URIBuilder(url + path);
+            if (transactionId != null) {
+                builder.addParameter(TRANSACTION_ID_KEY, transactionId);
+            }
+            for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+                builder.addParameter(parameter.getKey(), parameter.getValue());
+            }
+            return builder.build();
+        } catch (URISyntaxException e) {
+            throw new IOException("invalid train url: " + url, e);
+        }
+    }
+
+    private static String filename(String uri) {
+        return uri.substring(uri.lastIndexOf('/') + 1);
+    }
+}
@@ -17,20 +17,38 @@ import com.github.onsdigital.thetrain.exception.handler.CatchAllHandler;
 import com.github.onsdigital.thetrain.exception.handler.PublishExceptionHandler;
 import com.github.onsdigital.thetrain.filters.AfterFilter;
 import com.github.onsdigital.thetrain.filters.BeforeFilter;
+import com.github.onsdigital.thetrain.filters.TraceFilter;
+import com.github.onsdigital.thetrain.logging.HotPathLog;
+import com.github.onsdigital.thetrain.metrics.JvmMetrics;
+import com.github.onsdigital.thetrain.metrics.Metrics;
 import com.github.onsdigital.thetrain.response.Message;
 import com.github.onsdigital.thetrain.routes.AddFileToTransaction;
 import com.github.onsdigital.thetrain.routes.CommitTransaction;
 import com.github.onsdigital.thetrain.routes.GetContentHash;
+import com.github.onsdigital.thetrain.routes.GetMetrics;
 import com.github.onsdigital.thetrain.routes.GetTransaction;
+import com.github.onsdigital.thetrain.routes.ListTransactions;
 import com.github.onsdigital.thetrain.routes.OpenTransaction;
+import com.github.onsdigital.thetrain.routes.PrepareTransaction;
 import com.github.onsdigital.thetrain.routes.RollbackTransaction;
 import com.github.onsdigital.thetrain.routes.SendManifest;
+import com.github.onsdigital.thetrain.routes.SetLogMode;
+import com.github.onsdigital.thetrain.routes.StartRecording;
+import com.github.onsdigital.thetrain.routes.StartTrace;
+import com.github.onsdigital.thetrain.routes.StopRecording;
+import com.github.onsdigital.thetrain.routes.StopTrace;
+import com.github.onsdigital.thetrain.storage.FileSync;
 import com.github.onsdigital.thetrain.storage.Publisher;
 import com.github.onsdigital.thetrain.storage.Transactions;
 import spark.Filter;
 import spark.ResponseTransformer;
 import spark.Route;
 
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
 import static com.github.onsdigital.thetrain.logging.TrainEvent.fatal;
 import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
 import static spark.Spark.after;
@@ -42,6 +60,15 @@ import static spark.Spark.post;
 
 public class App {
 
+    static final long ARCHIVE_INTERVAL_MINUTES = 15;
+    static final long TOMBSTONE_INTERVAL_MINUTES = 1;
+    static final long REAPER_INTERVAL_MINUTES = 5;
+
+    /**
+     * The paths of the registered routes, used to label request metrics.
+     */
+    private static final Set<String> ROUTES = ConcurrentHashMap.newKeySet();
+
     /**
      * Start The Train.
      * A {@link LoggingException} throw when attempting to init the application is considered fatal and will result
@@ -91,16 +118,40 @@ public class App {
                 .create());
     }
 
-    private static void initServices(AppConfiguration config) {
-        Publisher.init(config.publishThreadPoolSize());
-        Transactions.init(config.transactionStore());
+    private static void initServices(AppConfiguration config) throws IOException {
+        HotPathLog.setMode(config.hotPathLogMode());
+        JvmMetrics.register(Metrics.get());
+        Publisher.init(config.publishThreadPoolSize(), config.publishFairShareQuantum());
+        FileSync.setDurability(config.durability());
+        Publisher.setCopyStrategy(config.copyStrategy());
+        Publisher.setBackupMode(config.backupMode());
+        Transactions.init(config.transactionStore(), config.transactionDirectoryPoolSize(),
+                config.closedTransactionCacheSize() * 1024L * 1024L);
+        Transactions.checkFileStore(config.websitePath());
+        Transactions.recover(config.transactionRecoveryThreads());
+
+        if (config.transactionArchiveAfterHours() > 0) {
+            Transactions.startArchiver(TimeUnit.HOURS.toMillis(config.transactionArchiveAfterHours()),
+                    TimeUnit.MINUTES.toMillis(ARCHIVE_INTERVAL_MINUTES),
+                    config.transactionArchiveIoBudget() * 1024L * 1024L, config.websitePath());
+        }
+
+        Transactions.startTombstoneCleaner(TimeUnit.MINUTES.toMillis(TOMBSTONE_INTERVAL_MINUTES),
+                config.transactionArchiveIoBudget() * 1024L * 1024L);
+
+        Transactions.startReaper(TimeUnit.MINUTES.toMillis(config.transactionIdleTimeout()),
+                TimeUnit.MINUTES.toMillis(config.failedTransactionTimeout()),
+                TimeUnit.MINUTES.toMillis(REAPER_INTERVAL_MINUTES), config.websitePath());
     }
 
     private static void registerHTTPFilters() {
         Filter beforeFilter = new BeforeFilter();
         before("/*", beforeFilter);
 
-        AfterFilter afterFilter = new AfterFilter();
+        Filter traceFilter = new TraceFilter();
+        after("/*", traceFilter);
+
+        AfterFilter afterFilter = new AfterFilter(ROUTES);
         after("/*", afterFilter);
     }
 
@@ -120,10 +171,12 @@ public class App {
 
         ResponseTransformer transformer = beans.getResponseTransformer();
 
-        registerPostHandler("/begin", openTransaction(beans), transformer);
+        registerPostHandler("/begin", openTransaction(beans, cfg), transformer);
 
         registerPostHandler("/publish", addFiles(beans), transformer);
 
+        registerPostHandler("/prepare", prepareTransaction(beans), transformer);
+
         registerPostHandler("/commit", commitTransaction(beans), transformer);
 
         registerPostHandler("/CommitManifest", sendManifest(beans), transformer);
@@ -132,16 +185,31 @@ public class App {
 
         registerGetHandler("/transaction", getTransaction(beans), transformer);
 
+        registerGetHandler("/transactions", listTransactions(beans), transformer);
+
         registerGetHandler("/contentHash", getContentHash(beans, cfg.isVerifyPublishEnabled()), transformer);
 
         registerGetHandler("/health", getHealthHandler(), transformer);
 
+        get("/metrics", getMetrics());
+        ROUTES.add("/metrics");
+
+        registerPostHandler("/admin/recording/start", startRecording(cfg), transformer);
+
+        registerPostHandler("/admin/recording/stop", stopRecording(), transformer);
+
+        registerPostHandler("/admin/logging", setLogMode(), transformer);
+
+        registerPostHandler("/admin/trace/start", startTrace(cfg), transformer);
+
+        registerPostHandler("/admin/trace/stop", stopTrace(), transformer);
+
         // Catch-all for any request not handled by the above routes.
         registerGetHandler("*", getNotFoundHandler(), transformer);
     }
 
-    private static Route openTransaction(Beans beans) {
-        return new OpenTransaction(beans.getTransactionsService());
+    private static Route openTransaction(Beans beans, AppConfiguration cfg) {
+        return new OpenTransaction(beans.getTransactionsService(), cfg.publishMaxShare());
     }
 
     private static Route addFiles(Beans beans) {
@@ -149,6 +217,10 @@ public class App {
                 beans.getFilePartSupplier());
     }
 
+    private static Route prepareTransaction(Beans beans) {
+        return new PrepareTransaction(beans.getTransactionsService(), beans.getPublisherService());
+    }
+
     private static Route commitTransaction(Beans beans) {
         return new CommitTransaction(beans.getTransactionsService(), beans.getPublisherService());
     }
@@ -165,10 +237,38 @@ public class App {
         return new GetTransaction(beans.getTransactionsService());
     }
 
+    private static Route listTransactions(Beans beans) {
+        return new ListTransactions(beans.getTransactionsService());
+    }
+
     private static Route getContentHash(Beans beans, boolean isFeatureEnabled) {
         return new GetContentHash(beans.getTransactionsService(), beans.getContentService(), isFeatureEnabled);
     }
 
+    private static Route getMetrics() {
+        return new GetMetrics(Metrics.get());
+    }
+
+    private static Route startRecording(AppConfiguration cfg) {
+        return new StartRecording(cfg.transactionStore());
+    }
+
+    private static Route stopRecording() {
+        return new StopRecording();
+    }
+
+    private static Route startTrace(AppConfiguration cfg) {
+        return new StartTrace(cfg.transactionStore());
+    }
+
+    private static Route stopTrace() {
+        return new StopTrace();
+    }
+
+    private static Route setLogMode() {
+        return new SetLogMode();
+    }
+
     private static Route getHealthHandler() {
         return (req, resp) -> {
             resp.status(200);
@@ -185,9 +285,11 @@ public class App {
 
     private static void registerPostHandler(String uri, Route route, ResponseTransformer transformer) {
         post(uri, route, transformer);
+        ROUTES.add(uri);
     }
 
     private static void registerGetHandler(String uri, Route route, ResponseTransformer transformer) {
         get(uri, route, transformer);
+        ROUTES.add(uri);
     }
 }
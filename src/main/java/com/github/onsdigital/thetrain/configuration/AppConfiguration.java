@@ -1,5 +1,9 @@
 package com.github.onsdigital.thetrain.configuration;
 
+import com.github.onsdigital.thetrain.logging.LogMode;
+import com.github.onsdigital.thetrain.storage.BackupMode;
+import com.github.onsdigital.thetrain.storage.CopyStrategies;
+import com.github.onsdigital.thetrain.storage.Durability;
 import org.apache.commons.lang3.StringUtils;
 
 import java.nio.file.Files;
@@ -22,10 +26,37 @@ public class AppConfiguration {
     public static final String TRANSACTION_STORE_ENV_KEY = "TRANSACTION_STORE";
     public static final String WEBSITE_ENV_KEY = "WEBSITE";
     public static final String THREAD_POOL_SIZE_ENV_KEY = "PUBLISHING_THREAD_POOL_SIZE";
+    public static final String FAIR_SHARE_QUANTUM_ENV_KEY = "PUBLISHING_FAIR_SHARE_QUANTUM";
+    public static final String MAX_SHARE_ENV_KEY = "PUBLISHING_MAX_SHARE";
     public static final String PORT_ENV_KEY = "PORT";
     public static final String MAX_FILE_UPLOAD_SIZE_MB_ENV_KEY = "MAX_FILE_UPLOAD_SIZE_MB";
     public static final String MAX_REQUEST_SIZE_MB_ENV_KEY = "MAX_REQUEST_SIZE_MB";
     public static final String FILE_THRESHOLD_SIZE_MB_ENV_KEY = "FILE_THRESHOLD_SIZE_MB";
+    public static final String TRANSACTION_DIRECTORY_POOL_SIZE_ENV_KEY = "TRANSACTION_DIRECTORY_POOL_SIZE";
+    public static final String TRANSACTION_RECOVERY_THREADS_ENV_KEY = "TRANSACTION_RECOVERY_THREADS";
+    public static final String CLOSED_TRANSACTION_CACHE_SIZE_MB_ENV_KEY = "CLOSED_TRANSACTION_CACHE_SIZE_MB";
+    public static final String TRANSACTION_ARCHIVE_AFTER_HOURS_ENV_KEY = "TRANSACTION_ARCHIVE_AFTER_HOURS";
+    public static final String TRANSACTION_ARCHIVE_IO_BUDGET_MB_ENV_KEY = "TRANSACTION_ARCHIVE_IO_BUDGET_MB";
+    public static final String TRANSACTION_IDLE_TIMEOUT_MINUTES_ENV_KEY = "TRANSACTION_IDLE_TIMEOUT_MINUTES";
+    public static final String FAILED_TRANSACTION_TIMEOUT_MINUTES_ENV_KEY = "FAILED_TRANSACTION_TIMEOUT_MINUTES";
+    public static final String HOT_PATH_LOG_MODE_ENV_KEY = "HOT_PATH_LOG_MODE";
+    public static final String DURABILITY_ENV_KEY = "PUBLISHING_DURABILITY";
+    public static final String COPY_STRATEGY_ENV_KEY = "PUBLISHING_COPY_STRATEGY";
+    /**
+     * {@link BackupMode#COPY} unless set. {@link BackupMode#LINK} is only safe while nothing writes website files in
+     * place, as a linked backup is the same file as the website file it backs up.
+     */
+    public static final String BACKUP_MODE_ENV_KEY = "PUBLISHING_BACKUP_MODE";
+
+    static final int DEFAULT_FAIR_SHARE_QUANTUM = 16;
+    static final int DEFAULT_MAX_SHARE = 8;
+    static final int DEFAULT_TRANSACTION_DIRECTORY_POOL_SIZE = 10;
+    static final int DEFAULT_TRANSACTION_RECOVERY_THREADS = 8;
+    static final int DEFAULT_CLOSED_TRANSACTION_CACHE_SIZE_MB = 64;
+    static final int DEFAULT_TRANSACTION_ARCHIVE_AFTER_HOURS = 0;
+    static final int DEFAULT_TRANSACTION_ARCHIVE_IO_BUDGET_MB = 10;
+    static final int DEFAULT_TRANSACTION_IDLE_TIMEOUT_MINUTES = 24 * 60;
+    static final int DEFAULT_FAILED_TRANSACTION_TIMEOUT_MINUTES = 60;
 
     public static final String ENABLE_VERIFY_PUBLISH_CONTENT = "ENABLE_VERIFY_PUBLISH_CONTENT";
     public static final String FILE_UPLOADS_TMP_DIR = "FILE_UPLOADS_TMP_DIR";
@@ -34,11 +65,24 @@ public class AppConfiguration {
     private Path websitePath;
     private Path fileUploadsTmpDir;
     private int publishThreadPoolSize;
+    private int publishFairShareQuantum;
+    private int publishMaxShare;
     private int port;
     private boolean enableVerifyPublish;
     private long maxFileUploadSize;
     private long maxRequestSize;
     private int fileThresholdSize;
+    private int transactionDirectoryPoolSize;
+    private int transactionRecoveryThreads;
+    private int closedTransactionCacheSize;
+    private int transactionArchiveAfterHours;
+    private int transactionArchiveIoBudget;
+    private int transactionIdleTimeout;
+    private int failedTransactionTimeout;
+    private LogMode hotPathLogMode;
+    private Durability durability;
+    private CopyStrategies copyStrategy;
+    private BackupMode backupMode;
 
     /**
      * @throws ConfigurationException
@@ -49,20 +93,53 @@ public class AppConfiguration {
         this.enableVerifyPublish = loadEnableVerifyPublishContentFeatureFlag();
         this.fileUploadsTmpDir = createTmpFileUploadsDir();
         this.publishThreadPoolSize = getIntegerEnvVar(THREAD_POOL_SIZE_ENV_KEY);
+        this.publishFairShareQuantum = getIntegerEnvVar(FAIR_SHARE_QUANTUM_ENV_KEY, DEFAULT_FAIR_SHARE_QUANTUM);
+        this.publishMaxShare = getIntegerEnvVar(MAX_SHARE_ENV_KEY, DEFAULT_MAX_SHARE);
         this.port = getIntegerEnvVar(PORT_ENV_KEY);
         this.maxFileUploadSize = getLongEnvVar(MAX_FILE_UPLOAD_SIZE_MB_ENV_KEY);
         this.maxRequestSize = getLongEnvVar(MAX_REQUEST_SIZE_MB_ENV_KEY);
         this.fileThresholdSize = getIntegerEnvVar(FILE_THRESHOLD_SIZE_MB_ENV_KEY);
+        this.transactionDirectoryPoolSize = getIntegerEnvVar(TRANSACTION_DIRECTORY_POOL_SIZE_ENV_KEY,
+                DEFAULT_TRANSACTION_DIRECTORY_POOL_SIZE);
+        this.transactionRecoveryThreads = getIntegerEnvVar(TRANSACTION_RECOVERY_THREADS_ENV_KEY,
+                DEFAULT_TRANSACTION_RECOVERY_THREADS);
+        this.closedTransactionCacheSize = getIntegerEnvVar(CLOSED_TRANSACTION_CACHE_SIZE_MB_ENV_KEY,
+                DEFAULT_CLOSED_TRANSACTION_CACHE_SIZE_MB);
+        this.transactionArchiveAfterHours = getIntegerEnvVar(TRANSACTION_ARCHIVE_AFTER_HOURS_ENV_KEY,
+                DEFAULT_TRANSACTION_ARCHIVE_AFTER_HOURS);
+        this.transactionArchiveIoBudget = getIntegerEnvVar(TRANSACTION_ARCHIVE_IO_BUDGET_MB_ENV_KEY,
+                DEFAULT_TRANSACTION_ARCHIVE_IO_BUDGET_MB);
+        this.transactionIdleTimeout = getIntegerEnvVar(TRANSACTION_IDLE_TIMEOUT_MINUTES_ENV_KEY,
+                DEFAULT_TRANSACTION_IDLE_TIMEOUT_MINUTES);
+        this.failedTransactionTimeout = getIntegerEnvVar(FAILED_TRANSACTION_TIMEOUT_MINUTES_ENV_KEY,
+                DEFAULT_FAILED_TRANSACTION_TIMEOUT_MINUTES);
+        this.hotPathLogMode = loadHotPathLogMode();
+        this.durability = loadDurability();
+        this.copyStrategy = loadCopyStrategy();
+        this.backupMode = loadBackupMode();
 
         info().data(TRANSACTION_STORE_ENV_KEY, transactionStore)
                 .data(WEBSITE_ENV_KEY, websitePath)
                 .data(THREAD_POOL_SIZE_ENV_KEY, publishThreadPoolSize)
+                .data(FAIR_SHARE_QUANTUM_ENV_KEY, publishFairShareQuantum)
+                .data(MAX_SHARE_ENV_KEY, publishMaxShare)
                 .data(PORT_ENV_KEY, port)
                 .data(ENABLE_VERIFY_PUBLISH_CONTENT, enableVerifyPublish)
                 .data(FILE_UPLOADS_TMP_DIR, fileUploadsTmpDir)
                 .data(MAX_FILE_UPLOAD_SIZE_MB_ENV_KEY, maxFileUploadSize)
                 .data(MAX_REQUEST_SIZE_MB_ENV_KEY, maxRequestSize)
                 .data(FILE_THRESHOLD_SIZE_MB_ENV_KEY, fileThresholdSize + " MB")
+                .data(TRANSACTION_DIRECTORY_POOL_SIZE_ENV_KEY, transactionDirectoryPoolSize)
+                .data(TRANSACTION_RECOVERY_THREADS_ENV_KEY, transactionRecoveryThreads)
+                .data(CLOSED_TRANSACTION_CACHE_SIZE_MB_ENV_KEY, closedTransactionCacheSize + " MB")
+                .data(TRANSACTION_ARCHIVE_AFTER_HOURS_ENV_KEY, transactionArchiveAfterHours)
+                .data(TRANSACTION_ARCHIVE_IO_BUDGET_MB_ENV_KEY, transactionArchiveIoBudget + " MB/s")
+                .data(TRANSACTION_IDLE_TIMEOUT_MINUTES_ENV_KEY, transactionIdleTimeout)
+                .data(FAILED_TRANSACTION_TIMEOUT_MINUTES_ENV_KEY, failedTransactionTimeout)
+                .data(HOT_PATH_LOG_MODE_ENV_KEY, hotPathLogMode)
+                .data(DURABILITY_ENV_KEY, durability)
+                .data(COPY_STRATEGY_ENV_KEY, copyStrategy)
+                .data(BACKUP_MODE_ENV_KEY, backupMode)
                 .log("successfully load application configuration");
     }
 
@@ -80,6 +157,20 @@ public class AppConfiguration {
         return publishThreadPoolSize;
     }
 
+    /**
+     * @return the number of files each transaction handles in its turn of the publishing threads.
+     */
+    public int publishFairShareQuantum() {
+        return publishFairShareQuantum;
+    }
+
+    /**
+     * @return the largest share of the publishing threads a transaction may ask for when it is begun.
+     */
+    public int publishMaxShare() {
+        return publishMaxShare;
+    }
+
     /**
      * @return the content dir path of the the website.
      */
@@ -140,6 +231,103 @@ public class AppConfiguration {
         return fileThresholdSize;
     }
 
+    /**
+     * The number of transaction directories to pre-create ready for new transactions. A value of 0 disables the pool.
+     *
+     * @return the transaction directory pool size.
+     */
+    public int transactionDirectoryPoolSize() {
+        return transactionDirectoryPoolSize;
+    }
+
+    /**
+     * The number of threads used to scan the transaction store on start up.
+     *
+     * @return the transaction recovery thread count.
+     */
+    public int transactionRecoveryThreads() {
+        return transactionRecoveryThreads;
+    }
+
+    /**
+     * The estimated in-memory size of closed transactions to cache (in MB). A value of 0 disables the cache.
+     *
+     * @return the closed transaction cache size in MB.
+     */
+    public int closedTransactionCacheSize() {
+        return closedTransactionCacheSize;
+    }
+
+    /**
+     * How long after ending committed and rolled back transactions are archived (in hours). A value of 0 disables
+     * archiving.
+     *
+     * @return the transaction archive threshold in hours.
+     */
+    public int transactionArchiveAfterHours() {
+        return transactionArchiveAfterHours;
+    }
+
+    /**
+     * The rate at which the archiver may read and write the disk, and the tombstone cleaner may delete from it (in MB
+     * per second).
+     *
+     * @return the transaction archive I/O budget in MB per second.
+     */
+    public int transactionArchiveIoBudget() {
+        return transactionArchiveIoBudget;
+    }
+
+    /**
+     * How long an open transaction may go unused before it is marked stale and released from memory (in minutes). A
+     * value of 0 disables reaping open transactions.
+     *
+     * @return the transaction idle timeout in minutes.
+     */
+    public int transactionIdleTimeout() {
+        return transactionIdleTimeout;
+    }
+
+    /**
+     * How long a transaction whose commit or rollback failed is kept in memory (in minutes). A value of 0 disables
+     * reaping failed transactions.
+     *
+     * @return the failed transaction timeout in minutes.
+     */
+    public int failedTransactionTimeout() {
+        return failedTransactionTimeout;
+    }
+
+    /**
+     * How the per-file events on the publishing hot path are logged at start up. Can be changed at runtime.
+     *
+     * @return the hot path {@link LogMode}.
+     */
+    public LogMode hotPathLogMode() {
+        return hotPathLogMode;
+    }
+
+    /**
+     * @return how far committed content is forced to disk before a commit is reported as successful.
+     */
+    public Durability durability() {
+        return durability;
+    }
+
+    /**
+     * @return how file content is copied when publishing.
+     */
+    public CopyStrategies copyStrategy() {
+        return copyStrategy;
+    }
+
+    /**
+     * @return how website files are backed up before they are replaced.
+     */
+    public BackupMode backupMode() {
+        return backupMode;
+    }
+
     /**
      * Return a singleton instance of the ApplicationConfiguration. Will load the ApplictionConfiguration if it has
      * not already been loaded.
@@ -182,6 +370,58 @@ public class AppConfiguration {
         return Boolean.valueOf(isEnableVerifyPublish);
     }
 
+    private static LogMode loadHotPathLogMode() throws ConfigurationException {
+        String value = getStringEnvVar(HOT_PATH_LOG_MODE_ENV_KEY);
+        if (StringUtils.isEmpty(value)) {
+            return LogMode.FULL;
+        }
+
+        try {
+            return LogMode.parse(value);
+        } catch (IllegalArgumentException ex) {
+            throw new ConfigurationException("invalid hot path log mode config: " + value, ex);
+        }
+    }
+
+    private static Durability loadDurability() throws ConfigurationException {
+        String value = getStringEnvVar(DURABILITY_ENV_KEY);
+        if (StringUtils.isEmpty(value)) {
+            return Durability.NONE;
+        }
+
+        try {
+            return Durability.parse(value);
+        } catch (IllegalArgumentException ex) {
+            throw new ConfigurationException("invalid durability config: " + value, ex);
+        }
+    }
+
+    private static CopyStrategies loadCopyStrategy() throws ConfigurationException {
+        String value = getStringEnvVar(COPY_STRATEGY_ENV_KEY);
+        if (StringUtils.isEmpty(value)) {
+            return CopyStrategies.TRANSFER_FROM;
+        }
+
+        try {
+            return CopyStrategies.parse(value);
+        } catch (IllegalArgumentException ex) {
+            throw new ConfigurationException("invalid copy strategy config: " + value, ex);
+        }
+    }
+
+    private static BackupMode loadBackupMode() throws ConfigurationException {
+        String value = getStringEnvVar(BACKUP_MODE_ENV_KEY);
+        if (StringUtils.isEmpty(value)) {
+            return BackupMode.COPY;
+        }
+
+        try {
+            return BackupMode.parse(value);
+        } catch (IllegalArgumentException ex) {
+            throw new ConfigurationException("invalid backup mode config: " + value, ex);
+        }
+    }
+
     private static Path loadWebsitePathConfig() throws ConfigurationException {
         String value = getStringEnvVar(WEBSITE_ENV_KEY);
 
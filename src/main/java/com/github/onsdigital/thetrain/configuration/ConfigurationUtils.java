@@ -51,6 +51,21 @@ public class ConfigurationUtils {
         }
     }
 
+    /**
+     * Get an optional {@link Integer} environment variable value.
+     *
+     * @param varName      the name of the environment variable to retrieve.
+     * @param defaultValue the value to return if the environment variable is not set.
+     * @return the environment variable if it exists, otherwise the default value.
+     * @throws ConfigurationException problem getting the env var/invalid integer value.
+     */
+    public static int getIntegerEnvVar(String varName, int defaultValue) throws ConfigurationException {
+        if (StringUtils.isEmpty(getStringEnvVar(varName))) {
+            return defaultValue;
+        }
+        return getIntegerEnvVar(varName);
+    }
+
     /**
      * Get a {@link Integer} environment variable value.
      *
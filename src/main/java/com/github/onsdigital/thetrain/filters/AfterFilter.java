@@ -1,15 +1,42 @@
 package com.github.onsdigital.thetrain.filters;
 
+import com.github.onsdigital.thetrain.metrics.Histogram;
+import com.github.onsdigital.thetrain.metrics.Metrics;
 import spark.Filter;
 import spark.Request;
 import spark.Response;
 
+import java.util.Set;
+
 import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
 
 public class AfterFilter implements Filter {
 
+    static final String OTHER_ROUTE = "other";
+
+    private final Set<String> routes;
+    private final Histogram requestDuration;
+
+    /**
+     * @param routes the paths of the registered routes. Requests for any other path are recorded as
+     *               {@value #OTHER_ROUTE} so unknown URLs cannot create unbounded metric series.
+     */
+    public AfterFilter(Set<String> routes) {
+        this.routes = routes;
+        this.requestDuration = Metrics.get().histogram("train_http_request_duration_seconds",
+                "Time taken to handle HTTP requests, by method, route and status", Histogram.LATENCY_BUCKETS,
+                "method", "route", "status");
+    }
+
     @Override
     public void handle(Request request, Response response) throws Exception {
+        Long start = request.attribute(BeforeFilter.START_NANOS_ATTRIBUTE);
+        if (start != null) {
+            String route = routes.contains(request.pathInfo()) ? request.pathInfo() : OTHER_ROUTE;
+            requestDuration.labels(request.requestMethod(), route, Integer.toString(response.status()))
+                    .observeSince(start);
+        }
+
         info().endHTTP(request.raw(), response.raw()).log("http request completed");
     }
 }
@@ -8,8 +8,14 @@ import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
 
 public class BeforeFilter implements Filter {
 
+    /**
+     * Request attribute holding the {@link System#nanoTime()} the request was received, read by {@link AfterFilter}.
+     */
+    static final String START_NANOS_ATTRIBUTE = "train.start.nanos";
+
     @Override
     public void handle(Request request, Response response) throws Exception {
+        request.attribute(START_NANOS_ATTRIBUTE, System.nanoTime());
         info().beginHTTP(request.raw()).log("http request received");
     }
 }
@@ -0,0 +1,52 @@
+package com.github.onsdigital.thetrain.filters;
+
+import com.github.onsdigital.thetrain.json.TraceEntry;
+import com.github.onsdigital.thetrain.profiling.PublishTrace;
+import spark.Filter;
+import spark.Request;
+import spark.Response;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.github.onsdigital.thetrain.routes.BaseHandler.TRANSACTION_ID_KEY;
+import static com.github.onsdigital.thetrain.routes.BaseHandler.URI_KEY;
+import static com.github.onsdigital.thetrain.routes.BaseHandler.ZIP_KEY;
+
+/**
+ * Records each publishing API request in the running {@link PublishTrace}, if there is one.
+ */
+public class TraceFilter implements Filter {
+
+    @Override
+    public void handle(Request request, Response response) throws Exception {
+        if (!PublishTrace.isTracing() || !PublishTrace.ROUTES.contains(request.pathInfo())) {
+            return;
+        }
+
+        Long startNanos = request.attribute(BeforeFilter.START_NANOS_ATTRIBUTE);
+        long durationMs = startNanos == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        String transactionId = request.attribute(PublishTrace.TRANSACTION_ID_ATTRIBUTE);
+        if (transactionId == null) {
+            transactionId = request.raw().getParameter(TRANSACTION_ID_KEY);
+        }
+
+        TraceEntry entry = new TraceEntry(System.currentTimeMillis() - durationMs, durationMs, request.pathInfo(),
+                response.status(), transactionId);
+
+        Integer files = request.attribute(PublishTrace.FILES_ATTRIBUTE);
+        if (files != null) {
+            Long bytes = request.attribute(PublishTrace.BYTES_ATTRIBUTE);
+            entry.upload(request.raw().getParameter(URI_KEY), Boolean.valueOf(request.raw().getParameter(ZIP_KEY)),
+                    files, bytes == null ? 0 : bytes);
+        }
+
+        Integer copies = request.attribute(PublishTrace.COPIES_ATTRIBUTE);
+        Integer deletes = request.attribute(PublishTrace.DELETES_ATTRIBUTE);
+        if (copies != null || deletes != null) {
+            entry.manifest(copies == null ? 0 : copies, deletes == null ? 0 : deletes);
+        }
+
+        PublishTrace.record(entry);
+    }
+}
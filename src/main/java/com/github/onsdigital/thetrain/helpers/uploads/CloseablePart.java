@@ -1,6 +1,7 @@
 package com.github.onsdigital.thetrain.helpers.uploads;
 
 import com.github.onsdigital.thetrain.exception.PublishException;
+import com.github.onsdigital.thetrain.logging.HotPathLog;
 
 import javax.servlet.http.Part;
 import java.io.IOException;
@@ -8,7 +9,6 @@ import java.io.InputStream;
 import java.util.Collection;
 
 import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
-import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
 
 /**
  * Decorator class that extends a {@link Part} implementing the {@link AutoCloseable} interface. <b>Does not change
@@ -114,8 +114,8 @@ public class CloseablePart implements Part, AutoCloseable {
     public void close() throws PublishException {
         try {
             if (this.part != null) {
-                info().transactionID(transactionID)
-                        .log("attempting to clean up temp files/storaged created during file upload");
+                HotPathLog.info(transactionID,
+                        "attempting to clean up temp files/storaged created during file upload");
 
                 this.part.delete();
             }
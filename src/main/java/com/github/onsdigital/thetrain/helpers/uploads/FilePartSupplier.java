@@ -3,6 +3,7 @@ package com.github.onsdigital.thetrain.helpers.uploads;
 import com.github.onsdigital.thetrain.exception.BadRequestException;
 import com.github.onsdigital.thetrain.exception.PublishException;
 import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.logging.HotPathLog;
 import spark.Request;
 
 import javax.servlet.MultipartConfigElement;
@@ -10,8 +11,6 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.Part;
 import java.nio.file.Path;
 
-import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
-
 /**
  * Implementation of {@link CloseablePartSupplier} that retrieves a {@link CloseablePart} if it exists from a
  * {@link Request}.
@@ -60,7 +59,7 @@ public class FilePartSupplier implements CloseablePartSupplier {
         req.attribute(MULTIPART_CONFIG,
                 new MultipartConfigElement(tmpDir.toString(), maxFileSize, maxRequestSize, fileThresholdSize));
 
-        info().transactionID(t).log("parsing request body for file item");
+        HotPathLog.info(t.id(), "parsing request body for file item");
         Part part = null;
         try {
             part = raw.getPart(FILE_PART_NAME);
@@ -0,0 +1,40 @@
+package com.github.onsdigital.thetrain.json;
+
+/**
+ * A copy of an existing website file, requested in a manifest, that is made directly on the website when the
+ * {@link Transaction} is committed rather than staged in the transaction.
+ */
+public class PendingCopy {
+
+    private String source;
+    private String target;
+
+    /**
+     * Constructor for serialisation.
+     */
+    public PendingCopy() {
+        // Constructor for serialisation
+    }
+
+    /**
+     * @param source the URI of the website file to copy.
+     * @param target the URI to copy it to.
+     */
+    public PendingCopy(String source, String target) {
+        this.source = source;
+        this.target = target;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    public String target() {
+        return target;
+    }
+
+    @Override
+    public String toString() {
+        return source + " -> " + target;
+    }
+}
@@ -0,0 +1,327 @@
+package com.github.onsdigital.thetrain.json;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The phases a {@link Transaction} has been through, in the order they were first recorded. Each phase records its
+ * wall-clock span, the number of files and bytes it handled and the distribution of per-file latencies, so a slow
+ * publish can be explained after the fact from the transaction alone.
+ * <p>
+ * A timeline is never modified once built: recording returns an updated copy, in the same way the collections in
+ * {@link Transaction} are replaced rather than changed, so it can be serialised while the transaction is being
+ * updated. Files are counted as they are handled in {@link FileStats}, without locking or copying, and folded into
+ * the timeline when it is read or persisted.
+ */
+public class Timeline {
+
+    public static final String BEGIN = "begin";
+    public static final String MANIFEST = "manifest";
+    public static final String UPLOADS = "uploads";
+    public static final String PREPARE = "prepare";
+    public static final String COMMIT_DELETES = "commitDeletes";
+    public static final String COMMIT_MANIFEST_COPIES = "commitManifestCopies";
+    public static final String COMMIT_COPY = "commitCopy";
+    public static final String COMMIT_SYNC = "commitSync";
+    public static final String ROLLBACK_RESTORE = "rollbackRestore";
+    public static final String QUEUE_WAIT = "queueWait";
+    public static final String END = "end";
+
+    /**
+     * Upper bounds, in milliseconds, of the per-file latency buckets. A final bucket counts anything slower.
+     */
+    static final double[] LATENCY_BOUNDS_MS = {
+            0.1, 0.25, 0.5, 1, 2.5, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000};
+
+    private Map<String, Phase> phases = new LinkedHashMap<>();
+
+    /**
+     * @return An unmodifiable view of the phases, keyed by name, in the order they were first recorded.
+     */
+    public Map<String, Phase> phases() {
+        return Collections.unmodifiableMap(phases);
+    }
+
+    /**
+     * @param name the phase name.
+     * @return the phase, or null if it has not been recorded.
+     */
+    public Phase phase(String name) {
+        return phases.get(name);
+    }
+
+    /**
+     * Record that a phase was running between the given times. The phase span is extended to cover them.
+     *
+     * @param name        the phase name.
+     * @param startMillis the start, in milliseconds since the epoch.
+     * @param endMillis   the end, in milliseconds since the epoch.
+     * @return an updated copy of this timeline.
+     */
+    public Timeline withSpan(String name, long startMillis, long endMillis) {
+        Timeline updated = copy();
+        updated.phases.put(name, phaseCopy(name).extend(startMillis, endMillis));
+        return updated;
+    }
+
+    /**
+     * Record a single file handled by a phase. The phase span is extended to cover the file.
+     *
+     * @param name           the phase name.
+     * @param endMillis      the time the file finished, in milliseconds since the epoch.
+     * @param durationNanos  the time taken to handle the file.
+     * @param bytes          the size of the file, or 0 if not known.
+     * @return an updated copy of this timeline.
+     */
+    public Timeline withFile(String name, long endMillis, long durationNanos, long bytes) {
+        double durationMs = durationNanos / 1_000_000d;
+        Phase phase = phaseCopy(name).extend(endMillis - (long) durationMs, endMillis);
+        phase.observe(durationMs, bytes);
+
+        Timeline updated = copy();
+        updated.phases.put(name, phase);
+        return updated;
+    }
+
+    /**
+     * Fold the files counted for a phase into the timeline. The phase keeps its span, extended to cover the files.
+     *
+     * @param name  the phase name.
+     * @param stats the files counted for the phase.
+     * @return an updated copy of this timeline.
+     */
+    public Timeline withFiles(String name, FileStats stats) {
+        long files = stats.files.sum();
+        Phase phase = stats.base == null ? new Phase() : stats.base.copy();
+        Phase current = phases.get(name);
+        if (current != null && current.end > 0) {
+            phase.extend(current.start, current.end);
+        }
+        if (files > 0) {
+            phase.add(files, stats);
+        }
+        stats.folded = files;
+
+        Timeline updated = copy();
+        updated.phases.put(name, phase);
+        return updated;
+    }
+
+    /**
+     * @return a copy of this timeline without the latency buckets, for places where only the totals and percentiles
+     * are needed.
+     */
+    public Timeline withoutLatencies() {
+        Timeline updated = new Timeline();
+        for (Map.Entry<String, Phase> entry : phases.entrySet()) {
+            Phase phase = entry.getValue().copy();
+            phase.latencies = null;
+            updated.phases.put(entry.getKey(), phase);
+        }
+        return updated;
+    }
+
+    private Timeline copy() {
+        Timeline copy = new Timeline();
+        copy.phases.putAll(phases);
+        return copy;
+    }
+
+    private Phase phaseCopy(String name) {
+        Phase phase = phases.get(name);
+        return phase == null ? new Phase() : phase.copy();
+    }
+
+    /**
+     * A single phase of a transaction.
+     */
+    public static class Phase {
+
+        private long start;
+        private long end;
+        private long durationMs;
+        private int files;
+        private long bytes;
+        private double maxMs;
+        private double p50Ms;
+        private double p99Ms;
+
+        /**
+         * Counts of per-file latencies in each of {@link #LATENCY_BOUNDS_MS}, followed by the overflow bucket.
+         */
+        private long[] latencies;
+
+        /**
+         * Constructor for serialisation.
+         */
+        public Phase() {
+            // Constructor for serialisation
+        }
+
+        /**
+         * @return The start of the phase, in milliseconds since the epoch.
+         */
+        public long start() {
+            return start;
+        }
+
+        /**
+         * @return The end of the phase, in milliseconds since the epoch.
+         */
+        public long end() {
+            return end;
+        }
+
+        /**
+         * @return The wall-clock time from the start of the phase to its end.
+         */
+        public long durationMs() {
+            return durationMs;
+        }
+
+        public int files() {
+            return files;
+        }
+
+        public long bytes() {
+            return bytes;
+        }
+
+        public double p50Ms() {
+            return p50Ms;
+        }
+
+        public double p99Ms() {
+            return p99Ms;
+        }
+
+        private Phase copy() {
+            Phase copy = new Phase();
+            copy.start = start;
+            copy.end = end;
+            copy.durationMs = durationMs;
+            copy.files = files;
+            copy.bytes = bytes;
+            copy.maxMs = maxMs;
+            copy.p50Ms = p50Ms;
+            copy.p99Ms = p99Ms;
+            copy.latencies = latencies == null ? null : latencies.clone();
+            return copy;
+        }
+
+        private Phase extend(long startMillis, long endMillis) {
+            start = start == 0 ? startMillis : Math.min(start, startMillis);
+            end = Math.max(end, endMillis);
+            durationMs = end - start;
+            return this;
+        }
+
+        private void observe(double durationMs, long bytes) {
+            if (latencies == null) {
+                latencies = new long[LATENCY_BOUNDS_MS.length + 1];
+            }
+            latencies[bucket(durationMs)]++;
+
+            files++;
+            this.bytes += bytes;
+            maxMs = Math.max(maxMs, durationMs);
+            p50Ms = percentile(0.5);
+            p99Ms = percentile(0.99);
+        }
+
+        private void add(long files, FileStats stats) {
+            if (latencies == null) {
+                latencies = new long[LATENCY_BOUNDS_MS.length + 1];
+            }
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] += stats.latencies.get(i);
+            }
+
+            this.files += files;
+            this.bytes += stats.bytes.sum();
+            maxMs = Math.max(maxMs, stats.maxNanos.get() / 1_000_000d);
+            extend(stats.start.get(), stats.end.get());
+            p50Ms = percentile(0.5);
+            p99Ms = percentile(0.99);
+        }
+
+        /**
+         * Estimate a percentile by interpolating linearly within the bucket it falls in.
+         */
+        private double percentile(double quantile) {
+            double rank = quantile * files;
+            long seen = 0;
+            for (int i = 0; i < latencies.length; i++) {
+                if (latencies[i] > 0 && seen + latencies[i] >= rank) {
+                    double lower = i == 0 ? 0 : LATENCY_BOUNDS_MS[i - 1];
+                    double upper = i < LATENCY_BOUNDS_MS.length ? Math.min(LATENCY_BOUNDS_MS[i], maxMs) : maxMs;
+                    return lower + (upper - lower) * ((rank - seen) / latencies[i]);
+                }
+                seen += latencies[i];
+            }
+            return maxMs;
+        }
+    }
+
+    private static int bucket(double durationMs) {
+        int bucket = Arrays.binarySearch(LATENCY_BOUNDS_MS, durationMs);
+        return bucket < 0 ? -bucket - 1 : bucket;
+    }
+
+    /**
+     * The files a phase has handled since its stats were created, counted without locking so that recording a file
+     * costs no more than a few atomic adds. Folded into a timeline with {@link #withFiles(String, FileStats)}.
+     */
+    public static class FileStats {
+
+        private final Phase base;
+        private final LongAdder files = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_BOUNDS_MS.length + 1);
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAccumulator start = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator end = new LongAccumulator(Math::max, 0);
+
+        /**
+         * The number of files in the last fold.
+         */
+        private volatile long folded;
+
+        /**
+         * @param base the phase as it was before these files, or null if it had not been recorded. Files are added to
+         *             it each time the stats are folded.
+         */
+        public FileStats(Phase base) {
+            this.base = base == null ? null : base.copy();
+        }
+
+        /**
+         * Record a single file handled by the phase.
+         *
+         * @param endMillis     the time the file finished, in milliseconds since the epoch.
+         * @param durationNanos the time taken to handle the file.
+         * @param bytes         the size of the file, or 0 if not known.
+         */
+        public void observe(long endMillis, long durationNanos, long bytes) {
+            latencies.incrementAndGet(bucket(durationNanos / 1_000_000d));
+            this.bytes.add(bytes);
+            maxNanos.accumulate(durationNanos);
+            start.accumulate(endMillis - durationNanos / 1_000_000);
+            end.accumulate(endMillis);
+            // Counted last, so a fold that misses part of a file sees it as not yet folded and folds it next time.
+            files.increment();
+        }
+
+        /**
+         * @return true if files have been recorded since the last fold.
+         */
+        public boolean changed() {
+            return files.sum() != folded;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.github.onsdigital.thetrain.json;
+
+/**
+ * One publishing API request captured in a publish trace: when it arrived, how long it took and the shape of what
+ * was sent, but not the content itself. Enough to replay the same sequence of requests with synthetic content.
+ */
+public class TraceEntry {
+
+    private long start;
+    private long durationMs;
+    private String route;
+    private int status;
+    private String transactionId;
+    private String uri;
+    private boolean zip;
+    private int files;
+    private long bytes;
+    private int copies;
+    private int deletes;
+
+    /**
+     * Constructor for serialisation.
+     */
+    public TraceEntry() {
+        // Constructor for serialisation
+    }
+
+    /**
+     * @param start         when the request arrived, in milliseconds since the epoch.
+     * @param durationMs    the time taken to handle the request.
+     * @param route         the route, e.g. /publish.
+     * @param status        the response status.
+     * @param transactionId the transaction the request was for.
+     */
+    public TraceEntry(long start, long durationMs, String route, int status, String transactionId) {
+        this.start = start;
+        this.durationMs = durationMs;
+        this.route = route;
+        this.status = status;
+        this.transactionId = transactionId;
+    }
+
+    /**
+     * Describe an upload.
+     *
+     * @param uri   the target URI.
+     * @param zip   true if the upload was a zip to be extracted under the URI.
+     * @param files the number of files uploaded: 1, or the number of zip entries.
+     * @param bytes the uncompressed size of the files.
+     * @return this entry.
+     */
+    public TraceEntry upload(String uri, boolean zip, int files, long bytes) {
+        this.uri = uri;
+        this.zip = zip;
+        this.files = files;
+        this.bytes = bytes;
+        return this;
+    }
+
+    /**
+     * Describe a manifest.
+     *
+     * @param copies  the number of website files copied into the transaction.
+     * @param deletes the number of directories to be deleted.
+     * @return this entry.
+     */
+    public TraceEntry manifest(int copies, int deletes) {
+        this.copies = copies;
+        this.deletes = deletes;
+        return this;
+    }
+
+    public long start() {
+        return start;
+    }
+
+    public long durationMs() {
+        return durationMs;
+    }
+
+    /**
+     * @return when the request completed, in milliseconds since the epoch.
+     */
+    public long end() {
+        return start + durationMs;
+    }
+
+    public String route() {
+        return route;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    public String transactionId() {
+        return transactionId;
+    }
+
+    public String uri() {
+        return uri;
+    }
+
+    public boolean zip() {
+        return zip;
+    }
+
+    public int files() {
+        return files;
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+
+    public int copies() {
+        return copies;
+    }
+
+    public int deletes() {
+        return deletes;
+    }
+}
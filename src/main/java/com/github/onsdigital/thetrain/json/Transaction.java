@@ -4,13 +4,19 @@ import com.github.davidcarboni.cryptolite.Random;
 import com.github.onsdigital.thetrain.helpers.DateConverter;
 import org.apache.commons.lang3.StringUtils;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -25,6 +31,7 @@ public class Transaction {
     public static final String COMMITTED = "committed";
     public static final String ROLLED_BACK = "rolled back";
     public static final String ROLLBACK_FAILED = "rollback failed";
+    public static final String STALE = "stale";
 
     // Whilst an ID collision is technically possible it's a
     // theoretical rather than a practical consideration.
@@ -33,9 +40,55 @@ public class Transaction {
     private String startDate = DateConverter.toString(new Date());
     private String endDate;
 
+    /**
+     * Incremented on every change to this transaction so clients can cheaply detect whether it has changed since
+     * they last read it.
+     */
+    private long version;
+
+    /**
+     * How many turns of the publishing threads this transaction gets relative to other transactions, when they are
+     * competing for threads.
+     */
+    private int share = 1;
+
+    /**
+     * Directories already created in this transaction's content and backup areas, so each is only created once. Not
+     * persisted: a transaction read back from disk creates them again as needed.
+     */
+    private transient ConcurrentMap<Path, Boolean> directories = new ConcurrentHashMap<>();
+
+    /**
+     * URIs staged on the website by a prepare, each with the size and modification time of the file it was staged
+     * from, so a commit can tell the staged file is still current. Not persisted: after a restart files are copied at
+     * commit as if the transaction had not been prepared.
+     */
+    private transient ConcurrentMap<String, String> prepared = new ConcurrentHashMap<>();
+
+    /**
+     * Website directories created by a prepare, so they can be removed again if the transaction is never committed.
+     * Not persisted, like {@link #prepared}.
+     */
+    private transient Set<String> preparedDirectories = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Files counted for each phase since the transaction was created or read, folded into the {@link #timeline} when
+     * it is read or persisted.
+     */
+    private transient ConcurrentMap<String, Timeline.FileStats> fileStats = new ConcurrentHashMap<>();
+
+    /**
+     * Changes made to the transaction's {@link UriInfo}s, which are updated without the lock, and how many of them
+     * have been folded into the {@link #version}.
+     */
+    private transient AtomicLong uriChanges = new AtomicLong();
+    private transient long uriChangesFolded;
+
     private Set<UriInfo> uriInfos = new HashSet<>();
     private Set<UriInfo> uriDeletes = new HashSet<>();
+    private List<PendingCopy> copies = new ArrayList<>();
     private List<String> errors = new ArrayList<>();
+    private volatile Timeline timeline = new Timeline();
 
     /**
      * The actual files on disk in this transaction.
@@ -69,6 +122,53 @@ public class Transaction {
         return status;
     }
 
+    /**
+     * @return The transaction {@link #share}.
+     */
+    public int share() {
+        return share;
+    }
+
+    /**
+     * @param share The transaction {@link #share}, at least 1.
+     */
+    public void setShare(int share) {
+        synchronized (this) {
+            this.share = Math.max(1, share);
+            version++;
+        }
+    }
+
+    /**
+     * @return The {@link #directories} already created for this transaction.
+     */
+    public ConcurrentMap<Path, Boolean> directories() {
+        return directories;
+    }
+
+    /**
+     * @return The URIs {@link #prepared} on the website.
+     */
+    public ConcurrentMap<String, String> prepared() {
+        return prepared;
+    }
+
+    /**
+     * @return The website directories {@link #preparedDirectories created by a prepare}.
+     */
+    public Set<String> preparedDirectories() {
+        return preparedDirectories;
+    }
+
+    /**
+     * @return The transaction {@link #version}.
+     */
+    public long version() {
+        synchronized (this) {
+            return version;
+        }
+    }
+
     /**
      * @return An unmodifiable set of the URIs in this transaction.
      */
@@ -96,6 +196,7 @@ public class Transaction {
             updated.add(addedUri);
             this.uriInfos = updated;
             status = PUBLISHING;
+            version++;
         }
     }
 
@@ -105,6 +206,51 @@ public class Transaction {
             updated.addAll(addedUris);
             this.uriInfos = updated;
             status = PUBLISHING;
+            version++;
+        }
+    }
+
+    /**
+     * @return An unmodifiable list of the manifest copies to make on the website when this transaction is committed.
+     */
+    public List<PendingCopy> copies() {
+        synchronized (this) {
+            return Collections.unmodifiableList(copies);
+        }
+    }
+
+    /**
+     * Add manifest copies to make when this transaction is committed. A copy replaces any earlier copy to the same
+     * target.
+     *
+     * @param added the copies.
+     */
+    public void addCopies(Collection<PendingCopy> added) {
+        synchronized (this) {
+            Map<String, PendingCopy> byTarget = new LinkedHashMap<>();
+            for (PendingCopy copy : this.copies) {
+                byTarget.put(copy.target(), copy);
+            }
+            for (PendingCopy copy : added) {
+                byTarget.put(copy.target(), copy);
+            }
+            this.copies = new ArrayList<>(byTarget.values());
+            status = PUBLISHING;
+            version++;
+        }
+    }
+
+    /**
+     * Remove manifest copies that no longer need making at commit.
+     *
+     * @param removed the copies.
+     */
+    public void removeCopies(Collection<PendingCopy> removed) {
+        synchronized (this) {
+            List<PendingCopy> updated = new ArrayList<>(this.copies);
+            updated.removeAll(removed);
+            this.copies = updated;
+            version++;
         }
     }
 
@@ -119,6 +265,7 @@ public class Transaction {
             updated.add(deleted);
             this.uriDeletes = updated;
             status = PUBLISHING;
+            version++;
         }
     }
 
@@ -128,6 +275,102 @@ public class Transaction {
             updated.addAll(deletes);
             this.uriDeletes = updated;
             status = PUBLISHING;
+            version++;
+        }
+    }
+
+    /**
+     * @return The {@link Timeline} of the phases this transaction has been through.
+     */
+    public Timeline timeline() {
+        synchronized (this) {
+            foldChanges();
+            return timeline;
+        }
+    }
+
+    /**
+     * Fold the files recorded since the last fold into the {@link #timeline}, and any {@link #uriChanged() URI
+     * changes} into the {@link #version}, so they are up to date to be serialised.
+     */
+    public void flushTimeline() {
+        synchronized (this) {
+            foldChanges();
+        }
+    }
+
+    /**
+     * Record that one of this transaction's {@link UriInfo}s has changed, such as when it is committed. This is called
+     * for every file, so it takes no lock: the {@link #version} moves on when the transaction is next flushed.
+     */
+    public void uriChanged() {
+        uriChanges.incrementAndGet();
+    }
+
+    /**
+     * Record that a phase of this transaction has just finished.
+     *
+     * @param phase         the {@link Timeline} phase name.
+     * @param durationNanos the time the phase took.
+     */
+    public void recordPhase(String phase, long durationNanos) {
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            timeline = timeline.withSpan(phase, now - durationNanos / 1_000_000, now);
+            foldChanges();
+            version++;
+        }
+    }
+
+    /**
+     * Record a single file that a phase of this transaction has just finished handling. This is called for every
+     * file, so it takes no lock: the file is counted in the phase's {@link Timeline.FileStats} and reaches the timeline
+     * when it is next read or persisted.
+     *
+     * @param phase         the {@link Timeline} phase name.
+     * @param durationNanos the time taken to handle the file.
+     * @param bytes         the size of the file, or 0 if not known.
+     */
+    public void recordFile(String phase, long durationNanos, long bytes) {
+        fileStats(phase).observe(System.currentTimeMillis(), durationNanos, bytes);
+    }
+
+    /**
+     * @param phase the {@link Timeline} phase name.
+     * @return the stats counting the files the phase handles.
+     */
+    public Timeline.FileStats fileStats(String phase) {
+        Timeline.FileStats stats = fileStats.get(phase);
+        if (stats == null) {
+            synchronized (this) {
+                stats = fileStats.get(phase);
+                if (stats == null) {
+                    stats = new Timeline.FileStats(timeline.phase(phase));
+                    if (timeline.phase(phase) == null) {
+                        // Added now so that phases stay in the order they were first recorded.
+                        timeline = timeline.withFiles(phase, stats);
+                    }
+                    fileStats.put(phase, stats);
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Callers must hold the lock on the transaction.
+     */
+    private void foldChanges() {
+        for (Map.Entry<String, Timeline.FileStats> entry : fileStats.entrySet()) {
+            if (entry.getValue().changed()) {
+                timeline = timeline.withFiles(entry.getKey(), entry.getValue());
+                version++;
+            }
+        }
+        long changes = uriChanges.get();
+        if (changes != uriChangesFolded) {
+            uriChangesFolded = changes;
+            version++;
         }
     }
 
@@ -170,27 +413,54 @@ public class Transaction {
             List<String> updated = new ArrayList<>(this.errors);
             updated.add(error);
             this.errors = updated;
+            version++;
         }
     }
 
     public void commit(boolean success) {
-        endDate = DateConverter.toString(new Date());
-        if (success) {
-            status = COMMITTED;
-        } else {
-            status = COMMIT_FAILED;
+        synchronized (this) {
+            recordEnd();
+            endDate = DateConverter.toString(new Date());
+            if (success) {
+                status = COMMITTED;
+            } else {
+                status = COMMIT_FAILED;
+            }
+            version++;
         }
     }
 
     public void rollback(boolean success) {
-        endDate = DateConverter.toString(new Date());
-        if (success) {
-            status = ROLLED_BACK;
-        } else {
-            status = ROLLBACK_FAILED;
+        synchronized (this) {
+            recordEnd();
+            endDate = DateConverter.toString(new Date());
+            if (success) {
+                status = ROLLED_BACK;
+            } else {
+                status = ROLLBACK_FAILED;
+            }
+            version++;
         }
     }
 
+    /**
+     * Close a transaction that has been abandoned by its client without being committed or rolled back.
+     */
+    public void markStale() {
+        synchronized (this) {
+            recordEnd();
+            endDate = DateConverter.toString(new Date());
+            status = STALE;
+            version++;
+        }
+    }
+
+    private void recordEnd() {
+        foldChanges();
+        long now = System.currentTimeMillis();
+        timeline = timeline.withSpan(Timeline.END, now, now);
+    }
+
     @Override
     public String toString() {
         synchronized (this) {
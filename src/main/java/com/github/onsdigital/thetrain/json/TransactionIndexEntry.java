@@ -0,0 +1,84 @@
+package com.github.onsdigital.thetrain.json;
+
+import com.github.onsdigital.thetrain.helpers.DateConverter;
+import com.github.onsdigital.thetrain.response.TransactionSummary;
+
+import java.util.Date;
+
+/**
+ * Compact record of a {@link Transaction} held in the transaction history index. Carries enough to list and filter
+ * transactions without reading each transaction's Json.
+ */
+public class TransactionIndexEntry {
+
+    private String id;
+    private String status;
+    private String startDate;
+    private String endDate;
+    private long startTime;
+    private long durationMs;
+    private int uris;
+    private int deletes;
+    private int errors;
+    private long bytes;
+    private Timeline timeline;
+
+    /**
+     * Build an index entry from the current state of a transaction.
+     *
+     * @param transaction the {@link Transaction} to index.
+     * @return the index entry.
+     */
+    public static TransactionIndexEntry of(Transaction transaction) {
+        TransactionSummary summary = TransactionSummary.of(transaction);
+
+        TransactionIndexEntry entry = new TransactionIndexEntry();
+        entry.id = summary.getId();
+        entry.status = summary.getStatus();
+        entry.startDate = transaction.startDate();
+        entry.endDate = transaction.endDate();
+        Date start = DateConverter.toDate(entry.startDate);
+        entry.startTime = start == null ? 0 : start.getTime();
+        entry.durationMs = summary.getDurationMs();
+        entry.uris = summary.getUris();
+        entry.deletes = summary.getDeletes();
+        entry.errors = summary.getErrors();
+        entry.bytes = summary.getBytes();
+        entry.timeline = summary.getTimeline();
+        return entry;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public String status() {
+        return status;
+    }
+
+    public Timeline timeline() {
+        return timeline;
+    }
+
+    /**
+     * @return the start of the transaction in milliseconds since the epoch.
+     */
+    public long startTime() {
+        return startTime;
+    }
+
+    /**
+     * @return the end of the transaction in milliseconds since the epoch, or 0 if it has not ended.
+     */
+    public long endTime() {
+        Date end = DateConverter.toDate(endDate);
+        return end == null ? 0 : end.getTime();
+    }
+
+    /**
+     * @return true if the transaction had ended when it was indexed.
+     */
+    public boolean isClosed() {
+        return !Transaction.STARTED.equals(status) && !Transaction.PUBLISHING.equals(status);
+    }
+}
@@ -52,6 +52,7 @@ public class UriInfo {
     String start;
     String end;
     long duration;
+    long size;
     String error;
 
     transient Date startDate;
@@ -102,6 +103,29 @@ public class UriInfo {
         return uri;
     }
 
+    /**
+     * @return the time in milliseconds taken to upload this URI.
+     */
+    public long duration() {
+        return duration;
+    }
+
+    /**
+     * @return the size in bytes of the content for this URI.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Set the size in bytes of the content for this URI.
+     *
+     * @param size
+     */
+    public void setSize(long size) {
+        this.size = size;
+    }
+
     /**
      * Stops this timing (only upload is timed) and updates the relevant fields.
      *
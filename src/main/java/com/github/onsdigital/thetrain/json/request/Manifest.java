@@ -14,6 +14,13 @@ public class Manifest {
         urisToDelete.add(uri);
     }
 
+    public void addFileToCopy(String sourceUri, String targetUri) {
+        if (filesToCopy == null)
+            filesToCopy = new ArrayList<>();
+
+        filesToCopy.add(new FileCopy(sourceUri, targetUri));
+    }
+
     public List<String> getUrisToDelete() {
         return this.urisToDelete;
     }
@@ -0,0 +1,203 @@
+package com.github.onsdigital.thetrain.logging;
+
+import com.github.onsdigital.thetrain.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Logging for the events written once per file on the publishing hot path. On a large publish these add up to a
+ * noticeable share of the time spent, so how they are logged is selected at runtime by the {@link LogMode}:
+ * <ul>
+ * <li>{@link LogMode#FULL} - each event is logged on the calling thread, as for any other event.</li>
+ * <li>{@link LogMode#ASYNC} - events are queued and logged in batches on a background thread. If the queue is full
+ * the event is logged on the calling thread rather than dropped.</li>
+ * <li>{@link LogMode#SUMMARY} - events are counted per transaction and the counts logged in one event by
+ * {@link #summarise(String)} when the transaction ends. Only transactions that are {@link #open(String) open} are
+ * counted: events for any other transaction, such as one read back from disk after it has ended, are logged in full
+ * so nothing is kept for a transaction that will not end again.</li>
+ * </ul>
+ * Only informational events go through here. Errors are always logged in full on the calling thread.
+ */
+public class HotPathLog {
+
+    static final int QUEUE_CAPACITY = 10000;
+    static final int BATCH_SIZE = 500;
+    static final String SUMMARY_LOG = "hot path log summary";
+
+    private static final BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final Map<String, Map<String, LongAdder>> summaries = new ConcurrentHashMap<>();
+    private static volatile LogMode mode = LogMode.FULL;
+    private static Thread writer;
+
+    static {
+        Metrics.get().gauge("train_hot_path_log_queue_depth", "Hot path log events waiting to be written",
+                queue::size);
+    }
+
+    /**
+     * @return the current mode.
+     */
+    public static LogMode mode() {
+        return mode;
+    }
+
+    /**
+     * Change how hot path events are logged. Events already queued are written before this returns if the new mode
+     * is not {@link LogMode#ASYNC}.
+     *
+     * @param newMode the mode to use from now on.
+     */
+    public static void setMode(LogMode newMode) {
+        LogMode previous = mode;
+        mode = newMode;
+        if (newMode == LogMode.ASYNC) {
+            startWriter();
+        } else {
+            flush();
+        }
+        TrainEvent.info().data("previous", previous.name()).data("mode", newMode.name())
+                .log("hot path log mode changed");
+    }
+
+    /**
+     * Log a hot path event with no data beyond the transaction ID.
+     *
+     * @param transactionId the transaction the event is for.
+     * @param message       the event message.
+     */
+    public static void info(String transactionId, String message) {
+        info(transactionId, message, () -> TrainEvent.info().transactionID(transactionId));
+    }
+
+    /**
+     * Log a hot path event. The event is only built if it is going to be logged.
+     *
+     * @param transactionId the transaction the event is for, used to group the counts in {@link LogMode#SUMMARY}.
+     * @param message       the event message.
+     * @param event         builds the event to log.
+     */
+    public static void info(String transactionId, String message, Supplier<TrainEvent> event) {
+        switch (mode) {
+            case SUMMARY:
+                Map<String, LongAdder> counts = transactionId == null ? null : summaries.get(transactionId);
+                if (counts != null) {
+                    counts.computeIfAbsent(message, m -> new LongAdder()).increment();
+                    return;
+                }
+                event.get().log(message);
+                return;
+            case ASYNC:
+                Pending pending = new Pending(event.get(), message);
+                if (!queue.offer(pending)) {
+                    pending.log();
+                }
+                return;
+            default:
+                event.get().log(message);
+        }
+    }
+
+    /**
+     * Start counting the hot path events for a transaction, until it is {@link #summarise(String) summarised}.
+     *
+     * @param transactionId the transaction that has been created or read back into memory.
+     */
+    public static void open(String transactionId) {
+        summaries.putIfAbsent(transactionId, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Log the counts of the hot path events for a transaction, if any were counted, and forget them.
+     *
+     * @param transactionId the transaction that has ended.
+     */
+    public static void summarise(String transactionId) {
+        Map<String, LongAdder> counts = summaries.remove(transactionId);
+        if (counts != null && !counts.isEmpty()) {
+            TrainEvent.info().transactionID(transactionId).data("events", totals(counts)).log(SUMMARY_LOG);
+        }
+    }
+
+    /**
+     * Write any queued events on the calling thread.
+     */
+    public static void flush() {
+        List<Pending> batch = new ArrayList<>();
+        while (queue.drainTo(batch, BATCH_SIZE) > 0) {
+            batch.forEach(Pending::log);
+            batch.clear();
+        }
+    }
+
+    /**
+     * @return the counts so far for a transaction in {@link LogMode#SUMMARY}, by message.
+     */
+    static Map<String, Long> counts(String transactionId) {
+        Map<String, LongAdder> counts = summaries.get(transactionId);
+        return counts == null ? new TreeMap<>() : totals(counts);
+    }
+
+    /**
+     * @return the number of events waiting to be written in {@link LogMode#ASYNC}.
+     */
+    static int queued() {
+        return queue.size();
+    }
+
+    private static Map<String, Long> totals(Map<String, LongAdder> counts) {
+        Map<String, Long> totals = new TreeMap<>();
+        counts.forEach((message, count) -> totals.put(message, count.sum()));
+        return totals;
+    }
+
+    private static synchronized void startWriter() {
+        if (writer != null) {
+            return;
+        }
+        writer = new Thread(HotPathLog::write, "hot-path-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(HotPathLog::flush, "hot-path-log-flush"));
+    }
+
+    private static void write() {
+        List<Pending> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                batch.forEach(Pending::log);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                TrainEvent.error().exception(e).log("hot path log writer failed to write an event");
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private static class Pending {
+
+        private final TrainEvent event;
+        private final String message;
+
+        Pending(TrainEvent event, String message) {
+            this.event = event;
+            this.message = message;
+        }
+
+        void log() {
+            event.log(message);
+        }
+    }
+}
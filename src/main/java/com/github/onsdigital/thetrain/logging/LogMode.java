@@ -0,0 +1,40 @@
+package com.github.onsdigital.thetrain.logging;
+
+import java.util.Locale;
+
+/**
+ * How the per-file events on the publishing hot path are logged. See {@link HotPathLog}.
+ */
+public enum LogMode {
+
+    /**
+     * Log every event on the calling thread.
+     */
+    FULL,
+
+    /**
+     * Log every event, serialising and writing them in batches on a background thread.
+     */
+    ASYNC,
+
+    /**
+     * Count events per transaction and log the totals in a single event when the transaction ends.
+     */
+    SUMMARY;
+
+    /**
+     * @param value the mode name, in any case.
+     * @return the mode.
+     * @throws IllegalArgumentException if the value is not a mode.
+     */
+    public static LogMode parse(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("log mode expected but was null");
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown log mode: " + value, e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.onsdigital.thetrain.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link Metric} that only ever increases.
+ */
+public class Counter implements Metric {
+
+    private final String name;
+    private final String help;
+    private final LongAdder count;
+
+    Counter(String name, String help) {
+        this.name = name;
+        this.help = help;
+        this.count = new LongAdder();
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String help() {
+        return help;
+    }
+
+    @Override
+    public String type() {
+        return "counter";
+    }
+
+    /**
+     * Increment the counter by 1.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Increment the counter.
+     *
+     * @param amount the amount to add. Must not be negative.
+     */
+    public void increment(long amount) {
+        count.add(amount);
+    }
+
+    /**
+     * @return the current count.
+     */
+    public long value() {
+        return count.sum();
+    }
+
+    @Override
+    public void write(StringBuilder out) {
+        out.append(name).append(' ').append(value()).append('\n');
+    }
+}
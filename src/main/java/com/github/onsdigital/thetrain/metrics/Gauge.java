@@ -0,0 +1,46 @@
+package com.github.onsdigital.thetrain.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * A {@link Metric} whose value is read from a supplier each time the metrics are scraped.
+ */
+public class Gauge implements Metric {
+
+    private final String name;
+    private final String help;
+    private final DoubleSupplier supplier;
+
+    Gauge(String name, String help, DoubleSupplier supplier) {
+        this.name = name;
+        this.help = help;
+        this.supplier = supplier;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String help() {
+        return help;
+    }
+
+    @Override
+    public String type() {
+        return "gauge";
+    }
+
+    /**
+     * @return the current value of the gauge.
+     */
+    public double value() {
+        return supplier.getAsDouble();
+    }
+
+    @Override
+    public void write(StringBuilder out) {
+        out.append(name).append(' ').append(Metrics.format(value())).append('\n');
+    }
+}
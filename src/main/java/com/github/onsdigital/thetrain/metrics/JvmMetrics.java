@@ -0,0 +1,71 @@
+package com.github.onsdigital.thetrain.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Registers JVM heap, thread and garbage collection metrics read from the platform MXBeans when scraped.
+ */
+public class JvmMetrics {
+
+    private JvmMetrics() {
+        // static methods only.
+    }
+
+    /**
+     * Register the JVM metrics.
+     *
+     * @param metrics the registry to add them to.
+     */
+    public static void register(Metrics metrics) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        metrics.gauge("jvm_memory_heap_used_bytes", "Used heap memory",
+                () -> memory.getHeapMemoryUsage().getUsed());
+        metrics.gauge("jvm_memory_heap_committed_bytes", "Committed heap memory",
+                () -> memory.getHeapMemoryUsage().getCommitted());
+        metrics.gauge("jvm_memory_heap_max_bytes", "Maximum heap memory, -1 if undefined",
+                () -> memory.getHeapMemoryUsage().getMax());
+        metrics.gauge("jvm_memory_nonheap_used_bytes", "Used non-heap memory",
+                () -> memory.getNonHeapMemoryUsage().getUsed());
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        metrics.gauge("jvm_threads_live", "Live threads, including daemon threads", threads::getThreadCount);
+        metrics.gauge("jvm_threads_daemon", "Live daemon threads", threads::getDaemonThreadCount);
+
+        metrics.register(new GarbageCollection());
+    }
+
+    /**
+     * Collection counts and time per garbage collector, as a summary labelled by collector name.
+     */
+    static class GarbageCollection implements Metric {
+
+        @Override
+        public String name() {
+            return "jvm_gc_collection_seconds";
+        }
+
+        @Override
+        public String help() {
+            return "Time spent in garbage collection, by collector";
+        }
+
+        @Override
+        public String type() {
+            return "summary";
+        }
+
+        @Override
+        public void write(StringBuilder out) {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                String label = "{gc=\"" + gc.getName() + "\"}";
+                out.append(name()).append("_count").append(label).append(' ')
+                        .append(Math.max(0, gc.getCollectionCount())).append('\n');
+                out.append(name()).append("_sum").append(label).append(' ')
+                        .append(Metrics.format(Math.max(0, gc.getCollectionTime()) / 1000.0)).append('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.onsdigital.thetrain.metrics;
+
+/**
+ * Defines a single named metric that can be written in the Prometheus text exposition format.
+ */
+public interface Metric {
+
+    /**
+     * @return the metric name.
+     */
+    String name();
+
+    /**
+     * @return a description of what the metric measures.
+     */
+    String help();
+
+    /**
+     * @return the Prometheus metric type e.g. gauge, counter, histogram.
+     */
+    String type();
+
+    /**
+     * Write the sample lines for this metric (excluding the HELP and TYPE lines).
+     *
+     * @param out the {@link StringBuilder} to write to.
+     */
+    void write(StringBuilder out);
+}
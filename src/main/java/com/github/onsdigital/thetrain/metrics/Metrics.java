@@ -0,0 +1,111 @@
+package com.github.onsdigital.thetrain.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Registry of the application {@link Metric}s. Metrics is a lazy loaded singleton - use {@link #get()}.
+ */
+public class Metrics {
+
+    private static Metrics INSTANCE = null;
+
+    private final Map<String, Metric> metrics;
+
+    Metrics() {
+        this.metrics = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * @return the singleton metrics registry.
+     */
+    public static Metrics get() {
+        if (INSTANCE == null) {
+            synchronized (Metrics.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new Metrics();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Register a gauge. Registering a gauge with the same name as an existing metric replaces it - this allows
+     * components to be re-initialised (e.g. in tests) without leaking stale values.
+     *
+     * @param name     the metric name.
+     * @param help     a description of the metric.
+     * @param supplier supplies the current value whenever the metrics are scraped.
+     * @return the registered {@link Gauge}.
+     */
+    public Gauge gauge(String name, String help, DoubleSupplier supplier) {
+        Gauge gauge = new Gauge(name, help, supplier);
+        metrics.put(name, gauge);
+        return gauge;
+    }
+
+    /**
+     * Get the counter registered with the name, registering a new one if none exists. Counters are shared so that
+     * counts survive components being re-initialised.
+     *
+     * @param name the metric name.
+     * @param help a description of the metric.
+     * @return the {@link Counter}.
+     */
+    public Counter counter(String name, String help) {
+        return (Counter) metrics.computeIfAbsent(name, n -> new Counter(n, help));
+    }
+
+    /**
+     * Get the histogram registered with the name, registering a new one if none exists. Like counters, histograms are
+     * shared so that observations survive components being re-initialised.
+     *
+     * @param name       the metric name.
+     * @param help       a description of the metric.
+     * @param buckets    the upper bounds of the buckets, in ascending order.
+     * @param labelNames the names of the labels each observation is split by, if any.
+     * @return the {@link Histogram}.
+     */
+    public Histogram histogram(String name, String help, double[] buckets, String... labelNames) {
+        return (Histogram) metrics.computeIfAbsent(name, n -> new Histogram(n, help, buckets, labelNames));
+    }
+
+    /**
+     * Register a metric that writes its own samples, replacing any existing metric with the same name.
+     *
+     * @param metric the {@link Metric}.
+     */
+    public void register(Metric metric) {
+        metrics.put(metric.name(), metric);
+    }
+
+    /**
+     * @param name the metric name.
+     * @return the metric registered with the name, or null if none exists.
+     */
+    public Metric metric(String name) {
+        return metrics.get(name);
+    }
+
+    /**
+     * @return all registered metrics in the Prometheus text exposition format.
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+        for (Metric metric : metrics.values()) {
+            out.append("# HELP ").append(metric.name()).append(' ').append(metric.help()).append('\n');
+            out.append("# TYPE ").append(metric.name()).append(' ').append(metric.type()).append('\n');
+            metric.write(out);
+        }
+        return out.toString();
+    }
+
+    static String format(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
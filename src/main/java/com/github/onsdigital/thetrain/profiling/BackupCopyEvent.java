@@ -0,0 +1,14 @@
+package com.github.onsdigital.thetrain.profiling;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Existing website content copied into the backup of a transaction, as a {@link PublishEvent}.
+ */
+@Name("thetrain.BackupCopy")
+@Label("Backup Copy")
+@Description("Existing website content copied into the backup of a transaction")
+public class BackupCopyEvent extends PublishEvent {
+}
@@ -0,0 +1,14 @@
+package com.github.onsdigital.thetrain.profiling;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A file copied from a transaction to the website, as a {@link PublishEvent}.
+ */
+@Name("thetrain.CommitFile")
+@Label("Commit File")
+@Description("A file copied from a transaction to the website")
+public class CommitFileEvent extends PublishEvent {
+}
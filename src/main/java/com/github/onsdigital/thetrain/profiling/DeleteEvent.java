@@ -0,0 +1,14 @@
+package com.github.onsdigital.thetrain.profiling;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A directory deleted from the website when a transaction is committed, as a {@link PublishEvent}.
+ */
+@Name("thetrain.Delete")
+@Label("Delete")
+@Description("A directory deleted from the website when a transaction is committed")
+public class DeleteEvent extends PublishEvent {
+}
@@ -0,0 +1,108 @@
+package com.github.onsdigital.thetrain.profiling;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
+
+/**
+ * Starts and stops a Java Flight Recorder recording of the running service, including the {@link PublishEvent}s.
+ * Only one recording runs at a time. Recordings are written to {@value #RECORDINGS_DIR} under the transaction store
+ * when they are stopped.
+ * <p>
+ * The JDK's <i>default</i> settings are used, which are designed to be left running in production.
+ */
+public class FlightRecordings {
+
+    static final String RECORDINGS_DIR = ".recordings";
+    static final String SETTINGS = "default";
+
+    static final List<Class<? extends PublishEvent>> EVENTS = Arrays.asList(TransactionCreateEvent.class,
+            UploadEvent.class, ZipEntryWriteEvent.class, BackupCopyEvent.class, CommitFileEvent.class,
+            DeleteEvent.class, TransactionPersistEvent.class);
+
+    private static Recording recording;
+    private static Path destination;
+
+    /**
+     * Start a recording.
+     *
+     * @param transactionStore the transaction store directory.
+     * @return the file the recording will be written to when it is stopped.
+     * @throws IOException           error creating the recordings directory or starting the recording.
+     * @throws IllegalStateException if a recording is already running or flight recorder is not available.
+     */
+    public static synchronized Path start(Path transactionStore) throws IOException {
+        if (recording != null) {
+            throw new IllegalStateException("a flight recording is already running: " + destination);
+        }
+        if (!FlightRecorder.isAvailable()) {
+            throw new IllegalStateException("flight recorder is not available in this JVM");
+        }
+
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(SETTINGS);
+        } catch (ParseException e) {
+            throw new IOException("error reading flight recorder settings: " + SETTINGS, e);
+        }
+
+        for (Class<? extends PublishEvent> event : EVENTS) {
+            FlightRecorder.register(event);
+        }
+
+        Path dir = Files.createDirectories(transactionStore.resolve(RECORDINGS_DIR));
+        Path path = dir.resolve("the-train-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".jfr");
+
+        Recording started = new Recording(configuration);
+        started.setName("the-train");
+        started.setToDisk(true);
+        started.setDestination(path);
+        started.start();
+
+        recording = started;
+        destination = path;
+        info().data("path", path.toString()).log("flight recording started");
+        return path;
+    }
+
+    /**
+     * Stop the running recording and write it to disk.
+     *
+     * @return the file the recording was written to.
+     * @throws IllegalStateException if no recording is running.
+     */
+    public static synchronized Path stop() {
+        if (recording == null) {
+            throw new IllegalStateException("no flight recording is running");
+        }
+
+        Path path = destination;
+        try {
+            recording.stop();
+        } finally {
+            recording.close();
+            recording = null;
+            destination = null;
+        }
+        info().data("path", path.toString()).log("flight recording stopped");
+        return path;
+    }
+
+    /**
+     * @return true if a recording is running.
+     */
+    public static synchronized boolean isRecording() {
+        return recording != null;
+    }
+}
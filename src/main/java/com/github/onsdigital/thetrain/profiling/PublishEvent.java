@@ -0,0 +1,46 @@
+package com.github.onsdigital.thetrain.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base for the Java Flight Recorder events emitted on the publishing hot paths. Each event is begun where the work
+ * starts and {@link #record recorded} where it ends, so the recording holds its duration along with the transaction,
+ * URI and bytes involved.
+ * <p>
+ * Outside a recording the events are disabled and creating, beginning and recording one costs next to nothing.
+ */
+@Category({"The Train", "Publishing"})
+@StackTrace(false)
+public abstract class PublishEvent extends Event {
+
+    @Label("Transaction ID")
+    String transactionId;
+
+    @Label("URI")
+    String uri;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    /**
+     * End the event and commit it to the recording, if one is running.
+     *
+     * @param transactionId the ID of the transaction the work was for.
+     * @param uri           the URI the work was for, or null if not specific to a URI.
+     * @param bytes         the bytes handled, or 0 if not known.
+     */
+    public void record(String transactionId, String uri, long bytes) {
+        end();
+        if (shouldCommit()) {
+            this.transactionId = transactionId;
+            this.uri = uri;
+            this.bytes = bytes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.github.onsdigital.thetrain.profiling;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.onsdigital.thetrain.json.TraceEntry;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
+import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
+
+/**
+ * Captures the sequence of publishing API requests as a trace that can be replayed against another train by the
+ * load test. Each request to one of the {@link #ROUTES} is written as a line of Json (a {@link TraceEntry}) to a file
+ * in {@value #TRACES_DIR} under the transaction store. Only one trace runs at a time.
+ * <p>
+ * Routes describe what they were sent by setting the request attributes defined here. Nothing is captured unless a
+ * trace is running.
+ */
+public class PublishTrace {
+
+    static final String TRACES_DIR = ".traces";
+
+    public static final String TRANSACTION_ID_ATTRIBUTE = "train.trace.transactionId";
+    public static final String FILES_ATTRIBUTE = "train.trace.files";
+    public static final String BYTES_ATTRIBUTE = "train.trace.bytes";
+    public static final String COPIES_ATTRIBUTE = "train.trace.copies";
+    public static final String DELETES_ATTRIBUTE = "train.trace.deletes";
+
+    /**
+     * The routes captured in a trace.
+     */
+    public static final Set<String> ROUTES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "/begin", "/publish", "/CommitManifest", "/prepare", "/commit", "/rollback")));
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    static {
+        OBJECT_MAPPER.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        OBJECT_MAPPER.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+    }
+
+    private static volatile boolean tracing;
+    private static BufferedWriter writer;
+    private static Path destination;
+    private static int entries;
+
+    /**
+     * Start a trace.
+     *
+     * @param transactionStore the transaction store directory.
+     * @return the file the trace is written to.
+     * @throws IOException           error creating the trace file.
+     * @throws IllegalStateException if a trace is already running.
+     */
+    public static synchronized Path start(Path transactionStore) throws IOException {
+        if (tracing) {
+            throw new IllegalStateException("a publish trace is already running: " + destination);
+        }
+
+        Path dir = Files.createDirectories(transactionStore.resolve(TRACES_DIR));
+        Path path = dir.resolve("trace-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".jsonl");
+
+        writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        destination = path;
+        entries = 0;
+        tracing = true;
+        info().data("path", path.toString()).log("publish trace started");
+        return path;
+    }
+
+    /**
+     * Stop the running trace.
+     *
+     * @return the file the trace was written to.
+     * @throws IllegalStateException if no trace is running.
+     */
+    public static synchronized Path stop() {
+        if (!tracing) {
+            throw new IllegalStateException("no publish trace is running");
+        }
+
+        Path path = destination;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            error().data("path", path.toString()).exception(e).log("error closing publish trace");
+        } finally {
+            tracing = false;
+            writer = null;
+            destination = null;
+        }
+        info().data("path", path.toString()).data("entries", entries).log("publish trace stopped");
+        return path;
+    }
+
+    /**
+     * @return true if a trace is running.
+     */
+    public static boolean isTracing() {
+        return tracing;
+    }
+
+    /**
+     * Append an entry to the running trace. Does nothing if no trace is running.
+     *
+     * @param entry the request to record.
+     */
+    public static synchronized void record(TraceEntry entry) {
+        if (!tracing) {
+            return;
+        }
+
+        try {
+            writer.write(OBJECT_MAPPER.writeValueAsString(entry));
+            writer.newLine();
+            entries++;
+        } catch (IOException e) {
+            error().transactionID(entry.transactionId()).data("path", destination.toString()).exception(e)
+                    .log("error writing to publish trace");
+        }
+    }
+
+    /**
+     * Read a trace entry.
+     *
+     * @param line a line of a trace file.
+     * @return the entry.
+     * @throws IOException if the line is not a trace entry.
+     */
+    public static TraceEntry parse(String line) throws IOException {
+        return OBJECT_MAPPER.readValue(line, TraceEntry.class);
+    }
+}
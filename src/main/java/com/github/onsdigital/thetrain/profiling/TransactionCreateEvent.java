@@ -0,0 +1,14 @@
+package com.github.onsdigital.thetrain.profiling;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A new transaction and its directories created, as a {@link PublishEvent}.
+ */
+@Name("thetrain.TransactionCreate")
+@Label("Transaction Create")
+@Description("A new transaction and its directories created")
+public class TransactionCreateEvent extends PublishEvent {
+}
@@ -0,0 +1,14 @@
+package com.github.onsdigital.thetrain.profiling;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The transaction Json written to disk, as a {@link PublishEvent}.
+ */
+@Name("thetrain.TransactionPersist")
+@Label("Transaction Persist")
+@Description("The transaction Json written to disk")
+public class TransactionPersistEvent extends PublishEvent {
+}
@@ -0,0 +1,14 @@
+package com.github.onsdigital.thetrain.profiling;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A single uploaded file written into a transaction, as a {@link PublishEvent}.
+ */
+@Name("thetrain.Upload")
+@Label("Upload")
+@Description("A single uploaded file written into a transaction")
+public class UploadEvent extends PublishEvent {
+}
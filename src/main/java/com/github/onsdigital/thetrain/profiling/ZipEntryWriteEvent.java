@@ -0,0 +1,14 @@
+package com.github.onsdigital.thetrain.profiling;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * An entry of an uploaded zip written into a transaction, as a {@link PublishEvent}.
+ */
+@Name("thetrain.ZipEntryWrite")
+@Label("Zip Entry Write")
+@Description("An entry of an uploaded zip written into a transaction")
+public class ZipEntryWriteEvent extends PublishEvent {
+}
@@ -0,0 +1,144 @@
+package com.github.onsdigital.thetrain.response;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * POJO containing a single page of a (potentially very large) list, usually one belonging to a
+ * {@link com.github.onsdigital.thetrain.json.Transaction}. Pass {@link #getNextCursor()} back as the cursor to get
+ * the following page. A null next cursor means there are no more items.
+ *
+ * @param <T> the type of the items in the page.
+ */
+public class Page<T> {
+
+    private String transactionId;
+    private String view;
+    private int total;
+    private int limit;
+    private List<T> items;
+    private String nextCursor;
+
+    private Page(String transactionId, String view, int total, int limit, List<T> items, String nextCursor) {
+        this.transactionId = transactionId;
+        this.view = view;
+        this.total = total;
+        this.limit = limit;
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Create a page that has already been cut from a list not belonging to a single transaction.
+     *
+     * @param view       the name of the list.
+     * @param total      the number of items in the whole list.
+     * @param limit      the maximum number of items in the page.
+     * @param items      the items in the page.
+     * @param nextCursor the cursor for the following page, or null if there are no more items.
+     * @param <T>        the type of the items.
+     * @return the page.
+     */
+    public static <T> Page<T> of(String view, int total, int limit, List<T> items, String nextCursor) {
+        return new Page<>(null, view, total, limit, items, nextCursor);
+    }
+
+    /**
+     * Create a page from a list with a unique key per item. The cursor is the key of the last item returned, which
+     * means the position is stable even if items are added to the list between requests.
+     *
+     * @param transactionId the transaction the list belongs to.
+     * @param view          the name of the list.
+     * @param items         the items to page through.
+     * @param key           function returning the unique key of an item.
+     * @param cursor        the key of the last item from the previous page, or null for the first page.
+     * @param limit         the maximum number of items in the page.
+     * @param <T>           the type of the items.
+     * @return the requested page.
+     */
+    public static <T> Page<T> keyed(String transactionId, String view, Iterable<T> items, Function<T, String> key,
+                                    String cursor, int limit) {
+        List<T> sorted = new ArrayList<>();
+        for (T item : items) {
+            sorted.add(item);
+        }
+        sorted.sort((a, b) -> compare(key.apply(a), key.apply(b)));
+
+        int from = 0;
+        if (cursor != null) {
+            while (from < sorted.size() && compare(key.apply(sorted.get(from)), cursor) <= 0) {
+                from++;
+            }
+        }
+
+        int to = Math.min(sorted.size(), from + limit);
+        List<T> page = new ArrayList<>(sorted.subList(from, to));
+        String next = to < sorted.size() && !page.isEmpty() ? key.apply(page.get(page.size() - 1)) : null;
+        return new Page<>(transactionId, view, sorted.size(), limit, page, next);
+    }
+
+    /**
+     * Create a page from an append-only list. The cursor is the offset of the next item.
+     *
+     * @param transactionId the transaction the list belongs to.
+     * @param view          the name of the list.
+     * @param items         the items to page through.
+     * @param cursor        the offset returned with the previous page, or null for the first page.
+     * @param limit         the maximum number of items in the page.
+     * @param <T>           the type of the items.
+     * @return the requested page.
+     * @throws IllegalArgumentException if the cursor is not a valid offset.
+     */
+    public static <T> Page<T> indexed(String transactionId, String view, List<T> items, String cursor, int limit) {
+        int from = 0;
+        if (cursor != null) {
+            try {
+                from = Integer.parseInt(cursor);
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("invalid cursor: " + cursor, ex);
+            }
+            if (from < 0) {
+                throw new IllegalArgumentException("invalid cursor: " + cursor);
+            }
+        }
+
+        from = Math.min(from, items.size());
+        int to = Math.min(items.size(), from + limit);
+        List<T> page = new ArrayList<>(items.subList(from, to));
+        String next = to < items.size() ? String.valueOf(to) : null;
+        return new Page<>(transactionId, view, items.size(), limit, page, next);
+    }
+
+    private static int compare(String a, String b) {
+        if (a == null) {
+            return b == null ? 0 : -1;
+        }
+        return b == null ? 1 : a.compareTo(b);
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public String getView() {
+        return view;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public List<T> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.onsdigital.thetrain.response;
+
+import com.github.onsdigital.thetrain.helpers.DateConverter;
+import com.github.onsdigital.thetrain.json.Timeline;
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.UriInfo;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * POJO summarising a {@link Transaction} without the (potentially very large) URI, delete and error collections.
+ */
+public class TransactionSummary {
+
+    private String id;
+    private String status;
+    private long version;
+    private String startDate;
+    private String endDate;
+    private long durationMs;
+    private int uris;
+    private int deletes;
+    private int errors;
+    private TreeMap<String, Integer> urisByStatus = new TreeMap<>();
+    private TreeMap<String, Integer> urisByAction = new TreeMap<>();
+    private long bytes;
+    private long totalUploadMs;
+    private long maxUploadMs;
+    private Timeline timeline;
+
+    /**
+     * Build a summary of the current state of the transaction.
+     *
+     * @param transaction the {@link Transaction} to summarise.
+     * @return the summary.
+     */
+    public static TransactionSummary of(Transaction transaction) {
+        TransactionSummary summary = new TransactionSummary();
+        summary.id = transaction.id();
+        summary.status = transaction.getStatus();
+        summary.version = transaction.version();
+        summary.startDate = transaction.startDate();
+        summary.endDate = transaction.endDate();
+        summary.durationMs = duration(transaction.startDate(), transaction.endDate());
+
+        Set<UriInfo> uriInfos = transaction.uris();
+        summary.uris = uriInfos.size();
+        summary.deletes = transaction.urisToDelete().size();
+        summary.errors = transaction.errors().size();
+
+        for (UriInfo uriInfo : uriInfos) {
+            increment(summary.urisByStatus, uriInfo.status());
+            increment(summary.urisByAction, uriInfo.action());
+            summary.bytes += uriInfo.size();
+            summary.totalUploadMs += uriInfo.duration();
+            summary.maxUploadMs = Math.max(summary.maxUploadMs, uriInfo.duration());
+        }
+        summary.timeline = transaction.timeline().withoutLatencies();
+        return summary;
+    }
+
+    private static void increment(TreeMap<String, Integer> counts, String key) {
+        counts.merge(key == null ? "unknown" : key, 1, Integer::sum);
+    }
+
+    private static long duration(String start, String end) {
+        Date startDate = DateConverter.toDate(start);
+        if (startDate == null) {
+            return 0;
+        }
+        Date endDate = DateConverter.toDate(end);
+        if (endDate == null) {
+            endDate = new Date();
+        }
+        return endDate.getTime() - startDate.getTime();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public int getUris() {
+        return uris;
+    }
+
+    public int getDeletes() {
+        return deletes;
+    }
+
+    public int getErrors() {
+        return errors;
+    }
+
+    public TreeMap<String, Integer> getUrisByStatus() {
+        return urisByStatus;
+    }
+
+    public TreeMap<String, Integer> getUrisByAction() {
+        return urisByAction;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getTotalUploadMs() {
+        return totalUploadMs;
+    }
+
+    public long getMaxUploadMs() {
+        return maxUploadMs;
+    }
+
+    public Timeline getTimeline() {
+        return timeline;
+    }
+}
@@ -7,6 +7,8 @@ import com.github.onsdigital.thetrain.helpers.uploads.CloseablePart;
 import com.github.onsdigital.thetrain.helpers.uploads.CloseablePartSupplier;
 import com.github.onsdigital.thetrain.json.Result;
 import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.logging.HotPathLog;
+import com.github.onsdigital.thetrain.profiling.PublishTrace;
 import com.github.onsdigital.thetrain.service.PublisherService;
 import com.github.onsdigital.thetrain.service.TransactionsService;
 import com.github.onsdigital.thetrain.storage.TransactionUpdate;
@@ -25,8 +27,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Date;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
+import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
 import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
 
 public class AddFileToTransaction extends BaseHandler {
@@ -64,9 +70,8 @@ public class AddFileToTransaction extends BaseHandler {
             transactionsService.tryUpdateAsync(transaction);
         }
 
-        info().transactionID(transaction.id())
-                .data("uri", uri)
-                .log("file added to publish transaction successfully");
+        HotPathLog.info(transaction.id(), "file added to publish transaction successfully",
+                () -> info().transactionID(transaction.id()).data("uri", uri));
 
         return new Result("Published to " + uri, false, transaction);
     }
@@ -76,16 +81,20 @@ public class AddFileToTransaction extends BaseHandler {
      */
     private void handleZipRequest(Request request, Transaction transaction, String uri) throws PublishException,
             BadRequestException {
-        info().transactionID(transaction.id()).data("uri", uri).log("attempting to add zip files to transactions");
+        HotPathLog.info(transaction.id(), "attempting to add zip files to transactions",
+                () -> info().transactionID(transaction.id()).data("uri", uri));
 
         Path zipPath = writeZipToTransaction(request, transaction, uri);
         boolean isSuccess = extractZipContentIntoTransaction(zipPath, transaction, uri);
+        if (PublishTrace.isTracing()) {
+            describeZip(request, zipPath);
+        }
 
         if (!isSuccess) {
             throw new PublishException("error adding zipped files to transaction", transaction, HttpStatus.SC_INTERNAL_SERVER_ERROR);
         }
 
-        info().log("succcessfully added zip content to transaction");
+        HotPathLog.info(transaction.id(), "succcessfully added zip content to transaction");
     }
 
     private Path writeZipToTransaction(Request request, Transaction transaction, String uri) throws BadRequestException,
@@ -123,7 +132,8 @@ public class AddFileToTransaction extends BaseHandler {
     private void handleNonZipRequest(Request request, Transaction transaction, String uri, Date startDate)
             throws BadRequestException, PublishException {
         boolean isSuccess = false;
-        info().transactionID(transaction.id()).data("uri", uri).log("attempting to add single file to transactions");
+        HotPathLog.info(transaction.id(), "attempting to add single file to transactions",
+                () -> info().transactionID(transaction.id()).data("uri", uri));
         try (
                 CloseablePart closeablePart = filePartSupplier.getFilePart(request, transaction);
                 InputStream data = closeablePart.getInputStream();
@@ -132,6 +142,8 @@ public class AddFileToTransaction extends BaseHandler {
             TransactionUpdate update = publisherService.addContentToTransaction(transaction, uri, bis, startDate);
             isSuccess = update.isSuccess();
             transaction.addUri(update.getUriInfo());
+            request.attribute(PublishTrace.FILES_ATTRIBUTE, 1);
+            request.attribute(PublishTrace.BYTES_ATTRIBUTE, update.getUriInfo().size());
 
         } catch (BadRequestException e) {
             // re-throw
@@ -145,7 +157,31 @@ public class AddFileToTransaction extends BaseHandler {
             throw new PublishException(ADD_FILE_ERR_MSG, transaction, HttpStatus.SC_INTERNAL_SERVER_ERROR);
         }
 
-        info().transactionID(transaction.id()).data("uri", uri).log("file successfully added to transaction");
+        HotPathLog.info(transaction.id(), "file successfully added to transaction",
+                () -> info().transactionID(transaction.id()).data("uri", uri));
+    }
+
+    /**
+     * Record the number and uncompressed size of the zip entries for the publish trace. Read from the zip's central
+     * directory, so the entries are not decompressed again.
+     */
+    private void describeZip(Request request, Path zipPath) {
+        int files = 0;
+        long bytes = 0;
+        try (ZipFile zip = new ZipFile(zipPath.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory()) {
+                    files++;
+                    bytes += Math.max(0, entry.getSize());
+                }
+            }
+        } catch (IOException ex) {
+            error().data("path", zipPath.toString()).exception(ex).log("error reading zip entries for publish trace");
+        }
+        request.attribute(PublishTrace.FILES_ATTRIBUTE, files);
+        request.attribute(PublishTrace.BYTES_ATTRIBUTE, bytes);
     }
 
     private Path createZipFileInTransaction(Transaction transaction, String uri) throws PublishException {
@@ -7,12 +7,15 @@ import org.apache.commons.lang3.StringUtils;
 import spark.Request;
 import spark.Route;
 
+import static java.lang.String.format;
+
 public abstract class BaseHandler implements Route {
 
     static final String TRANSACTON_ID_MISSING_ERR = "transactionID required but none provided";
     static final String URI_MISSING_ERR = "uri required but none provided";
     static final String MANIFEST_ERR = "error getting manifest from request body";
     static final String MANIFEST_MISSING_ERR = "manifest required but was null";
+    static final String INVALID_LIMIT_ERR = "invalid page limit: %s";
 
     public static final String TRANSACTION_ID_KEY = "transactionId";
 
@@ -22,6 +25,14 @@ public abstract class BaseHandler implements Route {
 
     public static final String SHA1_KEY = "sha1";
 
+    static final String CURSOR_KEY = "cursor";
+
+    static final String LIMIT_KEY = "limit";
+
+    static final int DEFAULT_PAGE_LIMIT = 1000;
+
+    static final int MAX_PAGE_LIMIT = 10000;
+
     protected Gson gson = new Gson();
 
     protected String getURI(Request request) throws BadRequestException {
@@ -49,4 +60,25 @@ public abstract class BaseHandler implements Route {
         return manifest;
     }
 
+    protected String getParameter(Request request, String key) {
+        return request.raw() == null ? null : request.raw().getParameter(key);
+    }
+
+    protected int getLimit(Request request) throws BadRequestException {
+        String value = getParameter(request, LIMIT_KEY);
+        if (StringUtils.isEmpty(value)) {
+            return DEFAULT_PAGE_LIMIT;
+        }
+
+        try {
+            int limit = Integer.parseInt(value);
+            if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+                throw new BadRequestException(format(INVALID_LIMIT_ERR, value));
+            }
+            return limit;
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException(format(INVALID_LIMIT_ERR, value));
+        }
+    }
+
 }
@@ -0,0 +1,28 @@
+package com.github.onsdigital.thetrain.routes;
+
+import com.github.onsdigital.thetrain.metrics.Metrics;
+import spark.Request;
+import spark.Response;
+
+import static org.eclipse.jetty.http.HttpStatus.OK_200;
+
+/**
+ * {@link spark.Route} returning the application metrics in the Prometheus text exposition format.
+ */
+public class GetMetrics extends BaseHandler {
+
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private Metrics metrics;
+
+    public GetMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        response.status(OK_200);
+        response.type(CONTENT_TYPE);
+        return metrics.scrape();
+    }
+}
@@ -1,19 +1,58 @@
 package com.github.onsdigital.thetrain.routes;
 
+import com.github.onsdigital.thetrain.exception.BadRequestException;
 import com.github.onsdigital.thetrain.json.Result;
 import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.UriInfo;
+import com.github.onsdigital.thetrain.response.Page;
+import com.github.onsdigital.thetrain.response.TransactionSummary;
 import com.github.onsdigital.thetrain.service.TransactionsService;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
 import spark.Request;
 import spark.Response;
 
 import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
 import static java.lang.String.format;
+import static org.eclipse.jetty.http.HttpStatus.NOT_MODIFIED_304;
 import static org.eclipse.jetty.http.HttpStatus.OK_200;
+import static spark.Spark.halt;
 
+/**
+ * {@link spark.Route} returning a transaction. By default the full transaction is returned. The <i>view</i> query
+ * parameter selects a summary or a single page of one of the transaction's lists instead:
+ * <ul>
+ * <li>{@value #SUMMARY_VIEW} - counts by status and action, bytes and timings.</li>
+ * <li>{@value #URIS_VIEW}, {@value #DELETES_VIEW}, {@value #ERRORS_VIEW} - a page of the URIs, deletes or errors.</li>
+ * <li>{@value #FILES_VIEW} - a page of the files on disk in the <i>area</i> (content or backup) of the
+ * transaction.</li>
+ * </ul>
+ * Every response carries an ETag derived from the transaction version and, for a view, a digest of the view, area,
+ * cursor and limit, so polling clients sending <i>If-None-Match</i> get a 304 until the transaction changes, and never
+ * for a different view or page than the one they have.
+ */
 public class GetTransaction extends BaseHandler {
 
     static final String GET_TRANS_SUCCESS_LOG = "get transaction completed successfully";
     static final String GET_TRANS_SUCCESS_RESULT = "Details for transaction %s";
+    static final String NOT_MODIFIED_LOG = "transaction not modified since last request";
+    static final String UNKNOWN_VIEW_ERR = "unknown transaction view: %s";
+    static final String INVALID_AREA_ERR = "invalid files area: %s";
+
+    static final String VIEW_KEY = "view";
+    static final String AREA_KEY = "area";
+
+    static final String SUMMARY_VIEW = "summary";
+    static final String URIS_VIEW = "uris";
+    static final String DELETES_VIEW = "deletes";
+    static final String ERRORS_VIEW = "errors";
+    static final String FILES_VIEW = "files";
+
+    static final String CONTENT_AREA = "content";
+    static final String BACKUP_AREA = "backup";
+
+    static final String ETAG_HEADER = "ETag";
+    static final String IF_NONE_MATCH_HEADER = "If-None-Match";
 
     private TransactionsService transactionsService;
 
@@ -25,8 +64,84 @@ public class GetTransaction extends BaseHandler {
     public Object handle(Request request, Response response) throws Exception {
         Transaction transaction = transactionsService.getTransaction(request);
 
+        // Bring the timeline up to date with the files recorded since it was last read, which changes the version.
+        transaction.flushTimeline();
+        String etag = etag(transaction, getParameter(request, VIEW_KEY), getParameter(request, AREA_KEY),
+                getParameter(request, CURSOR_KEY), getParameter(request, LIMIT_KEY));
+        response.header(ETAG_HEADER, etag);
+        if (isNotModified(request.headers(IF_NONE_MATCH_HEADER), etag)) {
+            info().transactionID(transaction.id()).log(NOT_MODIFIED_LOG);
+            halt(NOT_MODIFIED_304);
+        }
+
+        Object result = getView(request, transaction);
+
         response.status(OK_200);
         info().transactionID(transaction.id()).log(GET_TRANS_SUCCESS_LOG);
-        return new Result(format(GET_TRANS_SUCCESS_RESULT, transaction.id()), false, transaction);
+        return result;
+    }
+
+    private Object getView(Request request, Transaction transaction) throws Exception {
+        String view = getParameter(request, VIEW_KEY);
+        if (StringUtils.isEmpty(view)) {
+            return new Result(format(GET_TRANS_SUCCESS_RESULT, transaction.id()), false, transaction);
+        }
+
+        String cursor = getParameter(request, CURSOR_KEY);
+        int limit = getLimit(request);
+
+        try {
+            switch (view) {
+                case SUMMARY_VIEW:
+                    return TransactionSummary.of(transaction);
+                case URIS_VIEW:
+                    return Page.keyed(transaction.id(), view, transaction.uris(), UriInfo::uri, cursor, limit);
+                case DELETES_VIEW:
+                    return Page.keyed(transaction.id(), view, transaction.urisToDelete(), UriInfo::uri, cursor, limit);
+                case ERRORS_VIEW:
+                    return Page.indexed(transaction.id(), view, transaction.errors(), cursor, limit);
+                case FILES_VIEW:
+                    String area = getArea(request);
+                    return Page.keyed(transaction.id(), view + "/" + area,
+                            transactionsService.listFiles(transaction, area), uri -> uri, cursor, limit);
+                default:
+                    throw new BadRequestException(format(UNKNOWN_VIEW_ERR, view), transaction.id());
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException(ex, ex.getMessage(), transaction.id());
+        }
+    }
+
+    private String getArea(Request request) throws BadRequestException {
+        String area = StringUtils.defaultIfEmpty(getParameter(request, AREA_KEY), CONTENT_AREA);
+        if (!CONTENT_AREA.equals(area) && !BACKUP_AREA.equals(area)) {
+            throw new BadRequestException(format(INVALID_AREA_ERR, area));
+        }
+        return area;
+    }
+
+    /**
+     * @return the ETag of the transaction at its current version, for the given request parameters as sent.
+     */
+    static String etag(Transaction transaction, String view, String area, String cursor, String limit) {
+        String etag = transaction.id() + "-" + transaction.version();
+        if (StringUtils.isNotEmpty(view)) {
+            etag += "-" + DigestUtils.sha1Hex(view + "\n" + area + "\n" + cursor + "\n" + limit).substring(0, 16);
+        }
+        return "\"" + etag + "\"";
+    }
+
+    static boolean isNotModified(String ifNoneMatch, String etag) {
+        if (StringUtils.isBlank(ifNoneMatch)) {
+            return false;
+        }
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = StringUtils.removeStart(candidate.trim(), "W/");
+            if ("*".equals(value) || etag.equals(value)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
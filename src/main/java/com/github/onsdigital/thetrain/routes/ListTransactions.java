@@ -0,0 +1,98 @@
+package com.github.onsdigital.thetrain.routes;
+
+import com.github.onsdigital.thetrain.exception.BadRequestException;
+import com.github.onsdigital.thetrain.helpers.DateConverter;
+import com.github.onsdigital.thetrain.json.TransactionIndexEntry;
+import com.github.onsdigital.thetrain.response.Page;
+import com.github.onsdigital.thetrain.service.TransactionsService;
+import org.apache.commons.lang3.StringUtils;
+import spark.Request;
+import spark.Response;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
+import static java.lang.String.format;
+import static org.eclipse.jetty.http.HttpStatus.OK_200;
+
+/**
+ * {@link spark.Route} listing transactions from the transaction history index, oldest first. Optional query
+ * parameters:
+ * <ul>
+ * <li><i>from</i> / <i>to</i> - only transactions started at or after <i>from</i> and before <i>to</i>. Either a
+ * date in the format used for transaction start dates or milliseconds since the epoch.</li>
+ * <li><i>status</i> - a comma separated list of the statuses to include.</li>
+ * <li><i>cursor</i> / <i>limit</i> - paging, as for {@link GetTransaction}.</li>
+ * </ul>
+ */
+public class ListTransactions extends BaseHandler {
+
+    static final String LIST_TRANS_SUCCESS_LOG = "list transactions completed successfully";
+    static final String INVALID_DATE_ERR = "invalid %s date: %s";
+    static final String INVALID_RANGE_ERR = "invalid date range: from %d is after to %d";
+
+    static final String FROM_KEY = "from";
+    static final String TO_KEY = "to";
+    static final String STATUS_KEY = "status";
+
+    private TransactionsService transactionsService;
+
+    public ListTransactions(TransactionsService transactionsService) {
+        this.transactionsService = transactionsService;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        long from = getTime(request, FROM_KEY, 0);
+        long to = getTime(request, TO_KEY, Long.MAX_VALUE);
+        if (from > to) {
+            throw new BadRequestException(format(INVALID_RANGE_ERR, from, to));
+        }
+        Set<String> statuses = getStatuses(request);
+        String cursor = getParameter(request, CURSOR_KEY);
+        int limit = getLimit(request);
+
+        Page<TransactionIndexEntry> page = transactionsService.listTransactions(from, to, statuses, cursor, limit);
+
+        response.status(OK_200);
+        info().data("from", from).data("to", to).data("statuses", statuses).data("total", page.getTotal())
+                .log(LIST_TRANS_SUCCESS_LOG);
+        return page;
+    }
+
+    private long getTime(Request request, String key, long defaultValue) throws BadRequestException {
+        String value = getParameter(request, key);
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+
+        try {
+            if (StringUtils.isNumeric(value)) {
+                return Long.parseLong(value);
+            }
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException(format(INVALID_DATE_ERR, key, value));
+        }
+
+        Date date = DateConverter.toDate(value);
+        if (date == null) {
+            throw new BadRequestException(format(INVALID_DATE_ERR, key, value));
+        }
+        return date.getTime();
+    }
+
+    private Set<String> getStatuses(Request request) {
+        Set<String> statuses = new TreeSet<>();
+        String value = getParameter(request, STATUS_KEY);
+        if (StringUtils.isNotBlank(value)) {
+            for (String status : value.split(",")) {
+                if (StringUtils.isNotBlank(status)) {
+                    statuses.add(status.trim());
+                }
+            }
+        }
+        return statuses;
+    }
+}
@@ -1,31 +1,73 @@
 package com.github.onsdigital.thetrain.routes;
 
+import com.github.onsdigital.thetrain.exception.BadRequestException;
 import com.github.onsdigital.thetrain.json.Result;
 import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.profiling.PublishTrace;
 import com.github.onsdigital.thetrain.service.TransactionsService;
+import org.apache.commons.lang3.StringUtils;
 import spark.Request;
 import spark.Response;
 
 import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
+import static java.lang.String.format;
 import static org.eclipse.jetty.http.HttpStatus.OK_200;
 
 public class OpenTransaction extends BaseHandler {
 
     static final String SUCCESS_MSG = "New transaction created.";
+    static final String INVALID_SHARE_ERR = "invalid share: %s";
+    static final String SHARE_TOO_LARGE_ERR = "invalid share: %s, the most allowed is %d";
+
+    /**
+     * Optional parameter giving the transaction more turns of the publishing threads than other transactions.
+     */
+    static final String SHARE_KEY = "share";
 
     private TransactionsService transactionsService;
+    private int maxShare;
 
-    public OpenTransaction(TransactionsService transactionsService) {
+    /**
+     * @param transactionsService the transactions service.
+     * @param maxShare            the largest {@value #SHARE_KEY} a transaction may be given.
+     */
+    public OpenTransaction(TransactionsService transactionsService, int maxShare) {
         this.transactionsService = transactionsService;
+        this.maxShare = maxShare;
     }
 
     @Override
     public Object handle(Request request, Response response) throws Exception {
+        int share = getShare(request);
         Transaction transaction = transactionsService.create();
+        if (share > 1) {
+            transaction.setShare(share);
+        }
+        request.attribute(PublishTrace.TRANSACTION_ID_ATTRIBUTE, transaction.id());
 
         info().transactionID(transaction.id()).log("transaction created successfully");
 
         response.status(OK_200);
         return new Result(SUCCESS_MSG, false, transaction);
     }
+
+    private int getShare(Request request) throws BadRequestException {
+        String value = getParameter(request, SHARE_KEY);
+        if (StringUtils.isEmpty(value)) {
+            return 1;
+        }
+
+        try {
+            int share = Integer.parseInt(value);
+            if (share < 1) {
+                throw new BadRequestException(format(INVALID_SHARE_ERR, value));
+            }
+            if (share > maxShare) {
+                throw new BadRequestException(format(SHARE_TOO_LARGE_ERR, value, maxShare));
+            }
+            return share;
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException(format(INVALID_SHARE_ERR, value));
+        }
+    }
 }
@@ -0,0 +1,59 @@
+package com.github.onsdigital.thetrain.routes;
+
+import com.github.onsdigital.thetrain.exception.PublishException;
+import com.github.onsdigital.thetrain.json.Result;
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.service.PublisherService;
+import com.github.onsdigital.thetrain.service.TransactionsService;
+import spark.Request;
+import spark.Response;
+
+import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
+import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
+import static org.eclipse.jetty.http.HttpStatus.OK_200;
+
+/**
+ * {@link spark.Route} implementation for handling prepare publishing transaction requests. Preparing stages the
+ * transaction's files on the website ahead of a scheduled commit, so the commit only renames them into place.
+ */
+public class PrepareTransaction extends BaseHandler {
+
+    static final String PREPARE_UNSUCCESSFUL_ERR = "preparing publish on website was unsuccessful";
+    static final String PREPARE_SUCCESSFUL_MSG = "preparing publish on website completed successfully";
+    static final String RESULT_SUCCESS_MSG = "Transaction prepared.";
+
+    private TransactionsService transactionsService;
+    private PublisherService publisherService;
+
+    /**
+     * Construct a new Prepare transaction {@link spark.Route}.
+     *
+     * @param transactionsService the {@link TransactionsService} to use.
+     * @param publisherService    the {@link PublisherService} to use.
+     */
+    public PrepareTransaction(TransactionsService transactionsService, PublisherService publisherService) {
+        this.transactionsService = transactionsService;
+        this.publisherService = publisherService;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        Transaction transaction = null;
+
+        try {
+            transaction = transactionsService.getTransaction(request);
+            boolean isSuccess = publisherService.prepare(transaction);
+            if (!isSuccess) {
+                error().transactionID(transaction.id()).log(PREPARE_UNSUCCESSFUL_ERR);
+                throw new PublishException(PREPARE_UNSUCCESSFUL_ERR, transaction);
+            }
+
+            info().transactionID(transaction.id()).log(PREPARE_SUCCESSFUL_MSG);
+            response.status(OK_200);
+            return new Result(RESULT_SUCCESS_MSG, false, transaction);
+
+        } finally {
+            transactionsService.update(transaction);
+        }
+    }
+}
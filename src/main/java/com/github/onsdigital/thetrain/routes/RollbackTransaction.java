@@ -18,6 +18,7 @@ public class RollbackTransaction extends BaseHandler {
 
     static final String ROLLBACK_SUCCESS_MSG = "Transaction rolled back.";
     static final String ROLLBACK_UNSUCESSFUL_ERR = "rollback transaction was unsuccessful";
+    static final String FORCE_KEY = "force";
 
     private TransactionsService transactionsService;
     private PublisherService publisherService;
@@ -36,15 +37,15 @@ public class RollbackTransaction extends BaseHandler {
     @Override
     public Object handle(Request request, Response response) throws Exception {
         Transaction transaction = transactionsService.getTransaction(request);
+        boolean force = Boolean.valueOf(getParameter(request, FORCE_KEY));
 
         try {
-            if (!publisherService.rollback(transaction)) {
+            boolean isSuccess = force ? publisherService.rollback(transaction, true)
+                    : publisherService.rollback(transaction);
+            if (!isSuccess) {
                 throw new PublishException(ROLLBACK_UNSUCESSFUL_ERR, transaction);
             }
 
-            // TODO no idea what this is doing... keeping it here to avoid breaking something
-            transactionsService.listFiles(transaction);
-
             info().transactionID(transaction.id()).log("rollback transaction completed successfully");
             response.status(OK_200);
             return new Result(ROLLBACK_SUCCESS_MSG, false, transaction);
@@ -4,6 +4,7 @@ import com.github.onsdigital.thetrain.exception.PublishException;
 import com.github.onsdigital.thetrain.json.Result;
 import com.github.onsdigital.thetrain.json.Transaction;
 import com.github.onsdigital.thetrain.json.request.Manifest;
+import com.github.onsdigital.thetrain.profiling.PublishTrace;
 import com.github.onsdigital.thetrain.service.PublisherService;
 import com.github.onsdigital.thetrain.service.TransactionsService;
 import com.github.onsdigital.thetrain.storage.Transactions;
@@ -64,6 +65,8 @@ public class SendManifest extends BaseHandler {
             if (deleted != deleteExpected) {
                 throw new PublishException(format(DELETE_RESULT_ERR, deleteExpected, deleted), transaction);
             }
+            request.attribute(PublishTrace.COPIES_ATTRIBUTE, copied);
+            request.attribute(PublishTrace.DELETES_ATTRIBUTE, deleted);
 
             // success
             info().transactionID(transaction.id())
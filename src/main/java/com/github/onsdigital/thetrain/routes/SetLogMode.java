@@ -0,0 +1,41 @@
+package com.github.onsdigital.thetrain.routes;
+
+import com.github.onsdigital.thetrain.exception.BadRequestException;
+import com.github.onsdigital.thetrain.logging.HotPathLog;
+import com.github.onsdigital.thetrain.logging.LogMode;
+import com.github.onsdigital.thetrain.response.Message;
+import org.apache.commons.lang3.StringUtils;
+import spark.Request;
+import spark.Response;
+
+import static org.eclipse.jetty.http.HttpStatus.OK_200;
+
+/**
+ * Admin {@link spark.Route} changing how the per-file events on the publishing hot path are logged. The <i>mode</i>
+ * query parameter is one of <i>full</i>, <i>async</i> or <i>summary</i> - see {@link LogMode}.
+ */
+public class SetLogMode extends BaseHandler {
+
+    static final String MODE_KEY = "mode";
+    static final String MODE_MISSING_ERR = "log mode expected but was empty";
+    static final String MODE_CHANGED_MSG = "Hot path log mode: %s";
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        String value = getParameter(request, MODE_KEY);
+        if (StringUtils.isEmpty(value)) {
+            throw new BadRequestException(MODE_MISSING_ERR);
+        }
+
+        LogMode mode;
+        try {
+            mode = LogMode.parse(value);
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException(ex, ex.getMessage(), null);
+        }
+
+        HotPathLog.setMode(mode);
+        response.status(OK_200);
+        return new Message(String.format(MODE_CHANGED_MSG, mode.name().toLowerCase()));
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.onsdigital.thetrain.routes;
+
+import com.github.onsdigital.thetrain.exception.BadRequestException;
+import com.github.onsdigital.thetrain.profiling.FlightRecordings;
+import com.github.onsdigital.thetrain.response.Message;
+import spark.Request;
+import spark.Response;
+
+import java.nio.file.Path;
+
+import static org.eclipse.jetty.http.HttpStatus.OK_200;
+
+/**
+ * Admin {@link spark.Route} starting a Java Flight Recorder recording in the transaction store.
+ */
+public class StartRecording extends BaseHandler {
+
+    static final String RECORDING_STARTED_MSG = "Flight recording started: %s";
+
+    private Path transactionStore;
+
+    public StartRecording(Path transactionStore) {
+        this.transactionStore = transactionStore;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        try {
+            Path path = FlightRecordings.start(transactionStore);
+            response.status(OK_200);
+            return new Message(String.format(RECORDING_STARTED_MSG, path));
+        } catch (IllegalStateException ex) {
+            throw new BadRequestException(ex, ex.getMessage(), null);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.onsdigital.thetrain.routes;
+
+import com.github.onsdigital.thetrain.exception.BadRequestException;
+import com.github.onsdigital.thetrain.profiling.PublishTrace;
+import com.github.onsdigital.thetrain.response.Message;
+import spark.Request;
+import spark.Response;
+
+import java.nio.file.Path;
+
+import static org.eclipse.jetty.http.HttpStatus.OK_200;
+
+/**
+ * Admin {@link spark.Route} starting a {@link PublishTrace} of the publishing API requests in the transaction store.
+ */
+public class StartTrace extends BaseHandler {
+
+    static final String TRACE_STARTED_MSG = "Publish trace started: %s";
+
+    private Path transactionStore;
+
+    public StartTrace(Path transactionStore) {
+        this.transactionStore = transactionStore;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        try {
+            Path path = PublishTrace.start(transactionStore);
+            response.status(OK_200);
+            return new Message(String.format(TRACE_STARTED_MSG, path));
+        } catch (IllegalStateException ex) {
+            throw new BadRequestException(ex, ex.getMessage(), null);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.onsdigital.thetrain.routes;
+
+import com.github.onsdigital.thetrain.exception.BadRequestException;
+import com.github.onsdigital.thetrain.profiling.FlightRecordings;
+import com.github.onsdigital.thetrain.response.Message;
+import spark.Request;
+import spark.Response;
+
+import java.nio.file.Path;
+
+import static org.eclipse.jetty.http.HttpStatus.OK_200;
+
+/**
+ * Admin {@link spark.Route} stopping the running Java Flight Recorder recording and writing it to disk.
+ */
+public class StopRecording extends BaseHandler {
+
+    static final String RECORDING_STOPPED_MSG = "Flight recording written to: %s";
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        try {
+            Path path = FlightRecordings.stop();
+            response.status(OK_200);
+            return new Message(String.format(RECORDING_STOPPED_MSG, path));
+        } catch (IllegalStateException ex) {
+            throw new BadRequestException(ex, ex.getMessage(), null);
+        }
+    }
+}
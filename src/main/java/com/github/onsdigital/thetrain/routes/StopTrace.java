@@ -0,0 +1,30 @@
+package com.github.onsdigital.thetrain.routes;
+
+import com.github.onsdigital.thetrain.exception.BadRequestException;
+import com.github.onsdigital.thetrain.profiling.PublishTrace;
+import com.github.onsdigital.thetrain.response.Message;
+import spark.Request;
+import spark.Response;
+
+import java.nio.file.Path;
+
+import static org.eclipse.jetty.http.HttpStatus.OK_200;
+
+/**
+ * Admin {@link spark.Route} stopping the running {@link PublishTrace}.
+ */
+public class StopTrace extends BaseHandler {
+
+    static final String TRACE_STOPPED_MSG = "Publish trace written to: %s";
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        try {
+            Path path = PublishTrace.stop();
+            response.status(OK_200);
+            return new Message(String.format(TRACE_STOPPED_MSG, path));
+        } catch (IllegalStateException ex) {
+            throw new BadRequestException(ex, ex.getMessage(), null);
+        }
+    }
+}
@@ -20,6 +20,15 @@ public interface PublisherService {
      */
     boolean commit(Transaction transaction) throws PublishException;
 
+    /**
+     * Stage the transaction on the website ahead of its commit.
+     *
+     * @param transaction the transaction to prepare.
+     * @return true if every file was staged, false otherwise. A transaction can be committed either way.
+     * @throws PublishException error while attempting to prepare the transaction.
+     */
+    boolean prepare(Transaction transaction) throws PublishException;
+
     /**
      * Attempt to rollback a transaction.
      *
@@ -29,6 +38,16 @@ public interface PublisherService {
      */
     boolean rollback(Transaction transaction) throws PublishException;
 
+    /**
+     * Attempt to rollback a transaction, restoring the website even if the transaction has ended.
+     *
+     * @param transaction the transaction to rollback.
+     * @param force       true to restore the website for a transaction that has ended.
+     * @return true if successful, false otherwise.
+     * @throws PublishException error attempting to rollback the transaction.
+     */
+    boolean rollback(Transaction transaction, boolean force) throws PublishException;
+
     /**
      * Copy the files from the publishing manifest into the publishing transaction.
      *
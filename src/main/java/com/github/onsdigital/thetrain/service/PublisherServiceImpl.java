@@ -21,6 +21,7 @@ public class PublisherServiceImpl implements PublisherService {
     static final String WEDBSITE_PATH_NULL_ERR = "error getting website path config, expected value but was null";
     static final String WEDBSITE_PATH_ERR = "error getting website path config";
     static final String COMMIT_TRANS_ERROR = "error committing publishing transaction";
+    static final String PREPARE_TRANS_ERROR = "error preparing publishing transaction";
     static final String ROLLBACK_TRANS_ERROR = "error rolling back publishing transaction";
 
     private Publisher publisher;
@@ -40,10 +41,24 @@ public class PublisherServiceImpl implements PublisherService {
         }
     }
 
+    @Override
+    public boolean prepare(Transaction transaction) throws PublishException {
+        try {
+            return publisher.prepare(transaction, websitePath);
+        } catch (Exception e) {
+            throw new PublishException(PREPARE_TRANS_ERROR, e, transaction, HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @Override
     public boolean rollback(Transaction transaction) throws PublishException {
+        return rollback(transaction, false);
+    }
+
+    @Override
+    public boolean rollback(Transaction transaction, boolean force) throws PublishException {
         try {
-            return publisher.rollback(transaction);
+            return publisher.rollback(transaction, websitePath, force);
         } catch (Exception e) {
             throw new PublishException(ROLLBACK_TRANS_ERROR, e);
         }
@@ -3,10 +3,14 @@ package com.github.onsdigital.thetrain.service;
 import com.github.onsdigital.thetrain.exception.BadRequestException;
 import com.github.onsdigital.thetrain.exception.PublishException;
 import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.TransactionIndexEntry;
+import com.github.onsdigital.thetrain.response.Page;
 import spark.Request;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Future;
 
 public interface TransactionsService {
@@ -21,6 +25,10 @@ public interface TransactionsService {
 
     void listFiles(Transaction transaction) throws PublishException;
 
+    List<String> listFiles(Transaction transaction, String area) throws PublishException;
+
+    Page<TransactionIndexEntry> listTransactions(long from, long to, Set<String> statuses, String cursor, int limit);
+
     Future<Boolean> tryUpdateAsync(final Transaction transaction) throws PublishException;
 
     Path content(Transaction transaction) throws PublishException;
@@ -3,12 +3,16 @@ package com.github.onsdigital.thetrain.service;
 import com.github.onsdigital.thetrain.exception.BadRequestException;
 import com.github.onsdigital.thetrain.exception.PublishException;
 import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.TransactionIndexEntry;
+import com.github.onsdigital.thetrain.response.Page;
 import com.github.onsdigital.thetrain.storage.Transactions;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hc.core5.http.HttpStatus;
 import spark.Request;
 
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Future;
 
 import static java.lang.String.format;
@@ -83,6 +87,21 @@ public class TransactionsServiceImpl implements TransactionsService {
         }
     }
 
+    @Override
+    public List<String> listFiles(Transaction transaction, String area) throws PublishException {
+        try {
+            return Transactions.listFiles(transaction, area);
+        } catch (Exception e) {
+            throw new PublishException(TRANS_LIST_FILES_ERR, e, transaction, HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Override
+    public Page<TransactionIndexEntry> listTransactions(long from, long to, Set<String> statuses, String cursor,
+                                                        int limit) {
+        return Transactions.history(from, to, statuses, cursor, limit);
+    }
+
     @Override
     public Future<Boolean> tryUpdateAsync(Transaction transaction) throws PublishException {
         try {
@@ -0,0 +1,97 @@
+package com.github.onsdigital.thetrain.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
+
+/**
+ * A housekeeping pass run periodically on the {@link PublishScheduler.WorkClass#BACKGROUND background} lane of the
+ * publishing threads. A single scheduler thread waits for each pass to finish, so passes never overlap.
+ */
+class BackgroundJob {
+
+    static final long ENTRY_COST = 4096;
+
+    private final String name;
+    private final Runnable pass;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param name the name of the scheduler thread, also used when logging a failed pass.
+     * @param pass the pass to run.
+     */
+    BackgroundJob(String name, Runnable pass) {
+        this.name = name;
+        this.pass = pass;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start running the pass periodically.
+     *
+     * @param intervalMillis the delay between the end of one pass and the start of the next.
+     * @param lane           the {@link Executor} to run each pass on.
+     */
+    void start(long intervalMillis, Executor lane) {
+        scheduler.scheduleWithFixedDelay(() -> runPass(lane), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void runPass(Executor lane) {
+        try {
+            CompletableFuture.runAsync(pass, lane).join();
+        } catch (RuntimeException e) {
+            error().data("job", name).exception(e).log("error running background pass, will retry on the next pass");
+        }
+    }
+
+    /**
+     * Stop running passes.
+     */
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Delete a directory tree, deepest paths first. With a budget, each file costs its size or {@value #ENTRY_COST}
+     * bytes, whichever is more, so a tree of many small files is not deleted faster than a large file would be read.
+     *
+     * @param tree   the directory to delete.
+     * @param budget the {@link IoBudget} to delete within, or null to delete as fast as possible.
+     * @return the number of bytes in the files deleted.
+     * @throws IOException          if a path cannot be deleted. Anything not yet deleted is left in place.
+     * @throws InterruptedException if interrupted while waiting for the budget.
+     */
+    static long deleteTree(Path tree, IoBudget budget) throws IOException, InterruptedException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(tree)) {
+            paths = walk.collect(Collectors.toList());
+        }
+        Collections.reverse(paths);
+
+        long bytes = 0;
+        for (Path path : paths) {
+            long size = Files.isRegularFile(path) ? Files.size(path) : 0;
+            if (budget != null) {
+                budget.acquire(Math.max(size, ENTRY_COST));
+            }
+            Files.delete(path);
+            bytes += size;
+        }
+        return bytes;
+    }
+}
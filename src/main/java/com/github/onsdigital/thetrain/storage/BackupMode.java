@@ -0,0 +1,40 @@
+package com.github.onsdigital.thetrain.storage;
+
+import java.util.Locale;
+
+/**
+ * How the {@link Publisher} backs up a website file before a transaction replaces it.
+ */
+public enum BackupMode {
+
+    /**
+     * Hard link the website file into the transaction's backup directory, so a backup costs no more than creating a
+     * directory entry. Commits write each file alongside its target and rename it into place, so the linked file is
+     * never changed. Falls back to {@link #COPY} if the transaction store is on a different filesystem.
+     * <p>
+     * A linked backup is the same file as the website file, and a rollback links it back onto the website, so this
+     * is only safe if nothing else writes website files in place: anything that does changes the backup too.
+     */
+    LINK,
+
+    /**
+     * Copy the content of the website file into the transaction's backup directory. The default.
+     */
+    COPY;
+
+    /**
+     * @param value the backup mode name, in any case.
+     * @return the backup mode.
+     * @throws IllegalArgumentException if the value is not a backup mode.
+     */
+    public static BackupMode parse(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("backup mode expected but was null");
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown backup mode: " + value, e);
+        }
+    }
+}
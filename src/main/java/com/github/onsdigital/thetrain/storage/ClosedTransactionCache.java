@@ -0,0 +1,133 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.metrics.Counter;
+import com.github.onsdigital.thetrain.metrics.Metrics;
+
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least recently used cache of closed {@link Transaction}s read from disk, bounded by the estimated in-memory size
+ * of the cached transactions. Entries are keyed on the modified time and size of the transaction Json so a
+ * transaction that has been rewritten on disk is read again.
+ * <p>
+ * The in-memory size of a transaction is estimated as {@value #SIZE_FACTOR} times the size of its Json.
+ */
+public class ClosedTransactionCache {
+
+    static final int SIZE_FACTOR = 3;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private long bytes;
+
+    /**
+     * @param maxBytes the maximum estimated size of the cached transactions. 0 disables the cache.
+     */
+    public ClosedTransactionCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        Metrics metrics = Metrics.get();
+        this.hits = metrics.counter("train_closed_transaction_cache_hits_total",
+                "Closed transactions served from the cache");
+        this.misses = metrics.counter("train_closed_transaction_cache_misses_total",
+                "Closed transactions read from disk because they were not in the cache or had changed");
+        this.evictions = metrics.counter("train_closed_transaction_cache_evictions_total",
+                "Closed transactions evicted from the cache to stay within its size limit");
+        metrics.gauge("train_closed_transaction_cache_bytes",
+                "Estimated in-memory size of the cached closed transactions", this::bytes);
+    }
+
+    /**
+     * Get a cached transaction if its Json has not changed since it was cached.
+     *
+     * @param id       the transaction ID.
+     * @param modified the current modified time of the transaction Json.
+     * @param size     the current size of the transaction Json.
+     * @return the cached transaction, or null if it was not cached or has changed.
+     */
+    public synchronized Transaction get(String id, FileTime modified, long size) {
+        Entry entry = entries.get(id);
+        if (entry != null && entry.modified.equals(modified) && entry.size == size) {
+            hits.increment();
+            return entry.transaction;
+        }
+
+        if (entry != null) {
+            remove(id);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Add a transaction read from disk to the cache, evicting the least recently used transactions as needed.
+     *
+     * @param transaction the closed transaction.
+     * @param modified    the modified time of the Json it was read from.
+     * @param size        the size of the Json it was read from.
+     */
+    public synchronized void put(Transaction transaction, FileTime modified, long size) {
+        long estimate = size * SIZE_FACTOR;
+        if (estimate > maxBytes) {
+            return;
+        }
+
+        remove(transaction.id());
+        entries.put(transaction.id(), new Entry(transaction, modified, size));
+        bytes += estimate;
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Entry evicted = eldest.next().getValue();
+            eldest.remove();
+            bytes -= evicted.size * SIZE_FACTOR;
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Remove a transaction from the cache.
+     *
+     * @param id the transaction ID.
+     */
+    public synchronized void remove(String id) {
+        Entry removed = entries.remove(id);
+        if (removed != null) {
+            bytes -= removed.size * SIZE_FACTOR;
+        }
+    }
+
+    /**
+     * @return the estimated in-memory size of the cached transactions.
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of cached transactions.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+        private final Transaction transaction;
+        private final FileTime modified;
+        private final long size;
+
+        Entry(Transaction transaction, FileTime modified, long size) {
+            this.transaction = transaction;
+            this.modified = modified;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.onsdigital.thetrain.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A run of the files in a transaction that one publishing thread commits in turn. Files are grouped by directory so
+ * that a chunk usually covers whole directories, and a large transaction is split into many more chunks than there
+ * are threads, so a thread that finishes early takes another chunk rather than leaving the others to finish the
+ * commit alone.
+ */
+class CommitChunk {
+
+    /**
+     * The largest number of files in a chunk, so a very large transaction still has chunks to balance across threads.
+     */
+    static final int MAX_FILES = 256;
+
+    /**
+     * How many chunks each thread should have to take, on average, so the work stays balanced.
+     */
+    static final int CHUNKS_PER_THREAD = 4;
+
+    private static final Comparator<String> BY_DIRECTORY = Comparator.comparing(CommitChunk::directory)
+            .thenComparing(Comparator.naturalOrder());
+
+    private final List<String> uris;
+
+    CommitChunk(List<String> uris) {
+        this.uris = uris;
+    }
+
+    /**
+     * @return the URIs of the files in this chunk, grouped by directory.
+     */
+    List<String> uris() {
+        return uris;
+    }
+
+    int size() {
+        return uris.size();
+    }
+
+    /**
+     * @param files   the number of files to commit.
+     * @param threads the number of publishing threads.
+     * @return the number of files to put in each chunk.
+     */
+    static int chunkSize(int files, int threads) {
+        long chunks = (long) Math.max(1, threads) * CHUNKS_PER_THREAD;
+        return (int) Math.max(1, Math.min(MAX_FILES, (files + chunks - 1) / chunks));
+    }
+
+    /**
+     * Split the files into chunks of at most the given size. A directory is only split across chunks if it does not
+     * fit in one.
+     *
+     * @param uris      the URIs of the files to commit.
+     * @param chunkSize the most files in a chunk.
+     * @return the chunks.
+     */
+    static List<CommitChunk> partition(List<String> uris, int chunkSize) {
+        List<String> sorted = new ArrayList<>(uris);
+        sorted.sort(BY_DIRECTORY);
+
+        List<CommitChunk> chunks = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int index = 0;
+        while (index < sorted.size()) {
+            String directory = directory(sorted.get(index));
+            int end = index;
+            while (end < sorted.size() && directory.equals(directory(sorted.get(end)))) {
+                end++;
+            }
+
+            if (!current.isEmpty() && current.size() + (end - index) > chunkSize) {
+                chunks.add(new CommitChunk(current));
+                current = new ArrayList<>();
+            }
+            for (String uri : sorted.subList(index, end)) {
+                current.add(uri);
+                if (current.size() == chunkSize) {
+                    chunks.add(new CommitChunk(current));
+                    current = new ArrayList<>();
+                }
+            }
+            index = end;
+        }
+        if (!current.isEmpty()) {
+            chunks.add(new CommitChunk(current));
+        }
+        return Collections.unmodifiableList(chunks);
+    }
+
+    static String directory(String uri) {
+        int slash = uri.lastIndexOf('/');
+        return slash < 0 ? "" : uri.substring(0, slash);
+    }
+
+    /**
+     * The outcome of committing a chunk.
+     */
+    static class Result {
+
+        int committed;
+        int failed;
+
+        /**
+         * Files not attempted because the commit was aborted.
+         */
+        int skipped;
+    }
+}
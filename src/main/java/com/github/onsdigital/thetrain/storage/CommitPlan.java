@@ -0,0 +1,118 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.github.onsdigital.thetrain.helpers.PathUtils;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * The work of committing a transaction's files: the website directories they go in, which are created once up front,
+ * and the {@link CommitChunk chunks} the files are committed in, grouped by directory.
+ */
+class CommitPlan {
+
+    private final SortedSet<String> directories;
+    private final List<CommitChunk> chunks;
+
+    private CommitPlan(SortedSet<String> directories, List<CommitChunk> chunks) {
+        this.directories = directories;
+        this.chunks = chunks;
+    }
+
+    /**
+     * @param uris      the URIs of the files to commit.
+     * @param chunkSize the most files in a chunk.
+     * @return the plan for committing the files.
+     */
+    static CommitPlan of(List<String> uris, int chunkSize) {
+        SortedSet<String> directories = new TreeSet<>();
+        for (String uri : uris) {
+            String directory = CommitChunk.directory(uri);
+            if (!directory.isEmpty()) {
+                directories.add(directory);
+            }
+        }
+        return new CommitPlan(Collections.unmodifiableSortedSet(directories), CommitChunk.partition(uris, chunkSize));
+    }
+
+    /**
+     * @return the distinct directories of the files, in sorted order so each comes after its parent.
+     */
+    SortedSet<String> directories() {
+        return directories;
+    }
+
+    List<CommitChunk> chunks() {
+        return chunks;
+    }
+
+    /**
+     * @param deletedUris the URIs of the directories deleted by the commit.
+     * @return every directory whose entries the commit may have changed: the directories of the files and all of
+     * their ancestors, and the parents of the deleted directories. The website root is the empty string.
+     */
+    SortedSet<String> touchedDirectories(Collection<String> deletedUris) {
+        SortedSet<String> touched = new TreeSet<>();
+        for (String directory : directories) {
+            addWithAncestors(touched, directory);
+        }
+        touched.add("");
+        for (String uri : deletedUris) {
+            addWithAncestors(touched, CommitChunk.directory(PathUtils.stripTrailingSlash(uri)));
+        }
+        return touched;
+    }
+
+    private static void addWithAncestors(Set<String> touched, String directory) {
+        String current = directory;
+        while (touched.add(current) && !current.isEmpty()) {
+            current = CommitChunk.directory(current);
+        }
+    }
+
+    /**
+     * Create the directories under the given root in a single sorted pass. A directory whose parent was created
+     * earlier in the pass is created on its own; otherwise its missing ancestors are created with it.
+     *
+     * @param root the directory the URIs are relative to.
+     * @return the directories that could not be created. The files in them will fail when they are committed.
+     */
+    List<String> createDirectories(Path root) {
+        Set<String> created = new HashSet<>();
+        List<String> failed = new ArrayList<>();
+        for (String directory : directories) {
+            Path path = PathUtils.toPath(directory, root);
+            try {
+                if (created.contains(CommitChunk.directory(directory))) {
+                    createDirectory(path);
+                } else {
+                    Files.createDirectories(path);
+                }
+                created.add(directory);
+            } catch (IOException e) {
+                failed.add(directory);
+            }
+        }
+        return failed;
+    }
+
+    private static void createDirectory(Path path) throws IOException {
+        try {
+            Files.createDirectory(path);
+        } catch (FileAlreadyExistsException e) {
+            if (!Files.isDirectory(path)) {
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.github.onsdigital.thetrain.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * The available {@link CopyStrategy copy strategies}. The buffered strategies size the target up front when the
+ * length of the content is known, so its length is only extended once rather than on every write.
+ */
+public enum CopyStrategies implements CopyStrategy {
+
+    /**
+     * {@link FileChannel#transferFrom} into the target. The strategy the train has always used.
+     */
+    TRANSFER_FROM {
+        @Override
+        public void copy(Path source, Path target) throws IOException {
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = openForWrite(target)) {
+                long size = in.size();
+                long position = 0;
+                while (position < size) {
+                    long transferred = out.transferFrom(in, position, size - position);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                }
+            }
+        }
+
+        @Override
+        public void write(InputStream input, Path target) throws IOException {
+            try (FileChannel out = openForWrite(target)) {
+                out.transferFrom(Channels.newChannel(input), 0, Long.MAX_VALUE);
+            }
+        }
+    },
+
+    /**
+     * {@link FileChannel#transferTo} from the source, which the JDK can hand to <code>sendfile</code>. A stream has no
+     * file to transfer from, so uploads are written as {@link #TRANSFER_FROM} does.
+     */
+    TRANSFER_TO {
+        @Override
+        public void copy(Path source, Path target) throws IOException {
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = openForWrite(target)) {
+                long size = in.size();
+                long position = 0;
+                while (position < size) {
+                    long transferred = in.transferTo(position, size - position, out);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                }
+            }
+        }
+
+        @Override
+        public void write(InputStream input, Path target) throws IOException {
+            TRANSFER_FROM.write(input, target);
+        }
+    },
+
+    /**
+     * {@link Files#copy}, which newer JDKs implement with <code>copy_file_range</code> or <code>sendfile</code>, and
+     * which lets a copy-on-write filesystem clone the file.
+     */
+    FILES_COPY {
+        @Override
+        public void copy(Path source, Path target) throws IOException {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        @Override
+        public void write(InputStream input, Path target) throws IOException {
+            Files.copy(input, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    },
+
+    /**
+     * A read/write loop through a large direct buffer held by each thread.
+     */
+    DIRECT_BUFFER {
+        @Override
+        public void copy(Path source, Path target) throws IOException {
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = openForWrite(target)) {
+                preallocate(out, in.size());
+                copyBuffered(in, out);
+            }
+        }
+
+        @Override
+        public void write(InputStream input, Path target) throws IOException {
+            try (FileChannel out = openForWrite(target)) {
+                copyBuffered(Channels.newChannel(input), out);
+            }
+        }
+    },
+
+    /**
+     * Reads into one buffer while the previous one is written with an {@link AsynchronousFileChannel}, so reading
+     * and writing overlap.
+     */
+    ASYNC {
+        @Override
+        public void copy(Path source, Path target) throws IOException {
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+                copyAsync(in, target, in.size());
+            }
+        }
+
+        @Override
+        public void write(InputStream input, Path target) throws IOException {
+            copyAsync(Channels.newChannel(input), target, -1);
+        }
+    };
+
+    /**
+     * The size of each buffer used by {@link #DIRECT_BUFFER} and {@link #ASYNC}.
+     */
+    static final int BUFFER_SIZE = 256 * 1024;
+
+    private static final ThreadLocal<ByteBuffer[]> BUFFERS = ThreadLocal.withInitial(() -> new ByteBuffer[]{
+            ByteBuffer.allocateDirect(BUFFER_SIZE), ByteBuffer.allocateDirect(BUFFER_SIZE)});
+
+    /**
+     * @param value the strategy name, in any case, with either dashes or underscores.
+     * @return the strategy.
+     * @throws IllegalArgumentException if the value is not a strategy.
+     */
+    public static CopyStrategies parse(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("copy strategy expected but was null");
+        }
+        try {
+            return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown copy strategy: " + value, e);
+        }
+    }
+
+    private static FileChannel openForWrite(Path target) throws IOException {
+        return FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Extend the file to its final size before it is written.
+     */
+    private static void preallocate(FileChannel out, long size) throws IOException {
+        if (size > 0) {
+            out.write(ByteBuffer.wrap(new byte[1]), size - 1);
+        }
+    }
+
+    private static void copyBuffered(ReadableByteChannel in, FileChannel out) throws IOException {
+        ByteBuffer buffer = BUFFERS.get()[0];
+        long position = 0;
+        buffer.clear();
+        while (in.read(buffer) >= 0 || buffer.position() > 0) {
+            buffer.flip();
+            position += out.write(buffer, position);
+            buffer.compact();
+        }
+        // A preallocated file may have been longer than the content if the source shrank while it was copied.
+        out.truncate(position);
+    }
+
+    private static void copyAsync(ReadableByteChannel in, Path target, long size) throws IOException {
+        ByteBuffer[] buffers = BUFFERS.get();
+        try (AsynchronousFileChannel out = AsynchronousFileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (size > 0) {
+                await(out.write(ByteBuffer.wrap(new byte[1]), size - 1));
+            }
+
+            long position = 0;
+            int current = 0;
+            ByteBuffer writing = null;
+            Future<Integer> pending = null;
+            long pendingPosition = 0;
+            while (true) {
+                ByteBuffer reading = buffers[current];
+                reading.clear();
+                int read = fill(in, reading);
+                reading.flip();
+
+                if (pending != null) {
+                    finishWrite(out, writing, pending, pendingPosition);
+                }
+                if (read <= 0) {
+                    break;
+                }
+
+                writing = reading;
+                pendingPosition = position;
+                pending = out.write(writing, position);
+                position += read;
+                current = 1 - current;
+            }
+            out.truncate(position);
+        }
+    }
+
+    /**
+     * Read until the buffer is full or the end of the input.
+     *
+     * @return the number of bytes read, or 0 at the end of the input.
+     */
+    private static int fill(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Wait for a write to complete, writing any of the buffer it did not.
+     */
+    private static void finishWrite(AsynchronousFileChannel out, ByteBuffer buffer, Future<Integer> pending,
+                                    long position) throws IOException {
+        long written = position + await(pending);
+        while (buffer.hasRemaining()) {
+            written += await(out.write(buffer, written));
+        }
+    }
+
+    private static int await(Future<Integer> write) throws IOException {
+        try {
+            return write.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while writing");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+}
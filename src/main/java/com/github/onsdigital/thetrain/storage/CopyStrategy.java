@@ -0,0 +1,32 @@
+package com.github.onsdigital.thetrain.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * How the {@link Publisher} moves file content: uploads and backups into a transaction, commits from a transaction
+ * to the website, and manifest copies on the website. Which is fastest depends on the JDK and the filesystem
+ * the website and transaction store are mounted on, so it is selected by configuration. See {@link CopyStrategies}.
+ */
+public interface CopyStrategy {
+
+    /**
+     * Copy a file, replacing the target if it exists. The target's directory must exist.
+     *
+     * @param source the file to copy.
+     * @param target the file to write.
+     * @throws IOException if the copy fails.
+     */
+    void copy(Path source, Path target) throws IOException;
+
+    /**
+     * Write a stream to a file, replacing the target if it exists. The target's directory must exist. The stream is
+     * read to the end but not closed.
+     *
+     * @param input  the content to write.
+     * @param target the file to write.
+     * @throws IOException if reading or writing fails.
+     */
+    void write(InputStream input, Path target) throws IOException;
+}
@@ -0,0 +1,41 @@
+package com.github.onsdigital.thetrain.storage;
+
+import java.util.Locale;
+
+/**
+ * How far committed content is forced to disk before a commit is reported as successful. See {@link FileSync}.
+ */
+public enum Durability {
+
+    /**
+     * Leave writes to the operating system to flush when it chooses. A host crash can lose a committed publish.
+     */
+    NONE,
+
+    /**
+     * Once every file is committed, sync the files in parallel and then each directory touched by the commit once.
+     * The transaction journal is synced when the transaction is committed or rolled back.
+     */
+    BATCHED,
+
+    /**
+     * Sync each file and its directory as it is committed, and the transaction journal on every write.
+     */
+    STRICT;
+
+    /**
+     * @param value the durability name, in any case.
+     * @return the durability.
+     * @throws IllegalArgumentException if the value is not a durability.
+     */
+    public static Durability parse(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("durability expected but was null");
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown durability: " + value, e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.onsdigital.thetrain.storage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
+
+/**
+ * Forces files and directories to disk according to the configured {@link Durability}. Syncing a file makes its
+ * content durable; syncing its directory makes the file's name durable, which matters for files that are new.
+ */
+public class FileSync {
+
+    private static volatile Durability durability = Durability.NONE;
+
+    /**
+     * @return the current durability.
+     */
+    public static Durability durability() {
+        return durability;
+    }
+
+    /**
+     * @param newDurability the durability to use for commits from now on.
+     */
+    public static void setDurability(Durability newDurability) {
+        Durability previous = durability;
+        durability = newDurability;
+        info().data("previous", previous.name()).data("durability", newDurability.name())
+                .log("publishing durability changed");
+    }
+
+    /**
+     * @return true if each file should be synced as it is written.
+     */
+    static boolean strict() {
+        return durability == Durability.STRICT;
+    }
+
+    /**
+     * @return true if committed files should be synced together once they are all written.
+     */
+    static boolean batched() {
+        return durability == Durability.BATCHED;
+    }
+
+    /**
+     * @param closing true if the transaction is being committed or rolled back.
+     * @return true if a write of the transaction journal should be synced.
+     */
+    static boolean journal(boolean closing) {
+        return strict() || (closing && batched());
+    }
+
+    /**
+     * Force the content of a file to disk.
+     */
+    static void file(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Force the entries of a directory to disk, so files created in or removed from it are durable.
+     */
+    static void directory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // Some platforms, such as Windows, cannot open a directory. Their filesystems don't need it synced.
+            return;
+        }
+        try (FileChannel open = channel) {
+            open.force(true);
+        }
+    }
+}
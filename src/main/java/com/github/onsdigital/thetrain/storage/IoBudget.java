@@ -0,0 +1,65 @@
+package com.github.onsdigital.thetrain.storage;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Token bucket limiting the rate at which background housekeeping reads and writes the disk, so it never competes
+ * with a live publish. Callers {@link #acquire(long)} the bytes they are about to move and are blocked until the
+ * budget allows it. While the supplied busy check returns true (e.g. a commit or upload is running) callers are
+ * paused entirely.
+ */
+public class IoBudget {
+
+    static final long PAUSE_MILLIS = 1000;
+
+    private final long bytesPerSecond;
+    private final BooleanSupplier busy;
+    private long available;
+    private long lastRefill;
+
+    /**
+     * @param bytesPerSecond the sustained rate to allow. Up to one second's worth may be used in a single burst.
+     * @param busy           returns true while background I/O should be paused.
+     */
+    public IoBudget(long bytesPerSecond, BooleanSupplier busy) {
+        this.bytesPerSecond = Math.max(1, bytesPerSecond);
+        this.busy = busy;
+        this.available = this.bytesPerSecond;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Block until the bytes can be moved without exceeding the budget.
+     *
+     * @param bytes the number of bytes about to be read or written.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        while (busy.getAsBoolean()) {
+            Thread.sleep(PAUSE_MILLIS);
+        }
+
+        long wait;
+        synchronized (this) {
+            refill();
+            // Requests larger than the bucket are allowed through once it is full, at the cost of going into debt.
+            available -= bytes;
+            wait = available >= 0 ? 0 : (-available * 1000) / bytesPerSecond;
+        }
+
+        if (wait > 0) {
+            Thread.sleep(wait);
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        // The bucket never holds more than a second's worth, so there is no need to count further back.
+        long elapsed = Math.min(now - lastRefill, 1_000_000_000L);
+        long earned = elapsed * bytesPerSecond / 1_000_000_000L;
+        if (earned > 0) {
+            available = Math.min(bytesPerSecond, available + earned);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,615 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.github.onsdigital.thetrain.json.Timeline;
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.metrics.Histogram;
+import com.github.onsdigital.thetrain.metrics.Metric;
+import com.github.onsdigital.thetrain.metrics.Metrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * Fixed pool of publishing threads that runs queued work by {@link WorkClass}, so a commit is never stuck behind the
+ * thousands of uploads of another transaction's pre-publish. A free thread always takes the oldest task of the most
+ * urgent class that has work waiting. {@link WorkClass#BACKGROUND} work only ever holds
+ * {@value #BACKGROUND_THREADS} thread, so the rest of the pool is always free for publishing.
+ * <p>
+ * Within a class, transactions take turns by deficit round robin: each turn a transaction runs up to the quantum of
+ * files times its {@link Transaction#share() share}, then goes to the back of the line. Most tasks handle one file; a
+ * task handling many, such as a commit chunk, counts as that many. A small publish therefore
+ * waits for a few turns, not for every task of a 100,000 file transaction queued before it. The time each task waits
+ * for a thread is recorded in the scheduler's wait histogram and counted in its transaction's
+ * {@link Timeline#QUEUE_WAIT queue wait} stats, which reach the transaction's timeline when it is next read or
+ * persisted, so dispatching a task never takes the transaction's lock.
+ * <p>
+ * Work submitted without a class, through the plain {@link java.util.concurrent.ExecutorService} methods, is
+ * {@link WorkClass#UPLOAD} work. Like a {@link java.util.concurrent.ThreadPoolExecutor}, {@link #shutdown()} lets the
+ * queued work finish.
+ */
+public class PublishScheduler extends AbstractExecutorService {
+
+    static final int BACKGROUND_THREADS = 1;
+    public static final int DEFAULT_QUANTUM = 16;
+
+    /**
+     * The key of work that does not belong to a transaction, which takes its turn like a transaction.
+     */
+    private static final String NO_TRANSACTION = "";
+
+    private static final Histogram WAIT_DURATION = Metrics.get().histogram("train_publisher_queue_wait_seconds",
+            "Time publishing tasks waited for a thread, by class (commit, upload, background)",
+            Histogram.LATENCY_BUCKETS, "class");
+
+    /**
+     * The kinds of publishing work, most urgent first.
+     */
+    public enum WorkClass {
+        /**
+         * Committing and rolling back transactions.
+         */
+        COMMIT("commit"),
+
+        /**
+         * Writing uploaded files and manifest copies into transactions.
+         */
+        UPLOAD("upload"),
+
+        /**
+         * Housekeeping that no client is waiting for, e.g. archiving.
+         */
+        BACKGROUND("background");
+
+        private final String label;
+
+        WorkClass(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Condition terminated = lock.newCondition();
+    private final List<ClassQueue> queues = new ArrayList<>();
+    private final int quantum;
+    private final int[] running = new int[WorkClass.values().length];
+    private final List<Thread> threads = new ArrayList<>();
+    private int liveThreads;
+    private boolean shutdown;
+
+    /**
+     * @param threads the number of publishing threads.
+     */
+    public PublishScheduler(int threads) {
+        this(threads, DEFAULT_QUANTUM);
+    }
+
+    /**
+     * @param threads the number of publishing threads.
+     * @param quantum the number of files a transaction with a share of 1 handles in each turn.
+     */
+    public PublishScheduler(int threads, int quantum) {
+        this.quantum = Math.max(1, quantum);
+        for (WorkClass workClass : WorkClass.values()) {
+            queues.add(new ClassQueue());
+        }
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(this::work, "publisher-" + (i + 1));
+            this.threads.add(thread);
+        }
+        liveThreads = threads;
+        this.threads.forEach(Thread::start);
+    }
+
+    /**
+     * Queue a task.
+     *
+     * @param workClass the class of the work.
+     * @param task      the task.
+     * @return the result of the task once it has run.
+     * @throws RejectedExecutionException if the scheduler has been shut down.
+     */
+    public <T> Future<T> submit(WorkClass workClass, Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        execute(workClass, future);
+        return future;
+    }
+
+    /**
+     * Queue a task for a transaction, to run in the transaction's turn.
+     *
+     * @param workClass   the class of the work.
+     * @param transaction the transaction the work is for.
+     * @param task        the task.
+     * @return the result of the task once it has run.
+     * @throws RejectedExecutionException if the scheduler has been shut down.
+     */
+    public <T> Future<T> submit(WorkClass workClass, Transaction transaction, Callable<T> task) {
+        return submit(workClass, transaction, 1, task);
+    }
+
+    /**
+     * Queue a task for a transaction that handles a number of files, to run in the transaction's turn. The task
+     * counts as that many tasks against the transaction's turns.
+     *
+     * @param workClass   the class of the work.
+     * @param transaction the transaction the work is for.
+     * @param files       the number of files the task handles.
+     * @param task        the task.
+     * @return the result of the task once it has run.
+     * @throws RejectedExecutionException if the scheduler has been shut down.
+     */
+    public <T> Future<T> submit(WorkClass workClass, Transaction transaction, int files, Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        enqueue(new Task(workClass, transaction, Math.max(1, files), future));
+        return future;
+    }
+
+    /**
+     * Queue a task.
+     *
+     * @param workClass the class of the work.
+     * @param task      the task.
+     * @throws RejectedExecutionException if the scheduler has been shut down.
+     */
+    public void execute(WorkClass workClass, Runnable task) {
+        enqueue(new Task(workClass, null, 1, task));
+    }
+
+    private void enqueue(Task task) {
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("publish scheduler has been shut down");
+            }
+            queues.get(task.workClass.ordinal()).add(task);
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param workClass the class of the work.
+     * @return an {@link Executor} that queues tasks as the class.
+     */
+    public Executor executor(WorkClass workClass) {
+        return task -> execute(workClass, task);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        execute(WorkClass.UPLOAD, task);
+    }
+
+    /**
+     * @param workClass the class of the work.
+     * @return the number of tasks of the class waiting for a thread.
+     */
+    public int queued(WorkClass workClass) {
+        lock.lock();
+        try {
+            return queues.get(workClass.ordinal()).size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param workClass the class of the work.
+     * @return the number of transactions with tasks of the class waiting for a thread.
+     */
+    public int queuedTransactions(WorkClass workClass) {
+        lock.lock();
+        try {
+            return queues.get(workClass.ordinal()).turns.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of tasks of any class waiting for a thread.
+     */
+    public int queued() {
+        lock.lock();
+        try {
+            return queuedLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param workClass the class of the work.
+     * @return the number of tasks of the class running.
+     */
+    public int active(WorkClass workClass) {
+        lock.lock();
+        try {
+            return running[workClass.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of tasks of any class running.
+     */
+    public int active() {
+        lock.lock();
+        try {
+            int active = 0;
+            for (int count : running) {
+                active += count;
+            }
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true while any {@link WorkClass#COMMIT commit} or {@link WorkClass#UPLOAD upload} task is queued or
+     * running, so background work can keep out of its way.
+     */
+    public boolean busy() {
+        lock.lock();
+        try {
+            for (WorkClass workClass : WorkClass.values()) {
+                int i = workClass.ordinal();
+                if (workClass != WorkClass.BACKGROUND && (running[i] > 0 || queues.get(i).size > 0)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of publishing threads.
+     */
+    public int size() {
+        return threads.size();
+    }
+
+    /**
+     * Register the queue depth, queued transaction and active task gauges for each class.
+     *
+     * @param metrics the registry to add them to.
+     */
+    public void registerMetrics(Metrics metrics) {
+        metrics.register(new ClassGauge("train_publisher_class_queue_depth",
+                "Publishing tasks waiting for a thread, by class (commit, upload, background)", this::queued));
+        metrics.register(new ClassGauge("train_publisher_class_queued_transactions",
+                "Transactions with publishing tasks waiting for a thread, by class (commit, upload, background)",
+                this::queuedTransactions));
+        metrics.register(new ClassGauge("train_publisher_class_active_tasks",
+                "Publishing tasks running, by class (commit, upload, background)", this::active));
+    }
+
+    @Override
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> dropped = new ArrayList<>();
+        lock.lock();
+        try {
+            shutdown = true;
+            for (ClassQueue queue : queues) {
+                queue.drain(dropped);
+            }
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        threads.forEach(Thread::interrupt);
+        return dropped;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        lock.lock();
+        try {
+            return shutdown;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        lock.lock();
+        try {
+            return shutdown && liveThreads == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (!(shutdown && liveThreads == 0)) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = terminated.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        try {
+            Task task;
+            while ((task = take()) != null) {
+                long waitNanos = System.nanoTime() - task.queuedNanos;
+                WAIT_DURATION.labels(task.workClass.label()).observe(waitNanos / 1_000_000_000d);
+                if (task.queueWait != null) {
+                    task.queueWait.observe(System.currentTimeMillis(), waitNanos, 0);
+                }
+                try {
+                    task.runnable.run();
+                } catch (RuntimeException e) {
+                    // Submitted tasks capture their own exceptions, so only a task passed to execute() can get here.
+                    // As with a thread pool the exception is the task's to handle, but it must not cost a thread.
+                    Thread.UncaughtExceptionHandler handler = Thread.currentThread().getUncaughtExceptionHandler();
+                    handler.uncaughtException(Thread.currentThread(), e);
+                } finally {
+                    finished(task.workClass);
+                }
+            }
+        } finally {
+            lock.lock();
+            try {
+                liveThreads--;
+                terminated.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Wait for the next task to run.
+     *
+     * @return the task, or null once the scheduler has been shut down and no work is left.
+     */
+    private Task take() {
+        lock.lock();
+        try {
+            while (true) {
+                Task task = next();
+                if (task != null) {
+                    running[task.workClass.ordinal()]++;
+                    return task;
+                }
+                if (shutdown && queuedLocked() == 0) {
+                    return null;
+                }
+                workAvailable.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Task next() {
+        for (WorkClass workClass : WorkClass.values()) {
+            if (workClass == WorkClass.BACKGROUND && running[workClass.ordinal()] >= BACKGROUND_THREADS) {
+                continue;
+            }
+            Task task = queues.get(workClass.ordinal()).poll(quantum);
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private int queuedLocked() {
+        int queued = 0;
+        for (ClassQueue queue : queues) {
+            queued += queue.size;
+        }
+        return queued;
+    }
+
+    private void finished(WorkClass workClass) {
+        lock.lock();
+        try {
+            running[workClass.ordinal()]--;
+            // A background task finishing can let another background task run, which a waiting thread may have
+            // passed over, so wake every idle thread to look again.
+            if (workClass == WorkClass.BACKGROUND) {
+                workAvailable.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A task waiting in a queue.
+     */
+    private static class Task {
+
+        private final WorkClass workClass;
+        private final Transaction transaction;
+        private final Timeline.FileStats queueWait;
+        private final int cost;
+        private final Runnable runnable;
+        private final long queuedNanos = System.nanoTime();
+
+        Task(WorkClass workClass, Transaction transaction, int cost, Runnable runnable) {
+            this.workClass = workClass;
+            this.transaction = transaction;
+            this.queueWait = transaction == null ? null : transaction.fileStats(Timeline.QUEUE_WAIT);
+            this.cost = cost;
+            this.runnable = runnable;
+        }
+
+        String key() {
+            return transaction == null ? NO_TRANSACTION : transaction.id();
+        }
+
+        int share() {
+            return transaction == null ? 1 : transaction.share();
+        }
+    }
+
+    /**
+     * The tasks of one class, queued by transaction and served by deficit round robin.
+     */
+    private static class ClassQueue {
+
+        private final Map<String, TransactionQueue> byKey = new HashMap<>();
+        private final Deque<TransactionQueue> turns = new ArrayDeque<>();
+        private int size;
+
+        void add(Task task) {
+            TransactionQueue queue = byKey.get(task.key());
+            if (queue == null) {
+                queue = new TransactionQueue(task.key());
+                byKey.put(queue.key, queue);
+                turns.addLast(queue);
+            }
+            queue.tasks.addLast(task);
+            size++;
+        }
+
+        /**
+         * @param quantum the number of files a transaction with a share of 1 handles in each turn.
+         * @return the next task, or null if there are none.
+         */
+        Task poll(int quantum) {
+            while (true) {
+                TransactionQueue queue = turns.peekFirst();
+                if (queue == null) {
+                    return null;
+                }
+
+                Task task = queue.tasks.peekFirst();
+                if (queue.deficit < task.cost) {
+                    // The start of the transaction's turn. A task bigger than one turn waits for enough turns.
+                    queue.deficit += (long) quantum * Math.max(1, task.share());
+                    if (queue.deficit < task.cost) {
+                        turns.addLast(turns.pollFirst());
+                        continue;
+                    }
+                }
+
+                queue.tasks.pollFirst();
+                queue.deficit -= task.cost;
+                size--;
+
+                if (queue.tasks.isEmpty()) {
+                    // A transaction that runs out of work gives up the rest of its turn, as in deficit round robin.
+                    turns.pollFirst();
+                    byKey.remove(queue.key);
+                } else if (queue.deficit < queue.tasks.peekFirst().cost) {
+                    turns.addLast(turns.pollFirst());
+                }
+                return task;
+            }
+        }
+
+        void drain(List<Runnable> dropped) {
+            for (TransactionQueue queue : turns) {
+                for (Task task : queue.tasks) {
+                    dropped.add(task.runnable);
+                }
+            }
+            turns.clear();
+            byKey.clear();
+            size = 0;
+        }
+    }
+
+    /**
+     * The queued tasks of one transaction in one class.
+     */
+    private static class TransactionQueue {
+
+        private final String key;
+        private final Deque<Task> tasks = new ArrayDeque<>();
+        private long deficit;
+
+        TransactionQueue(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * A gauge with a sample for each {@link WorkClass}, read when the metrics are scraped.
+     */
+    private static class ClassGauge implements Metric {
+
+        private final String name;
+        private final String help;
+        private final ToIntFunction<WorkClass> value;
+
+        ClassGauge(String name, String help, ToIntFunction<WorkClass> value) {
+            this.name = name;
+            this.help = help;
+            this.value = value;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public String help() {
+            return help;
+        }
+
+        @Override
+        public String type() {
+            return "gauge";
+        }
+
+        @Override
+        public void write(StringBuilder out) {
+            for (WorkClass workClass : WorkClass.values()) {
+                out.append(name).append("{class=\"").append(workClass.label()).append("\"} ")
+                        .append(value.applyAsInt(workClass)).append('\n');
+            }
+        }
+    }
+}
@@ -2,34 +2,55 @@ package com.github.onsdigital.thetrain.storage;
 
 import com.github.onsdigital.thetrain.helpers.PathUtils;
 import com.github.onsdigital.thetrain.helpers.UnionInputStream;
+import com.github.onsdigital.thetrain.json.PendingCopy;
+import com.github.onsdigital.thetrain.json.Timeline;
 import com.github.onsdigital.thetrain.json.Transaction;
 import com.github.onsdigital.thetrain.json.UriInfo;
 import com.github.onsdigital.thetrain.json.request.FileCopy;
 import com.github.onsdigital.thetrain.json.request.Manifest;
+import com.github.onsdigital.thetrain.logging.HotPathLog;
+import com.github.onsdigital.thetrain.metrics.Histogram;
+import com.github.onsdigital.thetrain.metrics.Metrics;
+import com.github.onsdigital.thetrain.profiling.BackupCopyEvent;
+import com.github.onsdigital.thetrain.profiling.CommitFileEvent;
+import com.github.onsdigital.thetrain.profiling.DeleteEvent;
+import com.github.onsdigital.thetrain.profiling.UploadEvent;
+import com.github.onsdigital.thetrain.profiling.ZipEntryWriteEvent;
+import com.github.onsdigital.thetrain.storage.PublishScheduler.WorkClass;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.channels.Channels;
-import java.nio.channels.FileChannel;
-import java.nio.channels.ReadableByteChannel;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.LocalDateTime;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -42,8 +63,71 @@ import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
  */
 public class Publisher {
 
-    private static ExecutorService pool;
+    static final String UPLOAD_FILE = "file";
+    static final String UPLOAD_ZIP_SMALL = "zip_small";
+    static final String UPLOAD_ZIP_LARGE = "zip_large";
+
+    private static final Histogram UPLOAD_DURATION = Metrics.get().histogram("train_upload_file_duration_seconds",
+            "Time taken to write an uploaded file into a transaction, by kind (file, zip_small, zip_large)",
+            Histogram.LATENCY_BUCKETS, "kind");
+    private static final Histogram UPLOAD_BYTES = Metrics.get().histogram("train_upload_file_bytes",
+            "Size of files uploaded into transactions, by kind (file, zip_small, zip_large)",
+            Histogram.SIZE_BUCKETS, "kind");
+    private static final Histogram BACKUP_DURATION = Metrics.get().histogram("train_backup_duration_seconds",
+            "Time taken to back up existing website content into a transaction, by kind (link, file, directory)",
+            Histogram.LATENCY_BUCKETS, "kind");
+    private static final Histogram MANIFEST_COPY_FILE_DURATION = Metrics.get().histogram(
+            "train_manifest_copy_file_duration_seconds",
+            "Time taken to check a single manifest copy and record it in a transaction", Histogram.LATENCY_BUCKETS);
+    private static final Histogram MANIFEST_COPY_DURATION = Metrics.get().histogram(
+            "train_manifest_copy_duration_seconds",
+            "Time taken to check all the copies in a manifest and record them in a transaction",
+            Histogram.LATENCY_BUCKETS);
+    private static final Histogram COMMIT_FILE_DURATION = Metrics.get().histogram("train_commit_file_duration_seconds",
+            "Time taken to commit a single file to the website, by result", Histogram.LATENCY_BUCKETS, "result");
+    private static final Histogram COMMIT_DELETES_DURATION = Metrics.get().histogram(
+            "train_commit_deletes_duration_seconds",
+            "Time taken to apply the deletes in a transaction to the website", Histogram.LATENCY_BUCKETS);
+    private static final Histogram COMMIT_SYNC_DURATION = Metrics.get().histogram(
+            "train_commit_sync_duration_seconds",
+            "Time taken to sync the files and directories of a commit to disk, when durability is batched, by result",
+            Histogram.LATENCY_BUCKETS, "result");
+    private static final Histogram COMMIT_DURATION = Metrics.get().histogram("train_commit_duration_seconds",
+            "Time taken to commit a whole transaction to the website, by result", Histogram.LATENCY_BUCKETS,
+            "result");
+    /**
+     * The longest file name, in bytes, most filesystems allow.
+     */
+    static final int MAX_NAME_BYTES = 255;
+
+    /**
+     * A hidden file name ending in a transaction ID.
+     */
+    private static final Pattern SHADOW_NAME = Pattern.compile("\\..+\\.[0-9a-f]{32,}");
+
+    static final String ENDED_ROLLBACK_ERR = "transaction has ended so the website was not restored, later "
+            + "publishes may have replaced its files: roll back with force=true to restore it anyway";
+    static final String ARCHIVED_ROLLBACK_ERR = "transaction has been archived so it can no longer be rolled back, "
+            + "its content and backup are only kept in the archive";
+
+    private static final Histogram ROLLBACK_DURATION = Metrics.get().histogram("train_rollback_duration_seconds",
+            "Time taken to roll back a whole transaction, by result", Histogram.LATENCY_BUCKETS, "result");
+    private static final Histogram ROLLBACK_FILE_DURATION = Metrics.get().histogram(
+            "train_rollback_file_duration_seconds",
+            "Time taken to restore or remove a single website file in a rollback, by operation (restore, remove) and "
+                    + "result", Histogram.LATENCY_BUCKETS, "operation", "result");
+
+    /**
+     * Commits of at least this many files log their progress every {@value #PROGRESS_STEP_PERCENT}%.
+     */
+    static final int PROGRESS_MIN_FILES = 1000;
+    static final int PROGRESS_STEP_PERCENT = 10;
+
+    private static PublishScheduler pool;
     private static Publisher instance;
+    private static volatile CopyStrategy copyStrategy = CopyStrategies.TRANSFER_FROM;
+    private static volatile BackupMode backupMode = BackupMode.COPY;
+    private static final AtomicBoolean LINK_FALLBACK_LOGGED = new AtomicBoolean();
 
     private final int bufferSize;
 
@@ -51,11 +135,71 @@ public class Publisher {
      * Initalize the publisher
      */
     public static void init(int threadPoolSzie) {
-        pool = Executors.newFixedThreadPool(threadPoolSzie);
+        init(threadPoolSzie, PublishScheduler.DEFAULT_QUANTUM);
+    }
+
+    /**
+     * Initalize the publisher
+     *
+     * @param threadPoolSzie the number of publishing threads.
+     * @param quantum        the number of files each transaction handles in its turn of the publishing threads.
+     */
+    public static void init(int threadPoolSzie, int quantum) {
+        PublishScheduler scheduler = new PublishScheduler(threadPoolSzie, quantum);
+        pool = scheduler;
         Runtime.getRuntime().addShutdownHook(new ShutdownTask(pool));
+
+        Metrics metrics = Metrics.get();
+        metrics.gauge("train_publisher_pool_queue_depth", "Publishing tasks waiting for a thread",
+                scheduler::queued);
+        metrics.gauge("train_publisher_pool_active_threads", "Publishing threads currently running a task",
+                scheduler::active);
+        metrics.gauge("train_publisher_pool_size", "Publishing threads in the pool", scheduler::size);
+        scheduler.registerMetrics(metrics);
         getInstance();
     }
 
+    /**
+     * @return the {@link CopyStrategy} file content is copied with.
+     */
+    public static CopyStrategy copyStrategy() {
+        return copyStrategy;
+    }
+
+    /**
+     * @param strategy the {@link CopyStrategy} to copy file content with from now on.
+     */
+    public static void setCopyStrategy(CopyStrategy strategy) {
+        CopyStrategy previous = copyStrategy;
+        copyStrategy = strategy;
+        info().data("previous", previous.toString()).data("strategy", strategy.toString())
+                .log("publisher copy strategy changed");
+    }
+
+    /**
+     * @return how website files are backed up before they are replaced.
+     */
+    public static BackupMode backupMode() {
+        return backupMode;
+    }
+
+    /**
+     * @param mode the {@link BackupMode} to back up website files with from now on.
+     */
+    public static void setBackupMode(BackupMode mode) {
+        BackupMode previous = backupMode;
+        backupMode = mode;
+        info().data("previous", previous.toString()).data("mode", mode.toString())
+                .log("publisher backup mode changed");
+    }
+
+    /**
+     * @return the {@link PublishScheduler} publishing work runs on, or null if the publisher is not initialised.
+     */
+    static PublishScheduler scheduler() {
+        return pool;
+    }
+
     /**
      * @return the singleton instance of the publisher/
      */
@@ -81,13 +225,8 @@ public class Publisher {
     }
 
     private void copyFile(File src, File dest) throws IOException {
-        try (
-                FileInputStream fis = new FileInputStream(src);
-                FileOutputStream fos = new FileOutputStream(dest);
-                FileChannel srcChannel = fis.getChannel();
-                FileChannel destChannel = fos.getChannel()
-        ) {
-            destChannel.transferFrom(srcChannel, 0, srcChannel.size());
+        try {
+            copyStrategy.copy(src.toPath(), dest.toPath());
         } catch (IOException e) {
             error().data("src", src.toString())
                     .data("dest", dest.toString())
@@ -98,15 +237,35 @@ public class Publisher {
     }
 
 
-    private boolean addStreamContentToTransaction(Path target, InputStream input) throws IOException {
+    /**
+     * Create the directory a file in the transaction goes in, unless it has already been created for the transaction.
+     * A timeseries publish puts thousands of files in the same directory, so this saves checking it for each one.
+     */
+    private static void createParentDirectory(Transaction transaction, Path file) throws IOException {
+        try {
+            transaction.directories().computeIfAbsent(file.getParent(), directory -> {
+                try {
+                    Files.createDirectories(directory);
+                    return Boolean.TRUE;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private boolean addStreamContentToTransaction(Transaction transaction, Path target, InputStream input)
+            throws IOException {
         if (target != null) {
-            Files.createDirectories(target.getParent());
-            try (
-                    ReadableByteChannel src = Channels.newChannel(input);
-                    FileOutputStream fos = new FileOutputStream(target.toFile());
-                    FileChannel dest = fos.getChannel();
-            ) {
-                dest.transferFrom(src, 0, Long.MAX_VALUE);
+            createParentDirectory(transaction, target);
+            if (!transaction.prepared().isEmpty()) {
+                // Content changed after a prepare must be copied at commit, not the file staged from the old content.
+                transaction.prepared().remove(PathUtils.toUri(target, Transactions.content(transaction)));
+            }
+            try {
+                copyStrategy.write(input, target);
             } catch (Exception e) {
                 error().data("targetPath", target.toString())
                         .exception(e)
@@ -154,7 +313,9 @@ public class Publisher {
                     smallFileWrites.add(asyncProcessSmallZipEntry(transaction, targetUri, zipChunk, startDate, websitePath));
                     smallZipEntries++;
                 } else {
-                    info().data("uri", targetUri).data("entry_uri", entry.getName()).log("processing large file");
+                    final String entryName = entry.getName();
+                    HotPathLog.info(transaction.id(), "processing large file",
+                            () -> info().data("uri", targetUri).data("entry_uri", entryName));
                     TransactionUpdate update = processLargeZipEntry(entry, transaction, targetUri, zipChunk, startDate, zipInputStream, websitePath);
                     result &= update.isSuccess();
                     largeFileWrites.add(update);
@@ -208,16 +369,33 @@ public class Publisher {
 
     private Future<TransactionUpdate> asyncProcessSmallZipEntry(Transaction transaction, String targetUri,
                                                                 InputStream zipChunk, Date startDate, Path websitePath) {
-        return pool.submit(() -> addContentToTransaction(transaction, targetUri, zipChunk, startDate, websitePath));
+        return pool.submit(WorkClass.UPLOAD, transaction, () -> {
+            long start = System.nanoTime();
+            ZipEntryWriteEvent event = new ZipEntryWriteEvent();
+            event.begin();
+            TransactionUpdate update = addContentToTransaction(transaction, targetUri, zipChunk, startDate,
+                    websitePath);
+            recordUpload(transaction, UPLOAD_ZIP_SMALL, start, update);
+            event.record(transaction.id(), targetUri, bytes(update));
+            return update;
+        });
     }
 
     private TransactionUpdate processLargeZipEntry(ZipEntry entry, Transaction transaction, String targetUri,
                                                    InputStream zipChunk, Date startDate, ZipInputStream zipInputStream, Path websitePath)
             throws IOException {
-        info().transactionID(transaction.id()).data("uri", entry.getName()).log("addFiles: adding large file");
+        HotPathLog.info(transaction.id(), "addFiles: adding large file",
+                () -> info().transactionID(transaction.id()).data("uri", entry.getName()));
 
+        long start = System.nanoTime();
+        ZipEntryWriteEvent event = new ZipEntryWriteEvent();
+        event.begin();
         try (InputStream unionInputStream = new UnionInputStream(zipChunk, zipInputStream)) {
-            return addContentToTransaction(transaction, targetUri, unionInputStream, startDate, websitePath);
+            TransactionUpdate update = addContentToTransaction(transaction, targetUri, unionInputStream, startDate,
+                    websitePath);
+            recordUpload(transaction, UPLOAD_ZIP_LARGE, start, update);
+            event.record(transaction.id(), targetUri, bytes(update));
+            return update;
         } catch (Exception e) {
             throw error().transactionID(transaction.id()).data("uri", targetUri)
                     .logException(new IOException(e), "Large zip file error");
@@ -252,7 +430,12 @@ public class Publisher {
      * @throws IOException If a filesystem error occurs.
      */
     public boolean addFile(Transaction transaction, String uri, InputStream input, Path websitePath) throws IOException {
+        long start = System.nanoTime();
+        UploadEvent event = new UploadEvent();
+        event.begin();
         TransactionUpdate update = addContentToTransaction(transaction, uri, input, new Date(), websitePath);
+        recordUpload(transaction, UPLOAD_FILE, start, update);
+        event.record(transaction.id(), uri, bytes(update));
         if (update.isSuccess()) {
             transaction.addUri(update.getUriInfo());
             return true;
@@ -280,18 +463,34 @@ public class Publisher {
         TransactionUpdate result = new TransactionUpdate();
         UriInfo uriInfo = new UriInfo(uri, startDate);
 
-        boolean addResult = addStreamContentToTransaction(target, input);
+        boolean addResult = addStreamContentToTransaction(transaction, target, input);
         result.setSuccess(addResult);
 
         uriInfo.stop();
         uriInfo.setAction(action);
+        if (addResult && target != null) {
+            uriInfo.setSize(Files.size(target));
+        }
 
         result.setUriInfo(uriInfo);
         return result;
     }
 
+    private static void recordUpload(Transaction transaction, String kind, long startNanos,
+                                     TransactionUpdate update) {
+        UPLOAD_DURATION.labels(kind).observeSince(startNanos);
+        if (update.isSuccess()) {
+            UPLOAD_BYTES.labels(kind).observe(update.getUriInfo().size());
+        }
+        transaction.recordFile(Timeline.UPLOADS, System.nanoTime() - startNanos, bytes(update));
+    }
+
+    private static long bytes(TransactionUpdate update) {
+        return update != null && update.isSuccess() && update.getUriInfo() != null ? update.getUriInfo().size() : 0;
+    }
+
     /**
-     * When making a change to a file on the website, we copy the existing file into a backup
+     * When making a change to a file on the website, we link or copy the existing file into a backup
      *
      * @param transaction
      * @param uri
@@ -303,32 +502,91 @@ public class Publisher {
         String action = UriInfo.CREATE;
         Path target = PathUtils.toPath(uri, website);
         if (Files.exists(target)) {
+            long start = System.nanoTime();
+            BackupCopyEvent event = new BackupCopyEvent();
+            event.begin();
             Path backup = PathUtils.toPath(uri, Transactions.backup(transaction));
-            Files.createDirectories(backup.getParent());
-            copyFile(target.toFile(), backup.toFile());
+            createParentDirectory(transaction, backup);
+            String kind = backupFile(target, backup);
             action = UriInfo.UPDATE;
+            BACKUP_DURATION.labels(kind).observeSince(start);
+            event.record(transaction.id(), uri, event.isEnabled() ? Files.size(backup) : 0);
         }
         return action;
     }
 
+    /**
+     * Back up a website file according to the {@link BackupMode}.
+     *
+     * @return the kind of backup made, "link" or "file".
+     */
+    private String backupFile(Path target, Path backup) throws IOException {
+        if (backupMode == BackupMode.LINK) {
+            // A backup left by an earlier upload of the same URI is of the same file, so it is replaced as a copy
+            // would be.
+            Files.deleteIfExists(backup);
+            return linkOrCopy(target, backup);
+        }
+        copyFile(target.toFile(), backup.toFile());
+        return "file";
+    }
+
+    /**
+     * Hard link a file, or copy it if it cannot be linked, such as when the target is on another filesystem.
+     *
+     * @return "link" if the file was linked, otherwise "file".
+     */
+    private String linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+            return "link";
+        } catch (IOException | UnsupportedOperationException e) {
+            if (LINK_FALLBACK_LOGGED.compareAndSet(false, true)) {
+                error().data("source", source.toString()).data("target", target.toString()).exception(e)
+                        .log("unable to hard link file, copying instead");
+            }
+        }
+        copyFile(source.toFile(), target.toFile());
+        return "file";
+    }
+
+    /**
+     * Check the copies in a manifest and record them in the transaction, to be made directly on the website when it
+     * is committed. Nothing is copied now: the content never leaves the website, so it is copied once rather than
+     * into the transaction and back out again.
+     *
+     * @return the number of copies that can be made. A copy cannot be made if its source does not exist, or its
+     * target already exists, on the website.
+     */
     public int copyFilesIntoTransaction(Transaction transaction, Manifest manifest, Path websitePath) throws IOException {
-        LocalDateTime start = LocalDateTime.now();
+        long start = System.nanoTime();
         int filesMoved = 0;
+        List<FileCopy> moves = manifest.getFilesToCopy();
         List<Future<TransactionUpdate>> futures = new ArrayList<>();
 
-        for (FileCopy move : manifest.getFilesToCopy()) {
-            futures.add(pool.submit(() -> copyFileIntoTransaction(transaction, move.source, move.target, websitePath)));
+        for (FileCopy move : moves) {
+            futures.add(pool.submit(WorkClass.UPLOAD, transaction, () -> {
+                long fileStart = System.nanoTime();
+                try {
+                    return checkCopy(transaction, move.source, move.target, websitePath);
+                } finally {
+                    MANIFEST_COPY_FILE_DURATION.observeSince(fileStart);
+                    transaction.recordFile(Timeline.MANIFEST, System.nanoTime() - fileStart, 0);
+                }
+            }));
         }
 
         List<UriInfo> results = new ArrayList<>();
+        List<PendingCopy> copies = new ArrayList<>();
 
-        // Process results of any asynchronous writes
-        for (Future<TransactionUpdate> future : futures) {
+        // Process results of any asynchronous checks
+        for (int i = 0; i < futures.size(); i++) {
             try {
-                TransactionUpdate res = future.get();
+                TransactionUpdate res = futures.get(i).get();
                 if (res.isSuccess()) {
                     filesMoved++;
                     results.add(res.getUriInfo());
+                    copies.add(new PendingCopy(moves.get(i).source, moves.get(i).target));
                 }
             } catch (InterruptedException | ExecutionException e) {
                 throw new IOException("Error on commit of file", e);
@@ -337,38 +595,34 @@ public class Publisher {
 
         // all good update transaction
         transaction.addUris(results);
+        transaction.addCopies(copies);
+        MANIFEST_COPY_DURATION.observeSince(start);
+        transaction.recordPhase(Timeline.MANIFEST, System.nanoTime() - start);
         return filesMoved;
     }
 
 
     /**
-     * Read the list of URI's to delete from the manifest and add them to the transaction.
+     * Read the list of URI's to delete from the manifest and add them to the transaction. Nothing is backed up now:
+     * when the transaction is committed each directory is moved into the transaction's backup directory, which both
+     * deletes and backs it up.
      *
      * @param transaction
      * @param manifest
      * @return
      */
     public int addFilesToDelete(Transaction transaction, Manifest manifest, Path website) throws IOException {
-        LocalDateTime start = LocalDateTime.now();
-
         List<UriInfo> deletedURIS = new ArrayList<>();
 
         if (manifest.getUrisToDelete() != null) {
-
             for (String uri : manifest.getUrisToDelete()) {
                 UriInfo uriInfo = new UriInfo(uri, new Date());
                 uriInfo.setAction(UriInfo.DELETE);
 
                 Path target = PathUtils.toPath(uri, website);
-                Path targetDirectory = target;
-                if (Files.exists(targetDirectory)) {
-                    Path backupDirectory = PathUtils.toPath(uri, Transactions.backup(transaction));
-                    info().data("directory", target.toString())
-                            .log("backing up directory before deletion");
-
-                    FileUtils.copyDirectory(targetDirectory.toFile(), backupDirectory.toFile());
-                } else {
-                    info().data("directory", target.toString()).log("cannot backup directory as it does not exist, skipping");
+                if (!Files.exists(target)) {
+                    HotPathLog.info(transaction.id(), "directory to delete does not exist, skipping",
+                            () -> info().data("directory", target.toString()));
                 }
                 deletedURIS.add(uriInfo);
             }
@@ -378,47 +632,34 @@ public class Publisher {
     }
 
     /**
-     * Copy an existing file from the website into the given transaction.
+     * Check that a manifest copy can be made at commit.
      */
-    TransactionUpdate copyFileIntoTransaction(Transaction transaction, String sourceUri, String targetUri, Path websitePath) throws IOException {
-        LocalDateTime start = LocalDateTime.now();
-        boolean moved = false;
+    TransactionUpdate checkCopy(Transaction transaction, String sourceUri, String targetUri, Path websitePath)
+            throws IOException {
         TransactionUpdate result = new TransactionUpdate();
-
         Path source = PathUtils.toPath(sourceUri, websitePath);
-        Path target = PathUtils.toPath(targetUri, Transactions.content(transaction));
         Path finalWebsiteTarget = PathUtils.toPath(targetUri, websitePath);
 
-        String action = backupExistingFile(transaction, targetUri, websitePath);
-
         if (!Files.exists(source)) {
-            info().transactionID(transaction.id())
-                    .data("path", source.toString())
-                    .log("could not move file because it does not exist");
+            HotPathLog.info(transaction.id(), "could not move file because it does not exist",
+                    () -> info().transactionID(transaction.id()).data("path", source.toString()));
             return result;
         }
 
         // if the file already exists it has already been copied so ignore it.
         // doing this allows the publish to be reattempted if it fails without trying to copy files over existing files.
         if (Files.exists(finalWebsiteTarget)) {
-            info().transactionID(transaction.id())
-                    .data("path", finalWebsiteTarget.toString())
-                    .log("could not move file as it already exists");
+            HotPathLog.info(transaction.id(), "could not move file as it already exists",
+                    () -> info().transactionID(transaction.id()).data("path", finalWebsiteTarget.toString()));
             return result;
         }
 
-        if (target != null) {
-            Files.createDirectories(target.getParent());
-            copyFile(source.toFile(), target.toFile());
-            result.setSuccess(true);
-        }
-
-        // Update the transaction
         UriInfo uriInfo = new UriInfo(targetUri, new Date());
         uriInfo.stop();
-        uriInfo.setAction(action);
-
+        uriInfo.setAction(UriInfo.CREATE);
+        uriInfo.setSize(Files.size(source));
         result.setUriInfo(uriInfo);
+        result.setSuccess(true);
         return result;
     }
 
@@ -447,66 +688,317 @@ public class Publisher {
     }
 
     public boolean commit(Transaction transaction, Path website) throws IOException {
+        long start = System.nanoTime();
         boolean result = true;
+        List<PendingCopy> copies = stageCopiesFromDeletes(transaction, website);
         applyTransactionDeletes(transaction, website);
-        LocalDateTime start = LocalDateTime.now();
 
-        // Then move file updates from the transaction to the website.
-        List<Future<Boolean>> futures = new ArrayList<>();
+        // Make the manifest copies on the website before committing uploads, so an uploaded file takes precedence.
+        List<CommitPlan> plans = new ArrayList<>();
+        if (!copies.isEmpty()) {
+            long copiesStart = System.nanoTime();
+            Map<String, PendingCopy> byTarget = new HashMap<>();
+            for (PendingCopy copy : copies) {
+                byTarget.put(copy.target(), copy);
+            }
+            CommitPlan copyPlan = CommitPlan.of(new ArrayList<>(byTarget.keySet()),
+                    CommitChunk.chunkSize(byTarget.size(), pool.size()));
+            plans.add(copyPlan);
+            result &= commitFiles(transaction, copyPlan, byTarget.size(), website,
+                    (uri, uriInfo) -> commitCopy(byTarget.get(uri), uriInfo, transaction, website));
+            removeMadeCopies(transaction, copies);
+            transaction.recordPhase(Timeline.COMMIT_MANIFEST_COPIES, System.nanoTime() - copiesStart);
+        }
 
+        // Then move file updates from the transaction to the website.
+        long copyStart = System.nanoTime();
+        List<String> uris;
         try {
-            List<String> uris = listUris(transaction);
-            for (String uri : uris) {
-                futures.add(pool.submit(() -> commitFile(uri, transaction, website)));
-            }
+            uris = listUris(transaction);
         } catch (IOException e) {
             throw error().transactionID(transaction.id()).logException(e, "commit threw unexpected exception");
         }
+        CommitPlan plan = CommitPlan.of(uris, CommitChunk.chunkSize(uris.size(), pool.size()));
+        plans.add(plan);
+        result &= commitFiles(transaction, plan, uris.size(), website,
+                (uri, uriInfo) -> commitFile(uri, uriInfo, transaction, website));
+        transaction.recordPhase(Timeline.COMMIT_COPY, System.nanoTime() - copyStart);
+
+        if (result && FileSync.batched()) {
+            result &= syncCommit(transaction, plans, website);
+        }
+        transaction.commit(result);
+
+        if (result) {
+            transaction.preparedDirectories().clear();
+            // Persist the final state now: once ended the transaction is no longer in memory to be written out.
+            Transactions.update(transaction);
+            Transactions.end(transaction);
+        }
 
-        // Process results of any asynchronous writes
-        for (Future<Boolean> future : futures) {
+        COMMIT_DURATION.labels(result(result)).observeSince(start);
+        return result;
+    }
+
+    /**
+     * Commits one file of a {@link CommitPlan}.
+     */
+    private interface FileCommit {
+
+        /**
+         * @return true if the file was committed.
+         */
+        boolean commit(String uri, UriInfo uriInfo) throws IOException;
+    }
+
+    /**
+     * Create the website directories the files go in, then commit the files in chunks on the publishing threads,
+     * collecting the results as each chunk finishes. Every file is attempted even if some fail, so the website is not
+     * left with some directories updated and others not. Chunks only stop taking new files if the commit cannot go on:
+     * it is interrupted, or the website or transaction directory has gone, and the rest are left for a retry.
+     *
+     * @return true if every file was committed.
+     */
+    private boolean commitFiles(Transaction transaction, CommitPlan plan, int files, Path website,
+                                FileCommit fileCommit) throws IOException {
+        Map<String, UriInfo> uriInfos = new HashMap<>();
+        for (UriInfo uriInfo : transaction.uris()) {
+            uriInfos.put(uriInfo.uri(), uriInfo);
+        }
+
+        List<String> failedDirectories = plan.createDirectories(website);
+        if (!failedDirectories.isEmpty()) {
+            error().transactionID(transaction.id()).data("directories", failedDirectories)
+                    .log("unable to create website directories for commit");
+        }
+
+        List<CommitChunk> chunks = plan.chunks();
+        Path content = Transactions.content(transaction);
+        BlockingQueue<CommitChunk.Result> completed = new LinkedBlockingQueue<>();
+        AtomicBoolean abort = new AtomicBoolean();
+        for (CommitChunk chunk : chunks) {
+            pool.submit(WorkClass.COMMIT, transaction, chunk.size(), () -> {
+                CommitChunk.Result chunkResult = new CommitChunk.Result();
+                try {
+                    commitChunk(chunk, chunkResult, uriInfos, fileCommit, abort, website, content);
+                } catch (IOException | RuntimeException | Error e) {
+                    // Count the rest of the chunk as failed so the commit still hears from every chunk.
+                    chunkResult.failed = chunk.size() - chunkResult.committed - chunkResult.skipped;
+                    error().transactionID(transaction.id()).exception(e).log("unexpected error committing files");
+                } finally {
+                    completed.add(chunkResult);
+                }
+                return null;
+            });
+        }
+
+        int committed = 0;
+        int failed = 0;
+        int skipped = 0;
+        int nextProgress = PROGRESS_STEP_PERCENT;
+        for (int i = 0; i < chunks.size(); i++) {
+            CommitChunk.Result chunkResult;
             try {
-                result &= future.get().booleanValue();
-            } catch (InterruptedException | ExecutionException e) {
+                chunkResult = completed.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abort.set(true);
                 throw error().transactionID(transaction.id())
                         .logException(new IOException("Error on commit of file", e), "Error on commit of file");
             }
+
+            committed += chunkResult.committed;
+            failed += chunkResult.failed;
+            skipped += chunkResult.skipped;
+            int percent = (int) ((committed + failed + skipped) * 100L / files);
+            if (files >= PROGRESS_MIN_FILES && percent >= nextProgress) {
+                info().transactionID(transaction.id()).data("committed", committed).data("failed", failed)
+                        .data("total", files).data("percent", percent).log("commit progress");
+                nextProgress = (percent / PROGRESS_STEP_PERCENT + 1) * PROGRESS_STEP_PERCENT;
+            }
         }
 
-        transaction.commit(result);
+        if (skipped > 0) {
+            transaction.addError("Commit stopped after " + failed + " failed file(s) because the website or "
+                    + "transaction directory is missing: " + skipped + " file(s) were not committed.");
+            error().transactionID(transaction.id()).data("committed", committed).data("failed", failed)
+                    .data("skipped", skipped).log("commit aborted, website or transaction directory missing");
+        }
+        return failed == 0 && skipped == 0;
+    }
+
+    private void commitChunk(CommitChunk chunk, CommitChunk.Result result, Map<String, UriInfo> uriInfos,
+                             FileCommit fileCommit, AtomicBoolean abort, Path website, Path content)
+            throws IOException {
+        for (String uri : chunk.uris()) {
+            if (abort.get()) {
+                result.skipped++;
+                continue;
+            }
+
+            UriInfo uriInfo = uriInfos.get(uri);
+            if (uriInfo == null) {
+                uriInfo = new UriInfo(uri);
+            }
+            if (fileCommit.commit(uri, uriInfo)) {
+                result.committed++;
+            } else {
+                result.failed++;
+                if (!Files.isDirectory(website) || !Files.isDirectory(content)) {
+                    abort.set(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sync the committed files to disk in parallel on the publishing threads, then each directory the commit touched
+     * once, so that the commit is only reported as successful once it would survive a host crash.
+     *
+     * @return true if everything was synced.
+     */
+    private boolean syncCommit(Transaction transaction, List<CommitPlan> plans, Path website) {
+        long start = System.nanoTime();
+        List<CommitChunk> chunks = new ArrayList<>();
+        for (CommitPlan plan : plans) {
+            chunks.addAll(plan.chunks());
+        }
+        List<Future<Void>> futures = new ArrayList<>();
+        for (CommitChunk chunk : chunks) {
+            futures.add(pool.submit(WorkClass.COMMIT, transaction, chunk.size(), () -> {
+                for (String uri : chunk.uris()) {
+                    long fileStart = System.nanoTime();
+                    FileSync.file(PathUtils.toPath(uri, website));
+                    transaction.recordFile(Timeline.COMMIT_SYNC, System.nanoTime() - fileStart, 0);
+                }
+                return null;
+            }));
+        }
+
+        boolean result = true;
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result &= syncFailed(transaction, e);
+            } catch (ExecutionException e) {
+                result &= syncFailed(transaction, e.getCause());
+            }
+        }
 
         if (result) {
-            Transactions.end(transaction);
+            List<String> deleted = transaction.urisToDelete().stream().map(UriInfo::uri).collect(Collectors.toList());
+            Set<String> directories = new TreeSet<>();
+            for (CommitPlan plan : plans) {
+                directories.addAll(plan.touchedDirectories(deleted));
+            }
+            for (String directory : directories) {
+                long directoryStart = System.nanoTime();
+                try {
+                    FileSync.directory(PathUtils.toPath(directory, website));
+                } catch (IOException e) {
+                    result = syncFailed(transaction, e);
+                    break;
+                }
+                transaction.recordFile(Timeline.COMMIT_SYNC, System.nanoTime() - directoryStart, 0);
+            }
         }
 
+        COMMIT_SYNC_DURATION.labels(result(result)).observeSince(start);
+        transaction.recordPhase(Timeline.COMMIT_SYNC, System.nanoTime() - start);
         return result;
     }
 
+    private static boolean syncFailed(Transaction transaction, Throwable t) {
+        transaction.addError("Unable to sync committed files to disk: " + t);
+        error().transactionID(transaction.id()).exception(t).log("error syncing commit to disk");
+        return false;
+    }
+
     private void applyTransactionDeletes(Transaction transaction, Path website) throws IOException {
-        LocalDateTime start = LocalDateTime.now();
+        long start = System.nanoTime();
 
         // Apply any deletes that are defined in the transaction first to ensure we do not delete updated files.
         for (UriInfo uriInfo : transaction.urisToDelete()) {
+            // A delete already applied by an earlier attempt must not be repeated: its backup is the original.
+            if (UriInfo.COMMITTED.equals(uriInfo.status())) {
+                continue;
+            }
+
             String uri = uriInfo.uri();
             Path target = PathUtils.toPath(uri, website);
 
-            info().data("path", target.toString()).transactionID(transaction.id()).log("deleting directory");
+            HotPathLog.info(transaction.id(), "deleting directory",
+                    () -> info().data("path", target.toString()).transactionID(transaction.id()));
+            long deleteStart = System.nanoTime();
+            DeleteEvent event = new DeleteEvent();
+            event.begin();
+            if (Files.exists(target)) {
+                moveToBackup(transaction, uri, target);
+                if (FileSync.strict()) {
+                    FileSync.directory(target.getParent());
+                }
+            }
+            uriInfo.commit();
+            transaction.uriChanged();
+            transaction.recordFile(Timeline.COMMIT_DELETES, System.nanoTime() - deleteStart, 0);
+            event.record(transaction.id(), uri, 0);
+        }
+        COMMIT_DELETES_DURATION.observeSince(start);
+        transaction.recordPhase(Timeline.COMMIT_DELETES, System.nanoTime() - start);
+    }
+
+    /**
+     * Delete a website directory by renaming it into the transaction's backup directory, so it is backed up by the
+     * same single operation. Files under it already backed up by uploads are superseded and buried as
+     * {@link Tombstones}. If the website and the transaction store are on different filesystems the directory is
+     * copied and deleted instead.
+     */
+    private void moveToBackup(Transaction transaction, String uri, Path target) throws IOException {
+        Path backup = PathUtils.toPath(uri, Transactions.backup(transaction));
+        if (Files.exists(backup)) {
+            Transactions.tombstones().bury(backup);
+            transaction.directories().keySet().removeIf(directory -> directory.startsWith(backup));
+        }
+        Files.createDirectories(backup.getParent());
+
+        try {
+            Files.move(target, backup, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            long start = System.nanoTime();
+            BackupCopyEvent event = new BackupCopyEvent();
+            event.begin();
+            FileUtils.copyDirectory(target.toFile(), backup.toFile());
+            BACKUP_DURATION.labels("directory").observeSince(start);
+            event.record(transaction.id(), uri, 0);
             FileUtils.deleteDirectory(target.toFile());
         }
+        if (FileSync.strict()) {
+            FileSync.directory(backup.getParent());
+        }
+    }
+
+    private static String result(boolean success) {
+        return success ? "success" : "failure";
     }
 
     /**
-     * Commits a single file in a transaction to the website, backing up any existing file if necessary.
+     * Commits a single file in a transaction to the website. The file's directory has already been created by the
+     * {@link CommitPlan}.
      *
      * @param uri         The URI to be committed.
+     * @param uriInfo     The transaction's record of the URI.
      * @param transaction The transaction to commit from.
      * @param website     The website directory to commit to.
      * @throws IOException If a filesystem error occurs.
      */
-    boolean commitFile(String uri, Transaction transaction, Path website) throws IOException {
+    boolean commitFile(String uri, UriInfo uriInfo, Transaction transaction, Path website) throws IOException {
+        long start = System.nanoTime();
+        CommitFileEvent event = new CommitFileEvent();
+        event.begin();
         boolean result = false;
 
-        UriInfo uriInfo = findUri(uri, transaction);
         Path source = PathUtils.toPath(uri, Transactions.content(transaction));
         Path target = PathUtils.toPath(uri, website);
 
@@ -516,12 +1008,13 @@ public class Publisher {
 
             // Publish the file
             // NB we don't need to worry about overwriting because
-            // any existing copy will already have been moved.
-            Files.createDirectories(target.getParent());
+            // any existing copy will already have been backed up.
             // NB We're using copy rather than move for two reasons:
             // - To be able to review a transaction after the fact and see all the files that were published
             // - If we use encryption we need to copy through a cipher stream to handle decryption
-            copyFile(source.toFile(), target.toFile());
+            if (!renamePrepared(transaction, uri, source, target)) {
+                replaceFile(transaction, source, target, false);
+            }
             uriInfo.commit();
             result = true;
 
@@ -536,31 +1029,616 @@ public class Publisher {
                 transaction.addError(error);
             }
         }
+        transaction.uriChanged();
+        COMMIT_FILE_DURATION.labels(result(result)).observeSince(start);
+        transaction.recordFile(Timeline.COMMIT_COPY, System.nanoTime() - start, uriInfo.size());
+        event.record(transaction.id(), uri, uriInfo.size());
+        return result;
+    }
+
+    /**
+     * Makes a manifest copy directly on the website. If the target has appeared since the manifest was checked it is
+     * backed up first, unless this is a retry and the backup has already been made.
+     *
+     * @param copy        The copy to make.
+     * @param uriInfo     The transaction's record of the target URI.
+     * @param transaction The transaction being committed.
+     * @param website     The website directory.
+     */
+    boolean commitCopy(PendingCopy copy, UriInfo uriInfo, Transaction transaction, Path website) {
+        if (UriInfo.COMMITTED.equals(uriInfo.status())) {
+            // Made by an earlier attempt: its source may since have been replaced by one of the uploaded files.
+            return true;
+        }
+
+        long start = System.nanoTime();
+        boolean result = false;
+
+        Path source = PathUtils.toPath(copy.source(), website);
+        Path target = PathUtils.toPath(copy.target(), website);
+        try {
+            if (Files.notExists(PathUtils.toPath(copy.target(), Transactions.backup(transaction)))
+                    && UriInfo.UPDATE.equals(backupExistingFile(transaction, copy.target(), website))) {
+                uriInfo.setAction(UriInfo.UPDATE);
+            }
+            if (!renamePrepared(transaction, copy.target(), source, target)) {
+                replaceFile(transaction, source, target, false);
+            }
+            uriInfo.commit();
+            result = true;
+        } catch (Throwable t) {
+            uriInfo.fail("Error copying '" + source + "' to '" + target + "'.\n" + ExceptionUtils.getStackTrace(t));
+        }
+        transaction.uriChanged();
+        COMMIT_FILE_DURATION.labels(result(result)).observeSince(start);
+        transaction.recordFile(Timeline.COMMIT_MANIFEST_COPIES, System.nanoTime() - start, uriInfo.size());
         return result;
     }
 
-    public boolean rollback(Transaction transaction) throws IOException {
+    /**
+     * Forget the manifest copies that have been made, so a retried commit does not make them again from a source the
+     * first attempt may have updated.
+     */
+    private static void removeMadeCopies(Transaction transaction, List<PendingCopy> copies) {
+        Set<String> committed = new HashSet<>();
+        for (UriInfo uriInfo : transaction.uris()) {
+            if (UriInfo.COMMITTED.equals(uriInfo.status())) {
+                committed.add(uriInfo.uri());
+            }
+        }
+        List<PendingCopy> made = new ArrayList<>();
+        for (PendingCopy copy : copies) {
+            if (committed.contains(copy.target())) {
+                made.add(copy);
+            }
+        }
+        if (!made.isEmpty()) {
+            transaction.removeCopies(made);
+        }
+    }
+
+    /**
+     * Manifest copies from a directory the transaction deletes cannot be made on the website once the deletes are
+     * applied, so they are copied into the transaction first, to be committed with the uploaded files.
+     *
+     * @return the copies still to make on the website.
+     */
+    private List<PendingCopy> stageCopiesFromDeletes(Transaction transaction, Path website) {
+        List<PendingCopy> copies = transaction.copies();
+        if (copies.isEmpty() || transaction.urisToDelete().isEmpty()) {
+            return copies;
+        }
+
+        List<Path> deleted = new ArrayList<>();
+        for (UriInfo uriInfo : transaction.urisToDelete()) {
+            deleted.add(PathUtils.toPath(uriInfo.uri(), website));
+        }
+
+        List<PendingCopy> staged = new ArrayList<>();
+        for (PendingCopy copy : copies) {
+            Path source = PathUtils.toPath(copy.source(), website);
+            if (deleted.stream().noneMatch(source::startsWith)) {
+                continue;
+            }
+            try {
+                Path target = PathUtils.toPath(copy.target(), Transactions.content(transaction));
+                createParentDirectory(transaction, target);
+                copyFile(source.toFile(), target.toFile());
+                staged.add(copy);
+            } catch (IOException e) {
+                // Left pending, so the copy fails at commit and is reported against its URI.
+                error().transactionID(transaction.id()).data("copy", copy.toString()).exception(e)
+                        .log("unable to stage manifest copy from a deleted directory");
+            }
+        }
+        transaction.removeCopies(staged);
+        return transaction.copies();
+    }
+
+    /**
+     * Replace a website file by writing its {@link #shadow(Path, Transaction) shadow} and renaming it over the target,
+     * so readers see either the old or the new file, never a partial one, and a hard linked backup of the old file is
+     * left untouched.
+     *
+     * @param link true to hard link the source as the shadow, if the {@link BackupMode} links, rather than copy it.
+     */
+    private void replaceFile(Transaction transaction, Path source, Path target, boolean link) throws IOException {
+        Path shadow = shadow(target, transaction);
+        try {
+            if (link && backupMode == BackupMode.LINK) {
+                Files.deleteIfExists(shadow);
+                linkOrCopy(source, shadow);
+            } else {
+                copyFile(source.toFile(), shadow.toFile());
+            }
+            long syncNanos = 0;
+            if (FileSync.strict()) {
+                long syncStart = System.nanoTime();
+                FileSync.file(shadow);
+                syncNanos = System.nanoTime() - syncStart;
+            }
+            Files.move(shadow, target, StandardCopyOption.ATOMIC_MOVE);
+            if (FileSync.strict()) {
+                long syncStart = System.nanoTime();
+                FileSync.directory(target.getParent());
+                transaction.recordFile(Timeline.COMMIT_SYNC, syncNanos + System.nanoTime() - syncStart, 0);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(shadow);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the hidden file a transaction writes next to a website file before renaming it into place. If the
+     * website file's name is too long to add the transaction ID to, a digest of the name is used in its place.
+     */
+    static Path shadow(Path target, Transaction transaction) {
+        String name = target.getFileName().toString();
+        String shadow = "." + name + "." + transaction.id();
+        if (shadow.getBytes(StandardCharsets.UTF_8).length > MAX_NAME_BYTES) {
+            shadow = "." + DigestUtils.sha1Hex(name) + "." + transaction.id();
+        }
+        return target.resolveSibling(shadow);
+    }
+
+    /**
+     * @return true if the URI names a {@link #shadow(Path, Transaction) shadow} staged by some transaction, which may
+     * have been moved into a backup along with a deleted directory.
+     */
+    static boolean isShadow(String uri) {
+        return SHADOW_NAME.matcher(uri.substring(uri.lastIndexOf('/') + 1)).matches();
+    }
+
+    /**
+     * Rename the shadow staged by {@link #prepare(Transaction, Path)} into place, if the file it was staged from has
+     * not changed since.
+     *
+     * @return true if the staged file was committed, false if the file needs to be copied.
+     */
+    private static boolean renamePrepared(Transaction transaction, String uri, Path source, Path target)
+            throws IOException {
+        String staged = transaction.prepared().remove(uri);
+        Path shadow = shadow(target, transaction);
+        if (staged == null || !staged.equals(signature(source)) || !Files.exists(shadow)) {
+            return false;
+        }
+
+        Files.move(shadow, target, StandardCopyOption.ATOMIC_MOVE);
+        if (FileSync.strict()) {
+            long syncStart = System.nanoTime();
+            FileSync.directory(target.getParent());
+            transaction.recordFile(Timeline.COMMIT_SYNC, System.nanoTime() - syncStart, 0);
+        }
+        return true;
+    }
+
+    /**
+     * @return the size and modification time of a file, which change if the file is written again.
+     */
+    private static String signature(Path file) throws IOException {
+        return Files.size(file) + "@" + Files.getLastModifiedTime(file);
+    }
+
+    /**
+     * Stage a transaction on the website ahead of its commit, so the commit only has to rename files into place. The
+     * website directories are created and each uploaded file and manifest copy is written next to its target as a
+     * hidden {@link #shadow(Path, Transaction) shadow}, backing up any target a copy will replace. Uploads are
+     * already backed up when they are received.
+     * <p>
+     * Staging is an optimisation only: a file that changes after it is staged, or that could not be staged, is copied
+     * at commit as usual.
+     *
+     * @param transaction The open transaction to prepare.
+     * @param website     The website directory.
+     * @return true if every file was staged.
+     */
+    public boolean prepare(Transaction transaction, Path website) throws IOException {
+        long start = System.nanoTime();
+        if (!transaction.isOpen()) {
+            transaction.addError("Only an open transaction can be prepared.");
+            return false;
+        }
+
+        // Staged file, keyed by target URI, to the file it is staged from.
+        Map<String, Path> sources = new HashMap<>();
+        Path content = Transactions.content(transaction);
+        for (String uri : listUris(transaction)) {
+            sources.put(uri, PathUtils.toPath(uri, content));
+        }
+
+        Map<String, UriInfo> uriInfos = new HashMap<>();
+        for (UriInfo uriInfo : transaction.uris()) {
+            uriInfos.put(uriInfo.uri(), uriInfo);
+        }
+        for (PendingCopy copy : transaction.copies()) {
+            // An upload to the same URI is committed after the copy and replaces it, so only the upload is staged.
+            if (!sources.containsKey(copy.target())) {
+                sources.put(copy.target(), PathUtils.toPath(copy.source(), website));
+                UriInfo uriInfo = uriInfos.get(copy.target());
+                if (uriInfo != null && Files.notExists(PathUtils.toPath(copy.target(), Transactions.backup(transaction)))
+                        && UriInfo.UPDATE.equals(backupExistingFile(transaction, copy.target(), website))) {
+                    uriInfo.setAction(UriInfo.UPDATE);
+                    transaction.uriChanged();
+                }
+            }
+        }
+
+        // A file under a directory the commit deletes is not staged, or its shadow would be moved into the backup
+        // with the directory. It is copied at commit instead.
+        List<String> deletes = transaction.urisToDelete().stream()
+                .map(uriInfo -> PathUtils.stripTrailingSlash(uriInfo.uri()))
+                .collect(Collectors.toList());
+        sources.keySet().removeIf(uri -> deletes.stream().anyMatch(delete -> uri.startsWith(delete + "/")));
+
+        List<String> uris = new ArrayList<>(sources.keySet());
+        CommitPlan plan = CommitPlan.of(uris, CommitChunk.chunkSize(uris.size(), pool.size()));
+        for (String directory : plan.directories()) {
+            for (String missing = directory; !missing.isEmpty() && Files.notExists(PathUtils.toPath(missing, website));
+                 missing = CommitChunk.directory(missing)) {
+                transaction.preparedDirectories().add(missing);
+            }
+        }
+        List<String> failedDirectories = plan.createDirectories(website);
+        if (!failedDirectories.isEmpty()) {
+            error().transactionID(transaction.id()).data("directories", failedDirectories)
+                    .log("unable to create website directories for prepare");
+        }
+
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (CommitChunk chunk : plan.chunks()) {
+            futures.add(pool.submit(WorkClass.UPLOAD, transaction, chunk.size(), () -> {
+                int staged = 0;
+                for (String uri : chunk.uris()) {
+                    if (stageFile(transaction, uri, sources.get(uri), PathUtils.toPath(uri, website))) {
+                        staged++;
+                    }
+                }
+                return staged;
+            }));
+        }
+
+        int staged = 0;
+        for (Future<Integer> future : futures) {
+            try {
+                staged += future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IOException("Error on prepare of file", e);
+            }
+        }
+
+        long nanos = System.nanoTime() - start;
+        transaction.recordPhase(Timeline.PREPARE, nanos);
+        info().transactionID(transaction.id()).data("staged", staged).data("failed", uris.size() - staged)
+                .data("duration_ms", TimeUnit.NANOSECONDS.toMillis(nanos)).log("transaction prepared");
+        return staged == uris.size();
+    }
+
+    /**
+     * Write the shadow of a website file ready for it to be renamed into place at commit.
+     */
+    private boolean stageFile(Transaction transaction, String uri, Path source, Path target) {
+        long start = System.nanoTime();
+        Path shadow = shadow(target, transaction);
+        try {
+            String signature = signature(source);
+            copyFile(source.toFile(), shadow.toFile());
+            if (FileSync.strict()) {
+                FileSync.file(shadow);
+            }
+            transaction.prepared().put(uri, signature);
+            transaction.recordFile(Timeline.PREPARE, System.nanoTime() - start, Files.size(shadow));
+            return true;
+        } catch (Throwable t) {
+            transaction.addError("Error staging '" + source + "' as '" + shadow + "'.\n"
+                    + ExceptionUtils.getStackTrace(t));
+            return false;
+        }
+    }
+
+    /**
+     * Remove the files a prepare staged on the website for a transaction that will not now commit them, such as one
+     * its client has abandoned. Does nothing if the transaction was never prepared.
+     *
+     * @param transaction The transaction.
+     * @param website     The website directory.
+     */
+    public void removeStagedFiles(Transaction transaction, Path website) {
+        if (transaction.timeline().phase(Timeline.PREPARE) == null) {
+            return;
+        }
+
+        Map<String, UriInfo> uriInfos = new HashMap<>();
+        for (UriInfo uriInfo : transaction.uris()) {
+            uriInfos.put(uriInfo.uri(), uriInfo);
+        }
+        Set<String> uris = new TreeSet<>(uriInfos.keySet());
+        try {
+            uris.addAll(listUris(transaction));
+        } catch (IOException e) {
+            error().transactionID(transaction.id()).exception(e)
+                    .log("unable to list transaction files, removing staged files for recorded URIs only");
+        }
+        removeShadows(transaction, uris, uriInfos, website);
+        info().transactionID(transaction.id()).data("uris", uris.size()).log("staged files removed");
+    }
+
+    /**
+     * Remove the files a prepare staged on the website that were never committed, then the directories it created
+     * that are left empty.
+     */
+    private void removeShadows(Transaction transaction, Collection<String> uris, Map<String, UriInfo> uriInfos,
+                               Path website) {
+        for (String uri : uris) {
+            UriInfo uriInfo = uriInfos.get(uri);
+            if (uriInfo == null || !reachedWebsite(uriInfo)) {
+                try {
+                    Files.deleteIfExists(shadow(PathUtils.toPath(uri, website), transaction));
+                } catch (IOException e) {
+                    error().transactionID(transaction.id()).data("uri", uri).exception(e)
+                            .log("unable to remove staged file");
+                }
+            }
+        }
+        transaction.prepared().clear();
+
+        // Deepest first, so a parent is only removed once its created subdirectories have been.
+        List<String> directories = new ArrayList<>(transaction.preparedDirectories());
+        directories.sort(Comparator.reverseOrder());
+        for (String directory : directories) {
+            try {
+                Files.deleteIfExists(PathUtils.toPath(directory, website));
+            } catch (DirectoryNotEmptyException e) {
+                // Something else has been put in it since, so it is still needed.
+            } catch (IOException e) {
+                error().transactionID(transaction.id()).data("directory", directory).exception(e)
+                        .log("unable to remove directory created by prepare");
+            }
+        }
+        transaction.preparedDirectories().clear();
+    }
+
+    /**
+     * Roll back a transaction, without restoring the website for a transaction that has ended.
+     *
+     * @see #rollback(Transaction, Path, boolean)
+     */
+    public boolean rollback(Transaction transaction, Path website) throws IOException {
+        return rollback(transaction, website, false);
+    }
+
+    /**
+     * Roll back a transaction. Anything it has already committed to the website, in full or in part, is undone on the
+     * publishing threads: updated files are restored from the backup, created files are removed and deleted
+     * directories are put back.
+     * <p>
+     * Once a transaction has ended, later transactions may have published over the files it committed, and restoring
+     * its backups would undo them. So the website is only restored for an ended transaction if the rollback is
+     * forced, which can be done for as long as its backup is kept. An archived transaction cannot be rolled back.
+     *
+     * @param transaction The transaction to roll back.
+     * @param website     The website directory.
+     * @param force       Restore the website even if the transaction has ended.
+     * @return true if the website was restored and every file rolled back.
+     */
+    public boolean rollback(Transaction transaction, Path website, boolean force) throws IOException {
+        long start = System.nanoTime();
+        if (Transactions.isArchived(transaction)) {
+            transaction.addError(ARCHIVED_ROLLBACK_ERR);
+            error().transactionID(transaction.id()).log(ARCHIVED_ROLLBACK_ERR);
+            ROLLBACK_DURATION.labels(result(false)).observeSince(start);
+            return false;
+        }
+
         boolean result = true;
+        boolean inMemory = Transactions.getTransactionMap().containsKey(transaction.id());
+        boolean committed = transaction.uris().stream().anyMatch(Publisher::reachedWebsite)
+                || transaction.urisToDelete().stream().anyMatch(Publisher::reachedWebsite);
+        if (committed && !inMemory && !force) {
+            transaction.addError(ENDED_ROLLBACK_ERR);
+            error().transactionID(transaction.id()).log(ENDED_ROLLBACK_ERR);
+            ROLLBACK_DURATION.labels(result(false)).observeSince(start);
+            return false;
+        }
+
+        Map<String, UriInfo> uriInfos = new HashMap<>();
+        for (UriInfo uriInfo : transaction.uris()) {
+            uriInfos.put(uriInfo.uri(), uriInfo);
+        }
+        Set<String> uris = new TreeSet<>(uriInfos.keySet());
+        uris.addAll(listUris(transaction));
+
+        if (transaction.timeline().phase(Timeline.PREPARE) != null) {
+            removeShadows(transaction, uris, uriInfos, website);
+        }
+
+        Set<String> failed = ConcurrentHashMap.newKeySet();
+        if (committed) {
+            result = restoreWebsite(transaction, uriInfos, website, failed);
+        }
 
-        List<String> uris = listUris(transaction);
         for (String uri : uris) {
-            result &= rollbackFile(uri, transaction);
+            if (!failed.contains(uri)) {
+                result &= rollbackFile(uri, uriInfos.getOrDefault(uri, new UriInfo(uri)), transaction);
+            }
         }
 
         transaction.rollback(result);
-        Transactions.update(transaction);
-
-        if (result) {
-            Transactions.end(transaction);
+        if (inMemory) {
+            Transactions.update(transaction);
+            if (result) {
+                Transactions.end(transaction);
+            }
+        } else {
+            Transactions.updateClosed(transaction);
         }
 
+        ROLLBACK_DURATION.labels(result(result)).observeSince(start);
         return result;
     }
 
-    boolean rollbackFile(String uri, Transaction transaction) throws IOException {
+    /**
+     * @return true if a commit has started changing the website for the URI.
+     */
+    private static boolean reachedWebsite(UriInfo uriInfo) {
+        return UriInfo.COMMITTED.equals(uriInfo.status()) || UriInfo.COMMIT_FAILED.equals(uriInfo.status());
+    }
+
+    /**
+     * Undo the changes a commit made to the website. Files are restored in directory-grouped chunks on the commit
+     * lane of the publishing threads, and every file is attempted even if some fail.
+     *
+     * @param failed collects the URIs that could not be restored or removed.
+     * @return true if the website was restored.
+     */
+    private boolean restoreWebsite(Transaction transaction, Map<String, UriInfo> uriInfos, Path website,
+                                   Set<String> failed) throws IOException {
+        long start = System.nanoTime();
+        Path backup = Transactions.backup(transaction);
+        if (backup == null) {
+            transaction.addError("Unable to restore the website: the transaction's backup is no longer available.");
+            error().transactionID(transaction.id()).log("unable to restore website as transaction backup is missing");
+            return false;
+        }
+
+        // Put back the whole of each deleted directory, which includes any files the transaction then updated.
+        Set<String> restores = new TreeSet<>();
+        List<UriInfo> deletes = new ArrayList<>();
+        for (UriInfo uriInfo : transaction.urisToDelete()) {
+            if (reachedWebsite(uriInfo)) {
+                deletes.add(uriInfo);
+                Path directory = PathUtils.toPath(uriInfo.uri(), backup);
+                if (Files.exists(directory)) {
+                    for (String uri : PathUtils.listUris(directory)) {
+                        // Files other transactions staged in the directory were moved with it but never published.
+                        if (!isShadow(uri)) {
+                            restores.add(PathUtils.toUri(PathUtils.toPath(uri, directory), backup));
+                        }
+                    }
+                }
+            }
+        }
+
+        List<String> removals = new ArrayList<>();
+        for (UriInfo uriInfo : uriInfos.values()) {
+            if (!reachedWebsite(uriInfo)) {
+                continue;
+            }
+            if (Files.exists(PathUtils.toPath(uriInfo.uri(), backup))) {
+                restores.add(uriInfo.uri());
+            } else if (UriInfo.CREATE.equals(uriInfo.action())) {
+                removals.add(uriInfo.uri());
+            }
+        }
+
+        int files = restores.size() + removals.size();
+        int chunkSize = CommitChunk.chunkSize(files, pool.size());
+        CommitPlan restorePlan = CommitPlan.of(new ArrayList<>(restores), chunkSize);
+        List<String> failedDirectories = restorePlan.createDirectories(website);
+        if (!failedDirectories.isEmpty()) {
+            error().transactionID(transaction.id()).data("directories", failedDirectories)
+                    .log("unable to create website directories for rollback");
+        }
+
+        List<Future<Void>> futures = new ArrayList<>();
+        for (CommitChunk chunk : restorePlan.chunks()) {
+            futures.add(pool.submit(WorkClass.COMMIT, transaction, chunk.size(), () -> {
+                for (String uri : chunk.uris()) {
+                    restoreFile(transaction, uri, uriInfos.get(uri), backup, website, failed);
+                }
+                return null;
+            }));
+        }
+        for (CommitChunk chunk : CommitPlan.of(removals, chunkSize).chunks()) {
+            futures.add(pool.submit(WorkClass.COMMIT, transaction, chunk.size(), () -> {
+                for (String uri : chunk.uris()) {
+                    removeFile(transaction, uri, uriInfos.get(uri), website, failed);
+                }
+                return null;
+            }));
+        }
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IOException("Error on rollback of file", e);
+            }
+        }
+
+        for (UriInfo uriInfo : deletes) {
+            String prefix = PathUtils.toUri(PathUtils.toPath(uriInfo.uri(), backup), backup) + "/";
+            if (failed.stream().noneMatch(uri -> uri.startsWith(prefix))) {
+                uriInfo.rollback();
+            } else {
+                uriInfo.fail("Unable to restore every file in '" + uriInfo.uri() + "'.");
+            }
+            transaction.uriChanged();
+        }
+
+        long nanos = System.nanoTime() - start;
+        transaction.recordPhase(Timeline.ROLLBACK_RESTORE, nanos);
+        info().transactionID(transaction.id()).data("restored", restores.size()).data("removed", removals.size())
+                .data("failed", failed.size()).data("duration_ms", TimeUnit.NANOSECONDS.toMillis(nanos))
+                .data("files_per_second", nanos > 0 ? files * 1_000_000_000L / nanos : files)
+                .log("website restored for rollback");
+        return failed.isEmpty();
+    }
+
+    /**
+     * Put the backed up version of a file back on the website.
+     */
+    private void restoreFile(Transaction transaction, String uri, UriInfo uriInfo, Path backup, Path website,
+                             Set<String> failed) {
+        long start = System.nanoTime();
+        boolean result = false;
+        Path source = PathUtils.toPath(uri, backup);
+        Path target = PathUtils.toPath(uri, website);
+        try {
+            replaceFile(transaction, source, target, true);
+            result = true;
+        } catch (Throwable t) {
+            rollbackFailed(transaction, uri, uriInfo, "Error restoring '" + source + "' to '" + target + "'.\n", t,
+                    failed);
+        }
+        ROLLBACK_FILE_DURATION.labels("restore", result(result)).observeSince(start);
+        transaction.recordFile(Timeline.ROLLBACK_RESTORE, System.nanoTime() - start, 0);
+    }
+
+    /**
+     * Remove a file the transaction created from the website.
+     */
+    private void removeFile(Transaction transaction, String uri, UriInfo uriInfo, Path website, Set<String> failed) {
+        long start = System.nanoTime();
+        boolean result = false;
+        Path target = PathUtils.toPath(uri, website);
+        try {
+            Files.deleteIfExists(target);
+            if (FileSync.strict()) {
+                FileSync.directory(target.getParent());
+            }
+            result = true;
+        } catch (Throwable t) {
+            rollbackFailed(transaction, uri, uriInfo, "Error removing '" + target + "'.\n", t, failed);
+        }
+        ROLLBACK_FILE_DURATION.labels("remove", result(result)).observeSince(start);
+        transaction.recordFile(Timeline.ROLLBACK_RESTORE, System.nanoTime() - start, 0);
+    }
+
+    private static void rollbackFailed(Transaction transaction, String uri, UriInfo uriInfo, String message,
+                                       Throwable t, Set<String> failed) {
+        failed.add(uri);
+        String error = message + ExceptionUtils.getStackTrace(t);
+        if (uriInfo != null) {
+            uriInfo.fail(error);
+            transaction.uriChanged();
+        } else {
+            transaction.addError(error);
+        }
+    }
+
+    boolean rollbackFile(String uri, UriInfo uriInfo, Transaction transaction) throws IOException {
         boolean result = false;
 
-        UriInfo uriInfo = findUri(uri, transaction);
         Path source = PathUtils.toPath(uri, Transactions.content(transaction));
 
         // We use a very broad exception catch clause to
@@ -581,19 +1659,8 @@ public class Publisher {
                 transaction.addError(error);
             }
         }
+        transaction.uriChanged();
 
         return result;
     }
-
-    UriInfo findUri(String uri, Transaction transaction) {
-        Optional<UriInfo> result = transaction.uris()
-                .parallelStream()
-                .filter(uriInfo -> StringUtils.equals(uri, uriInfo.uri()))
-                .findFirst();
-
-        if (result.isPresent()) {
-            return result.get();
-        }
-        return new UriInfo(uri);
-    }
 }
@@ -0,0 +1,143 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.github.davidcarboni.cryptolite.Random;
+import com.github.onsdigital.thetrain.metrics.Counter;
+import com.github.onsdigital.thetrain.metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
+import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
+
+/**
+ * Directory trees that are no longer needed, waiting to be deleted. A tree is {@link #bury(Path) buried} with a single
+ * rename, so it leaves the publishing path at once however large it is, and a background job deletes it later.
+ * <p>
+ * Deletes go through an {@link IoBudget}, as for {@link BackgroundJob#deleteTree(Path, IoBudget)}. Passes run as a
+ * {@link BackgroundJob}. Anything left by a restart is deleted by the next pass.
+ */
+public class Tombstones {
+
+    static final String DIR = ".tombstones";
+
+    private final Path directory;
+    private final BackgroundJob job;
+    private final Counter deleted;
+    private final Counter deletedBytes;
+
+    /**
+     * Null until started, so deletes are unlimited.
+     */
+    private volatile IoBudget budget;
+
+    /**
+     * @param transactionStore the transaction store directory. Trees can only be buried from the same filesystem.
+     */
+    public Tombstones(Path transactionStore) {
+        this.directory = transactionStore.resolve(DIR);
+        this.job = new BackgroundJob("tombstone-cleaner", this::clean);
+
+        Metrics metrics = Metrics.get();
+        this.deleted = metrics.counter("train_tombstones_deleted_total", "Buried directory trees deleted");
+        this.deletedBytes = metrics.counter("train_tombstones_deleted_bytes_total",
+                "Bytes of files in buried directory trees deleted");
+    }
+
+    /**
+     * Move a tree out of the way to be deleted in the background.
+     *
+     * @param tree the directory to bury.
+     * @return where the tree now is.
+     * @throws IOException if the tree cannot be renamed, including if it is on a different filesystem.
+     */
+    public Path bury(Path tree) throws IOException {
+        Files.createDirectories(directory);
+        return Files.move(tree, directory.resolve(Random.id()), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Start deleting buried trees periodically.
+     *
+     * @param intervalMillis the delay between the end of one pass and the start of the next.
+     * @param budget         the {@link IoBudget} to delete within.
+     * @param lane           the {@link Executor} to run each pass on.
+     */
+    public void start(long intervalMillis, IoBudget budget, Executor lane) {
+        this.budget = budget;
+        job.start(intervalMillis, lane);
+    }
+
+    /**
+     * Stop cleaning. A tree part way through being deleted is finished by a later pass.
+     */
+    public void shutdown() {
+        job.shutdown();
+    }
+
+    /**
+     * Delete every buried tree.
+     *
+     * @return the number of trees deleted.
+     */
+    public int clean() {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+
+        long start = System.currentTimeMillis();
+        int count = 0;
+
+        List<Path> trees;
+        try (Stream<Path> list = Files.list(directory)) {
+            trees = list.collect(Collectors.toList());
+        } catch (IOException e) {
+            error().exception(e).log("error listing tombstones");
+            return count;
+        }
+
+        for (Path tree : trees) {
+            try {
+                delete(tree);
+                count++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException e) {
+                error().data("path", tree.toString()).exception(e)
+                        .log("error deleting tombstone, will retry on the next pass");
+            }
+        }
+
+        if (count > 0) {
+            info().data("deleted", count).data("duration_ms", System.currentTimeMillis() - start)
+                    .log("tombstone cleaning pass completed");
+        }
+        return count;
+    }
+
+    private void delete(Path tree) throws IOException, InterruptedException {
+        long bytes = BackgroundJob.deleteTree(tree, budget);
+        deleted.increment();
+        deletedBytes.increment(bytes);
+    }
+
+    /**
+     * @return the trees waiting to be deleted.
+     */
+    List<Path> list() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> list = Files.list(directory)) {
+            return list.collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.onsdigital.thetrain.json.Transaction;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Read access to a transaction that has been packed into a single archive by the {@link TransactionArchiver}. The
+ * archive is a zip file named <code>&lt;transaction ID&gt;.zip</code> in the transaction store, holding the
+ * {@value Transactions#JSON} and the {@value Transactions#CONTENT} and {@value Transactions#BACKUP} trees under the
+ * same relative paths as the transaction directory.
+ */
+public class TransactionArchive {
+
+    static final String EXTENSION = ".zip";
+
+    /**
+     * @param transactionStore the transaction store directory.
+     * @param id               the transaction ID.
+     * @return the path the transaction is archived to.
+     */
+    static Path path(Path transactionStore, String id) {
+        return transactionStore.resolve(id + EXTENSION);
+    }
+
+    /**
+     * @param path a path in the transaction store.
+     * @return true if the path is a transaction archive.
+     */
+    static boolean isArchive(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(EXTENSION) && !name.startsWith(".") && Files.isRegularFile(path);
+    }
+
+    /**
+     * @param archive a transaction archive.
+     * @return the ID of the archived transaction.
+     */
+    static String id(Path archive) {
+        String name = archive.getFileName().toString();
+        return name.substring(0, name.length() - EXTENSION.length());
+    }
+
+    /**
+     * Read the transaction Json from an archive.
+     *
+     * @param archive      the transaction archive.
+     * @param objectMapper the mapper to read the Json with.
+     * @return the {@link Transaction}.
+     * @throws IOException If the archive cannot be read or does not contain the transaction Json.
+     */
+    static Transaction read(Path archive, ObjectMapper objectMapper) throws IOException {
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            ZipEntry entry = zip.getEntry(Transactions.JSON);
+            if (entry == null) {
+                throw new NoSuchFileException(archive.toString() + "!" + Transactions.JSON);
+            }
+            try (InputStream input = zip.getInputStream(entry)) {
+                return objectMapper.readValue(input, Transaction.class);
+            }
+        }
+    }
+
+    /**
+     * List the files in one area of an archived transaction.
+     *
+     * @param archive the transaction archive.
+     * @param area    either {@value Transactions#CONTENT} or {@value Transactions#BACKUP}.
+     * @return the URIs of the files in the area, sorted.
+     * @throws IOException If the archive cannot be read.
+     */
+    static List<String> listUris(Path archive, String area) throws IOException {
+        String prefix = area + "/";
+        List<String> result = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && entry.getName().startsWith(prefix)) {
+                    result.add(entry.getName().substring(area.length()));
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,172 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.metrics.Counter;
+import com.github.onsdigital.thetrain.metrics.Metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
+import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
+
+/**
+ * Background job packing the directories of old committed and rolled back transactions into a single compressed
+ * {@link TransactionArchive} each, so the store does not keep millions of small files forever. Archived transactions
+ * stay readable through {@link Transactions#get(String)} and {@link Transactions#listFiles(com.github.onsdigital.thetrain.json.Transaction, String)}.
+ * <p>
+ * All reads and writes go through an {@link IoBudget} so archiving never competes with a live publish. The archive is
+ * written to a temporary file and renamed into place before the directory is deleted, so at every point either the
+ * directory or the complete archive exists.
+ * <p>
+ * Passes run as a {@link BackgroundJob}, so they only start when no commit or upload is waiting for a thread.
+ * <p>
+ * Files a prepare staged on the website and that were never committed are removed before a transaction is archived.
+ */
+public class TransactionArchiver {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path transactionStore;
+    private final long archiveAfterMillis;
+    private final Path website;
+    private final IoBudget budget;
+    private final BackgroundJob job;
+    private final Counter archived;
+    private final Counter archivedBytes;
+
+    /**
+     * @param transactionStore   the transaction store directory.
+     * @param archiveAfterMillis how long after ending a transaction becomes eligible for archiving.
+     * @param budget             the {@link IoBudget} to read and write within.
+     * @param website            the website directory, to remove staged files from.
+     */
+    public TransactionArchiver(Path transactionStore, long archiveAfterMillis, IoBudget budget, Path website) {
+        this.transactionStore = transactionStore;
+        this.archiveAfterMillis = archiveAfterMillis;
+        this.website = website;
+        this.budget = budget;
+        this.job = new BackgroundJob("transaction-archiver", this::archiveEligible);
+
+        Metrics metrics = Metrics.get();
+        this.archived = metrics.counter("train_transactions_archived_total",
+                "Closed transactions packed into an archive");
+        this.archivedBytes = metrics.counter("train_transactions_archived_bytes_total",
+                "Bytes of transaction files packed into archives, before compression");
+    }
+
+    /**
+     * Start archiving eligible transactions periodically.
+     *
+     * @param intervalMillis the delay between the end of one archiving pass and the start of the next.
+     * @param lane           the {@link Executor} to run each pass on.
+     */
+    public void start(long intervalMillis, Executor lane) {
+        job.start(intervalMillis, lane);
+    }
+
+    /**
+     * Stop archiving. A transaction part way through being archived is left as a directory.
+     */
+    public void shutdown() {
+        job.shutdown();
+    }
+
+    /**
+     * Archive every transaction that has been closed for longer than the threshold.
+     *
+     * @return the number of transactions archived.
+     */
+    public int archiveEligible() {
+        long start = System.currentTimeMillis();
+        int count = 0;
+
+        List<String> candidates;
+        try {
+            candidates = Transactions.archiveCandidates(start - archiveAfterMillis);
+        } catch (IOException e) {
+            error().exception(e).log("error finding transactions to archive");
+            return count;
+        }
+
+        for (String id : candidates) {
+            try {
+                archive(id);
+                count++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException e) {
+                error().transactionID(id).exception(e).log("error archiving transaction, will retry on the next pass");
+            }
+        }
+
+        if (count > 0) {
+            info().data("archived", count).data("duration_ms", System.currentTimeMillis() - start)
+                    .log("transaction archiving pass completed");
+        }
+        return count;
+    }
+
+    void archive(String id) throws IOException, InterruptedException {
+        Path dir = transactionStore.resolve(id);
+        Path temp = transactionStore.resolve("." + id + TransactionArchive.EXTENSION + ".tmp");
+        Path target = TransactionArchive.path(transactionStore, id);
+
+        Transaction transaction = Transactions.get(id);
+        if (transaction != null) {
+            Publisher.getInstance().removeStagedFiles(transaction, website);
+        }
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+
+        long bytes = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(temp))) {
+            for (Path file : files) {
+                zip.putNextEntry(new ZipEntry(toEntryName(dir.relativize(file))));
+                try (InputStream input = Files.newInputStream(file)) {
+                    int read;
+                    while ((read = input.read(buffer)) != -1) {
+                        budget.acquire(read);
+                        zip.write(buffer, 0, read);
+                        bytes += read;
+                    }
+                }
+                zip.closeEntry();
+            }
+        } catch (IOException | InterruptedException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        Transactions.archived(id);
+        BackgroundJob.deleteTree(dir, budget);
+
+        archived.increment();
+        archivedBytes.increment(bytes);
+        info().transactionID(id).data("files", files.size()).data("bytes", bytes)
+                .data("archive_bytes", Files.size(target)).log("transaction archived");
+    }
+
+    private static String toEntryName(Path relative) {
+        List<String> names = new ArrayList<>();
+        relative.forEach(name -> names.add(name.toString()));
+        return String.join("/", names);
+    }
+}
@@ -0,0 +1,145 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.github.davidcarboni.cryptolite.Random;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
+import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
+
+/**
+ * A pool of pre-created, unassigned transaction directories (each with its {@value Transactions#CONTENT} and
+ * {@value Transactions#BACKUP} directories already in place). Creating a transaction claims a directory from the pool
+ * with a single rename rather than creating the structure on the request thread. The pool is refilled asynchronously
+ * whenever a directory is claimed.
+ * <p>
+ * Pooled directories live in {@value #POOL_DIR} under the transaction store so that claiming one is a rename within
+ * the same filesystem. Directories left in the pool by a previous run are reused.
+ */
+public class TransactionDirectoryPool {
+
+    static final String POOL_DIR = ".pool";
+
+    private final Path poolDir;
+    private final int targetDepth;
+    private final Queue<Path> available;
+    private final AtomicInteger depth;
+    private final AtomicBoolean refilling;
+    private final ExecutorService refiller;
+
+    /**
+     * Construct a new pool and start filling it.
+     *
+     * @param transactionStore the transaction store directory.
+     * @param targetDepth      the number of directories to keep ready.
+     * @throws IOException error creating the pool directory.
+     */
+    public TransactionDirectoryPool(Path transactionStore, int targetDepth) throws IOException {
+        this.poolDir = Files.createDirectories(transactionStore.resolve(POOL_DIR));
+        this.targetDepth = targetDepth;
+        this.available = new ConcurrentLinkedQueue<>();
+        this.depth = new AtomicInteger();
+        this.refilling = new AtomicBoolean();
+        this.refiller = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "transaction-directory-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        adoptExisting();
+        requestRefill();
+    }
+
+    /**
+     * Claim a pooled directory by renaming it to the target path.
+     *
+     * @param target the path of the new transaction directory. Must not exist.
+     * @return true if a pooled directory was renamed to the target, false if the pool was empty in which case the
+     * caller must create the directory structure itself.
+     */
+    public boolean claim(Path target) {
+        try {
+            Path dir;
+            while ((dir = available.poll()) != null) {
+                depth.decrementAndGet();
+                try {
+                    Files.move(dir, target, StandardCopyOption.ATOMIC_MOVE);
+                    return true;
+                } catch (IOException e) {
+                    error().data("path", dir.toString()).exception(e)
+                            .log("error claiming pooled transaction directory, trying the next one");
+                }
+            }
+            info().log("transaction directory pool empty, falling back to creating transaction directory");
+            return false;
+        } finally {
+            requestRefill();
+        }
+    }
+
+    /**
+     * @return the number of directories currently ready to be claimed.
+     */
+    public int depth() {
+        return depth.get();
+    }
+
+    /**
+     * Stop refilling the pool. Directories already in the pool are left in place to be reused by the next run.
+     */
+    public void shutdown() {
+        refiller.shutdown();
+    }
+
+    private void requestRefill() {
+        if (depth.get() < targetDepth && refilling.compareAndSet(false, true)) {
+            refiller.submit(this::refill);
+        }
+    }
+
+    private void refill() {
+        try {
+            while (depth.get() < targetDepth) {
+                Path dir = poolDir.resolve(Random.id());
+                Files.createDirectory(dir);
+                Files.createDirectory(dir.resolve(Transactions.CONTENT));
+                Files.createDirectory(dir.resolve(Transactions.BACKUP));
+                available.add(dir);
+                depth.incrementAndGet();
+            }
+        } catch (IOException e) {
+            error().data("path", poolDir.toString()).exception(e)
+                    .log("error refilling transaction directory pool");
+            return;
+        } finally {
+            refilling.set(false);
+        }
+
+        // A directory may have been claimed after the loop finished but before the flag was cleared.
+        requestRefill();
+    }
+
+    private void adoptExisting() throws IOException {
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(poolDir)) {
+            for (Path dir : dirs) {
+                if (Files.isDirectory(dir.resolve(Transactions.CONTENT))
+                        && Files.isDirectory(dir.resolve(Transactions.BACKUP))) {
+                    available.add(dir);
+                    depth.incrementAndGet();
+                }
+            }
+        }
+        info().data("path", poolDir.toString()).data("depth", depth.get())
+                .log("transaction directory pool initialised");
+    }
+}
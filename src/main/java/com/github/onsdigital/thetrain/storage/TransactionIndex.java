@@ -0,0 +1,256 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.TransactionIndexEntry;
+import com.github.onsdigital.thetrain.response.Page;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
+import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
+
+/**
+ * History of every transaction in the store, ordered by start time, so transactions can be listed and filtered
+ * without reading each transaction's Json.
+ * <p>
+ * The index is held in memory and persisted as an append-only file of Json lines, {@value #INDEX_FILE}, in the
+ * transaction store. Each change to a transaction appends its latest entry and the last line for an ID wins. The file
+ * is compacted once it holds more than twice as many lines as there are transactions. If the file is missing it is
+ * rebuilt from the transaction Json on disk by {@link Transactions#recover(int)}, so deleting it forces a rebuild.
+ */
+public class TransactionIndex {
+
+    static final String INDEX_FILE = ".transaction-index.jsonl";
+    static final int MIN_COMPACTION_LINES = 1000;
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final Map<String, TransactionIndexEntry> byId;
+    private final ConcurrentSkipListMap<String, TransactionIndexEntry> byStart;
+    private final boolean loaded;
+    private BufferedWriter writer;
+    private int lines;
+
+    /**
+     * Load the index from the transaction store.
+     *
+     * @param transactionStore the transaction store directory.
+     * @param objectMapper     the mapper used to read and write the entries.
+     * @throws IOException error opening the index file.
+     */
+    public TransactionIndex(Path transactionStore, ObjectMapper objectMapper) throws IOException {
+        this.file = transactionStore.resolve(INDEX_FILE);
+        this.objectMapper = objectMapper;
+        this.byId = new ConcurrentHashMap<>();
+        this.byStart = new ConcurrentSkipListMap<>();
+        this.loaded = Files.exists(file);
+
+        if (loaded) {
+            load();
+        }
+        this.writer = open();
+    }
+
+    /**
+     * @return true if the index was loaded from an existing file, false if it must be rebuilt from disk.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Record the current state of a transaction.
+     *
+     * @param transaction the {@link Transaction}.
+     */
+    public void put(Transaction transaction) {
+        // Built before taking the index lock: callers may already hold the lock on the transaction, which building
+        // the entry also takes.
+        append(TransactionIndexEntry.of(transaction));
+    }
+
+    private synchronized void append(TransactionIndexEntry entry) {
+        add(entry);
+
+        try {
+            writer.write(objectMapper.writeValueAsString(entry));
+            writer.newLine();
+            writer.flush();
+            lines++;
+        } catch (IOException e) {
+            error().transactionID(entry.id()).data("path", file.toString()).exception(e)
+                    .log("error appending to transaction index");
+        }
+
+        if (lines > Math.max(MIN_COMPACTION_LINES, 2 * byId.size())) {
+            compact();
+        }
+    }
+
+    /**
+     * @param id the transaction ID.
+     * @return the latest entry for the transaction, or null if it is not in the index.
+     */
+    public TransactionIndexEntry get(String id) {
+        return byId.get(id);
+    }
+
+    /**
+     * @return a view of every entry in the index, oldest first.
+     */
+    public Collection<TransactionIndexEntry> entries() {
+        return Collections.unmodifiableCollection(byStart.values());
+    }
+
+    /**
+     * @return the number of transactions in the index.
+     */
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Drop any transactions that are no longer in the store.
+     *
+     * @param ids the IDs of the transactions in the store.
+     */
+    public synchronized void retainAll(Set<String> ids) {
+        for (TransactionIndexEntry entry : new ArrayList<>(byId.values())) {
+            if (!ids.contains(entry.id())) {
+                byId.remove(entry.id());
+                byStart.remove(key(entry));
+            }
+        }
+    }
+
+    /**
+     * Rewrite the index file with a single line per transaction.
+     */
+    public synchronized void compact() {
+        Path temp = file.resolveSibling(INDEX_FILE + ".tmp");
+        try {
+            writer.close();
+            try (BufferedWriter output = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (TransactionIndexEntry entry : byStart.values()) {
+                    output.write(objectMapper.writeValueAsString(entry));
+                    output.newLine();
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lines = byId.size();
+        } catch (IOException e) {
+            error().data("path", file.toString()).exception(e).log("error compacting transaction index");
+        } finally {
+            try {
+                writer = open();
+            } catch (IOException e) {
+                error().data("path", file.toString()).exception(e).log("error reopening transaction index");
+            }
+        }
+    }
+
+    /**
+     * Get a page of the transactions that started in a time range, oldest first.
+     *
+     * @param from     the earliest start time to include, in milliseconds since the epoch.
+     * @param to       the start time to stop before, in milliseconds since the epoch.
+     * @param statuses the statuses to include, or empty to include all.
+     * @param cursor   the cursor returned with the previous page, or null for the first page.
+     * @param limit    the maximum number of transactions in the page.
+     * @return the requested page.
+     */
+    public Page<TransactionIndexEntry> query(long from, long to, Set<String> statuses, String cursor, int limit) {
+        NavigableMap<String, TransactionIndexEntry> range = byStart.subMap(key(from, ""), true, key(to, ""), false);
+
+        int total = 0;
+        List<TransactionIndexEntry> items = new ArrayList<>();
+        String nextCursor = null;
+        for (Map.Entry<String, TransactionIndexEntry> entry : range.entrySet()) {
+            if (!statuses.isEmpty() && !statuses.contains(entry.getValue().status())) {
+                continue;
+            }
+
+            total++;
+            if (cursor != null && entry.getKey().compareTo(cursor) <= 0) {
+                continue;
+            }
+            if (items.size() < limit) {
+                items.add(entry.getValue());
+            } else if (nextCursor == null) {
+                nextCursor = key(items.get(items.size() - 1));
+            }
+        }
+        return Page.of("transactions", total, limit, items, nextCursor);
+    }
+
+    /**
+     * Stop writing to the index file.
+     */
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            error().data("path", file.toString()).exception(e).log("error closing transaction index");
+        }
+    }
+
+    private void add(TransactionIndexEntry entry) {
+        TransactionIndexEntry previous = byId.put(entry.id(), entry);
+        if (previous != null && previous.startTime() != entry.startTime()) {
+            byStart.remove(key(previous));
+        }
+        byStart.put(key(entry), entry);
+    }
+
+    private void load() throws IOException {
+        int unreadable = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                try {
+                    add(objectMapper.readValue(line, TransactionIndexEntry.class));
+                } catch (IOException e) {
+                    // Most likely a line truncated by a crash part way through an append.
+                    unreadable++;
+                }
+            }
+        }
+
+        info().data("path", file.toString()).data("transactions", byId.size()).data("lines", lines)
+                .data("unreadable", unreadable).log("transaction index loaded");
+    }
+
+    private BufferedWriter open() throws IOException {
+        return Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Keys sort by start time then ID, and double as the cursor for paging.
+     */
+    private static String key(TransactionIndexEntry entry) {
+        return key(entry.startTime(), entry.id());
+    }
+
+    private static String key(long startTime, String id) {
+        return String.format("%015d:%s", startTime, id);
+    }
+}
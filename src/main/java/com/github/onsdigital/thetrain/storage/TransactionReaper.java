@@ -0,0 +1,135 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.metrics.Counter;
+import com.github.onsdigital.thetrain.metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
+import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
+
+/**
+ * Background job releasing the in-memory state and update executor of transactions their client has abandoned.
+ * {@link Transactions#end(Transaction)} is only called after a successful commit or rollback, so without this a
+ * transaction that is never committed, or whose commit fails, is held in memory with a live thread forever.
+ * <ul>
+ * <li>Open transactions idle for longer than the open timeout are marked {@value Transaction#STALE}.</li>
+ * <li>Transactions whose commit or rollback failed are kept for the failed timeout, to allow investigation, and then
+ * released with their status unchanged.</li>
+ * </ul>
+ * Reaped transactions are persisted before being released so they remain readable from disk. Any files a prepare
+ * staged on the website for them are removed, as they will never be committed.
+ */
+public class TransactionReaper {
+
+    private final long openTimeoutMillis;
+    private final long failedTimeoutMillis;
+    private final Path website;
+    private final ScheduledExecutorService scheduler;
+    private final Counter reapedOpen;
+    private final Counter reapedFailed;
+
+    /**
+     * @param openTimeoutMillis   how long an open transaction may be idle. 0 disables reaping open transactions.
+     * @param failedTimeoutMillis how long a failed transaction is kept. 0 disables reaping failed transactions.
+     * @param website             the website directory, to remove staged files from.
+     */
+    public TransactionReaper(long openTimeoutMillis, long failedTimeoutMillis, Path website) {
+        this.openTimeoutMillis = openTimeoutMillis;
+        this.failedTimeoutMillis = failedTimeoutMillis;
+        this.website = website;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "transaction-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Metrics metrics = Metrics.get();
+        this.reapedOpen = metrics.counter("train_transactions_reaped_stale_total",
+                "Open transactions marked stale after being idle for longer than the timeout");
+        this.reapedFailed = metrics.counter("train_transactions_reaped_failed_total",
+                "Failed transactions released from memory after the timeout");
+    }
+
+    /**
+     * Start reaping periodically.
+     *
+     * @param intervalMillis the delay between the end of one pass and the start of the next.
+     */
+    public void start(long intervalMillis) {
+        scheduler.scheduleWithFixedDelay(this::reap, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop reaping.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Release every transaction that has been idle for longer than its timeout.
+     *
+     * @return the number of transactions released.
+     */
+    public int reap() {
+        long now = System.currentTimeMillis();
+        List<String> reaped = new ArrayList<>();
+
+        for (Transaction transaction : new ArrayList<>(Transactions.getTransactionMap().values())) {
+            Long lastActivity = Transactions.lastActivity(transaction.id());
+            long idle = lastActivity == null ? Long.MAX_VALUE : now - lastActivity;
+
+            boolean open = transaction.isOpen();
+            long timeout = open ? openTimeoutMillis : failedTimeoutMillis;
+            if (timeout <= 0 || idle <= timeout) {
+                continue;
+            }
+
+            if (release(transaction, open)) {
+                reaped.add(transaction.id());
+                (open ? reapedOpen : reapedFailed).increment();
+            }
+        }
+
+        if (!reaped.isEmpty()) {
+            info().data("reaped", reaped.size()).data("transactions", reaped)
+                    .data("remaining", Transactions.getTransactionMap().size())
+                    .log("transaction reaper released idle transactions");
+        }
+        return reaped.size();
+    }
+
+    private boolean release(Transaction transaction, boolean open) {
+        try {
+            if (open) {
+                synchronized (transaction) {
+                    // Check again under the lock in case a commit or rollback has just closed it.
+                    if (!transaction.isOpen()) {
+                        return false;
+                    }
+                    transaction.markStale();
+                }
+            }
+
+            Publisher.getInstance().removeStagedFiles(transaction, website);
+            Transactions.update(transaction);
+            Transactions.end(transaction);
+
+            info().transactionID(transaction.id()).data("status", transaction.getStatus())
+                    .log("idle transaction released from memory");
+            return true;
+        } catch (IOException e) {
+            error().transactionID(transaction.id()).exception(e)
+                    .log("error persisting idle transaction, will retry on the next pass");
+            return false;
+        }
+    }
+}
@@ -4,22 +4,38 @@ import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.onsdigital.thetrain.helpers.PathUtils;
+import com.github.onsdigital.thetrain.json.Timeline;
 import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.TransactionIndexEntry;
+import com.github.onsdigital.thetrain.logging.HotPathLog;
+import com.github.onsdigital.thetrain.metrics.Counter;
+import com.github.onsdigital.thetrain.metrics.Metrics;
+import com.github.onsdigital.thetrain.profiling.TransactionCreateEvent;
+import com.github.onsdigital.thetrain.profiling.TransactionPersistEvent;
+import com.github.onsdigital.thetrain.response.Page;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.github.onsdigital.thetrain.logging.TrainEvent.error;
 import static com.github.onsdigital.thetrain.logging.TrainEvent.info;
@@ -34,13 +50,39 @@ public class Transactions {
     static final String JSON = "transaction.json";
     static final String CONTENT = "content";
     static final String BACKUP = "backup";
+    static final long DEFAULT_CLOSED_TRANSACTION_CACHE_BYTES = 64L * 1024 * 1024;
 
     private static Path transactionStore;
     private static ObjectMapper objectMapper;
     private static Map<String, Transaction> transactionMap;
     private static Map<String, ExecutorService> transactionExecutorMap;
+    private static Map<String, String> closedTransactions;
+    private static TransactionDirectoryPool directoryPool;
+    private static ClosedTransactionCache closedTransactionCache;
+    private static TransactionIndex index;
+    private static TransactionArchiver archiver;
+    private static TransactionReaper reaper;
+    private static Tombstones tombstones;
+    private static Map<String, Long> lastActivity;
+    private static Counter transactionsStarted;
+    private static Counter transactionsEnded;
+
+    public static void init(Path transactionStorePath) throws IOException {
+        init(transactionStorePath, 0, DEFAULT_CLOSED_TRANSACTION_CACHE_BYTES);
+    }
 
-    public static void init(Path transactionStorePath) {
+    /**
+     * Initialise the transaction store.
+     *
+     * @param transactionStorePath the transaction store directory.
+     * @param directoryPoolSize    the number of transaction directories to pre-create ready for new transactions. A
+     *                             value of 0 disables the pool.
+     * @param closedTransactionCacheBytes the estimated in-memory size of closed transactions to cache. A value of 0
+     *                                    disables the cache.
+     * @throws IOException If the transaction index cannot be opened.
+     */
+    public static void init(Path transactionStorePath, int directoryPoolSize, long closedTransactionCacheBytes)
+            throws IOException {
         transactionStore = transactionStorePath;
 
         objectMapper = new ObjectMapper();
@@ -49,10 +91,201 @@ public class Transactions {
 
         transactionMap = new ConcurrentHashMap<>();
         transactionExecutorMap = new ConcurrentHashMap<>();
+        closedTransactions = new ConcurrentHashMap<>();
+        lastActivity = new ConcurrentHashMap<>();
+        closedTransactionCache = new ClosedTransactionCache(closedTransactionCacheBytes);
+
+        if (archiver != null) {
+            archiver.shutdown();
+            archiver = null;
+        }
+        if (reaper != null) {
+            reaper.shutdown();
+            reaper = null;
+        }
+        if (tombstones != null) {
+            tombstones.shutdown();
+        }
+        tombstones = new Tombstones(transactionStore);
+
+        initIndex();
+        initDirectoryPool(directoryPoolSize);
+        initMetrics();
 
         info().log("transaction store initialisation completed");
     }
 
+    /**
+     * Check whether the transaction store is on the same filesystem as the website, logging an error if it is not. A
+     * directory deleted by a commit is then copied into the transaction's backup and deleted rather than renamed,
+     * which takes time and disk space in proportion to its size, and linked backups fall back to copies.
+     *
+     * @param website the website directory.
+     * @return false if they are on different filesystems, true if they are not or it could not be determined.
+     */
+    public static boolean checkFileStore(Path website) {
+        try {
+            if (!Files.getFileStore(transactionStore).equals(Files.getFileStore(website))) {
+                error().data("transaction_store", transactionStore.toString()).data("website", website.toString())
+                        .log("transaction store and website are on different filesystems, deleted directories "
+                                + "will be copied into backups instead of moved");
+                return false;
+            }
+        } catch (IOException e) {
+            error().data("transaction_store", transactionStore.toString()).data("website", website.toString())
+                    .exception(e).log("unable to check the filesystems of the transaction store and website");
+        }
+        return true;
+    }
+
+    private static void initIndex() throws IOException {
+        if (index != null) {
+            index.close();
+        }
+        index = new TransactionIndex(transactionStore, objectMapper);
+    }
+
+    private static void initMetrics() {
+        Metrics metrics = Metrics.get();
+        Map<String, Transaction> transactions = transactionMap;
+        Map<String, ExecutorService> executors = transactionExecutorMap;
+        metrics.gauge("train_transactions_in_memory", "Transactions held in memory", transactions::size);
+        metrics.gauge("train_transactions_open", "Transactions in memory that are started or publishing",
+                () -> transactions.values().stream().filter(Transaction::isOpen).count());
+        metrics.gauge("train_transaction_executors", "Transaction update executors, each holding a thread once used",
+                executors::size);
+        transactionsStarted = metrics.counter("train_transactions_started_total", "Transactions created by /begin");
+        transactionsEnded = metrics.counter("train_transactions_ended_total",
+                "Transactions released from memory after a successful commit or rollback, or by the reaper");
+    }
+
+    private static void initDirectoryPool(int directoryPoolSize) {
+        if (directoryPool != null) {
+            directoryPool.shutdown();
+            directoryPool = null;
+        }
+
+        if (directoryPoolSize > 0) {
+            try {
+                directoryPool = new TransactionDirectoryPool(transactionStore, directoryPoolSize);
+                TransactionDirectoryPool pool = directoryPool;
+                Metrics.get().gauge("train_transaction_directory_pool_depth",
+                        "Number of pre-created transaction directories ready to be claimed by /begin",
+                        pool::depth);
+            } catch (IOException e) {
+                error().exception(e)
+                        .log("error initialising transaction directory pool, transactions will be created on demand");
+            }
+        }
+    }
+
+    /**
+     * Start archiving old committed and rolled back transactions in the background, on the {@link Publisher}'s
+     * background lane. The publisher must be initialised first.
+     *
+     * @param archiveAfterMillis how long after ending a transaction becomes eligible for archiving.
+     * @param intervalMillis     the delay between archiving passes.
+     * @param bytesPerSecond     the {@link IoBudget} for archiving. Archiving is paused while the publishing threads
+     *                           are {@link PublishScheduler#busy() busy} committing or uploading.
+     * @param website            the website directory, to remove files staged by a prepare from.
+     */
+    public static void startArchiver(long archiveAfterMillis, long intervalMillis, long bytesPerSecond,
+                                     Path website) {
+        archiver = new TransactionArchiver(transactionStore, archiveAfterMillis,
+                new IoBudget(bytesPerSecond, () -> Publisher.scheduler().busy()), website);
+        archiver.start(intervalMillis, Publisher.scheduler().executor(PublishScheduler.WorkClass.BACKGROUND));
+        info().data("archive_after_ms", archiveAfterMillis).data("bytes_per_second", bytesPerSecond)
+                .log("transaction archiver started");
+    }
+
+    /**
+     * Start deleting the directory trees replaced by commits in the background, on the {@link Publisher}'s background
+     * lane. The publisher must be initialised first.
+     *
+     * @param intervalMillis the delay between cleaning passes.
+     * @param bytesPerSecond the {@link IoBudget} for deleting. Cleaning is paused while the publishing threads are
+     *                       {@link PublishScheduler#busy() busy} committing or uploading.
+     */
+    public static void startTombstoneCleaner(long intervalMillis, long bytesPerSecond) {
+        tombstones.start(intervalMillis, new IoBudget(bytesPerSecond, () -> Publisher.scheduler().busy()),
+                Publisher.scheduler().executor(PublishScheduler.WorkClass.BACKGROUND));
+        info().data("bytes_per_second", bytesPerSecond).log("tombstone cleaner started");
+    }
+
+    /**
+     * @return the trees waiting to be deleted in the background.
+     */
+    static Tombstones tombstones() {
+        return tombstones;
+    }
+
+    /**
+     * Start reaping transactions that have been left in memory by clients that went away.
+     *
+     * @param openTimeoutMillis   how long an open transaction may be idle before it is marked {@value
+     *                            Transaction#STALE}. 0 disables reaping open transactions.
+     * @param failedTimeoutMillis how long a transaction whose commit or rollback failed is kept in memory. 0 disables
+     *                            reaping failed transactions.
+     * @param intervalMillis      the delay between reaping passes.
+     * @param website             the website directory, to remove files staged by a prepare from.
+     */
+    public static void startReaper(long openTimeoutMillis, long failedTimeoutMillis, long intervalMillis,
+                                   Path website) {
+        reaper = new TransactionReaper(openTimeoutMillis, failedTimeoutMillis, website);
+        reaper.start(intervalMillis);
+        info().data("open_timeout_ms", openTimeoutMillis).data("failed_timeout_ms", failedTimeoutMillis)
+                .log("transaction reaper started");
+    }
+
+    /**
+     * @param id the transaction ID.
+     * @return the time, in milliseconds since the epoch, the in-memory transaction was last used, or null if it is not
+     * in memory.
+     */
+    static Long lastActivity(String id) {
+        return lastActivity.get(id);
+    }
+
+    private static void touch(String id) {
+        lastActivity.put(id, System.currentTimeMillis());
+    }
+
+    /**
+     * @param endedBefore the time, in milliseconds since the epoch, transactions must have ended before.
+     * @return the IDs of committed, rolled back and stale transactions that ended before the time and are not yet
+     * archived.
+     */
+    static List<String> archiveCandidates(long endedBefore) throws IOException {
+        List<String> result = new ArrayList<>();
+        for (TransactionIndexEntry entry : index.entries()) {
+            boolean archivable = Transaction.COMMITTED.equals(entry.status())
+                    || Transaction.ROLLED_BACK.equals(entry.status()) || Transaction.STALE.equals(entry.status());
+            if (archivable && entry.endTime() > 0 && entry.endTime() < endedBefore
+                    && !transactionMap.containsKey(entry.id()) && Files.isDirectory(path(entry.id()))) {
+                result.add(entry.id());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Called once a transaction has been archived and before its directory is removed.
+     */
+    static void archived(String id) {
+        closedTransactionCache.remove(id);
+    }
+
+    /**
+     * @param transaction the transaction.
+     * @return true if the transaction's directory has been replaced by an archive, so its content and backup can only
+     * be read from the archive.
+     */
+    public static boolean isArchived(Transaction transaction) throws IOException {
+        Path path = path(transaction.id());
+        return path != null && !Files.exists(path)
+                && Files.exists(TransactionArchive.path(transactionStore, transaction.id()));
+    }
+
     public static Map<String, Transaction> getTransactionMap() {
         return transactionMap;
     }
@@ -68,30 +301,71 @@ public class Transactions {
      * @throws IOException If a filesystem error occurs in creating the transaction.
      */
     public static Transaction create() throws IOException {
+        long start = System.nanoTime();
+        TransactionCreateEvent event = new TransactionCreateEvent();
+        event.begin();
         Transaction transaction = new Transaction();
 
-        // Generate the file structure
+        // Claim a pre-created file structure, or generate it if the pool is empty
         Path path = path(transaction.id());
-        Files.createDirectory(path);
-        Path json = path.resolve(JSON);
-        try (OutputStream output = Files.newOutputStream(json)) {
-            objectMapper.writeValue(output, transaction);
+        if (directoryPool == null || !directoryPool.claim(path)) {
+            Files.createDirectory(path);
             Files.createDirectory(path.resolve(CONTENT));
             Files.createDirectory(path.resolve(BACKUP));
-            info().transactionID(transaction.id())
-                    .log("transaction written to disk successfully");
+        }
 
-            transactionMap.put(transaction.id(), transaction);
+        transaction.recordPhase(Timeline.BEGIN, System.nanoTime() - start);
 
-            info().transactionID(transaction.id())
-                    .log("transaction added to in-memory storage");
+        // Strict durability means /begin is not acknowledged until the transaction is on disk, so a failure to write it
+        // fails the request and the transaction is never put in memory.
+        if (FileSync.strict()) {
+            writeInitialJson(transaction, path.resolve(JSON));
+        }
 
-            if (!transactionExecutorMap.containsKey(transaction.id())) {
-                transactionExecutorMap.put(transaction.id(), Executors.newSingleThreadExecutor());
-            }
+        transactionMap.put(transaction.id(), transaction);
+        HotPathLog.open(transaction.id());
+        touch(transaction.id());
+        transactionsStarted.increment();
+        event.record(transaction.id(), null, 0);
+
+        info().transactionID(transaction.id())
+                .log("transaction added to in-memory storage");
+
+        ExecutorService transactionUpdateExecutor = transactionExecutorMap.computeIfAbsent(transaction.id(),
+                id -> Executors.newSingleThreadExecutor());
+
+        // Otherwise the Json is written off the request thread, as reads are served from the in-memory map until the
+        // transaction ends. It may then land after a synchronous update(), but both write the transaction's state
+        // under its lock at the time they run, so whichever lands last is the most recent.
+        if (!FileSync.strict()) {
+            transactionUpdateExecutor.submit(() -> {
+                try {
+                    writeInitialJson(transaction, path.resolve(JSON));
+                } catch (IOException e) {
+                    error().transactionID(transaction.id()).data("path", path.resolve(JSON).toString()).exception(e)
+                            .log("error writing new transaction to file");
+                }
+            });
+        }
+
+        return transaction;
+    }
 
-            return transaction;
+    /**
+     * Write a new transaction's Json. With strict durability the transaction's directory and the transaction store
+     * directory are synced too, so the new directory and the Json in it survive a crash.
+     */
+    private static void writeInitialJson(Transaction transaction, Path json) throws IOException {
+        synchronized (transaction) {
+            writeJson(transaction, json);
+            if (FileSync.strict()) {
+                FileSync.directory(json.getParent());
+                FileSync.directory(transactionStore);
+            }
+            info().transactionID(transaction.id())
+                    .log("transaction written to disk successfully");
         }
+        index.put(transaction);
     }
 
     /**
@@ -108,10 +382,151 @@ public class Transactions {
         if (transactionMap.containsKey(transaction.id())) {
             transactionMap.remove(transaction.id());
         }
+        lastActivity.remove(transaction.id());
+        transactionsEnded.increment();
+        HotPathLog.summarise(transaction.id());
+
+        closedTransactions.put(transaction.id(), transaction.getStatus());
+        index.put(transaction);
     }
 
     /**
-     * Reads the transaction Json specified by the given id.
+     * Scans the transaction store in parallel to rebuild the in-memory state after a restart. Open transactions are
+     * rehydrated into memory with their update executor, so in-flight publishes carry on as if the service had never
+     * stopped. Closed transactions are recorded in a lightweight index of ID to status.
+     * <p>
+     * The Json of closed transactions already in the {@link TransactionIndex} is not read again. If the index file
+     * was missing every transaction is read and the index is rebuilt from disk.
+     *
+     * @param threads the number of threads to read transaction files with.
+     * @throws IOException If the transaction store cannot be listed.
+     */
+    public static void recover(int threads) throws IOException {
+        long start = System.currentTimeMillis();
+
+        List<Path> transactionDirs = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(transactionStore,
+                p -> (Files.isDirectory(p) && !p.getFileName().toString().startsWith("."))
+                        || TransactionArchive.isArchive(p))) {
+            for (Path dir : dirs) {
+                transactionDirs.add(dir);
+                ids.add(id(dir));
+            }
+        }
+
+        ExecutorService scanPool = Executors.newFixedThreadPool(Math.max(1, threads));
+        AtomicInteger open = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger indexed = new AtomicInteger();
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Path dir : transactionDirs) {
+                futures.add(scanPool.submit(() -> {
+                    TransactionIndexEntry entry = index.get(id(dir));
+                    if (entry != null && entry.isClosed()) {
+                        closedTransactions.put(entry.id(), entry.status());
+                        indexed.incrementAndGet();
+                        return;
+                    }
+
+                    Transaction transaction = Files.isDirectory(dir) ? read(dir.resolve(JSON)) : readArchive(dir);
+                    if (transaction == null) {
+                        failed.incrementAndGet();
+                        return;
+                    }
+
+                    index.put(transaction);
+                    if (transaction.isOpen()) {
+                        rehydrate(transaction);
+                        open.incrementAndGet();
+                    } else {
+                        closedTransactions.put(transaction.id(), transaction.getStatus());
+                        closed.incrementAndGet();
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException("error recovering transaction store", e);
+        } finally {
+            scanPool.shutdown();
+        }
+
+        index.retainAll(ids);
+        index.compact();
+
+        info().data("open", open.get())
+                .data("closed", closed.get())
+                .data("closed_from_index", indexed.get())
+                .data("index_rebuilt", !index.isLoaded())
+                .data("unreadable", failed.get())
+                .data("duration_ms", System.currentTimeMillis() - start)
+                .log("transaction store recovery completed");
+    }
+
+    /**
+     * Puts a transaction read from disk into memory, with an update executor, unless another thread got there first.
+     *
+     * @return The instance held in memory, which is the unit of synchronization for the transaction.
+     */
+    private static Transaction rehydrate(Transaction transaction) {
+        Transaction existing = transactionMap.putIfAbsent(transaction.id(), transaction);
+        if (existing != null) {
+            return existing;
+        }
+
+        transactionExecutorMap.computeIfAbsent(transaction.id(), id -> Executors.newSingleThreadExecutor());
+        touch(transaction.id());
+        HotPathLog.open(transaction.id());
+        info().transactionID(transaction.id()).log("open transaction rehydrated into in-memory storage");
+        return transaction;
+    }
+
+    /**
+     * @return The transaction ID of a transaction directory or archive.
+     */
+    private static String id(Path path) {
+        return Files.isDirectory(path) ? path.getFileName().toString() : TransactionArchive.id(path);
+    }
+
+    /**
+     * @return The result of reading the transaction Json from an archive, or null if it is unreadable.
+     */
+    private static Transaction readArchive(Path archive) {
+        try {
+            return TransactionArchive.read(archive, objectMapper);
+        } catch (IOException e) {
+            error().data("path", archive.toString()).exception(e).log("error reading transaction archive");
+            return null;
+        }
+    }
+
+    /**
+     * @return The result of reading the transaction Json, or null if it is missing or unreadable.
+     */
+    private static Transaction read(Path json) {
+        if (!Files.exists(json)) {
+            error().data("path", json.toString()).log("transaction directory has no transaction file");
+            return null;
+        }
+
+        try (InputStream input = Files.newInputStream(json)) {
+            return objectMapper.readValue(input, Transaction.class);
+        } catch (IOException e) {
+            error().data("path", json.toString()).exception(e).log("error reading transaction file");
+            return null;
+        }
+    }
+
+    /**
+     * Reads the transaction Json specified by the given id. Open transactions found on disk are rehydrated into memory
+     * so they are only read once. Closed transactions are served from a cache for as long as their Json is unchanged.
      *
      * @param id The {@link Transaction} ID.
      * @return The {@link Transaction} if it exists, otherwise null.
@@ -123,21 +538,11 @@ public class Transactions {
 
         try {
             if (StringUtils.isNotBlank(id)) {
-
-                if (!transactionMap.containsKey(id)) {
-                    info().transactionID(id)
-                            .log("transaction does not exist in in-memory storage, attempting to read from file system");
-                    // Generate the file structure
-                    Path transactionPath = path(id);
-                    if (transactionPath != null && Files.exists(transactionPath)) {
-                        final Path json = transactionPath.resolve(JSON);
-                        try (InputStream input = Files.newInputStream(json)) {
-                            result = objectMapper.readValue(input, Transaction.class);
-                        }
-                    }
+                result = transactionMap.get(id);
+                if (result == null) {
+                    result = getFromStore(id);
                 } else {
-                    info().transactionID(id).log("retrieving transaction from in-memory storage");
-                    result = transactionMap.get(id);
+                    touch(id);
                 }
             }
             return result;
@@ -147,6 +552,54 @@ public class Transactions {
         }
     }
 
+    private static Transaction getFromStore(String id) throws IOException {
+        Path transactionPath = path(id);
+        if (transactionPath == null) {
+            return null;
+        }
+
+        // Archived transactions are read from the archive, which is also what the cache entry is keyed on.
+        Path archive = TransactionArchive.path(transactionStore, id);
+        boolean archived = !Files.exists(transactionPath) && Files.exists(archive);
+        if (!archived && !Files.exists(transactionPath)) {
+            return null;
+        }
+
+        final Path json = archived ? archive : transactionPath.resolve(JSON);
+        FileTime modified = Files.getLastModifiedTime(json);
+        long size = Files.size(json);
+
+        Transaction result = closedTransactionCache.get(id, modified, size);
+        if (result != null) {
+            return result;
+        }
+
+        HotPathLog.info(id, "transaction does not exist in in-memory storage, attempting to read from file system",
+                () -> info().transactionID(id).data("archived", archived));
+        if (archived) {
+            result = TransactionArchive.read(archive, objectMapper);
+        } else {
+            try (InputStream input = Files.newInputStream(json)) {
+                result = objectMapper.readValue(input, Transaction.class);
+            }
+        }
+
+        if (result.isOpen()) {
+            result = rehydrate(result);
+        } else {
+            closedTransactions.put(id, result.getStatus());
+            closedTransactionCache.put(result, modified, size);
+        }
+        return result;
+    }
+
+    /**
+     * @return An unmodifiable view of the index of closed transaction IDs to their status.
+     */
+    public static Map<String, String> getClosedTransactions() {
+        return Collections.unmodifiableMap(closedTransactions);
+    }
+
     public static void listFiles(Transaction transaction) throws IOException {
         Map<String, List<String>> list = new HashMap<>();
 
@@ -162,6 +615,32 @@ public class Transactions {
         transaction.files = list;
     }
 
+    /**
+     * Lists the files in one area of the transaction without walking the other or updating
+     * {@link Transaction#files}.
+     *
+     * @param transaction The {@link Transaction}.
+     * @param area        Either {@value #CONTENT} or {@value #BACKUP}.
+     * @return The URIs of the files in the area, sorted. Empty if the area does not exist. Archived transactions are
+     * listed from their archive.
+     * @throws IOException If a filesystem error occurs.
+     */
+    public static List<String> listFiles(Transaction transaction, String area) throws IOException {
+        if (!StringUtils.equals(CONTENT, area) && !StringUtils.equals(BACKUP, area)) {
+            throw new IllegalArgumentException("unknown transaction area: " + area);
+        }
+
+        List<String> result = new ArrayList<>();
+        Path path = path(transaction.id());
+        if (path != null && Files.isDirectory(path.resolve(area))) {
+            result = PathUtils.listUris(path.resolve(area));
+            Collections.sort(result);
+        } else if (isArchived(transaction)) {
+            result = TransactionArchive.listUris(TransactionArchive.path(transactionStore, transaction.id()), area);
+        }
+        return result;
+    }
+
     /**
      * Queue a task to update the transaction file. This task will only get run if the transaction
      * is not already committed.
@@ -193,10 +672,9 @@ public class Transactions {
                                 if (transactionPath != null && Files.exists(transactionPath)) {
                                     final Path json = transactionPath.resolve(JSON);
 
-                                    try (OutputStream output = Files.newOutputStream(json)) {
-                                        objectMapper.writeValue(output, read);
-                                    }
+                                    writeJson(read, json);
                                 }
+                                indexIfStatusChanged(read);
                                 result = true;
                             }
                         } else {
@@ -233,19 +711,81 @@ public class Transactions {
                 if (transactionPath != null && Files.exists(transactionPath)) {
                     final Path json = transactionPath.resolve(JSON);
 
-                    info().transactionID(transaction.id()).data("path", json.toString()).log("writing transaction file");
+                    HotPathLog.info(transaction.id(), "writing transaction file",
+                            () -> info().transactionID(transaction.id()).data("path", json.toString()));
 
-                    try (OutputStream output = Files.newOutputStream(json)) {
-                        objectMapper.writeValue(output, read);
-                        info().log("writing transaction file completed successfully");
+                    try {
+                        writeJson(read, json);
+                        HotPathLog.info(transaction.id(), "writing transaction file completed successfully");
                     } catch (Exception e) {
                         error().transactionID(transaction.id()).data("path", json.toString())
                                 .log("error while writing transaction to file");
                         throw e;
                     }
                 }
+                index.put(read);
+            }
+        }
+    }
+
+    /**
+     * Persist a change to a transaction that has already ended and been released from memory, such as the rollback of
+     * a committed transaction.
+     *
+     * @param transaction the ended transaction.
+     * @throws IOException if the transaction Json cannot be written.
+     */
+    static void updateClosed(Transaction transaction) throws IOException {
+        Path transactionPath = path(transaction.id());
+        if (transactionPath != null && Files.exists(transactionPath)) {
+            synchronized (transaction) {
+                writeJson(transaction, transactionPath.resolve(JSON));
             }
         }
+        closedTransactions.put(transaction.id(), transaction.getStatus());
+        index.put(transaction);
+    }
+
+    /**
+     * Write the transaction Json, syncing it to disk if the {@link Durability} requires it. Callers must hold the
+     * lock on the transaction.
+     */
+    private static void writeJson(Transaction transaction, Path json) throws IOException {
+        transaction.flushTimeline();
+        TransactionPersistEvent event = new TransactionPersistEvent();
+        event.begin();
+        try (OutputStream output = Files.newOutputStream(json)) {
+            objectMapper.writeValue(output, transaction);
+        }
+        if (FileSync.journal(!transaction.isOpen())) {
+            FileSync.file(json);
+        }
+        event.record(transaction.id(), null, event.isEnabled() ? Files.size(json) : 0);
+    }
+
+    /**
+     * Async updates are made for every file added, so the index is only written to when the status has moved on.
+     */
+    private static void indexIfStatusChanged(Transaction transaction) {
+        TransactionIndexEntry entry = index.get(transaction.id());
+        if (entry == null || !StringUtils.equals(entry.status(), transaction.getStatus())) {
+            index.put(transaction);
+        }
+    }
+
+    /**
+     * Get a page of the transaction history.
+     *
+     * @param from     the earliest start time to include, in milliseconds since the epoch.
+     * @param to       the start time to stop before, in milliseconds since the epoch.
+     * @param statuses the statuses to include, or empty to include all.
+     * @param cursor   the cursor returned with the previous page, or null for the first page.
+     * @param limit    the maximum number of transactions in the page.
+     * @return the requested page, oldest first.
+     */
+    public static Page<TransactionIndexEntry> history(long from, long to, Set<String> statuses, String cursor,
+                                                      int limit) {
+        return index.query(from, to, statuses, cursor, limit);
     }
 
     /**
@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 
+import static com.github.onsdigital.thetrain.configuration.ConfigurationUtils.getIntegerEnvVar;
 import static com.github.onsdigital.thetrain.configuration.ConfigurationUtils.getValue;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
@@ -72,4 +73,19 @@ public class ConfigurationUtilsTest {
             throw ex;
         }
     }
+
+    @Test
+    public void getIntegerEnvVar_shouldReturnDefault_ifValueNotSet() throws Exception {
+        assertThat(getIntegerEnvVar("THE_TRAIN_TEST_UNSET_VAR", 10), equalTo(10));
+    }
+
+    @Test
+    public void getIntegerEnvVar_shouldReturnValue_ifValueSet() throws Exception {
+        System.setProperty("THE_TRAIN_TEST_SET_VAR", "5");
+        try {
+            assertThat(getIntegerEnvVar("THE_TRAIN_TEST_SET_VAR", 10), equalTo(5));
+        } finally {
+            System.clearProperty("THE_TRAIN_TEST_SET_VAR");
+        }
+    }
 }
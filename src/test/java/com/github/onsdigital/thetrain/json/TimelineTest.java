@@ -0,0 +1,136 @@
+package com.github.onsdigital.thetrain.json;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link Timeline}.
+ */
+public class TimelineTest {
+
+    @Test
+    public void shouldExtendPhaseSpan() {
+
+        // Given
+        // A timeline
+        Timeline timeline = new Timeline();
+
+        // When
+        // We record two overlapping spans of the same phase
+        Timeline updated = timeline.withSpan(Timeline.COMMIT_COPY, 1000, 1500).withSpan(Timeline.COMMIT_COPY, 1200, 2000);
+
+        // Then
+        // The phase should cover both spans and the original timeline should be unchanged
+        Timeline.Phase phase = updated.phase(Timeline.COMMIT_COPY);
+        assertEquals(1000, phase.start());
+        assertEquals(2000, phase.end());
+        assertEquals(1000, phase.durationMs());
+        assertNotSame(timeline, updated);
+        assertNull(timeline.phase(Timeline.COMMIT_COPY));
+    }
+
+    @Test
+    public void shouldCountFilesBytesAndPercentiles() {
+
+        // Given
+        // A timeline
+        Timeline timeline = new Timeline();
+
+        // When
+        // We record 99 fast files and one slow one
+        for (int i = 0; i < 99; i++) {
+            timeline = timeline.withFile(Timeline.UPLOADS, 10_000, TimeUnit.MILLISECONDS.toNanos(3), 100);
+        }
+        timeline = timeline.withFile(Timeline.UPLOADS, 10_000, TimeUnit.MILLISECONDS.toNanos(2000), 100);
+
+        // Then
+        // The counts should be totalled and the percentiles should fall in the right buckets
+        Timeline.Phase phase = timeline.phase(Timeline.UPLOADS);
+        assertEquals(100, phase.files());
+        assertEquals(10_000, phase.bytes());
+        assertTrue(phase.p50Ms() > 2.5 && phase.p50Ms() <= 5);
+        assertTrue(phase.p99Ms() > 2.5 && phase.p99Ms() <= 5);
+        assertEquals(8_000, phase.start());
+        assertEquals(10_000, phase.end());
+
+        // The slowest file should pull the top percentile up once it is more than 1% of the files
+        timeline = timeline.withFile(Timeline.UPLOADS, 10_000, TimeUnit.MILLISECONDS.toNanos(2000), 100);
+        assertTrue(timeline.phase(Timeline.UPLOADS).p99Ms() > 1000);
+    }
+
+    @Test
+    public void shouldKeepPhasesInRecordedOrder() {
+
+        // Given
+        // A timeline with phases recorded out of alphabetical order
+        Timeline timeline = new Timeline()
+                .withSpan(Timeline.BEGIN, 1, 2)
+                .withFile(Timeline.UPLOADS, 3, 0, 0)
+                .withSpan(Timeline.END, 4, 4);
+
+        // When
+        // We take a copy without the latencies
+        Timeline summary = timeline.withoutLatencies();
+
+        // Then
+        // The order and totals should be kept
+        assertEquals("[begin, uploads, end]", summary.phases().keySet().toString());
+        assertEquals(1, summary.phase(Timeline.UPLOADS).files());
+    }
+
+    @Test
+    public void shouldFoldFileStatsIntoPhase() {
+
+        // Given
+        // A phase already holding a file, and stats counting two more
+        Timeline timeline = new Timeline().withFile(Timeline.COMMIT_COPY, 10_000, TimeUnit.MILLISECONDS.toNanos(3), 100);
+        Timeline.FileStats stats = new Timeline.FileStats(timeline.phase(Timeline.COMMIT_COPY));
+        stats.observe(11_000, TimeUnit.MILLISECONDS.toNanos(3), 100);
+        stats.observe(12_000, TimeUnit.MILLISECONDS.toNanos(3), 100);
+        assertTrue(stats.changed());
+
+        // When
+        // We fold the stats in, twice
+        Timeline updated = timeline.withFiles(Timeline.COMMIT_COPY, stats);
+        Timeline again = updated.withFiles(Timeline.COMMIT_COPY, stats);
+
+        // Then
+        // The files should be added to the phase once, and the span extended to cover them
+        Timeline.Phase phase = again.phase(Timeline.COMMIT_COPY);
+        assertEquals(3, phase.files());
+        assertEquals(300, phase.bytes());
+        assertEquals(12_000, phase.end());
+        assertTrue(phase.p50Ms() > 2.5 && phase.p50Ms() <= 5);
+        assertFalse(stats.changed());
+        assertEquals(1, timeline.phase(Timeline.COMMIT_COPY).files());
+    }
+
+    @Test
+    public void shouldRecordFilesWithoutChangingTheVersionUntilRead() {
+
+        // Given
+        // A transaction
+        Transaction transaction = new Transaction();
+        long version = transaction.version();
+
+        // When
+        // Files are recorded
+        transaction.recordFile(Timeline.UPLOADS, TimeUnit.MILLISECONDS.toNanos(3), 100);
+        transaction.recordFile(Timeline.UPLOADS, TimeUnit.MILLISECONDS.toNanos(3), 100);
+
+        // Then
+        // They should be in the timeline once it is read, and the version should move on then
+        assertEquals(2, transaction.timeline().phase(Timeline.UPLOADS).files());
+        assertTrue(transaction.version() > version);
+        long read = transaction.version();
+        transaction.flushTimeline();
+        assertEquals(read, transaction.version());
+    }
+}
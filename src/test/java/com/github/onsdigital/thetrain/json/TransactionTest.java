@@ -6,6 +6,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -213,4 +214,66 @@ public class TransactionTest {
         assertTrue(StringUtils.isNotBlank(ok.endDate()));
         assertTrue(StringUtils.isNotBlank(error.endDate()));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldIncrementVersionOnChange() {
+
+        // Given
+        // A new transaction
+        Transaction transaction = new Transaction();
+        long initial = transaction.version();
+
+        // When
+        // We change the transaction
+        transaction.addUri(new UriInfo("/a"));
+        transaction.addUriDelete(new UriInfo("/b"));
+        transaction.addError("error");
+        transaction.commit(true);
+
+        // Then
+        // The version should have been incremented for each change
+        assertEquals(initial + 4, transaction.version());
+    }
+
+    @Test
+    public void shouldIncrementVersionWhenAUriChanges() {
+
+        // Given
+        // A transaction with a URI
+        Transaction transaction = new Transaction();
+        UriInfo uriInfo = new UriInfo("/a", new Date());
+        transaction.addUri(uriInfo);
+        transaction.flushTimeline();
+        long initial = transaction.version();
+
+        // When
+        // The URI is committed
+        uriInfo.commit();
+        transaction.uriChanged();
+        transaction.flushTimeline();
+
+        // Then
+        // The version should have moved on once, and not again until the next change
+        assertEquals(initial + 1, transaction.version());
+        transaction.flushTimeline();
+        assertEquals(initial + 1, transaction.version());
+    }
+
+    @Test
+    public void shouldMarkTransactionStale() {
+
+        // Given
+        // An open transaction
+        Transaction transaction = new Transaction();
+
+        // When
+        // It is marked stale
+        transaction.markStale();
+
+        // Then
+        // It should be closed with an end date
+        assertEquals(Transaction.STALE, transaction.getStatus());
+        Assert.assertFalse(transaction.isOpen());
+        assertTrue(StringUtils.isNotBlank(transaction.endDate()));
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.onsdigital.thetrain.logging;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link HotPathLog}.
+ */
+public class HotPathLogTest {
+
+    @After
+    public void tearDown() {
+        HotPathLog.setMode(LogMode.FULL);
+    }
+
+    @Test
+    public void shouldCountEventsPerTransactionInSummaryMode() {
+
+        // Given
+        // Summary mode and two open transactions
+        HotPathLog.setMode(LogMode.SUMMARY);
+        HotPathLog.open("transaction-1");
+        HotPathLog.open("transaction-2");
+
+        // When
+        // Events are logged for both of them
+        HotPathLog.info("transaction-1", "file added");
+        HotPathLog.info("transaction-1", "file added");
+        HotPathLog.info("transaction-1", "writing transaction file", () -> {
+            throw new AssertionError("the event should not be built in summary mode");
+        });
+        HotPathLog.info("transaction-2", "file added");
+
+        // Then
+        // The events should be counted per transaction and forgotten once summarised
+        Map<String, Long> counts = HotPathLog.counts("transaction-1");
+        assertEquals(Long.valueOf(2), counts.get("file added"));
+        assertEquals(Long.valueOf(1), counts.get("writing transaction file"));
+        assertEquals(Long.valueOf(1), HotPathLog.counts("transaction-2").get("file added"));
+
+        HotPathLog.summarise("transaction-1");
+        assertTrue(HotPathLog.counts("transaction-1").isEmpty());
+        assertFalse(HotPathLog.counts("transaction-2").isEmpty());
+        HotPathLog.summarise("transaction-2");
+    }
+
+    @Test
+    public void shouldNotCountEventsForTransactionsThatAreNotOpen() {
+
+        // Given
+        // Summary mode and a transaction that has already been summarised
+        HotPathLog.setMode(LogMode.SUMMARY);
+        HotPathLog.open("transaction-3");
+        HotPathLog.summarise("transaction-3");
+        AtomicInteger built = new AtomicInteger();
+
+        // When
+        // An event is logged for it
+        HotPathLog.info("transaction-3", "writing transaction file", () -> {
+            built.incrementAndGet();
+            return TrainEvent.info().transactionID("transaction-3");
+        });
+
+        // Then
+        // The event should be logged in full rather than counted
+        assertEquals(1, built.get());
+        assertTrue(HotPathLog.counts("transaction-3").isEmpty());
+    }
+
+    @Test
+    public void shouldWriteQueuedEventsWhenLeavingAsyncMode() {
+
+        // Given
+        // Async mode with events logged
+        HotPathLog.setMode(LogMode.ASYNC);
+        for (int i = 0; i < 1000; i++) {
+            HotPathLog.info("transaction-1", "file added");
+        }
+
+        // When
+        // The mode is changed back to full
+        HotPathLog.setMode(LogMode.FULL);
+
+        // Then
+        // Nothing should be left queued
+        assertEquals(0, HotPathLog.queued());
+        assertEquals(LogMode.FULL, HotPathLog.mode());
+    }
+
+    @Test
+    public void shouldParseModeIgnoringCase() {
+        assertEquals(LogMode.SUMMARY, LogMode.parse(" Summary "));
+        assertEquals(LogMode.ASYNC, LogMode.parse("async"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownMode() {
+        LogMode.parse("verbose");
+    }
+}
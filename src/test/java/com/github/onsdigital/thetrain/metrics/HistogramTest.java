@@ -0,0 +1,63 @@
+package com.github.onsdigital.thetrain.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link Histogram}.
+ */
+public class HistogramTest {
+
+    @Test
+    public void shouldWriteCumulativeBuckets() {
+
+        // Given
+        // A histogram with two buckets
+        Histogram histogram = new Histogram("test_seconds", "help", new double[]{0.1, 1});
+
+        // When
+        // We observe a value in each bucket and one above them
+        histogram.observe(0.05);
+        histogram.observe(0.5);
+        histogram.observe(2);
+
+        // Then
+        // The buckets should be cumulative with a sum and count
+        StringBuilder out = new StringBuilder();
+        histogram.write(out);
+        assertEquals("test_seconds_bucket{le=\"0.1\"} 1\n"
+                + "test_seconds_bucket{le=\"1\"} 2\n"
+                + "test_seconds_bucket{le=\"+Inf\"} 3\n"
+                + "test_seconds_sum 2.55\n"
+                + "test_seconds_count 3\n", out.toString());
+    }
+
+    @Test
+    public void shouldSplitSeriesByLabel() {
+
+        // Given
+        // A labelled histogram
+        Histogram histogram = new Histogram("test_seconds", "help", new double[]{1}, "route");
+
+        // When
+        // We observe values for two routes
+        histogram.labels("/begin").observe(0.5);
+        histogram.labels("/commit").observe(0.5);
+        histogram.labels("/commit").observe(0.5);
+
+        // Then
+        // Each route should have its own series
+        StringBuilder out = new StringBuilder();
+        histogram.write(out);
+        assertTrue(out.toString().contains("test_seconds_count{route=\"/begin\"} 1\n"));
+        assertTrue(out.toString().contains("test_seconds_bucket{route=\"/commit\",le=\"1\"} 2\n"));
+        assertEquals(2, histogram.labels("/commit").count());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectWrongNumberOfLabels() {
+        new Histogram("test_seconds", "help", new double[]{1}, "route").labels("/begin", "200");
+    }
+}
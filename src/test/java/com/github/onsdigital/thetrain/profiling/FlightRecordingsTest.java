@@ -0,0 +1,94 @@
+package com.github.onsdigital.thetrain.profiling;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test for {@link FlightRecordings}.
+ */
+public class FlightRecordingsTest {
+
+    @After
+    public void tearDown() {
+        if (FlightRecordings.isRecording()) {
+            FlightRecordings.stop();
+        }
+    }
+
+    @Test
+    public void shouldRecordPublishEventsToTransactionStore() throws Exception {
+
+        // Given
+        // A recording started in a transaction store
+        Path transactionStore = Files.createTempDirectory("transaction-store");
+        Path started = FlightRecordings.start(transactionStore);
+
+        // When
+        // An event is recorded and the recording is stopped
+        UploadEvent event = new UploadEvent();
+        event.begin();
+        event.record("transaction-id", "/some/uri.json", 123);
+        Path stopped = FlightRecordings.stop();
+
+        // Then
+        // The recording should be written to the recordings directory and include the event
+        assertEquals(started, stopped);
+        assertEquals(transactionStore.resolve(FlightRecordings.RECORDINGS_DIR), stopped.getParent());
+        assertTrue(Files.exists(stopped));
+        assertFalse(FlightRecordings.isRecording());
+
+        List<RecordedEvent> uploads = RecordingFile.readAllEvents(stopped).stream()
+                .filter(recorded -> "thetrain.Upload".equals(recorded.getEventType().getName()))
+                .collect(Collectors.toList());
+        assertEquals(1, uploads.size());
+        assertEquals("transaction-id", uploads.get(0).getString("transactionId"));
+        assertEquals("/some/uri.json", uploads.get(0).getString("uri"));
+        assertEquals(123, uploads.get(0).getLong("bytes"));
+    }
+
+    @Test
+    public void shouldNotStartTwoRecordings() throws Exception {
+
+        // Given
+        // A running recording
+        Path transactionStore = Files.createTempDirectory("transaction-store");
+        FlightRecordings.start(transactionStore);
+
+        // When
+        // Another recording is started
+        try {
+            FlightRecordings.start(transactionStore);
+            fail("expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            // Then
+            // The first recording should still be running
+            assertTrue(FlightRecordings.isRecording());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotStopWhenNotRecording() {
+
+        // Given
+        // No running recording
+
+        // When
+        // The recording is stopped
+        FlightRecordings.stop();
+
+        // Then
+        // An IllegalStateException should be thrown
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.onsdigital.thetrain.profiling;
+
+import com.github.onsdigital.thetrain.json.TraceEntry;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link PublishTrace}.
+ */
+public class PublishTraceTest {
+
+    @After
+    public void tearDown() {
+        if (PublishTrace.isTracing()) {
+            PublishTrace.stop();
+        }
+    }
+
+    @Test
+    public void shouldWriteEntriesToTransactionStore() throws Exception {
+
+        // Given
+        // A trace started in a transaction store
+        Path transactionStore = Files.createTempDirectory("transaction-store");
+        Path started = PublishTrace.start(transactionStore);
+
+        // When
+        // An upload and a manifest are recorded and the trace is stopped
+        PublishTrace.record(new TraceEntry(1000, 20, "/publish", 200, "transaction-id")
+                .upload("/economy/timeseries", true, 500, 2048000));
+        PublishTrace.record(new TraceEntry(1030, 5, "/CommitManifest", 200, "transaction-id")
+                .manifest(10, 3));
+        Path stopped = PublishTrace.stop();
+
+        // Then
+        // The trace should be written to the traces directory, one entry per line
+        assertEquals(started, stopped);
+        assertEquals(transactionStore.resolve(PublishTrace.TRACES_DIR), stopped.getParent());
+        assertFalse(PublishTrace.isTracing());
+
+        List<String> lines = Files.readAllLines(stopped, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+
+        TraceEntry upload = PublishTrace.parse(lines.get(0));
+        assertEquals("/publish", upload.route());
+        assertEquals("transaction-id", upload.transactionId());
+        assertEquals(1020, upload.end());
+        assertEquals("/economy/timeseries", upload.uri());
+        assertTrue(upload.zip());
+        assertEquals(500, upload.files());
+        assertEquals(2048000, upload.bytes());
+
+        TraceEntry manifest = PublishTrace.parse(lines.get(1));
+        assertEquals(10, manifest.copies());
+        assertEquals(3, manifest.deletes());
+    }
+
+    @Test
+    public void shouldIgnoreEntriesWhenNotTracing() throws Exception {
+
+        // Given
+        // A trace that has been stopped
+        Path transactionStore = Files.createTempDirectory("transaction-store");
+        Path path = PublishTrace.start(transactionStore);
+        PublishTrace.stop();
+
+        // When
+        // An entry is recorded
+        PublishTrace.record(new TraceEntry(1000, 20, "/commit", 200, "transaction-id"));
+
+        // Then
+        // Nothing should be written
+        assertTrue(Files.readAllLines(path, StandardCharsets.UTF_8).isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotStartTwoTraces() throws Exception {
+
+        // Given
+        // A running trace
+        Path transactionStore = Files.createTempDirectory("transaction-store");
+        PublishTrace.start(transactionStore);
+
+        // When
+        // Another trace is started
+        PublishTrace.start(transactionStore);
+
+        // Then
+        // An IllegalStateException should be thrown
+    }
+}
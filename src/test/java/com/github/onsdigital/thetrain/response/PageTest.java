@@ -0,0 +1,59 @@
+package com.github.onsdigital.thetrain.response;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class PageTest {
+
+    @Test
+    public void keyed_shouldPageThroughSortedItems() {
+        List<String> items = Arrays.asList("/c", "/a", "/e", "/b", "/d");
+
+        Page<String> first = Page.keyed("1", "uris", items, uri -> uri, null, 2);
+        assertThat(first.getItems(), equalTo(Arrays.asList("/a", "/b")));
+        assertThat(first.getTotal(), equalTo(5));
+        assertThat(first.getNextCursor(), equalTo("/b"));
+
+        Page<String> second = Page.keyed("1", "uris", items, uri -> uri, first.getNextCursor(), 2);
+        assertThat(second.getItems(), equalTo(Arrays.asList("/c", "/d")));
+
+        Page<String> last = Page.keyed("1", "uris", items, uri -> uri, second.getNextCursor(), 2);
+        assertThat(last.getItems(), equalTo(Arrays.asList("/e")));
+        assertThat(last.getNextCursor(), is(nullValue()));
+    }
+
+    @Test
+    public void keyed_cursorShouldBeStableWhenItemsAreAdded() {
+        Page<String> first = Page.keyed("1", "uris", Arrays.asList("/b", "/d"), uri -> uri, null, 1);
+
+        Page<String> second = Page.keyed("1", "uris", Arrays.asList("/a", "/b", "/c", "/d"), uri -> uri,
+                first.getNextCursor(), 10);
+
+        assertThat(second.getItems(), equalTo(Arrays.asList("/c", "/d")));
+    }
+
+    @Test
+    public void indexed_shouldPageByOffset() {
+        List<String> items = Arrays.asList("one", "two", "three");
+
+        Page<String> first = Page.indexed("1", "errors", items, null, 2);
+        assertThat(first.getItems(), equalTo(Arrays.asList("one", "two")));
+        assertThat(first.getNextCursor(), equalTo("2"));
+
+        Page<String> second = Page.indexed("1", "errors", items, first.getNextCursor(), 2);
+        assertThat(second.getItems(), equalTo(Arrays.asList("three")));
+        assertThat(second.getNextCursor(), is(nullValue()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void indexed_shouldRejectInvalidCursor() {
+        Page.indexed("1", "errors", Arrays.asList("one"), "abc", 2);
+    }
+}
@@ -3,9 +3,14 @@ package com.github.onsdigital.thetrain.routes;
 import com.github.onsdigital.thetrain.exception.BadRequestException;
 import com.github.onsdigital.thetrain.exception.PublishException;
 import com.github.onsdigital.thetrain.json.Result;
+import com.github.onsdigital.thetrain.response.TransactionSummary;
 import org.junit.Test;
+import spark.HaltException;
 import spark.Route;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
 import static com.github.onsdigital.thetrain.routes.GetTransaction.GET_TRANS_SUCCESS_RESULT;
 import static java.lang.String.format;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -40,6 +45,73 @@ public class GetTransactionTest extends BaseRouteTest {
         verify(response, times(1)).status(200);
     }
 
+    @Test
+    public void testGetTransaction_summaryView() throws Exception {
+        when(request.raw()).thenReturn(raw);
+        when(raw.getParameter("view")).thenReturn("summary");
+        when(transactionsService.getTransaction(request)).thenReturn(transaction);
+        when(transaction.id()).thenReturn(TRANSACTION_ID);
+        when(transaction.version()).thenReturn(3L);
+
+        TransactionSummary actual = (TransactionSummary) route.handle(request, response);
+
+        assertThat(actual.getId(), equalTo(TRANSACTION_ID));
+        assertThat(actual.getVersion(), equalTo(3L));
+        verify(response, times(1)).header("ETag", GetTransaction.etag(transaction, "summary", null, null, null));
+        verify(response, times(1)).status(200);
+    }
+
+    @Test(expected = HaltException.class)
+    public void testGetTransaction_notModified() throws Exception {
+        when(request.headers("If-None-Match")).thenReturn("\"666-3\"");
+        when(transactionsService.getTransaction(request)).thenReturn(transaction);
+        when(transaction.id()).thenReturn(TRANSACTION_ID);
+        when(transaction.version()).thenReturn(3L);
+
+        try {
+            route.handle(request, response);
+        } catch (HaltException e) {
+            verify(response, times(1)).header("ETag", "\"666-3\"");
+            verify(response, never()).status(200);
+            throw e;
+        }
+    }
+
+    @Test
+    public void testGetTransaction_etagForEachPage() throws Exception {
+        when(transaction.id()).thenReturn(TRANSACTION_ID);
+        when(transaction.version()).thenReturn(3L);
+
+        String full = GetTransaction.etag(transaction, null, null, null, null);
+        String summary = GetTransaction.etag(transaction, "summary", null, null, null);
+        String firstPage = GetTransaction.etag(transaction, "uris", null, null, "10");
+        String nextPage = GetTransaction.etag(transaction, "uris", null, "/a.json", "10");
+
+        assertThat(full, equalTo("\"666-3\""));
+        assertThat(new HashSet<>(Arrays.asList(full, summary, firstPage, nextPage)).size(), equalTo(4));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testGetTransaction_unknownView() throws Exception {
+        when(request.raw()).thenReturn(raw);
+        when(raw.getParameter("view")).thenReturn("everything");
+        when(transactionsService.getTransaction(request)).thenReturn(transaction);
+        when(transaction.id()).thenReturn(TRANSACTION_ID);
+
+        route.handle(request, response);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testGetTransaction_invalidLimit() throws Exception {
+        when(request.raw()).thenReturn(raw);
+        when(raw.getParameter("view")).thenReturn("uris");
+        when(raw.getParameter("limit")).thenReturn("0");
+        when(transactionsService.getTransaction(request)).thenReturn(transaction);
+        when(transaction.id()).thenReturn(TRANSACTION_ID);
+
+        route.handle(request, response);
+    }
+
     @Test(expected = BadRequestException.class)
     public void testGetTransaction_transactionServiceBadRequestEx() throws Exception {
         try {
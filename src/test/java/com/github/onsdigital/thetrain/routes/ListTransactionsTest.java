@@ -0,0 +1,76 @@
+package com.github.onsdigital.thetrain.routes;
+
+import com.github.onsdigital.thetrain.exception.BadRequestException;
+import com.github.onsdigital.thetrain.json.TransactionIndexEntry;
+import com.github.onsdigital.thetrain.response.Page;
+import org.junit.Test;
+import spark.Route;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ListTransactionsTest extends BaseRouteTest {
+
+    private Route route;
+
+    @Override
+    public void customSetUp() throws Exception {
+        route = new ListTransactions(transactionsService);
+    }
+
+    @Test
+    public void testListTransactionsSuccess() throws Exception {
+        Page<TransactionIndexEntry> page = Page.of("transactions", 0, 10, Collections.emptyList(), null);
+        when(request.raw()).thenReturn(raw);
+        when(raw.getParameter("from")).thenReturn("1000");
+        when(raw.getParameter("status")).thenReturn("committed, rolled back");
+        when(raw.getParameter("limit")).thenReturn("10");
+        when(transactionsService.listTransactions(1000, Long.MAX_VALUE,
+                new HashSet<>(Arrays.asList("committed", "rolled back")), null, 10)).thenReturn(page);
+
+        Object actual = route.handle(request, response);
+
+        assertThat(actual, equalTo(page));
+        verify(response, times(1)).status(200);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testListTransactions_invalidDate() throws Exception {
+        when(request.raw()).thenReturn(raw);
+        when(raw.getParameter("to")).thenReturn("yesterday");
+
+        try {
+            route.handle(request, response);
+        } catch (BadRequestException e) {
+            verify(transactionsService, never()).listTransactions(anyLong(), anyLong(), any(), anyString(), anyInt());
+            throw e;
+        }
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testListTransactions_fromAfterTo() throws Exception {
+        when(request.raw()).thenReturn(raw);
+        when(raw.getParameter("from")).thenReturn("2000");
+        when(raw.getParameter("to")).thenReturn("1000");
+
+        try {
+            route.handle(request, response);
+        } catch (BadRequestException e) {
+            assertThat(e.getMessage(), equalTo("invalid date range: from 2000 is after to 1000"));
+            verify(transactionsService, never()).listTransactions(anyLong(), anyLong(), any(), anyString(), anyInt());
+            throw e;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.onsdigital.thetrain.routes;
 
+import com.github.onsdigital.thetrain.exception.BadRequestException;
 import com.github.onsdigital.thetrain.exception.PublishException;
 import com.github.onsdigital.thetrain.json.Result;
 import org.apache.hc.core5.http.HttpStatus;
@@ -10,6 +11,8 @@ import static com.github.onsdigital.thetrain.routes.OpenTransaction.SUCCESS_MSG;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -23,7 +26,7 @@ public class OpenTransactionTest extends BaseRouteTest {
         when(transaction.id())
                 .thenReturn("666");
 
-        route = new OpenTransaction(transactionsService);
+        route = new OpenTransaction(transactionsService, 8);
     }
 
     @Test(expected = PublishException.class)
@@ -53,5 +56,46 @@ public class OpenTransactionTest extends BaseRouteTest {
         assertThat(result.message, equalTo(SUCCESS_MSG));
         assertThat(result.transaction, equalTo(transaction));
         assertFalse(result.error);
+        verify(transaction, never()).setShare(anyInt());
+    }
+
+    @Test
+    public void testHandleShare() throws Exception {
+        when(request.raw()).thenReturn(raw);
+        when(raw.getParameter("share")).thenReturn("4");
+        when(transactionsService.create())
+                .thenReturn(transaction);
+
+        route.handle(request, response);
+
+        verify(transaction, times(1)).setShare(4);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testHandleInvalidShare() throws Exception {
+        when(request.raw()).thenReturn(raw);
+        when(raw.getParameter("share")).thenReturn("0");
+
+        try {
+            route.handle(request, response);
+        } catch (BadRequestException e) {
+            assertThat(e.getMessage(), equalTo("invalid share: 0"));
+            verify(transactionsService, never()).create();
+            throw e;
+        }
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testHandleShareAboveMaximum() throws Exception {
+        when(request.raw()).thenReturn(raw);
+        when(raw.getParameter("share")).thenReturn("2147483647");
+
+        try {
+            route.handle(request, response);
+        } catch (BadRequestException e) {
+            assertThat(e.getMessage(), equalTo("invalid share: 2147483647, the most allowed is 8"));
+            verify(transactionsService, never()).create();
+            throw e;
+        }
     }
 }
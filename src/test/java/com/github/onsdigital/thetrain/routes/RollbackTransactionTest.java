@@ -10,7 +10,7 @@ import static com.github.onsdigital.thetrain.routes.RollbackTransaction.ROLLBACK
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertFalse;
-import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -39,7 +39,25 @@ public class RollbackTransactionTest extends BaseRouteTest {
 
         verify(transactionsService, times(1)).getTransaction(request);
         verify(publisherService, times(1)).rollback(transaction);
-        verify(transactionsService, times(1)).listFiles(transaction);
+        verify(transactionsService, never()).listFiles(transaction);
+        verify(transactionsService, times(1)).update(transaction);
+    }
+
+    @Test
+    public void testForcedRollbackTransactionSuccess() throws Exception {
+        when(request.raw()).thenReturn(raw);
+        when(raw.getParameter("force")).thenReturn("true");
+        when(transactionsService.getTransaction(request)).thenReturn(transaction);
+        when(publisherService.rollback(transaction, true)).thenReturn(true);
+
+        Result result = (Result) route.handle(request, response);
+
+        assertThat(result.message, equalTo(ROLLBACK_SUCCESS_MSG));
+        assertFalse(result.error);
+
+        verify(transactionsService, times(1)).getTransaction(request);
+        verify(publisherService, times(1)).rollback(transaction, true);
+        verify(publisherService, never()).rollback(transaction);
         verify(transactionsService, times(1)).update(transaction);
     }
 
@@ -102,21 +120,4 @@ public class RollbackTransactionTest extends BaseRouteTest {
             throw e;
         }
     }
-
-    @Test(expected = PublishException.class)
-    public void testRollback_listFilesPublishEx() throws Exception {
-        try {
-            when(transactionsService.getTransaction(request)).thenReturn(transaction);
-            when(publisherService.rollback(transaction)).thenReturn(true);
-            doThrow(new PublishException("")).when(transactionsService).listFiles(transaction);
-
-            route.handle(request, response);
-        } catch (PublishException e) {
-            verify(transactionsService, times(1)).getTransaction(request);
-            verify(publisherService, times(1)).rollback(transaction);
-            verify(transactionsService, times(1)).update(transaction);
-            verify(transactionsService, times(1)).listFiles(transaction);
-            throw e;
-        }
-    }
 }
@@ -0,0 +1,65 @@
+package com.github.onsdigital.thetrain.storage;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link BackgroundJob}.
+ */
+public class BackgroundJobTest {
+
+    @Test
+    public void shouldDeleteTreeAndCountBytes() throws Exception {
+
+        // Given
+        // A directory tree holding two files
+        Path tree = Files.createTempDirectory("tree");
+        Files.createDirectories(tree.resolve("a/b"));
+        Files.write(tree.resolve("a/b/c.json"), new byte[100]);
+        Files.write(tree.resolve("a/d.json"), new byte[50]);
+
+        // When
+        // We delete it with and without a budget
+        long bytes = BackgroundJob.deleteTree(tree, new IoBudget(1024 * 1024, () -> false));
+        Path other = Files.createTempDirectory("tree");
+        long otherBytes = BackgroundJob.deleteTree(other, null);
+
+        // Then
+        // Both trees should be gone, and the bytes in their files counted
+        assertFalse(Files.exists(tree));
+        assertFalse(Files.exists(other));
+        assertEquals(150, bytes);
+        assertEquals(0, otherBytes);
+    }
+
+    @Test
+    public void shouldRunPassesOnTheLane() throws InterruptedException {
+
+        // Given
+        // A job whose pass fails the first time
+        CountDownLatch passes = new CountDownLatch(2);
+        BackgroundJob job = new BackgroundJob("test-job", () -> {
+            passes.countDown();
+            if (passes.getCount() == 1) {
+                throw new IllegalStateException("first pass");
+            }
+        });
+
+        // When
+        // It is started
+        job.start(10, Runnable::run);
+
+        // Then
+        // It should keep running passes after the failure
+        assertTrue(passes.await(5, TimeUnit.SECONDS));
+        job.shutdown();
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.github.onsdigital.thetrain.json.Transaction;
+import org.junit.Test;
+
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test for {@link ClosedTransactionCache}.
+ */
+public class ClosedTransactionCacheTest {
+
+    private static final FileTime MODIFIED = FileTime.fromMillis(1000);
+
+    @Test
+    public void shouldReturnCachedTransactionWhenUnchanged() {
+
+        // Given
+        // A cached transaction
+        ClosedTransactionCache cache = new ClosedTransactionCache(1024);
+        Transaction transaction = new Transaction();
+        cache.put(transaction, MODIFIED, 100);
+
+        // When
+        // We get it with the same modified time and size
+        Transaction result = cache.get(transaction.id(), MODIFIED, 100);
+
+        // Then
+        // The cached instance should be returned
+        assertSame(transaction, result);
+    }
+
+    @Test
+    public void shouldInvalidateChangedTransaction() {
+
+        // Given
+        // A cached transaction
+        ClosedTransactionCache cache = new ClosedTransactionCache(1024);
+        Transaction transaction = new Transaction();
+        cache.put(transaction, MODIFIED, 100);
+
+        // When
+        // The Json on disk has been rewritten since it was cached
+        Transaction result = cache.get(transaction.id(), FileTime.fromMillis(2000), 100);
+
+        // Then
+        // It should be a miss and the entry should have been dropped
+        assertNull(result);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedWhenFull() {
+
+        // Given
+        // A cache with room for two transactions
+        long size = 100;
+        ClosedTransactionCache cache = new ClosedTransactionCache(2 * size * ClosedTransactionCache.SIZE_FACTOR);
+        Transaction first = new Transaction();
+        Transaction second = new Transaction();
+        Transaction third = new Transaction();
+        cache.put(first, MODIFIED, size);
+        cache.put(second, MODIFIED, size);
+
+        // When
+        // The first is used and a third is added
+        cache.get(first.id(), MODIFIED, size);
+        cache.put(third, MODIFIED, size);
+
+        // Then
+        // The second, least recently used, transaction should have been evicted
+        assertSame(first, cache.get(first.id(), MODIFIED, size));
+        assertNull(cache.get(second.id(), MODIFIED, size));
+        assertSame(third, cache.get(third.id(), MODIFIED, size));
+        assertEquals(2 * size * ClosedTransactionCache.SIZE_FACTOR, cache.bytes());
+    }
+
+    @Test
+    public void shouldNotCacheTransactionLargerThanLimit() {
+
+        // Given
+        // A small cache
+        ClosedTransactionCache cache = new ClosedTransactionCache(10);
+        Transaction transaction = new Transaction();
+
+        // When
+        // We add a transaction larger than the limit
+        cache.put(transaction, MODIFIED, 100);
+
+        // Then
+        // It should not be cached
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.onsdigital.thetrain.storage;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test for {@link CommitChunk}.
+ */
+public class CommitChunkTest {
+
+    @Test
+    public void shouldKeepDirectoriesTogether() {
+
+        // Given
+        // Files from three directories, out of order
+        List<String> uris = Arrays.asList("/b/2.json", "/a/1.json", "/c/1.json", "/b/1.json", "/a/2.json",
+                "/c/2.json");
+
+        // When
+        // They are partitioned into chunks of up to four files
+        List<CommitChunk> chunks = CommitChunk.partition(uris, 4);
+
+        // Then
+        // No directory should be split, and each chunk should be sorted by directory
+        assertEquals(2, chunks.size());
+        assertEquals(Arrays.asList("/a/1.json", "/a/2.json", "/b/1.json", "/b/2.json"), chunks.get(0).uris());
+        assertEquals(Arrays.asList("/c/1.json", "/c/2.json"), chunks.get(1).uris());
+    }
+
+    @Test
+    public void shouldSplitADirectoryLargerThanAChunk() {
+
+        // Given
+        // One directory of ten files
+        List<String> uris = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            uris.add("/large/" + i + ".json");
+        }
+
+        // When
+        // They are partitioned into chunks of up to four files
+        List<CommitChunk> chunks = CommitChunk.partition(uris, 4);
+
+        // Then
+        // The directory should be split into full chunks and a remainder
+        assertEquals(3, chunks.size());
+        assertEquals(4, chunks.get(0).size());
+        assertEquals(4, chunks.get(1).size());
+        assertEquals(2, chunks.get(2).size());
+    }
+
+    @Test
+    public void shouldSizeChunksForTheThreads() {
+
+        // Given
+        // Twenty threads
+
+        // When
+        // We size chunks for small, medium and very large commits
+        int small = CommitChunk.chunkSize(10, 20);
+        int medium = CommitChunk.chunkSize(8000, 20);
+        int large = CommitChunk.chunkSize(1000000, 20);
+
+        // Then
+        // Chunks should give each thread several to take, within the bounds
+        assertEquals(1, small);
+        assertEquals(100, medium);
+        assertEquals(CommitChunk.MAX_FILES, large);
+    }
+}
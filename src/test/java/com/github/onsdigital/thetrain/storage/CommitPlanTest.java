@@ -0,0 +1,100 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.github.onsdigital.thetrain.helpers.PathUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link CommitPlan}.
+ */
+public class CommitPlanTest {
+
+    @Test
+    public void shouldListEachDirectoryOnceInOrder() {
+
+        // Given
+        // Files in nested directories, several to a directory
+        List<String> uris = Arrays.asList("/b/data.json", "/a/c/1.json", "/a/2.json", "/a/c/2.json", "/a/1.json",
+                "/root.json");
+
+        // When
+        // We plan the commit
+        CommitPlan plan = CommitPlan.of(uris, 10);
+
+        // Then
+        // Each directory should be listed once, parents before children, and every file should be in a chunk
+        assertEquals(Arrays.asList("/a", "/a/c", "/b"), new ArrayList<>(plan.directories()));
+        int files = 0;
+        for (CommitChunk chunk : plan.chunks()) {
+            files += chunk.size();
+        }
+        assertEquals(uris.size(), files);
+    }
+
+    @Test
+    public void shouldListTheDirectoriesTouchedByACommit() {
+
+        // Given
+        // A plan for files in nested directories
+        CommitPlan plan = CommitPlan.of(Arrays.asList("/a/b/c/1.json", "/a/2.json", "/root.json"), 10);
+
+        // When
+        // We list the directories touched by it and a delete
+        List<String> touched = new ArrayList<>(plan.touchedDirectories(Collections.singletonList("/d/e/")));
+
+        // Then
+        // The file directories, their ancestors, the website root and the parent of the delete should be listed
+        assertEquals(Arrays.asList("", "/a", "/a/b", "/a/b/c", "/d"), touched);
+    }
+
+    @Test
+    public void shouldCreateDirectories() throws IOException {
+
+        // Given
+        // A plan for files in new and existing nested directories
+        Path website = Files.createTempDirectory("website");
+        Files.createDirectories(website.resolve("existing"));
+        CommitPlan plan = CommitPlan.of(Arrays.asList("/existing/1.json", "/new/deep/er/1.json", "/new/2.json",
+                "/new/deep/2.json"), 10);
+
+        // When
+        // We create the directories
+        List<String> failed = plan.createDirectories(website);
+
+        // Then
+        // Every directory should exist
+        assertEquals(Collections.emptyList(), failed);
+        for (String directory : plan.directories()) {
+            assertTrue(Files.isDirectory(PathUtils.toPath(directory, website)));
+        }
+    }
+
+    @Test
+    public void shouldReportDirectoriesThatCannotBeCreated() throws IOException {
+
+        // Given
+        // A plan for a directory that is a file on the website
+        Path website = Files.createTempDirectory("website");
+        Files.createFile(website.resolve("blocked"));
+        CommitPlan plan = CommitPlan.of(Arrays.asList("/blocked/1.json", "/blocked/sub/1.json", "/open/1.json"), 10);
+
+        // When
+        // We create the directories
+        List<String> failed = plan.createDirectories(website);
+
+        // Then
+        // The blocked directories should be reported and the others created
+        assertEquals(Arrays.asList("/blocked", "/blocked/sub"), failed);
+        assertTrue(Files.isDirectory(website.resolve("open")));
+    }
+}
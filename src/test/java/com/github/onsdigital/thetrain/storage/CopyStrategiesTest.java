@@ -0,0 +1,92 @@
+package com.github.onsdigital.thetrain.storage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test for {@link CopyStrategies}.
+ */
+public class CopyStrategiesTest {
+
+    /**
+     * Sizes either side of the buffer size, and spanning several buffers, so partial buffers are copied.
+     */
+    private static final int[] SIZES = {0, 1, 1000, CopyStrategies.BUFFER_SIZE, CopyStrategies.BUFFER_SIZE + 1,
+            3 * CopyStrategies.BUFFER_SIZE + 12345};
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("copy");
+    }
+
+    @Test
+    public void shouldCopyFilesWithEveryStrategy() throws IOException {
+
+        // Given
+        // Files of various sizes, and targets that already exist with longer content
+        for (CopyStrategies strategy : CopyStrategies.values()) {
+            for (int size : SIZES) {
+                byte[] content = content(size);
+                Path source = Files.write(directory.resolve(strategy + "-" + size + ".source"), content);
+                Path target = Files.write(directory.resolve(strategy + "-" + size + ".target"), content(size + 100));
+
+                // When
+                // We copy the file
+                strategy.copy(source, target);
+
+                // Then
+                // The target should have the same content as the source
+                assertArrayEquals(strategy + " " + size, content, Files.readAllBytes(target));
+            }
+        }
+    }
+
+    @Test
+    public void shouldWriteStreamsWithEveryStrategy() throws IOException {
+
+        // Given
+        // Content of various sizes, and targets that already exist with longer content
+        for (CopyStrategies strategy : CopyStrategies.values()) {
+            for (int size : SIZES) {
+                byte[] content = content(size);
+                Path target = Files.write(directory.resolve(strategy + "-" + size + ".written"), content(size + 100));
+
+                // When
+                // We write the content as a stream
+                strategy.write(new ByteArrayInputStream(content), target);
+
+                // Then
+                // The target should have the content
+                assertArrayEquals(strategy + " " + size, content, Files.readAllBytes(target));
+            }
+        }
+    }
+
+    @Test
+    public void shouldParseStrategyIgnoringCaseAndDashes() {
+        assertEquals(CopyStrategies.FILES_COPY, CopyStrategies.parse(" Files-Copy "));
+        assertEquals(CopyStrategies.DIRECT_BUFFER, CopyStrategies.parse("direct_buffer"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownStrategy() {
+        CopyStrategies.parse("teleport");
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.onsdigital.thetrain.storage;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link FileSync}.
+ */
+public class FileSyncTest {
+
+    @After
+    public void tearDown() {
+        FileSync.setDurability(Durability.NONE);
+    }
+
+    @Test
+    public void shouldSyncJournalOnlyWhenClosingIfBatched() {
+
+        // Given
+        // Batched durability
+        FileSync.setDurability(Durability.BATCHED);
+
+        // When
+        // We ask whether to sync journal writes
+
+        // Then
+        // Only the write that closes the transaction should be synced
+        assertTrue(FileSync.journal(true));
+        assertFalse(FileSync.journal(false));
+    }
+
+    @Test
+    public void shouldSyncEveryJournalWriteIfStrict() {
+
+        // Given
+        // Strict durability
+        FileSync.setDurability(Durability.STRICT);
+
+        // When
+        // We ask whether to sync journal writes
+
+        // Then
+        // Every write should be synced
+        assertTrue(FileSync.journal(true));
+        assertTrue(FileSync.journal(false));
+    }
+
+    @Test
+    public void shouldSyncFilesAndDirectories() throws IOException {
+
+        // Given
+        // A file in a directory
+        Path directory = Files.createTempDirectory("sync");
+        Path file = Files.write(directory.resolve("data.json"), "{}".getBytes());
+
+        // When
+        // We sync them
+        FileSync.file(file);
+        FileSync.directory(directory);
+
+        // Then
+        // No error should be thrown
+    }
+
+    @Test
+    public void shouldParseDurabilityIgnoringCase() {
+        assertEquals(Durability.BATCHED, Durability.parse(" Batched "));
+        assertEquals(Durability.STRICT, Durability.parse("strict"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownDurability() {
+        Durability.parse("paranoid");
+    }
+}
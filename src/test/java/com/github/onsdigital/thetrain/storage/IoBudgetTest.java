@@ -0,0 +1,59 @@
+package com.github.onsdigital.thetrain.storage;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link IoBudget}.
+ */
+public class IoBudgetTest {
+
+    @Test
+    public void shouldLimitRate() throws Exception {
+
+        // Given
+        // A budget of 1000 bytes per second
+        IoBudget budget = new IoBudget(1000, () -> false);
+
+        // When
+        // We move 1500 bytes, one second's burst plus half as much again
+        long start = System.currentTimeMillis();
+        budget.acquire(1000);
+        budget.acquire(500);
+        long duration = System.currentTimeMillis() - start;
+
+        // Then
+        // We should have been held back for around half a second
+        assertTrue("duration " + duration, duration >= 400);
+    }
+
+    @Test
+    public void shouldPauseWhileBusy() throws Exception {
+
+        // Given
+        // A budget that is busy until another thread clears it
+        AtomicBoolean busy = new AtomicBoolean(true);
+        IoBudget budget = new IoBudget(Long.MAX_VALUE / 1_000_000_000L, busy::get);
+        new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            busy.set(false);
+        }).start();
+
+        // When
+        // We acquire a single byte
+        long start = System.currentTimeMillis();
+        budget.acquire(1);
+        long duration = System.currentTimeMillis() - start;
+
+        // Then
+        // We should have waited for the budget to stop being busy
+        assertTrue("duration " + duration, duration >= 200);
+    }
+}
@@ -0,0 +1,239 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.github.onsdigital.thetrain.json.Timeline;
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.storage.PublishScheduler.WorkClass;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link PublishScheduler}.
+ */
+public class PublishSchedulerTest {
+
+    private PublishScheduler scheduler;
+
+    @After
+    public void tearDown() throws Exception {
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void shouldRunCommitWorkBeforeQueuedUploads() throws Exception {
+
+        // Given
+        // A single thread, busy, with uploads queued ahead of a commit
+        scheduler = new PublishScheduler(1);
+        CountDownLatch release = block(WorkClass.UPLOAD);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String name = "upload" + i;
+            futures.add(scheduler.submit(WorkClass.UPLOAD, () -> order.add(name)));
+        }
+        futures.add(scheduler.submit(WorkClass.BACKGROUND, () -> order.add("archive")));
+        futures.add(scheduler.submit(WorkClass.COMMIT, () -> order.add("commit")));
+
+        // When
+        // The thread becomes free
+        release.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        // Then
+        // The commit should run first, then the uploads in order, then the background work
+        assertEquals("[commit, upload0, upload1, upload2, archive]", order.toString());
+    }
+
+    @Test
+    public void shouldTakeTurnsBetweenTransactions() throws Exception {
+
+        // Given
+        // A single busy thread with a large transaction's uploads queued ahead of a small one's
+        scheduler = new PublishScheduler(1, 4);
+        CountDownLatch release = block(WorkClass.UPLOAD);
+        Transaction large = new Transaction();
+        Transaction small = new Transaction();
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(scheduler.submit(WorkClass.UPLOAD, large, () -> order.add("large")));
+        }
+        for (int i = 0; i < 3; i++) {
+            futures.add(scheduler.submit(WorkClass.UPLOAD, small, () -> order.add("small")));
+        }
+        assertEquals(2, scheduler.queuedTransactions(WorkClass.UPLOAD));
+        long version = large.version();
+
+        // When
+        // The thread becomes free
+        release.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        // Then
+        // Running the tasks should not have changed the transaction until its timeline is read
+        assertEquals(version, large.version());
+
+        // The small transaction should run after the large transaction's first turn, not after all its work
+        assertEquals(Arrays.asList("large", "large", "large", "large", "small", "small", "small", "large"),
+                order.subList(0, 8));
+
+        // And the wait of each task should be in its transaction's timeline
+        assertEquals(50, large.timeline().phase(Timeline.QUEUE_WAIT).files());
+        assertEquals(3, small.timeline().phase(Timeline.QUEUE_WAIT).files());
+    }
+
+    @Test
+    public void shouldGiveTransactionsTurnsInProportionToTheirShare() throws Exception {
+
+        // Given
+        // A single busy thread with work queued for a transaction with twice the share of another
+        scheduler = new PublishScheduler(1, 1);
+        CountDownLatch release = block(WorkClass.COMMIT);
+        Transaction doubled = new Transaction();
+        doubled.setShare(2);
+        Transaction single = new Transaction();
+        StringBuffer order = new StringBuffer();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(scheduler.submit(WorkClass.COMMIT, doubled, () -> order.append("d")));
+            futures.add(scheduler.submit(WorkClass.COMMIT, single, () -> order.append("s")));
+        }
+
+        // When
+        // The thread becomes free
+        release.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        // Then
+        // The doubled transaction should run two tasks for every one of the other while both have work
+        assertEquals("ddsddsddssss", order.toString());
+    }
+
+    @Test
+    public void shouldOnlyRunOneBackgroundTaskAtOnce() throws Exception {
+
+        // Given
+        // Three threads, one of them running a background task
+        scheduler = new PublishScheduler(3);
+        CountDownLatch release = block(WorkClass.BACKGROUND);
+
+        // When
+        // More background work and an upload are queued
+        AtomicInteger backgroundRun = new AtomicInteger();
+        Future<?> background = scheduler.submit(WorkClass.BACKGROUND, backgroundRun::incrementAndGet);
+        Future<?> upload = scheduler.submit(WorkClass.UPLOAD, () -> "uploaded");
+
+        // Then
+        // The upload should run while the background work waits for the first background task
+        assertEquals("uploaded", upload.get(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(0, backgroundRun.get());
+        assertEquals(1, scheduler.queued(WorkClass.BACKGROUND));
+
+        release.countDown();
+        background.get(5, TimeUnit.SECONDS);
+        assertEquals(1, backgroundRun.get());
+    }
+
+    @Test
+    public void shouldOnlyBeBusyWhileCommittingOrUploading() throws Exception {
+
+        // Given
+        // Two threads, one of them running a background task
+        scheduler = new PublishScheduler(2);
+        CountDownLatch background = block(WorkClass.BACKGROUND);
+        assertFalse(scheduler.busy());
+
+        // When
+        // An upload starts and then finishes
+        CountDownLatch upload = block(WorkClass.UPLOAD);
+        boolean busyUploading = scheduler.busy();
+        upload.countDown();
+        scheduler.submit(WorkClass.COMMIT, () -> "committed").get(5, TimeUnit.SECONDS);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.busy() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Then
+        // The scheduler should only have been busy while the upload was running
+        assertTrue(busyUploading);
+        assertFalse(scheduler.busy());
+        background.countDown();
+    }
+
+    @Test
+    public void shouldFinishQueuedWorkOnShutdown() throws Exception {
+
+        // Given
+        // A busy thread with work queued
+        scheduler = new PublishScheduler(1);
+        CountDownLatch release = block(WorkClass.COMMIT);
+        Future<String> queued = scheduler.submit(WorkClass.UPLOAD, () -> "done");
+
+        // When
+        // The scheduler is shut down
+        scheduler.shutdown();
+        release.countDown();
+
+        // Then
+        // The queued work should still run, and the threads should then stop
+        assertEquals("done", queued.get(5, TimeUnit.SECONDS));
+        assertTrue(scheduler.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void shouldRejectWorkAfterShutdown() {
+
+        // Given
+        // A scheduler that has been shut down
+        scheduler = new PublishScheduler(1);
+        scheduler.shutdown();
+
+        // When
+        // Work is submitted
+        scheduler.submit(WorkClass.COMMIT, () -> null);
+
+        // Then
+        // It should be rejected
+    }
+
+    /**
+     * Occupy a thread with a task of the class until the returned latch is released.
+     */
+    private CountDownLatch block(WorkClass workClass) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.execute(workClass, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+}
@@ -3,6 +3,7 @@ package com.github.onsdigital.thetrain.storage;
 import com.github.davidcarboni.cryptolite.Random;
 import com.github.onsdigital.thetrain.helpers.Hash;
 import com.github.onsdigital.thetrain.helpers.PathUtils;
+import com.github.onsdigital.thetrain.json.Timeline;
 import com.github.onsdigital.thetrain.json.Transaction;
 import com.github.onsdigital.thetrain.json.UriInfo;
 import com.github.onsdigital.thetrain.json.request.Manifest;
@@ -18,12 +19,16 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -107,17 +112,20 @@ public class PublisherTest {
 
         Path websiteTarget = PathUtils.toPath(target, websiteTestPath);
         Files.createDirectories(websiteTarget.getParent());
-        Files.move(tempFile(), PathUtils.toPath(source, websiteTestPath));
+        Path websiteSource = PathUtils.toPath(source, websiteTestPath);
+        Files.move(tempFile(), websiteSource);
+        Manifest manifest = new Manifest();
+        manifest.addFileToCopy(source, target);
 
         // When
         // Files being published
-        Publisher.getInstance().copyFileIntoTransaction(transaction, source, target, websiteTestPath);
+        Publisher.getInstance().copyFilesIntoTransaction(transaction, manifest, websiteTestPath);
+        assertTrue(Publisher.getInstance().commit(transaction, websiteTestPath));
 
         // Then
-        // The moved files should be in the transaction in the target location.
-        Path path = Publisher.getInstance().getFile(transaction, target);
-        assertNotNull(path);
-        assertTrue(Files.exists(path));
+        // The file should have been copied to the target location on the website.
+        assertTrue(Files.exists(websiteTarget));
+        assertEquals(Hash.sha(websiteSource), Hash.sha(websiteTarget));
         assertFalse(transaction.hasErrors());
     }
 
@@ -135,17 +143,84 @@ public class PublisherTest {
         Files.createDirectories(websiteTarget.getParent());
         Files.move(tempFile(), websiteTarget);
         Files.move(tempFile(), PathUtils.toPath(source, websiteTestPath));
+        String sha = Hash.sha(websiteTarget);
+        Manifest manifest = new Manifest();
+        manifest.addFileToCopy(source, target);
 
         // When
         // Files being published
-        Publisher.getInstance().copyFileIntoTransaction(transaction, source, target, websiteTestPath);
+        int copies = Publisher.getInstance().copyFilesIntoTransaction(transaction, manifest, websiteTestPath);
+        assertTrue(Publisher.getInstance().commit(transaction, websiteTestPath));
 
         // Then
-        // The moved files should be in the transaction in the target location.
-        Path path = Publisher.getInstance().getFile(transaction, target);
-        assertNull(path);
+        // No copy should have been made over the existing file.
+        assertEquals(0, copies);
+        assertTrue(transaction.copies().isEmpty());
+        assertEquals(sha, Hash.sha(websiteTarget));
+    }
+
+
+    @Test
+    public void shouldLinkBackupsAndLeaveThemUnchangedByCommit() throws IOException {
+
+        // Given
+        // Backups configured to be linked, and a file on the website being updated
+        String uri = "/linked-" + Random.id() + ".txt";
+        Path website = PathUtils.toPath(uri, websiteTestPath);
+        Files.copy(tempFile(), website);
+        String sha = Hash.sha(website);
+        Publisher.setBackupMode(BackupMode.LINK);
+
+        try {
+            // When
+            // We upload the update and commit it
+            Publisher.getInstance().addFile(transaction, uri, data(), websiteTestPath);
+            Path backup = PathUtils.toPath(uri, Transactions.backup(transaction));
+            assertTrue(Files.isSameFile(website, backup));
+            Publisher.getInstance().commit(transaction, websiteTestPath);
+
+            // Then
+            // The website has the new file, the backup still has the old one and no shadow file is left behind
+            assertFalse(transaction.hasErrors());
+            assertEquals(sha, Hash.sha(backup));
+            assertNotEquals(sha, Hash.sha(website));
+            assertFalse(Files.exists(Publisher.shadow(website, transaction)));
+        } finally {
+            Publisher.setBackupMode(BackupMode.COPY);
+        }
     }
 
+    @Test
+    public void shouldCopyBackupsByDefault() throws IOException {
+
+        // Given
+        // A file on the website
+        String uri = "/copied-" + Random.id() + ".txt";
+        Path website = PathUtils.toPath(uri, websiteTestPath);
+        Files.copy(tempFile(), website);
+
+        // When
+        // We upload an update
+        Publisher.getInstance().addFile(transaction, uri, data(), websiteTestPath);
+
+        // Then
+        // The backup is a separate copy of the file
+        Path backup = PathUtils.toPath(uri, Transactions.backup(transaction));
+        assertEquals(BackupMode.COPY, Publisher.backupMode());
+        assertFalse(Files.isSameFile(website, backup));
+        assertEquals(Hash.sha(website), Hash.sha(backup));
+    }
+
+    @Test
+    public void shouldParseBackupModeIgnoringCase() {
+        assertEquals(BackupMode.COPY, BackupMode.parse(" Copy "));
+        assertEquals(BackupMode.LINK, BackupMode.parse("link"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownBackupMode() {
+        BackupMode.parse("tape");
+    }
 
     @Test
     public void shouldComputeHash() throws IOException {
@@ -277,6 +352,189 @@ public class PublisherTest {
         }
     }
 
+    @Test
+    public void shouldCommitFilesAcrossManyDirectories() throws IOException {
+
+        // Given
+        // A transaction with more files than there are chunks per thread, spread over several directories
+        Transaction transaction = Transactions.create();
+        String root = "/chunked-" + Random.id();
+        List<String> uris = new ArrayList<>();
+        for (int directory = 0; directory < 7; directory++) {
+            for (int file = 0; file < 60; file++) {
+                String uri = root + "/" + directory + "/" + file + ".json";
+                uris.add(uri);
+                Publisher.getInstance().addFile(transaction, uri, Random.inputStream(100), websiteTestPath);
+            }
+        }
+
+        // When
+        // We commit the transaction
+        boolean result = Publisher.getInstance().commit(transaction, websiteTestPath);
+
+        // Then
+        // Every file should be on the website and marked as committed
+        assertTrue(result);
+        for (String uri : uris) {
+            assertTrue(Files.exists(PathUtils.toPath(uri, websiteTestPath)));
+        }
+        for (UriInfo uriInfo : transaction.uris()) {
+            assertEquals(UriInfo.COMMITTED, uriInfo.status());
+        }
+    }
+
+    @Test
+    public void shouldFailCommitWhenAFileCannotBeWritten() throws IOException {
+
+        // Given
+        // A transaction with a file whose directory has since been replaced by a file on the website
+        Transaction transaction = Transactions.create();
+        String blocked = "/blocked-" + Random.id();
+        assertTrue(Publisher.getInstance().addFile(transaction, blocked + "/data.json", data(), websiteTestPath));
+        Files.createFile(PathUtils.toPath(blocked, websiteTestPath));
+
+        // When
+        // We commit the transaction
+        boolean result = Publisher.getInstance().commit(transaction, websiteTestPath);
+
+        // Then
+        // The commit should fail and say so in the transaction
+        assertFalse(result);
+        assertTrue(transaction.hasErrors());
+        assertEquals(Transaction.COMMIT_FAILED, transaction.getStatus());
+    }
+
+    @Test
+    public void shouldCommitEveryOtherFileWhenAFileFails() throws IOException {
+
+        // Given
+        // A transaction with one file that cannot be written and many that can, across many directories
+        Transaction transaction = Transactions.create();
+        String blocked = "/blocked-" + Random.id();
+        assertTrue(Publisher.getInstance().addFile(transaction, blocked + "/data.json", data(), websiteTestPath));
+        Files.createFile(PathUtils.toPath(blocked, websiteTestPath));
+        List<String> uris = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String uri = "/attempted-" + Random.id() + "/" + i + "/data.json";
+            assertTrue(Publisher.getInstance().addFile(transaction, uri, data(), websiteTestPath));
+            uris.add(uri);
+        }
+
+        // When
+        // We commit the transaction
+        boolean result = Publisher.getInstance().commit(transaction, websiteTestPath);
+
+        // Then
+        // The commit fails, but every other file has been committed
+        assertFalse(result);
+        for (String uri : uris) {
+            assertTrue(Files.exists(PathUtils.toPath(uri, websiteTestPath)));
+        }
+    }
+
+    @Test
+    public void shouldSyncCommitInABatchWhenDurabilityIsBatched() throws IOException {
+
+        // Given
+        // Batched durability and a transaction with files in two directories
+        FileSync.setDurability(Durability.BATCHED);
+        try {
+            Transaction transaction = Transactions.create();
+            String root = "/batched-" + Random.id();
+            Publisher.getInstance().addFile(transaction, root + "/a/data.json", data(), websiteTestPath);
+            Publisher.getInstance().addFile(transaction, root + "/b/data.json", data(), websiteTestPath);
+
+            // When
+            // We commit the transaction
+            boolean result = Publisher.getInstance().commit(transaction, websiteTestPath);
+
+            // Then
+            // The commit should succeed, with the sync of both files and the touched directories in the timeline
+            assertTrue(result);
+            Timeline.Phase sync = transaction.timeline().phase(Timeline.COMMIT_SYNC);
+            assertNotNull(sync);
+            assertEquals(2 + 4, sync.files());
+        } finally {
+            FileSync.setDurability(Durability.NONE);
+        }
+    }
+
+    @Test
+    public void shouldSyncEachFileWhenDurabilityIsStrict() throws IOException {
+
+        // Given
+        // Strict durability and a transaction with two files
+        FileSync.setDurability(Durability.STRICT);
+        try {
+            Transaction transaction = Transactions.create();
+            String root = "/strict-" + Random.id();
+            Publisher.getInstance().addFile(transaction, root + "/1.json", data(), websiteTestPath);
+            Publisher.getInstance().addFile(transaction, root + "/2.json", data(), websiteTestPath);
+
+            // When
+            // We commit the transaction
+            boolean result = Publisher.getInstance().commit(transaction, websiteTestPath);
+
+            // Then
+            // Each file should have been synced as it was committed
+            assertTrue(result);
+            assertEquals(2, transaction.timeline().phase(Timeline.COMMIT_SYNC).files());
+        } finally {
+            FileSync.setDurability(Durability.NONE);
+        }
+    }
+
+    @Test
+    public void shouldNotSyncWhenDurabilityIsNone() throws IOException {
+
+        // Given
+        // A transaction with a file, and no durability
+        Transaction transaction = Transactions.create();
+        Publisher.getInstance().addFile(transaction, "/none-" + Random.id() + ".json", data(), websiteTestPath);
+
+        // When
+        // We commit the transaction
+        assertTrue(Publisher.getInstance().commit(transaction, websiteTestPath));
+
+        // Then
+        // Nothing should have been synced
+        assertNull(transaction.timeline().phase(Timeline.COMMIT_SYNC));
+    }
+
+    @Test
+    public void shouldRecordTimelineAndPersistCommittedTransaction() throws IOException {
+
+        // Given
+        // A transaction with two files uploaded
+        Transaction transaction = Transactions.create();
+        String create = "/create-" + Random.id() + ".txt";
+        String update = "/update-" + Random.id() + ".txt";
+        Publisher.getInstance().addFile(transaction, create, data(), websiteTestPath);
+        Publisher.getInstance().addFile(transaction, update, data(), websiteTestPath);
+
+        // When
+        // We commit the transaction
+        Publisher.getInstance().commit(transaction, websiteTestPath);
+
+        // Then
+        // The timeline should record each phase in order, with the files handled. The commit copies wait for a
+        // publishing thread before they start.
+        Timeline timeline = transaction.timeline();
+        assertEquals(Arrays.asList(Timeline.BEGIN, Timeline.UPLOADS, Timeline.COMMIT_DELETES, Timeline.QUEUE_WAIT,
+                Timeline.COMMIT_COPY, Timeline.END), new ArrayList<>(timeline.phases().keySet()));
+        assertEquals(2, timeline.phase(Timeline.QUEUE_WAIT).files());
+        assertEquals(2, timeline.phase(Timeline.UPLOADS).files());
+        assertTrue(timeline.phase(Timeline.UPLOADS).bytes() > 0);
+        assertEquals(2, timeline.phase(Timeline.COMMIT_COPY).files());
+        assertEquals(timeline.phase(Timeline.UPLOADS).bytes(), timeline.phase(Timeline.COMMIT_COPY).bytes());
+
+        // The committed state and timeline should have been written to disk
+        Transaction read = Transactions.get(transaction.id());
+        assertNotSame(transaction, read);
+        assertEquals(Transaction.COMMITTED, read.getStatus());
+        assertEquals(2, read.timeline().phase(Timeline.COMMIT_COPY).files());
+    }
+
     @Test
     public void shouldCommitDeletesInTransaction() throws IOException {
 
@@ -305,6 +563,363 @@ public class PublisherTest {
         assertFalse(Files.exists(targetPath.getParent()));
     }
 
+    @Test
+    public void shouldDeferManifestCopiesToCommit() throws IOException {
+
+        // Given
+        // A published file and a manifest copying it
+        String source = "/copy-" + Random.id() + "/data.json";
+        String target = "/copy-" + Random.id() + "/data.json";
+        Path sourcePath = PathUtils.toPath(source, websiteTestPath);
+        Files.createDirectories(sourcePath.getParent());
+        Files.copy(tempFile(), sourcePath);
+        Manifest manifest = new Manifest();
+        manifest.addFileToCopy(source, target);
+
+        // When
+        // We add the manifest to the transaction
+        int copied = Publisher.getInstance().copyFilesIntoTransaction(transaction, manifest, websiteTestPath);
+
+        // Then
+        // The copy is recorded, but not made yet
+        assertEquals(1, copied);
+        assertEquals(1, transaction.copies().size());
+        assertTrue(transaction.uris().contains(new UriInfo(target)));
+        assertFalse(Files.exists(PathUtils.toPath(target, Transactions.content(transaction))));
+        assertFalse(Files.exists(PathUtils.toPath(target, websiteTestPath)));
+    }
+
+    @Test
+    public void shouldMakeManifestCopiesOnTheWebsiteAtCommit() throws IOException {
+
+        // Given
+        // A transaction with a manifest copy and an upload
+        String source = "/copy-" + Random.id() + "/data.json";
+        String target = "/copy-" + Random.id() + "/data.json";
+        Path sourcePath = PathUtils.toPath(source, websiteTestPath);
+        Files.createDirectories(sourcePath.getParent());
+        Files.copy(tempFile(), sourcePath);
+        Manifest manifest = new Manifest();
+        manifest.addFileToCopy(source, target);
+        Publisher.getInstance().copyFilesIntoTransaction(transaction, manifest, websiteTestPath);
+        String upload = "/upload-" + Random.id() + ".txt";
+        Publisher.getInstance().addFile(transaction, upload, data(), websiteTestPath);
+
+        // When
+        // We commit the transaction
+        boolean result = Publisher.getInstance().commit(transaction, websiteTestPath);
+
+        // Then
+        // The copy and the upload should both be published
+        assertTrue(result);
+        assertFalse(transaction.hasErrors());
+        assertEquals(Hash.sha(sourcePath), Hash.sha(PathUtils.toPath(target, websiteTestPath)));
+        assertTrue(Files.exists(PathUtils.toPath(upload, websiteTestPath)));
+        for (UriInfo uriInfo : transaction.uris()) {
+            assertEquals(UriInfo.COMMITTED, uriInfo.status());
+        }
+        assertNotNull(transaction.timeline().phase(Timeline.COMMIT_MANIFEST_COPIES));
+    }
+
+    @Test
+    public void shouldNotMakeManifestCopiesAgainWhenACommitIsRetried() throws IOException {
+
+        // Given
+        // A transaction that copies a file to a version and uploads new content over it, and an upload that fails
+        String current = "/retry-" + Random.id() + "/current.json";
+        String version = "/retry-" + Random.id() + "/previous/v1.json";
+        Path currentPath = PathUtils.toPath(current, websiteTestPath);
+        Files.createDirectories(currentPath.getParent());
+        Files.copy(tempFile(), currentPath);
+        String originalSha = Hash.sha(currentPath);
+        Manifest manifest = new Manifest();
+        manifest.addFileToCopy(current, version);
+        Publisher.getInstance().copyFilesIntoTransaction(transaction, manifest, websiteTestPath);
+        Publisher.getInstance().addFile(transaction, current, Random.inputStream(5000), websiteTestPath);
+
+        String blocked = "/blocked-" + Random.id();
+        Path blocker = Files.createFile(PathUtils.toPath(blocked, websiteTestPath));
+        Publisher.getInstance().addFile(transaction, blocked + "/data.json", data(), websiteTestPath);
+        assertFalse(Publisher.getInstance().commit(transaction, websiteTestPath));
+
+        // The first attempt's upload has replaced the copy source
+        Files.copy(Publisher.getInstance().getFile(transaction, current), currentPath,
+                StandardCopyOption.REPLACE_EXISTING);
+        Files.delete(blocker);
+
+        // When
+        // The commit is retried
+        boolean result = Publisher.getInstance().commit(transaction, websiteTestPath);
+
+        // Then
+        // The version still holds the original content and is still recorded as created
+        assertTrue(result);
+        Path versionPath = PathUtils.toPath(version, websiteTestPath);
+        assertEquals(originalSha, Hash.sha(versionPath));
+        assertFalse(Files.exists(PathUtils.toPath(version, Transactions.backup(transaction))));
+        for (UriInfo uriInfo : transaction.uris()) {
+            if (version.equals(uriInfo.uri())) {
+                assertEquals(UriInfo.CREATE, uriInfo.action());
+            }
+        }
+        assertTrue(transaction.copies().isEmpty());
+    }
+
+    @Test
+    public void shouldCopyFromADirectoryBeingDeleted() throws IOException {
+
+        // Given
+        // A manifest that copies a file out of a directory it also deletes
+        String directory = "/moved-" + Random.id();
+        String source = directory + "/data.json";
+        String target = "/destination-" + Random.id() + "/data.json";
+        Path sourcePath = PathUtils.toPath(source, websiteTestPath);
+        Files.createDirectories(sourcePath.getParent());
+        Files.copy(tempFile(), sourcePath);
+        String sha = Hash.sha(sourcePath);
+        Manifest manifest = new Manifest();
+        manifest.addFileToCopy(source, target);
+        manifest.addUriToDelete(directory);
+        Publisher.getInstance().copyFilesIntoTransaction(transaction, manifest, websiteTestPath);
+        Publisher.getInstance().addFilesToDelete(transaction, manifest, websiteTestPath);
+
+        // When
+        // We commit the transaction
+        boolean result = Publisher.getInstance().commit(transaction, websiteTestPath);
+
+        // Then
+        // The directory should be deleted and the file copied out of it
+        assertTrue(result);
+        assertFalse(transaction.hasErrors());
+        assertFalse(Files.exists(sourcePath.getParent()));
+        assertEquals(sha, Hash.sha(PathUtils.toPath(target, websiteTestPath)));
+    }
+
+    @Test
+    public void shouldStageFilesWhenPreparingAndRenameThemAtCommit() throws IOException {
+
+        // Given
+        // A transaction with an upload and a manifest copy
+        String upload = "/prepared-" + Random.id() + "/upload.json";
+        String source = "/prepared-" + Random.id() + "/source.json";
+        String target = "/prepared-" + Random.id() + "/target.json";
+        Path sourcePath = PathUtils.toPath(source, websiteTestPath);
+        Path targetPath = PathUtils.toPath(target, websiteTestPath);
+        Files.createDirectories(sourcePath.getParent());
+        Files.copy(tempFile(), sourcePath);
+        Manifest manifest = new Manifest();
+        manifest.addFileToCopy(source, target);
+        Publisher.getInstance().copyFilesIntoTransaction(transaction, manifest, websiteTestPath);
+        Publisher.getInstance().addFile(transaction, upload, data(), websiteTestPath);
+        Path uploadPath = PathUtils.toPath(upload, websiteTestPath);
+
+        // When
+        // We prepare the transaction
+        boolean prepared = Publisher.getInstance().prepare(transaction, websiteTestPath);
+
+        // Then
+        // Both files are staged as shadows without publishing either of them
+        assertTrue(prepared);
+        assertFalse(transaction.hasErrors());
+        assertEquals(2, transaction.prepared().size());
+        assertTrue(Files.exists(Publisher.shadow(uploadPath, transaction)));
+        assertTrue(Files.exists(Publisher.shadow(targetPath, transaction)));
+        assertFalse(Files.exists(uploadPath));
+        assertFalse(Files.exists(targetPath));
+        assertNotNull(transaction.timeline().phase(Timeline.PREPARE));
+
+        // When
+        // We commit the transaction
+        boolean result = Publisher.getInstance().commit(transaction, websiteTestPath);
+
+        // Then
+        // The staged files are renamed into place
+        assertTrue(result);
+        assertFalse(transaction.hasErrors());
+        assertTrue(transaction.prepared().isEmpty());
+        assertFalse(Files.exists(Publisher.shadow(uploadPath, transaction)));
+        assertFalse(Files.exists(Publisher.shadow(targetPath, transaction)));
+        assertEquals(Hash.sha(sourcePath), Hash.sha(targetPath));
+        assertEquals(Hash.sha(Publisher.getInstance().getFile(transaction, upload)), Hash.sha(uploadPath));
+    }
+
+    @Test
+    public void shouldCopyFilesUploadedAgainAfterPreparing() throws IOException {
+
+        // Given
+        // A prepared transaction whose file is then uploaded again with different content
+        String uri = "/reuploaded-" + Random.id() + ".json";
+        Publisher.getInstance().addFile(transaction, uri, data(), websiteTestPath);
+        assertTrue(Publisher.getInstance().prepare(transaction, websiteTestPath));
+        Publisher.getInstance().addFile(transaction, uri, Random.inputStream(5000), websiteTestPath);
+
+        // When
+        // We commit the transaction
+        boolean result = Publisher.getInstance().commit(transaction, websiteTestPath);
+
+        // Then
+        // The new content is published, not the staged file
+        assertTrue(result);
+        assertTrue(transaction.prepared().isEmpty());
+        Path website = PathUtils.toPath(uri, websiteTestPath);
+        assertEquals(Hash.sha(Publisher.getInstance().getFile(transaction, uri)), Hash.sha(website));
+        assertFalse(Files.exists(Publisher.shadow(website, transaction)));
+    }
+
+    @Test
+    public void shouldRemoveStagedFilesWhenRollingBackAPreparedTransaction() throws IOException {
+
+        // Given
+        // A prepared transaction
+        String uri = "/rolled-back-" + Random.id() + ".json";
+        Publisher.getInstance().addFile(transaction, uri, data(), websiteTestPath);
+        assertTrue(Publisher.getInstance().prepare(transaction, websiteTestPath));
+        Path website = PathUtils.toPath(uri, websiteTestPath);
+
+        // When
+        // We roll it back
+        boolean result = Publisher.getInstance().rollback(transaction, websiteTestPath);
+
+        // Then
+        // The staged file is removed and nothing is published
+        assertTrue(result);
+        assertFalse(Files.exists(Publisher.shadow(website, transaction)));
+        assertFalse(Files.exists(website));
+        assertTrue(transaction.prepared().isEmpty());
+    }
+
+    @Test
+    public void shouldRemoveStagedFilesOfAnAbandonedTransaction() throws IOException {
+
+        // Given
+        // A prepared transaction that will not be committed
+        String uri = "/abandoned-" + Random.id() + ".json";
+        Publisher.getInstance().addFile(transaction, uri, data(), websiteTestPath);
+        assertTrue(Publisher.getInstance().prepare(transaction, websiteTestPath));
+        Path website = PathUtils.toPath(uri, websiteTestPath);
+        assertTrue(Files.exists(Publisher.shadow(website, transaction)));
+
+        // When
+        // We remove its staged files
+        Publisher.getInstance().removeStagedFiles(transaction, websiteTestPath);
+
+        // Then
+        // The staged file is removed and nothing is published
+        assertFalse(Files.exists(Publisher.shadow(website, transaction)));
+        assertFalse(Files.exists(website));
+        assertTrue(transaction.prepared().isEmpty());
+    }
+
+    @Test
+    public void shouldStageFilesWithLongNames() throws IOException {
+
+        // Given
+        // A transaction with a file whose name is as long as the filesystem allows
+        String name = StringUtils.repeat("a", Publisher.MAX_NAME_BYTES - 5) + ".json";
+        String uri = "/long-" + Random.id() + "/" + name;
+        Publisher.getInstance().addFile(transaction, uri, data(), websiteTestPath);
+        Path website = PathUtils.toPath(uri, websiteTestPath);
+
+        // When
+        // We prepare and commit the transaction
+        boolean prepared = Publisher.getInstance().prepare(transaction, websiteTestPath);
+        Path shadow = Publisher.shadow(website, transaction);
+        boolean staged = Files.exists(shadow);
+        boolean result = Publisher.getInstance().commit(transaction, websiteTestPath);
+
+        // Then
+        // The file is staged under a name short enough to create, then renamed into place
+        assertTrue(shadow.getFileName().toString().length() <= Publisher.MAX_NAME_BYTES);
+        assertTrue(prepared);
+        assertTrue(staged);
+        assertTrue(result);
+        assertFalse(Files.exists(shadow));
+        assertEquals(Hash.sha(Publisher.getInstance().getFile(transaction, uri)), Hash.sha(website));
+    }
+
+    @Test
+    public void shouldNotStageFilesUnderADeletedDirectory() throws IOException {
+
+        // Given
+        // A transaction that deletes a directory and uploads a file into it
+        String directory = "/replaced-" + Random.id();
+        Files.createDirectories(PathUtils.toPath(directory, websiteTestPath));
+        Files.copy(tempFile(), PathUtils.toPath(directory + "/old.json", websiteTestPath));
+        Manifest manifest = new Manifest();
+        manifest.addUriToDelete(directory);
+        Publisher.getInstance().addFilesToDelete(transaction, manifest, websiteTestPath);
+        String uri = directory + "/new.json";
+        Publisher.getInstance().addFile(transaction, uri, data(), websiteTestPath);
+        Path website = PathUtils.toPath(uri, websiteTestPath);
+
+        // When
+        // We prepare and commit it
+        Publisher.getInstance().prepare(transaction, websiteTestPath);
+        boolean staged = Files.exists(Publisher.shadow(website, transaction));
+        boolean result = Publisher.getInstance().commit(transaction, websiteTestPath);
+
+        // Then
+        // The file is copied at commit rather than staged, so no shadow is moved into the backup
+        assertFalse(staged);
+        assertTrue(result);
+        assertEquals(Hash.sha(Publisher.getInstance().getFile(transaction, uri)), Hash.sha(website));
+        assertTrue(Transactions.listFiles(transaction, Transactions.BACKUP).stream().noneMatch(Publisher::isShadow));
+    }
+
+    @Test
+    public void shouldNotRestoreFilesStagedByOtherTransactions() throws IOException {
+
+        // Given
+        // A committed transaction that deleted a directory another transaction had staged a file in
+        String directory = "/shared-" + Random.id();
+        Path old = PathUtils.toPath(directory + "/old.json", websiteTestPath);
+        Files.createDirectories(old.getParent());
+        Files.copy(tempFile(), old);
+        Transaction other = Transactions.create();
+        String otherUri = directory + "/other.json";
+        Publisher.getInstance().addFile(other, otherUri, data(), websiteTestPath);
+        assertTrue(Publisher.getInstance().prepare(other, websiteTestPath));
+        Path otherShadow = Publisher.shadow(PathUtils.toPath(otherUri, websiteTestPath), other);
+
+        Manifest manifest = new Manifest();
+        manifest.addUriToDelete(directory);
+        Publisher.getInstance().addFilesToDelete(transaction, manifest, websiteTestPath);
+        assertTrue(Publisher.getInstance().commit(transaction, websiteTestPath));
+
+        // When
+        // We force a rollback of it
+        boolean result = Publisher.getInstance().rollback(transaction, websiteTestPath, true);
+
+        // Then
+        // The deleted file is restored but the other transaction's staged file is not, and it still commits
+        assertTrue(result);
+        assertTrue(Files.exists(old));
+        assertFalse(Files.exists(otherShadow));
+        assertTrue(Publisher.getInstance().commit(other, websiteTestPath));
+        assertEquals(Hash.sha(Publisher.getInstance().getFile(other, otherUri)),
+                Hash.sha(PathUtils.toPath(otherUri, websiteTestPath)));
+    }
+
+    @Test
+    public void shouldRemoveDirectoriesCreatedByAnAbandonedPrepare() throws IOException {
+
+        // Given
+        // A prepared transaction with a file in new website directories
+        String directory = "/abandoned-" + Random.id();
+        Publisher.getInstance().addFile(transaction, directory + "/a/b.json", data(), websiteTestPath);
+        assertTrue(Publisher.getInstance().prepare(transaction, websiteTestPath));
+        assertTrue(Files.isDirectory(PathUtils.toPath(directory + "/a", websiteTestPath)));
+
+        // When
+        // We remove its staged files
+        Publisher.getInstance().removeStagedFiles(transaction, websiteTestPath);
+
+        // Then
+        // The directories the prepare created are removed too
+        assertFalse(Files.exists(PathUtils.toPath(directory, websiteTestPath)));
+        assertTrue(Files.isDirectory(websiteTestPath));
+    }
+
     @Test
     public void shouldReturnZeroFilesToDeleteForNullCollection() throws IOException {
 
@@ -363,7 +978,7 @@ public class PublisherTest {
 
         // When
         // We roll back the transaction
-        Publisher.getInstance().rollback(transaction);
+        Publisher.getInstance().rollback(transaction, websiteTestPath);
 
 
         // Then
@@ -378,6 +993,103 @@ public class PublisherTest {
         }
     }
 
+    @Test
+    public void shouldRestoreWebsiteWhenRollingBackACommittedTransaction() throws IOException {
+
+        // Given
+        // A committed transaction that updated a file, created a file and deleted a directory
+        String updated = "/restore-" + Random.id() + "/updated.json";
+        String created = "/restore-" + Random.id() + "/created.json";
+        String deleted = "/restore-" + Random.id();
+        Path updatedPath = PathUtils.toPath(updated, websiteTestPath);
+        Path deletedFile = PathUtils.toPath(deleted + "/a/data.json", websiteTestPath);
+        Files.createDirectories(updatedPath.getParent());
+        Files.createDirectories(deletedFile.getParent());
+        Files.copy(tempFile(), updatedPath);
+        Files.copy(tempFile(), deletedFile);
+        String updatedSha = Hash.sha(updatedPath);
+        String deletedSha = Hash.sha(deletedFile);
+
+        Publisher.getInstance().addFile(transaction, updated, data(), websiteTestPath);
+        Publisher.getInstance().addFile(transaction, created, data(), websiteTestPath);
+        Manifest manifest = new Manifest();
+        manifest.addUriToDelete(deleted);
+        Publisher.getInstance().addFilesToDelete(transaction, manifest, websiteTestPath);
+        assertTrue(Publisher.getInstance().commit(transaction, websiteTestPath));
+        Transaction committed = Transactions.get(transaction.id());
+        assertEquals(Transaction.COMMITTED, committed.getStatus());
+
+        // When
+        // We force a roll back
+        boolean result = Publisher.getInstance().rollback(committed, websiteTestPath, true);
+
+        // Then
+        // The website is as it was before the commit, and the rollback is recorded
+        assertTrue(result);
+        assertEquals(updatedSha, Hash.sha(updatedPath));
+        assertFalse(Files.exists(PathUtils.toPath(created, websiteTestPath)));
+        assertEquals(deletedSha, Hash.sha(deletedFile));
+        assertEquals(Transaction.ROLLED_BACK, committed.getStatus());
+        for (UriInfo uriInfo : committed.uris()) {
+            assertEquals(UriInfo.ROLLED_BACK, uriInfo.status());
+        }
+        for (UriInfo uriInfo : committed.urisToDelete()) {
+            assertEquals(UriInfo.ROLLED_BACK, uriInfo.status());
+        }
+        assertNotNull(committed.timeline().phase(Timeline.ROLLBACK_RESTORE));
+        assertEquals(Transaction.ROLLED_BACK, Transactions.getClosedTransactions().get(transaction.id()));
+    }
+
+    @Test
+    public void shouldNotRestoreWebsiteForAnEndedTransactionUnlessForced() throws IOException {
+
+        // Given
+        // A committed transaction that updated a file, since published over by a later transaction
+        String uri = "/ended-" + Random.id() + ".json";
+        Path website = PathUtils.toPath(uri, websiteTestPath);
+        Files.copy(tempFile(), website);
+        Publisher.getInstance().addFile(transaction, uri, data(), websiteTestPath);
+        assertTrue(Publisher.getInstance().commit(transaction, websiteTestPath));
+        Transaction committed = Transactions.get(transaction.id());
+        Transaction later = Transactions.create();
+        Publisher.getInstance().addFile(later, uri, Random.inputStream(5000), websiteTestPath);
+        assertTrue(Publisher.getInstance().commit(later, websiteTestPath));
+        String laterSha = Hash.sha(website);
+
+        // When
+        // We roll back the earlier transaction without forcing it
+        boolean result = Publisher.getInstance().rollback(committed, websiteTestPath);
+
+        // Then
+        // The later publish is left in place and the earlier transaction is not rolled back
+        assertFalse(result);
+        assertEquals(laterSha, Hash.sha(website));
+        assertEquals(Transaction.COMMITTED, committed.getStatus());
+        assertTrue(committed.hasErrors());
+    }
+
+    @Test
+    public void shouldLeaveWebsiteAloneWhenRollingBackAnUncommittedTransaction() throws IOException {
+
+        // Given
+        // A file on the website and an uncommitted transaction updating it
+        String uri = "/untouched-" + Random.id() + ".json";
+        Path website = PathUtils.toPath(uri, websiteTestPath);
+        Files.copy(tempFile(), website);
+        String sha = Hash.sha(website);
+        Publisher.getInstance().addFile(transaction, uri, data(), websiteTestPath);
+
+        // When
+        // We roll it back
+        boolean result = Publisher.getInstance().rollback(transaction, websiteTestPath);
+
+        // Then
+        // The website file is unchanged
+        assertTrue(result);
+        assertEquals(sha, Hash.sha(website));
+        assertNull(transaction.timeline().phase(Timeline.ROLLBACK_RESTORE));
+    }
+
     @Test
     public void shouldAddFilesToDelete() throws IOException {
 
@@ -402,9 +1114,9 @@ public class PublisherTest {
     }
 
     @Test
-    public void shouldBackupFilesWhenAddingFilesToDelete() throws IOException {
+    public void shouldBackupFilesWhenCommittingDeletes() throws IOException {
 
-        // Given a manifest with two files to delete.
+        // Given a manifest with a directory to delete.
         Manifest manifest = new Manifest();
         String uri = "/some/uri";
         manifest.addUriToDelete(uri);
@@ -413,27 +1125,52 @@ public class PublisherTest {
         Path target = PathUtils.toPath(fileUri, websiteTestPath);
         Files.createDirectories(target.getParent());
         Files.move(tempFile(), target); // create published file in website directory
+        String sha = Hash.sha(target);
 
-        // When we add files to delete to the transaction.
-        int filesToDelete = Publisher.getInstance().addFilesToDelete(this.transaction, manifest, websiteTestPath);
+        // When we add files to delete to the transaction and commit it.
+        Publisher.getInstance().addFilesToDelete(this.transaction, manifest, websiteTestPath);
+        Path backup = Transactions.backup(transaction);
+        assertFalse(Files.exists(PathUtils.toPath(uri, backup)));
+        Publisher.getInstance().commit(transaction, websiteTestPath);
 
-        // Then the returned number of deletes is as expected
-        assertEquals(manifest.getUrisToDelete().size(), filesToDelete);
+        // Then the directory has been moved from the website into the backup directory
+        assertFalse(Files.exists(target));
+        assertEquals(sha, Hash.sha(PathUtils.toPath(fileUri, backup)));
+        for (UriInfo uriInfo : transaction.urisToDelete()) {
+            assertEquals(UriInfo.COMMITTED, uriInfo.status());
+        }
+    }
 
-        // and the transaction contains a uriInfo instance for each delete added.
-        ArrayList<UriInfo> uriInfos = new ArrayList<>(this.transaction.urisToDelete());
-        assertEquals(manifest.getUrisToDelete().size(), uriInfos.size());
+    @Test
+    public void shouldBuryEarlierBackupsWhenCommittingDeletes() throws IOException {
+
+        // Given a transaction that updates a file in a directory it also deletes
+        String uri = "/deleted-" + Random.id();
+        String updated = uri + "/updated.json";
+        String other = uri + "/other.json";
+        Path updatedPath = PathUtils.toPath(updated, websiteTestPath);
+        Files.createDirectories(updatedPath.getParent());
+        Files.copy(tempFile(), updatedPath);
+        Files.copy(tempFile(), PathUtils.toPath(other, websiteTestPath));
+        String sha = Hash.sha(updatedPath);
+
+        Publisher.getInstance().addFile(transaction, updated, data(), websiteTestPath);
+        Manifest manifest = new Manifest();
+        manifest.addUriToDelete(uri);
+        Publisher.getInstance().addFilesToDelete(transaction, manifest, websiteTestPath);
+        int buried = Transactions.tombstones().list().size();
 
-        for (UriInfo uriInfo : uriInfos) {
-            assertTrue(manifest.getUrisToDelete().contains(uriInfo.uri()));
-        }
+        // When we commit the transaction
+        boolean result = Publisher.getInstance().commit(transaction, websiteTestPath);
 
-        // there is a file in the backup directory that is the same as the website file
+        // Then the whole directory is backed up, the upload's backup is buried and the upload is published
+        assertTrue(result);
         Path backup = Transactions.backup(transaction);
-        assertTrue(Files.exists(PathUtils.toPath(uri, backup)));
-        assertEquals(Hash.sha(PathUtils.toPath(fileUri, backup)),
-                Hash.sha(PathUtils.toPath(fileUri, websiteTestPath)));
-
+        assertEquals(sha, Hash.sha(PathUtils.toPath(updated, backup)));
+        assertTrue(Files.exists(PathUtils.toPath(other, backup)));
+        assertEquals(buried + 1, Transactions.tombstones().list().size());
+        assertTrue(Files.exists(updatedPath));
+        assertFalse(Files.exists(PathUtils.toPath(other, websiteTestPath)));
     }
 
     private static InputStream data() throws IOException {
@@ -0,0 +1,100 @@
+package com.github.onsdigital.thetrain.storage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link Tombstones}.
+ */
+public class TombstonesTest {
+
+    private Path transactionStore;
+    private Tombstones tombstones;
+
+    @Before
+    public void setUp() throws IOException {
+        transactionStore = Files.createTempDirectory("transaction-store");
+        tombstones = new Tombstones(transactionStore);
+    }
+
+    @Test
+    public void shouldBuryTreeWithARename() throws IOException {
+
+        // Given
+        // A directory tree
+        Path tree = tree("tree");
+
+        // When
+        // We bury it
+        Path buried = tombstones.bury(tree);
+
+        // Then
+        // It should have moved, with its content, into the tombstones directory
+        assertFalse(Files.exists(tree));
+        assertTrue(buried.startsWith(transactionStore.resolve(Tombstones.DIR)));
+        assertTrue(Files.exists(buried.resolve("a/b/c.json")));
+        assertEquals(1, tombstones.list().size());
+    }
+
+    @Test
+    public void shouldDeleteBuriedTrees() throws IOException {
+
+        // Given
+        // Two buried trees
+        tombstones.bury(tree("one"));
+        tombstones.bury(tree("two"));
+
+        // When
+        // The cleaner runs
+        int deleted = tombstones.clean();
+
+        // Then
+        // Both trees should be gone
+        assertEquals(2, deleted);
+        assertTrue(tombstones.list().isEmpty());
+    }
+
+    @Test
+    public void shouldDoNothingWhenNothingIsBuried() {
+        assertEquals(0, tombstones.clean());
+    }
+
+    @Test
+    public void shouldDeleteWithinBudget() throws Exception {
+
+        // Given
+        // A buried tree and a budget that is paused
+        tombstones.bury(tree("tree"));
+        tombstones.start(Long.MAX_VALUE, new IoBudget(1024, () -> true), Runnable::run);
+
+        // When
+        // The cleaner runs on another thread
+        Thread thread = new Thread(tombstones::clean);
+        thread.start();
+        thread.join(200);
+
+        // Then
+        // Nothing should have been deleted until the budget allows it
+        assertTrue(thread.isAlive());
+        assertEquals(1, tombstones.list().size());
+        thread.interrupt();
+        thread.join();
+        tombstones.shutdown();
+    }
+
+    private Path tree(String name) throws IOException {
+        Path tree = transactionStore.resolve(name);
+        Files.createDirectories(tree.resolve("a/b"));
+        Files.write(tree.resolve("a/b/c.json"), new byte[100]);
+        Files.write(tree.resolve("a/d.json"), new byte[10]);
+        return tree;
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.github.onsdigital.thetrain.json.Transaction;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link TransactionArchiver}.
+ */
+public class TransactionArchiverTest {
+
+    private Path transactionStore;
+    private TransactionArchiver archiver;
+
+    @Before
+    public void setUp() throws IOException {
+        transactionStore = Files.createTempDirectory("transaction-store");
+        Transactions.init(transactionStore);
+        archiver = new TransactionArchiver(transactionStore, 0, new IoBudget(1024 * 1024 * 1024, () -> false),
+                Files.createTempDirectory("website"));
+    }
+
+    @Test
+    public void shouldArchiveCommittedTransaction() throws Exception {
+
+        // Given
+        // A committed transaction with some content
+        Transaction transaction = committedTransaction();
+
+        // When
+        // The archiver runs
+        int archived = archiver.archiveEligible();
+
+        // Then
+        // The directory should have been replaced by an archive that can still be read
+        assertEquals(1, archived);
+        assertFalse(Files.exists(transactionStore.resolve(transaction.id())));
+        assertTrue(Files.exists(TransactionArchive.path(transactionStore, transaction.id())));
+
+        Transaction read = Transactions.get(transaction.id());
+        assertNotNull(read);
+        assertEquals(Transaction.COMMITTED, read.getStatus());
+        assertEquals(Collections.singletonList("/a/b.json"), Transactions.listFiles(read, Transactions.CONTENT));
+        assertEquals(Collections.emptyList(), Transactions.listFiles(read, Transactions.BACKUP));
+    }
+
+    @Test
+    public void shouldNotArchiveOpenTransaction() throws Exception {
+
+        // Given
+        // An open transaction
+        Transaction transaction = Transactions.create();
+        Transactions.tryUpdateAsync(transaction.id()).get();
+
+        // When
+        // The archiver runs
+        int archived = archiver.archiveEligible();
+
+        // Then
+        // The transaction should be left alone
+        assertEquals(0, archived);
+        assertTrue(Files.isDirectory(transactionStore.resolve(transaction.id())));
+    }
+
+    @Test
+    public void shouldRecoverArchivedTransaction() throws Exception {
+
+        // Given
+        // An archived transaction and no transaction index
+        Transaction transaction = committedTransaction();
+        archiver.archiveEligible();
+        Files.delete(transactionStore.resolve(TransactionIndex.INDEX_FILE));
+
+        // When
+        // The store is recovered
+        Transactions.init(transactionStore);
+        Transactions.recover(2);
+
+        // Then
+        // The archived transaction should be back in the index
+        assertEquals(Transaction.COMMITTED, Transactions.getClosedTransactions().get(transaction.id()));
+        assertEquals(1, Transactions.history(0, Long.MAX_VALUE, Collections.emptySet(), null, 10).getTotal());
+    }
+
+    @Test
+    public void shouldRefuseToRollBackArchivedTransaction() throws Exception {
+
+        // Given
+        // An archived transaction
+        Transaction transaction = committedTransaction();
+        archiver.archiveEligible();
+        Transaction read = Transactions.get(transaction.id());
+
+        // When
+        // It is rolled back, even with force
+        boolean result = Publisher.getInstance().rollback(read, Files.createTempDirectory("website"), true);
+
+        // Then
+        // The rollback should fail with an error saying why, leaving the transaction committed
+        assertFalse(result);
+        assertTrue(read.errors().contains(Publisher.ARCHIVED_ROLLBACK_ERR));
+        assertEquals(Transaction.COMMITTED, read.getStatus());
+    }
+
+    private Transaction committedTransaction() throws Exception {
+        Transaction transaction = Transactions.create();
+        Path file = Transactions.content(transaction).resolve("a/b.json");
+        Files.createDirectories(file.getParent());
+        Files.write(file, "{}".getBytes(StandardCharsets.UTF_8));
+        transaction.commit(true);
+        Transactions.tryUpdateAsync(transaction.id()).get();
+        Transactions.end(transaction);
+
+        // Make sure the transaction ended strictly before the archiver looks for candidates.
+        Thread.sleep(5);
+        return transaction;
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.onsdigital.thetrain.storage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link TransactionDirectoryPool}.
+ */
+public class TransactionDirectoryPoolTest {
+
+    private Path transactionStore;
+
+    @Before
+    public void setUp() throws IOException {
+        transactionStore = Files.createTempDirectory("transaction-store");
+    }
+
+    @Test
+    public void shouldFillPoolInBackground() throws Exception {
+
+        // Given
+        // A new pool
+        TransactionDirectoryPool pool = new TransactionDirectoryPool(transactionStore, 3);
+
+        // When
+        // The pool has had time to fill
+        awaitDepth(pool, 3);
+
+        // Then
+        // The pool directory should contain the pre-created transaction directories
+        assertEquals(3, pool.depth());
+        assertEquals(3, Files.list(transactionStore.resolve(TransactionDirectoryPool.POOL_DIR)).count());
+        pool.shutdown();
+    }
+
+    @Test
+    public void shouldClaimDirectoryAndRefill() throws Exception {
+
+        // Given
+        // A full pool
+        TransactionDirectoryPool pool = new TransactionDirectoryPool(transactionStore, 2);
+        awaitDepth(pool, 2);
+
+        // When
+        // We claim a directory
+        Path target = transactionStore.resolve("claimed");
+        boolean claimed = pool.claim(target);
+
+        // Then
+        // The directory structure should have been moved into place and the pool refilled
+        assertTrue(claimed);
+        assertTrue(Files.isDirectory(target.resolve(Transactions.CONTENT)));
+        assertTrue(Files.isDirectory(target.resolve(Transactions.BACKUP)));
+        awaitDepth(pool, 2);
+        pool.shutdown();
+    }
+
+    @Test
+    public void shouldReuseDirectoriesFromPreviousRun() throws Exception {
+
+        // Given
+        // A pool that has been filled and shut down
+        TransactionDirectoryPool previous = new TransactionDirectoryPool(transactionStore, 2);
+        awaitDepth(previous, 2);
+        previous.shutdown();
+
+        // When
+        // A new pool is created over the same transaction store
+        TransactionDirectoryPool pool = new TransactionDirectoryPool(transactionStore, 2);
+
+        // Then
+        // The existing directories should be adopted rather than new ones created
+        assertEquals(2, pool.depth());
+        assertEquals(2, Files.list(transactionStore.resolve(TransactionDirectoryPool.POOL_DIR)).count());
+        pool.shutdown();
+    }
+
+    @Test
+    public void shouldNotClaimFromEmptyPool() throws Exception {
+
+        // Given
+        // A pool with no capacity
+        TransactionDirectoryPool pool = new TransactionDirectoryPool(transactionStore, 0);
+
+        // When
+        // We try to claim a directory
+        Path target = transactionStore.resolve("claimed");
+        boolean claimed = pool.claim(target);
+
+        // Then
+        // Nothing should have been claimed
+        assertFalse(claimed);
+        assertFalse(Files.exists(target));
+        pool.shutdown();
+    }
+
+    private static void awaitDepth(TransactionDirectoryPool pool, int depth) throws InterruptedException {
+        for (int i = 0; i < 100 && pool.depth() < depth; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(depth, pool.depth());
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.onsdigital.thetrain.json.Transaction;
+import com.github.onsdigital.thetrain.json.TransactionIndexEntry;
+import com.github.onsdigital.thetrain.response.Page;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link TransactionIndex}.
+ */
+public class TransactionIndexTest {
+
+    private Path transactionStore;
+    private ObjectMapper objectMapper;
+
+    @Before
+    public void setUp() throws IOException {
+        transactionStore = Files.createTempDirectory("transaction-store");
+        objectMapper = new ObjectMapper();
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        objectMapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+    }
+
+    @Test
+    public void shouldPersistLatestEntryPerTransaction() throws IOException {
+
+        // Given
+        // A transaction indexed when it started and again when it was committed
+        TransactionIndex index = new TransactionIndex(transactionStore, objectMapper);
+        assertFalse(index.isLoaded());
+        Transaction transaction = new Transaction();
+        index.put(transaction);
+        transaction.commit(true);
+        index.put(transaction);
+        index.close();
+
+        // When
+        // The index is reloaded
+        TransactionIndex reloaded = new TransactionIndex(transactionStore, objectMapper);
+
+        // Then
+        // The latest state should have been read back
+        assertTrue(reloaded.isLoaded());
+        assertEquals(1, reloaded.size());
+        TransactionIndexEntry entry = reloaded.get(transaction.id());
+        assertNotNull(entry);
+        assertEquals(Transaction.COMMITTED, entry.status());
+        assertTrue(entry.isClosed());
+        reloaded.close();
+    }
+
+    @Test
+    public void shouldFilterByStatus() throws IOException {
+
+        // Given
+        // A committed and an open transaction
+        TransactionIndex index = new TransactionIndex(transactionStore, objectMapper);
+        Transaction committed = new Transaction();
+        committed.commit(true);
+        Transaction open = new Transaction();
+        index.put(committed);
+        index.put(open);
+
+        // When
+        // We query for committed transactions
+        Page<TransactionIndexEntry> page = index.query(0, Long.MAX_VALUE,
+                new HashSet<>(Collections.singletonList(Transaction.COMMITTED)), null, 10);
+
+        // Then
+        // Only the committed transaction should be returned
+        assertEquals(1, page.getTotal());
+        assertEquals(committed.id(), page.getItems().get(0).id());
+        assertNull(page.getNextCursor());
+        index.close();
+    }
+
+    @Test
+    public void shouldPageThroughTransactions() throws IOException {
+
+        // Given
+        // Three transactions
+        TransactionIndex index = new TransactionIndex(transactionStore, objectMapper);
+        for (int i = 0; i < 3; i++) {
+            index.put(new Transaction());
+        }
+
+        // When
+        // We page through them two at a time
+        Page<TransactionIndexEntry> first = index.query(0, Long.MAX_VALUE, Collections.emptySet(), null, 2);
+        Page<TransactionIndexEntry> second = index.query(0, Long.MAX_VALUE, Collections.emptySet(),
+                first.getNextCursor(), 2);
+
+        // Then
+        // Every transaction should be returned exactly once
+        assertEquals(3, first.getTotal());
+        assertEquals(2, first.getItems().size());
+        assertNotNull(first.getNextCursor());
+        assertEquals(1, second.getItems().size());
+        assertNull(second.getNextCursor());
+
+        HashSet<String> ids = new HashSet<>();
+        first.getItems().forEach(e -> ids.add(e.id()));
+        second.getItems().forEach(e -> ids.add(e.id()));
+        assertEquals(3, ids.size());
+        index.close();
+    }
+
+    @Test
+    public void shouldFilterByStartTime() throws IOException {
+
+        // Given
+        // An indexed transaction
+        TransactionIndex index = new TransactionIndex(transactionStore, objectMapper);
+        Transaction transaction = new Transaction();
+        index.put(transaction);
+        long start = index.get(transaction.id()).startTime();
+
+        // When
+        // We query ranges either side of its start time
+        Page<TransactionIndexEntry> before = index.query(0, start, Collections.emptySet(), null, 10);
+        Page<TransactionIndexEntry> after = index.query(start, Long.MAX_VALUE, Collections.emptySet(), null, 10);
+
+        // Then
+        // The range is inclusive of from and exclusive of to
+        assertEquals(0, before.getTotal());
+        assertEquals(1, after.getTotal());
+        index.close();
+    }
+
+    @Test
+    public void shouldCompactAndDropRemovedTransactions() throws IOException {
+
+        // Given
+        // Two transactions, each indexed several times
+        TransactionIndex index = new TransactionIndex(transactionStore, objectMapper);
+        Transaction kept = new Transaction();
+        Transaction removed = new Transaction();
+        for (int i = 0; i < 3; i++) {
+            index.put(kept);
+            index.put(removed);
+        }
+
+        // When
+        // One is no longer on disk and the index is compacted
+        index.retainAll(new HashSet<>(Arrays.asList(kept.id())));
+        index.compact();
+        index.close();
+
+        // Then
+        // The file should hold a single line for the remaining transaction
+        assertEquals(1, Files.readAllLines(transactionStore.resolve(TransactionIndex.INDEX_FILE)).size());
+        TransactionIndex reloaded = new TransactionIndex(transactionStore, objectMapper);
+        assertNotNull(reloaded.get(kept.id()));
+        assertNull(reloaded.get(removed.id()));
+        reloaded.close();
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.onsdigital.thetrain.storage;
+
+import com.github.onsdigital.thetrain.json.Transaction;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link TransactionReaper}.
+ */
+public class TransactionReaperTest {
+
+    private Path website;
+
+    @Before
+    public void setUp() throws IOException {
+        Transactions.init(Files.createTempDirectory("transaction-store"));
+        website = Files.createTempDirectory("website");
+    }
+
+    @Test
+    public void shouldMarkIdleOpenTransactionStale() throws Exception {
+
+        // Given
+        // An open transaction that has not been used for longer than the timeout
+        Transaction transaction = Transactions.create();
+        Transactions.tryUpdateAsync(transaction.id()).get();
+        Thread.sleep(10);
+
+        // When
+        // The reaper runs
+        int reaped = new TransactionReaper(1, 0, website).reap();
+
+        // Then
+        // The transaction should have been persisted as stale and released from memory
+        assertEquals(1, reaped);
+        assertFalse(Transactions.getTransactionMap().containsKey(transaction.id()));
+        assertFalse(Transactions.getTransactionExecutorMap().containsKey(transaction.id()));
+        assertEquals(Transaction.STALE, Transactions.get(transaction.id()).getStatus());
+    }
+
+    @Test
+    public void shouldReleaseFailedTransactionWithStatusUnchanged() throws Exception {
+
+        // Given
+        // A transaction whose commit failed, which is left in memory
+        Transaction transaction = Transactions.create();
+        transaction.commit(false);
+        Transactions.update(transaction);
+        Thread.sleep(10);
+
+        // When
+        // The reaper runs with only the failed timeout enabled
+        int reaped = new TransactionReaper(0, 1, website).reap();
+
+        // Then
+        // The transaction should have been released with its status intact
+        assertEquals(1, reaped);
+        assertFalse(Transactions.getTransactionMap().containsKey(transaction.id()));
+        assertEquals(Transaction.COMMIT_FAILED, Transactions.get(transaction.id()).getStatus());
+    }
+
+    @Test
+    public void shouldRemoveStagedFilesOfReapedTransaction() throws Exception {
+
+        // Given
+        // A prepared transaction abandoned by its client
+        Transaction transaction = Transactions.create();
+        Publisher.getInstance().addFile(transaction, "/reaped.json",
+                new ByteArrayInputStream("reaped".getBytes(StandardCharsets.UTF_8)), website);
+        assertTrue(Publisher.getInstance().prepare(transaction, website));
+        Path shadow = Publisher.shadow(website.resolve("reaped.json"), transaction);
+        assertTrue(Files.exists(shadow));
+        Thread.sleep(10);
+
+        // When
+        // The reaper runs
+        int reaped = new TransactionReaper(1, 0, website).reap();
+
+        // Then
+        // The staged file should have been removed without publishing it
+        assertEquals(1, reaped);
+        assertFalse(Files.exists(shadow));
+        assertFalse(Files.exists(website.resolve("reaped.json")));
+    }
+
+    @Test
+    public void shouldNotReapActiveTransaction() throws Exception {
+
+        // Given
+        // A transaction that has just been used
+        Transaction transaction = Transactions.create();
+        Transactions.get(transaction.id());
+
+        // When
+        // The reaper runs
+        int reaped = new TransactionReaper(TimeUnit.HOURS.toMillis(1), TimeUnit.HOURS.toMillis(1), website).reap();
+
+        // Then
+        // The transaction should still be open and in memory
+        assertEquals(0, reaped);
+        assertTrue(Transactions.getTransactionMap().containsKey(transaction.id()));
+        assertTrue(Transactions.get(transaction.id()).isOpen());
+    }
+}
@@ -11,12 +11,14 @@ import org.junit.Test;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.assertEquals;
@@ -57,6 +59,113 @@ public class TransactionsTest {
         assertNotNull(Transactions.get(transaction.id()));
     }
 
+    /**
+     * Tests that a website on the same filesystem as the transaction store passes the check.
+     */
+    @Test
+    public void shouldFindWebsiteOnSameFileStore() throws IOException {
+
+        // Given
+        // A website next to the transaction store
+        Path website = Files.createTempDirectory("website");
+
+        // When
+        // We check their filesystems
+        boolean same = Transactions.checkFileStore(website);
+
+        // Then
+        // They should be on the same one
+        assertTrue(same);
+    }
+
+    /**
+     * Tests that with strict durability a transaction is on disk as soon as it is created.
+     */
+    @Test
+    public void shouldWriteTransactionBeforeReturningWithStrictDurability() throws IOException {
+
+        // Given
+        // Strict durability
+        FileSync.setDurability(Durability.STRICT);
+
+        try {
+            // When
+            // We create a transaction
+            Transaction transaction = Transactions.create();
+
+            // Then
+            // Its Json should already have been written
+            assertTrue(Files.exists(Transactions.path(transaction.id()).resolve(Transactions.JSON)));
+        } finally {
+            FileSync.setDurability(Durability.NONE);
+        }
+    }
+
+    /**
+     * Tests that with strict durability a transaction that cannot be written is not created.
+     */
+    @Test
+    public void shouldFailToCreateTransactionThatCannotBeWrittenWithStrictDurability() throws Exception {
+
+        // Given
+        // Strict durability and a pooled directory in which the Json cannot be written
+        Path transactionStore = Files.createTempDirectory("transaction-store");
+        Transactions.init(transactionStore, 1, 0);
+        Path pool = transactionStore.resolve(TransactionDirectoryPool.POOL_DIR);
+        Path pooled = null;
+        for (int i = 0; i < 500 && pooled == null; i++) {
+            try (Stream<Path> dirs = Files.list(pool)) {
+                pooled = dirs.filter(dir -> Files.isDirectory(dir.resolve(Transactions.BACKUP))).findFirst()
+                        .orElse(null);
+            }
+            Thread.sleep(10);
+        }
+        assertNotNull(pooled);
+        Files.createDirectory(pooled.resolve(Transactions.JSON));
+        FileSync.setDurability(Durability.STRICT);
+
+        try {
+            // When
+            // We create a transaction
+            Transactions.create();
+            Assert.fail("the transaction should not have been created");
+        } catch (IOException e) {
+            // Then
+            // The error should be reported and nothing kept in memory
+            assertTrue(Transactions.getTransactionMap().isEmpty());
+        } finally {
+            FileSync.setDurability(Durability.NONE);
+            Transactions.init(Files.createTempDirectory("transaction-store"));
+        }
+    }
+
+    /**
+     * Tests that a transaction created from the directory pool is written to disk.
+     */
+    @Test
+    public void shouldCreateTransactionFromDirectoryPool() throws Exception {
+
+        // Given
+        // A transaction store with a directory pool
+        Path transactionStore = Files.createTempDirectory("transaction-store");
+        Transactions.init(transactionStore, 2, 0);
+
+        // When
+        // We create a transaction and wait for the asynchronous write
+        Transaction transaction = Transactions.create();
+        Transactions.tryUpdateAsync(transaction.id()).get();
+
+        // Then
+        // The transaction should have its directory structure and Json on disk
+        Path path = transactionStore.resolve(transaction.id());
+        assertTrue(Files.isDirectory(path.resolve(Transactions.CONTENT)));
+        assertTrue(Files.isDirectory(path.resolve(Transactions.BACKUP)));
+        assertTrue(Files.exists(path.resolve(Transactions.JSON)));
+
+        Transactions.end(transaction);
+        Transactions.init(transactionStore);
+    }
+
     /**
      * Tests that a collection is created with an ID and start date and can be read using the ID.
      */
@@ -248,6 +357,113 @@ public class TransactionsTest {
         }
     }
 
+    /**
+     * Tests that open transactions are rehydrated into memory, and closed ones indexed, when the store is recovered.
+     */
+    @Test
+    public void shouldRecoverTransactionStore() throws Exception {
+
+        // Given
+        // An open and a committed transaction on disk from a previous run
+        Path transactionStore = Files.createTempDirectory("transaction-store");
+        Transactions.init(transactionStore);
+
+        Transaction open = Transactions.create();
+        open.addUri(new UriInfo("/open.txt"));
+        Transactions.update(open);
+
+        Transaction committed = Transactions.create();
+        committed.commit(true);
+        Transactions.update(committed);
+
+        // When
+        // The service restarts and recovers the transaction store
+        Transactions.init(transactionStore);
+        Transactions.recover(2);
+
+        // Then
+        // The open transaction should be in memory with an executor so async updates are persisted
+        assertTrue(Transactions.getTransactionMap().containsKey(open.id()));
+        assertTrue(Transactions.getTransactionExecutorMap().containsKey(open.id()));
+        assertEquals(1, Transactions.get(open.id()).uris().size());
+        assertTrue(Transactions.tryUpdateAsync(open.id()).get());
+
+        // And the committed transaction should only be indexed
+        assertFalse(Transactions.getTransactionMap().containsKey(committed.id()));
+        assertEquals(Transaction.COMMITTED, Transactions.getClosedTransactions().get(committed.id()));
+    }
+
+    @Test
+    public void shouldSkipIndexedClosedTransactionsOnRecovery() throws Exception {
+
+        // Given
+        // A committed transaction recorded in the index
+        Path transactionStore = Files.createTempDirectory("transaction-store");
+        Transactions.init(transactionStore);
+        Transaction transaction = Transactions.create();
+        transaction.commit(true);
+        Transactions.tryUpdateAsync(transaction.id()).get();
+        Transactions.end(transaction);
+
+        // When
+        // Its Json is lost and the store is recovered
+        Files.delete(transactionStore.resolve(transaction.id()).resolve(Transactions.JSON));
+        Transactions.init(transactionStore);
+        Transactions.recover(2);
+
+        // Then
+        // Its status should come from the index and it should be listed
+        assertEquals(Transaction.COMMITTED, Transactions.getClosedTransactions().get(transaction.id()));
+        assertEquals(1, Transactions.history(0, Long.MAX_VALUE, Collections.emptySet(), null, 10).getTotal());
+    }
+
+    /**
+     * Tests that an open transaction read from disk is kept in memory so it is only read once.
+     */
+    @Test
+    public void shouldRehydrateOpenTransactionOnGet() throws IOException {
+
+        // Given
+        // An open transaction that is only on disk
+        Transaction transaction = Transactions.create();
+        Transactions.update(transaction);
+        Transactions.getTransactionMap().remove(transaction.id());
+
+        // When
+        // We get the transaction twice
+        Transaction first = Transactions.get(transaction.id());
+        Transaction second = Transactions.get(transaction.id());
+
+        // Then
+        // The same in-memory instance should be returned
+        assertNotNull(first);
+        assertTrue(first == second);
+        assertTrue(Transactions.getTransactionMap().containsKey(transaction.id()));
+    }
+
+    @Test
+    public void shouldServeClosedTransactionFromCache() throws Exception {
+
+        // Given
+        // A committed transaction that has been ended
+        Transaction transaction = Transactions.create();
+        transaction.commit(true);
+        Transactions.tryUpdateAsync(transaction.id()).get();
+        Transactions.end(transaction);
+
+        // When
+        // We get the transaction twice
+        Transaction first = Transactions.get(transaction.id());
+        Transaction second = Transactions.get(transaction.id());
+
+        // Then
+        // The second read should be served from the cache without rehydrating the transaction
+        assertNotNull(first);
+        assertEquals(Transaction.COMMITTED, first.getStatus());
+        assertTrue(first == second);
+        assertFalse(Transactions.getTransactionMap().containsKey(transaction.id()));
+    }
+
     /**
      * Tests that a collection is created with an ID and start date and can be read using the ID.
      */